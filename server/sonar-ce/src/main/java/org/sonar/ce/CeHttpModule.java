@@ -21,6 +21,7 @@ package org.sonar.ce;
 
 import org.sonar.ce.httpd.CeHttpServer;
 import org.sonar.ce.logging.ChangeLogLevelHttpAction;
+import org.sonar.ce.queue.NewTasksHttpAction;
 import org.sonar.ce.systeminfo.SystemInfoHttpAction;
 import org.sonar.core.platform.Module;
 
@@ -30,6 +31,7 @@ public class CeHttpModule extends Module {
     add(
       CeHttpServer.class,
       SystemInfoHttpAction.class,
-      ChangeLogLevelHttpAction.class);
+      ChangeLogLevelHttpAction.class,
+      NewTasksHttpAction.class);
   }
 }
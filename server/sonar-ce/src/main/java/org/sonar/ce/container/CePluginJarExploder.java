@@ -20,20 +20,20 @@
 package org.sonar.ce.container;
 
 import java.io.File;
-import org.apache.commons.io.FileUtils;
+import java.util.Collection;
 import org.sonar.server.platform.ServerFileSystem;
-import org.sonar.api.utils.ZipUtils;
 import org.sonar.core.platform.ExplodedPlugin;
 import org.sonar.core.platform.PluginInfo;
 import org.sonar.core.platform.PluginJarExploder;
 
 /**
- * Explodes the plugin JARs of extensions/plugins/ into a temporary directory
- * dedicated to compute engine.
+ * Explodes the plugin JARs of extensions/plugins/ into a directory of the data directory
+ * dedicated to compute engine. It is kept between restarts, as the temporary directory is
+ * cleaned at startup.
  */
 public class CePluginJarExploder extends PluginJarExploder {
 
-  private static final String TEMP_RELATIVE_PATH = "ce-exploded-plugins";
+  private static final String DATA_RELATIVE_PATH = "ce/exploded-plugins";
   private final ServerFileSystem fs;
 
   public CePluginJarExploder(ServerFileSystem fs) {
@@ -42,19 +42,21 @@ public class CePluginJarExploder extends PluginJarExploder {
 
   @Override
   public ExplodedPlugin explode(PluginInfo pluginInfo) {
-    File tempDir = new File(fs.getTempDir(), TEMP_RELATIVE_PATH);
-    File toDir = new File(tempDir, pluginInfo.getKey());
+    File toDir = new File(getExplodedPluginsDir(), pluginInfo.getKey());
     try {
-      org.sonar.core.util.FileUtils.cleanDirectory(toDir);
-
-      File jarSource = pluginInfo.getNonNullJarFile();
-      File jarTarget = new File(toDir, jarSource.getName());
-      FileUtils.copyFile(jarSource, jarTarget);
-      ZipUtils.unzip(jarSource, toDir, newLibFilter());
-      return explodeFromUnzippedDir(pluginInfo.getKey(), jarTarget, toDir);
+      return explodeIfModified(pluginInfo, toDir);
     } catch (Exception e) {
       throw new IllegalStateException(String.format(
         "Fail to unzip plugin [%s] %s to %s", pluginInfo.getKey(), pluginInfo.getNonNullJarFile().getAbsolutePath(), toDir.getAbsolutePath()), e);
     }
   }
+
+  @Override
+  public void deleteUninstalled(Collection<PluginInfo> installedPlugins) {
+    deleteDirsOfOtherPlugins(getExplodedPluginsDir(), installedPlugins);
+  }
+
+  private File getExplodedPluginsDir() {
+    return new File(fs.getDataDir(), DATA_RELATIVE_PATH);
+  }
 }
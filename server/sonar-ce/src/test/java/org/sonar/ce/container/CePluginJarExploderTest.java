@@ -28,6 +28,7 @@ import org.sonar.server.platform.ServerFileSystem;
 import org.sonar.core.platform.ExplodedPlugin;
 import org.sonar.core.platform.PluginInfo;
 
+import static java.util.Collections.singletonList;
 import static org.apache.commons.io.FileUtils.sizeOfDirectory;
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -40,18 +41,18 @@ public class CePluginJarExploderTest {
   CePluginJarExploder underTest = new CePluginJarExploder(fs);
 
   @Test
-  public void explode_jar_to_temp_directory() throws Exception {
+  public void explode_jar_to_data_directory() throws Exception {
     PluginInfo info = PluginInfo.create(plugin1Jar());
 
     ExplodedPlugin exploded = underTest.explode(info);
 
-    // all the files loaded by classloaders (JAR + META-INF/libs/*.jar) are copied to a dedicated temp directory
+    // all the files loaded by classloaders (JAR + META-INF/libs/*.jar) are copied to a dedicated directory
     File copiedJar = exploded.getMain();
 
     assertThat(exploded.getKey()).isEqualTo("test");
     assertThat(copiedJar).isFile().exists();
     assertThat(copiedJar.getParentFile()).isDirectory().hasName("test");
-    assertThat(copiedJar.getParentFile().getParentFile()).isDirectory().hasName("ce-exploded-plugins");
+    assertThat(copiedJar.getParentFile().getParentFile()).isDirectory().hasName("exploded-plugins");
   }
 
   @Test
@@ -81,7 +82,31 @@ public class CePluginJarExploderTest {
     assertThat(dirSize1).isEqualTo(dirSize2);
   }
 
-  private File plugin1Jar() {
+  @Test
+  public void do_not_explode_again_unchanged_jar() throws Exception {
+    PluginInfo info = PluginInfo.create(plugin1Jar());
+    File dir = underTest.explode(info).getMain().getParentFile();
+    File otherFile = new File(dir, "other.txt");
+    assertThat(otherFile.createNewFile()).isTrue();
+
+    ExplodedPlugin exploded = underTest.explode(info);
+
+    assertThat(exploded.getMain()).isFile().exists();
+    assertThat(otherFile).exists();
+  }
+
+  @Test
+  public void delete_exploded_directories_of_uninstalled_plugins() throws Exception {
+    File installedDir = underTest.explode(PluginInfo.create(plugin1Jar())).getMain().getParentFile();
+    File uninstalledDir = underTest.explode(PluginInfo.create(plugin2Jar())).getMain().getParentFile();
+
+    underTest.deleteUninstalled(singletonList(PluginInfo.create(plugin1Jar())));
+
+    assertThat(installedDir).exists();
+    assertThat(uninstalledDir).doesNotExist();
+  }
+
+    private File plugin1Jar() {
     return new File("src/test/plugins/sonar-test-plugin/target/sonar-test-plugin-0.1-SNAPSHOT.jar");
   }
 
@@ -92,6 +117,7 @@ public class CePluginJarExploderTest {
   private class DumbFileSystem implements ServerFileSystem {
     private final TemporaryFolder temp;
     private File tempDir;
+    private File dataDir;
 
     public DumbFileSystem(TemporaryFolder temp) {
       this.temp = temp;
@@ -99,7 +125,14 @@ public class CePluginJarExploderTest {
 
     @Override
     public File getDataDir() {
-      throw new UnsupportedOperationException();
+      if (dataDir == null) {
+        try {
+          this.dataDir = temp.newFolder();
+        } catch (IOException e) {
+          throw new IllegalStateException(e);
+        }
+      }
+      return dataDir;
     }
 
     @Override
@@ -90,9 +90,9 @@ public class ComputeEngineContainerImplTest {
         CONTAINER_ITSELF
           + 74 // level 4
           + 4 // content of CeConfigurationModule
-          + 3 // content of CeHttpModule
+          + 4 // content of CeHttpModule
           + 5 // content of CeQueueModule
-          + 4 // content of ProjectAnalysisTaskModule
+          + 5 // content of ProjectAnalysisTaskModule
           + 4 // content of CeTaskProcessorModule
     );
     assertThat(picoContainer.getParent().getComponentAdapters()).hasSize(
@@ -20,6 +20,7 @@
 package org.sonar.ce;
 
 import org.sonar.ce.http.CeHttpClient;
+import org.sonar.ce.http.CeQueueHttpNotifier;
 import org.sonar.ce.log.CeLogging;
 import org.sonar.ce.queue.CeQueueImpl;
 import org.sonar.ce.taskprocessor.ReportTaskProcessorDeclaration;
@@ -31,6 +32,7 @@ public class CeModule extends Module {
   protected void configureModule() {
     add(CeLogging.class,
       CeHttpClient.class,
+      CeQueueHttpNotifier.class,
 
       // Queue
       CeQueueImpl.class,
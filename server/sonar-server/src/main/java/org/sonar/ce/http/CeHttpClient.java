@@ -23,6 +23,7 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import okhttp3.OkHttpClient;
 import okhttp3.RequestBody;
 import org.apache.commons.io.IOUtils;
@@ -42,8 +43,11 @@ public class CeHttpClient {
 
   private static final String PATH_CHANGE_LOG_LEVEL = "changeLogLevel";
   private static final String PATH_SYSTEM_INFO = "systemInfo";
+  private static final String PATH_NEW_TASKS = "newTasks";
+  private static final long NEW_TASKS_TIMEOUT_MS = 1_000L;
 
   private final File ipcSharedDir;
+  private final NewTasksActionClient newTasksActionClient = new NewTasksActionClient();
 
   public CeHttpClient(Settings props) {
     this.ipcSharedDir = new File(props.getString(PROPERTY_SHARED_PATH));
@@ -119,6 +123,49 @@ public class CeHttpClient {
     }
   }
 
+  /**
+   * Wakes up the workers of the Compute Engine, so that the tasks which have just been submitted
+   * are processed without waiting for the next polling of the queue.
+   */
+  public void notifyNewTasks() {
+    call(newTasksActionClient);
+  }
+
+  /**
+   * Called on each submission of tasks, so the HTTP client, its connection pool and its threads
+   * are shared by all the calls.
+   */
+  private static final class NewTasksActionClient implements ActionClient<Void> {
+    private final OkHttpClient client = new OkHttpClient.Builder()
+      .connectTimeout(NEW_TASKS_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+      .readTimeout(NEW_TASKS_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+      .build();
+
+    @Override
+    public String getPath() {
+      return PATH_NEW_TASKS;
+    }
+
+    @Override
+    public Void getDefault() {
+      return null;
+    }
+
+    @Override
+    public Void call(String url) throws Exception {
+      okhttp3.Request request = new okhttp3.Request.Builder()
+        .post(RequestBody.create(null, new byte[0]))
+        .url(url)
+        .build();
+      okhttp3.Response response = client.newCall(request).execute();
+      response.body().close();
+      if (response.code() != 200) {
+        throw new IOException(String.format("Failed to notify new tasks to Compute Engine. Code was '%s' for url '%s'", response.code(), url));
+      }
+      return null;
+    }
+  }
+
   private <T> T call(ActionClient<T> actionClient) {
     try (DefaultProcessCommands commands = DefaultProcessCommands.secondary(ipcSharedDir, COMPUTE_ENGINE.getIpcIndex())) {
       if (commands.isUp()) {
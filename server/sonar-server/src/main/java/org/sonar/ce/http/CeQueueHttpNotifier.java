@@ -0,0 +1,78 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.http;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.Collection;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.picocontainer.Startable;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.ce.queue.CeQueueListener;
+import org.sonar.ce.queue.CeTask;
+
+/**
+ * Notifies the Compute Engine of the tasks submitted by the web server. The HTTP call is done
+ * by a background thread, so that submitters do not wait for it. Submissions that occur before
+ * the call is started are notified at once. When notification fails, the tasks are processed at
+ * the next polling of the queue.
+ */
+public class CeQueueHttpNotifier implements CeQueueListener, Startable {
+
+  private final CeHttpClient ceHttpClient;
+  private final AtomicBoolean pending = new AtomicBoolean(false);
+  private final ExecutorService executorService = Executors.newSingleThreadExecutor(
+    new ThreadFactoryBuilder()
+      .setNameFormat("CeQueueHttpNotifier-%d")
+      .setDaemon(true)
+      .build());
+
+  public CeQueueHttpNotifier(CeHttpClient ceHttpClient) {
+    this.ceHttpClient = ceHttpClient;
+  }
+
+  @Override
+  public void start() {
+    // nothing to do
+  }
+
+  @Override
+  public void stop() {
+    executorService.shutdownNow();
+  }
+
+  @Override
+  public void onSubmit(Collection<CeTask> tasks) {
+    if (tasks.isEmpty() || !pending.compareAndSet(false, true)) {
+      return;
+    }
+    executorService.execute(this::notifyComputeEngine);
+  }
+
+  private void notifyComputeEngine() {
+    pending.set(false);
+    try {
+      ceHttpClient.notifyNewTasks();
+    } catch (RuntimeException e) {
+      Loggers.get(CeQueueHttpNotifier.class).debug("Failed to notify Compute Engine of new tasks", e);
+    }
+  }
+}
@@ -42,6 +42,7 @@ import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Predicates.notNull;
 import static com.google.common.collect.FluentIterable.from;
 import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
 import static org.sonar.db.component.ComponentDtoFunctions.toUuid;
 
 @ComputeEngineSide
@@ -49,13 +50,22 @@ public class CeQueueImpl implements CeQueue {
 
   private final DbClient dbClient;
   private final UuidFactory uuidFactory;
+  private final CeQueueListener[] listeners;
 
   // state
   private AtomicBoolean submitPaused = new AtomicBoolean(false);
 
-  public CeQueueImpl(DbClient dbClient, UuidFactory uuidFactory) {
+  public CeQueueImpl(DbClient dbClient, UuidFactory uuidFactory, CeQueueListener[] listeners) {
     this.dbClient = dbClient;
     this.uuidFactory = uuidFactory;
+    this.listeners = listeners;
+  }
+
+  /**
+   * Used by Pico when there are no listeners
+   */
+  public CeQueueImpl(DbClient dbClient, UuidFactory uuidFactory) {
+    this(dbClient, uuidFactory, new CeQueueListener[0]);
   }
 
   @Override
@@ -67,16 +77,17 @@ public class CeQueueImpl implements CeQueue {
   public CeTask submit(CeTaskSubmit submission) {
     checkState(!submitPaused.get(), "Compute Engine does not currently accept new tasks");
 
+    CeTask task;
     DbSession dbSession = dbClient.openSession(false);
     try {
       CeQueueDto dto = new CeTaskSubmitToInsertedCeQueueDto(dbSession, dbClient).apply(submission);
-      CeTask task = loadTask(dbSession, dto);
+      task = loadTask(dbSession, dto);
       dbSession.commit();
-      return task;
-
     } finally {
       dbClient.closeSession(dbSession);
     }
+    notifyListeners(singletonList(task));
+    return task;
   }
 
   @Override
@@ -86,18 +97,28 @@ public class CeQueueImpl implements CeQueue {
       return Collections.emptyList();
     }
 
+    List<CeTask> tasks;
     DbSession dbSession = dbClient.openSession(true);
     try {
       List<CeQueueDto> ceQueueDtos = from(submissions)
         .transform(new CeTaskSubmitToInsertedCeQueueDto(dbSession, dbClient))
         .toList();
-      List<CeTask> tasks = loadTasks(dbSession, ceQueueDtos);
+      tasks = loadTasks(dbSession, ceQueueDtos);
       dbSession.commit();
-      return tasks;
-
     } finally {
       dbClient.closeSession(dbSession);
     }
+    notifyListeners(tasks);
+    return tasks;
+  }
+
+  /**
+   * Called once the DB session is closed, so that listeners do not hold a connection
+   */
+  private void notifyListeners(List<CeTask> tasks) {
+    for (CeQueueListener listener : listeners) {
+      listener.onSubmit(tasks);
+    }
   }
 
   protected CeTask loadTask(DbSession dbSession, CeQueueDto dto) {
@@ -28,6 +28,7 @@ import org.sonar.api.server.authentication.UserIdentity;
 import org.sonar.api.utils.MessageException;
 import org.sonar.db.DbClient;
 import org.sonar.db.user.UserDto;
+import org.sonar.server.user.AuthorizationCache;
 import org.sonar.server.user.ServerUserSession;
 import org.sonar.server.user.ThreadLocalUserSession;
 
@@ -43,10 +44,12 @@ public class OAuth2ContextFactory {
   private final Server server;
   private final OAuthCsrfVerifier csrfVerifier;
   private final JwtHttpHandler jwtHttpHandler;
+  private final AuthorizationCache authorizationCache;
 
   public OAuth2ContextFactory(DbClient dbClient, ThreadLocalUserSession threadLocalUserSession, UserIdentityAuthenticator userIdentityAuthenticator, Server server,
-    OAuthCsrfVerifier csrfVerifier, JwtHttpHandler jwtHttpHandler) {
+    OAuthCsrfVerifier csrfVerifier, JwtHttpHandler jwtHttpHandler, AuthorizationCache authorizationCache) {
     this.dbClient = dbClient;
+    this.authorizationCache = authorizationCache;
     this.threadLocalUserSession = threadLocalUserSession;
     this.userIdentityAuthenticator = userIdentityAuthenticator;
     this.server = server;
@@ -125,7 +128,7 @@ public class OAuth2ContextFactory {
     public void authenticate(UserIdentity userIdentity) {
       UserDto userDto = userIdentityAuthenticator.authenticate(userIdentity, identityProvider);
       jwtHttpHandler.generateToken(userDto, request, response);
-      threadLocalUserSession.set(ServerUserSession.createForUser(dbClient, userDto));
+      threadLocalUserSession.set(ServerUserSession.createForUser(dbClient, authorizationCache, userDto));
     }
   }
 }
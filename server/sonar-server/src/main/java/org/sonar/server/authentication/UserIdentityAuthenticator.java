@@ -41,6 +41,7 @@ import org.sonar.db.DbSession;
 import org.sonar.db.user.GroupDto;
 import org.sonar.db.user.UserDto;
 import org.sonar.db.user.UserGroupDto;
+import org.sonar.server.user.AuthorizationCache;
 import org.sonar.server.user.ExternalIdentity;
 import org.sonar.server.user.NewUser;
 import org.sonar.server.user.UpdateUser;
@@ -52,10 +53,12 @@ public class UserIdentityAuthenticator {
 
   private final DbClient dbClient;
   private final UserUpdater userUpdater;
+  private final AuthorizationCache authorizationCache;
 
-  public UserIdentityAuthenticator(DbClient dbClient, UserUpdater userUpdater) {
+  public UserIdentityAuthenticator(DbClient dbClient, UserUpdater userUpdater, AuthorizationCache authorizationCache) {
     this.dbClient = dbClient;
     this.userUpdater = userUpdater;
+    this.authorizationCache = authorizationCache;
   }
 
   public UserDto authenticate(UserIdentity user, IdentityProvider provider) {
@@ -125,6 +128,9 @@ public class UserIdentityAuthenticator {
       removeGroups(dbSession, userDto, groupsToRemove, groupsByName);
 
       dbSession.commit();
+      if (!allGroups.isEmpty()) {
+        authorizationCache.invalidateUser(userDto.getId());
+      }
     }
   }
 
@@ -19,7 +19,7 @@
  */
 package org.sonar.server.batch;
 
-import org.apache.commons.io.IOUtils;
+import java.nio.charset.StandardCharsets;
 import org.sonar.api.server.ws.Request;
 import org.sonar.api.server.ws.Response;
 import org.sonar.api.server.ws.WebService;
@@ -35,6 +35,9 @@ import org.sonar.server.user.UserSession;
 import org.sonarqube.ws.MediaTypes;
 
 import static org.sonar.core.permission.GlobalPermissions.SCAN_EXECUTION;
+import static org.sonar.server.ws.WsUtils.etagOf;
+import static org.sonar.server.ws.WsUtils.isNotModified;
+import static org.sonar.server.ws.WsUtils.setNotStored;
 
 public class GlobalAction implements BatchWsAction {
 
@@ -72,8 +75,15 @@ public class GlobalAction implements BatchWsAction {
       addMetrics(ref, session);
       addSettings(ref, hasScanPerm, isLogged, session);
 
-      response.stream().setMediaType(MediaTypes.JSON);
-      IOUtils.write(ref.toJson(), response.stream().output());
+      byte[] json = ref.toJson().getBytes(StandardCharsets.UTF_8);
+      if (hasSecuredSettings(ref)) {
+        setNotStored(response);
+        response.stream().setMediaType(MediaTypes.JSON);
+        response.stream().output().write(json);
+      } else if (!isNotModified(request, response, etagOf(MediaTypes.JSON, json))) {
+        response.stream().setMediaType(MediaTypes.JSON);
+        response.stream().output().write(json);
+      }
     } finally {
       MyBatis.closeQuietly(session);
     }
@@ -106,6 +116,10 @@ public class GlobalAction implements BatchWsAction {
     }
   }
 
+  private static boolean hasSecuredSettings(GlobalRepositories ref) {
+    return ref.globalSettings().keySet().stream().anyMatch(key -> key.contains(".secured"));
+  }
+
   private static boolean isPropertyAllowed(String key, boolean hasScanPerm, boolean isLogged) {
     return !key.contains(".secured") || hasScanPerm || (key.contains(".license") && isLogged);
   }
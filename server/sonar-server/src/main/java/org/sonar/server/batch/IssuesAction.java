@@ -21,9 +21,11 @@ package org.sonar.server.batch;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import org.sonar.api.resources.Scopes;
 import org.sonar.api.server.ws.Request;
 import org.sonar.api.server.ws.Response;
@@ -42,6 +44,8 @@ import org.sonarqube.ws.MediaTypes;
 import static com.google.common.collect.Maps.newHashMap;
 import static org.sonar.api.web.UserRole.USER;
 import static org.sonar.server.ws.KeyExamples.KEY_PROJECT_EXAMPLE_001;
+import static org.sonar.server.ws.WsUtils.etagOf;
+import static org.sonar.server.ws.WsUtils.isNotModified;
 
 public class IssuesAction implements BatchWsAction {
 
@@ -80,12 +84,16 @@ public class IssuesAction implements BatchWsAction {
     String componentKey = request.mandatoryParam(PARAM_KEY);
     userSession.checkComponentPermission(USER, componentKey);
 
-    response.stream().setMediaType(MediaTypes.PROTOBUF);
     DbSession session = dbClient.openSession(false);
     try {
       ComponentDto component = componentFinder.getByKey(session, componentKey);
       Map<String, String> keysByUUid = keysByUUid(session, component);
+      String stamp = issueIndex.selectIssuesForBatchStamp(component) + new TreeMap<>(keysByUUid);
+      if (isNotModified(request, response, etagOf(MediaTypes.PROTOBUF, stamp.getBytes(StandardCharsets.UTF_8)))) {
+        return;
+      }
 
+      response.stream().setMediaType(MediaTypes.PROTOBUF);
       ScannerInput.ServerIssue.Builder issueBuilder = ScannerInput.ServerIssue.newBuilder();
       for (Iterator<IssueDoc> issueDocIterator = issueIndex.selectIssuesForBatch(component); issueDocIterator.hasNext();) {
         handleIssue(issueDocIterator.next(), issueBuilder, keysByUUid, response.stream().output());
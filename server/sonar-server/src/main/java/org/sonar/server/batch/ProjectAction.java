@@ -31,7 +31,8 @@ import org.sonarqube.ws.WsBatch.WsProjectResponse;
 import org.sonarqube.ws.WsBatch.WsProjectResponse.FileData.Builder;
 
 import static org.sonar.server.ws.KeyExamples.KEY_PROJECT_EXAMPLE_001;
-import static org.sonar.server.ws.WsUtils.writeProtobuf;
+import static org.sonar.server.ws.WsUtils.writeCacheableProtobuf;
+import static org.sonar.server.ws.WsUtils.writeNotStoredProtobuf;
 
 public class ProjectAction implements BatchWsAction {
 
@@ -80,7 +81,17 @@ public class ProjectAction implements BatchWsAction {
       .setIssuesMode(wsRequest.mandatoryParamAsBoolean(PARAM_ISSUES_MODE)));
 
     WsProjectResponse projectResponse = buildResponse(data);
-    writeProtobuf(projectResponse, wsRequest, wsResponse);
+    if (hasSecuredSettings(data)) {
+      writeNotStoredProtobuf(projectResponse, wsRequest, wsResponse);
+    } else {
+      writeCacheableProtobuf(projectResponse, wsRequest, wsResponse);
+    }
+  }
+
+  private static boolean hasSecuredSettings(ProjectRepositories data) {
+    return data.settings().values().stream()
+      .flatMap(settings -> settings.keySet().stream())
+      .anyMatch(key -> key.contains(".secured"));
   }
 
   private static WsProjectResponse buildResponse(ProjectRepositories data) {
@@ -20,6 +20,8 @@
 package org.sonar.server.component;
 
 import java.util.List;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import org.sonar.api.ce.ComputeEngineSide;
 import org.sonar.api.resources.ResourceType;
 import org.sonar.api.resources.ResourceTypes;
@@ -32,6 +34,7 @@ import org.sonar.db.component.ComponentDto;
 import org.sonar.server.issue.index.IssueAuthorizationIndexer;
 import org.sonar.server.issue.index.IssueIndexer;
 import org.sonar.server.test.index.TestIndexer;
+import org.sonar.server.user.AuthorizationCache;
 
 @ServerSide
 @ComputeEngineSide
@@ -43,15 +46,26 @@ public class ComponentCleanerService {
   private final TestIndexer testIndexer;
   private final ResourceTypes resourceTypes;
   private final ComponentFinder componentFinder;
+  @CheckForNull
+  private final AuthorizationCache authorizationCache;
 
+  /**
+   * Used by the Compute Engine, which has no {@link AuthorizationCache}
+   */
   public ComponentCleanerService(DbClient dbClient, IssueAuthorizationIndexer issueAuthorizationIndexer, IssueIndexer issueIndexer,
     TestIndexer testIndexer, ResourceTypes resourceTypes, ComponentFinder componentFinder) {
+    this(dbClient, issueAuthorizationIndexer, issueIndexer, testIndexer, resourceTypes, componentFinder, null);
+  }
+
+  public ComponentCleanerService(DbClient dbClient, IssueAuthorizationIndexer issueAuthorizationIndexer, IssueIndexer issueIndexer,
+    TestIndexer testIndexer, ResourceTypes resourceTypes, ComponentFinder componentFinder, @Nullable AuthorizationCache authorizationCache) {
     this.dbClient = dbClient;
     this.issueAuthorizationIndexer = issueAuthorizationIndexer;
     this.issueIndexer = issueIndexer;
     this.testIndexer = testIndexer;
     this.resourceTypes = resourceTypes;
     this.componentFinder = componentFinder;
+    this.authorizationCache = authorizationCache;
   }
 
   public void delete(DbSession dbSession, List<ComponentDto> projects) {
@@ -76,6 +90,10 @@ public class ComponentCleanerService {
     }
     dbClient.purgeDao().deleteProject(dbSession, project.uuid());
     dbSession.commit();
+    if (authorizationCache != null) {
+      // a project can be created again with the same key
+      authorizationCache.invalidate();
+    }
 
     deleteFromIndices(project.uuid());
   }
@@ -45,6 +45,7 @@ import org.sonar.db.DbSession;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.server.exceptions.BadRequestException;
 import org.sonar.server.exceptions.NotFoundException;
+import org.sonar.server.user.AuthorizationCache;
 import org.sonar.server.user.UserSession;
 
 import static com.google.common.collect.Lists.newArrayList;
@@ -61,13 +62,24 @@ public class ComponentService {
   private final UserSession userSession;
   private final System2 system2;
   private final ComponentFinder componentFinder;
+  @CheckForNull
+  private final AuthorizationCache authorizationCache;
 
+  /**
+   * Used by the Compute Engine, which has no {@link AuthorizationCache}
+   */
   public ComponentService(DbClient dbClient, I18n i18n, UserSession userSession, System2 system2, ComponentFinder componentFinder) {
+    this(dbClient, i18n, userSession, system2, componentFinder, null);
+  }
+
+  public ComponentService(DbClient dbClient, I18n i18n, UserSession userSession, System2 system2, ComponentFinder componentFinder,
+    @Nullable AuthorizationCache authorizationCache) {
     this.dbClient = dbClient;
     this.i18n = i18n;
     this.userSession = userSession;
     this.system2 = system2;
     this.componentFinder = componentFinder;
+    this.authorizationCache = authorizationCache;
   }
 
   public ComponentDto getByKey(String key) {
@@ -124,6 +136,7 @@ public class ComponentService {
     checkProjectOrModuleKeyFormat(newKey);
 
     dbClient.componentKeyUpdaterDao().updateKey(component.uuid(), newKey);
+    invalidateAuthorizationCache();
   }
 
   public Map<String, String> checkModuleKeysBeforeRenaming(String projectKey, String stringToReplace, String replacementString) {
@@ -142,6 +155,13 @@ public class ComponentService {
     userSession.checkComponentUuidPermission(UserRole.ADMIN, project.projectUuid());
     checkIsProjectOrModule(project);
     dbClient.componentKeyUpdaterDao().bulkUpdateKey(dbSession, project.uuid(), stringToReplace, replacementString);
+    invalidateAuthorizationCache();
+  }
+
+  private void invalidateAuthorizationCache() {
+    if (authorizationCache != null) {
+      authorizationCache.invalidate();
+    }
   }
 
   public void bulkUpdateKey(String projectKey, String stringToReplace, String replacementString) {
@@ -32,6 +32,7 @@ import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.ComponentKeyUpdaterDao;
 import org.sonar.server.component.ComponentFinder;
 import org.sonar.server.component.ComponentFinder.ParamNames;
+import org.sonar.server.user.AuthorizationCache;
 import org.sonar.server.user.UserSession;
 import org.sonarqube.ws.WsComponents;
 import org.sonarqube.ws.WsComponents.BulkUpdateKeyWsResponse;
@@ -52,12 +53,14 @@ public class BulkUpdateKeyAction implements ComponentsWsAction {
   private final ComponentFinder componentFinder;
   private final ComponentKeyUpdaterDao componentKeyUpdater;
   private final UserSession userSession;
+  private final AuthorizationCache authorizationCache;
 
-  public BulkUpdateKeyAction(DbClient dbClient, ComponentFinder componentFinder, UserSession userSession) {
+  public BulkUpdateKeyAction(DbClient dbClient, ComponentFinder componentFinder, UserSession userSession, AuthorizationCache authorizationCache) {
     this.dbClient = dbClient;
     this.componentKeyUpdater = dbClient.componentKeyUpdaterDao();
     this.componentFinder = componentFinder;
     this.userSession = userSession;
+    this.authorizationCache = authorizationCache;
   }
 
   @Override
@@ -143,6 +146,7 @@ public class BulkUpdateKeyAction implements ComponentsWsAction {
   private void bulkUpdateKey(DbSession dbSession, BulkUpdateWsRequest request, ComponentDto projectOrModule) {
     componentKeyUpdater.bulkUpdateKey(dbSession, projectOrModule.uuid(), request.getFrom(), request.getTo());
     dbSession.commit();
+    authorizationCache.invalidate();
   }
 
   private static BulkUpdateKeyWsResponse buildResponse(Map<String, String> newKeysByOldKeys, Map<String, Boolean> newKeysWithDuplicateMap) {
@@ -28,7 +28,7 @@ public interface CeConfiguration {
 
   /**
    * The delay in milliseconds before calling another {@link org.sonar.server.computation.taskprocessor.CeWorkerCallable}
-   * when previous one had nothing to do.
+   * when previous one had nothing to do, unless new tasks are notified in the meantime.
    */
   long getQueuePollingDelay();
 }
@@ -40,9 +40,9 @@ public class CeConfigurationImpl implements CeConfiguration, Startable {
 
   @VisibleForTesting
   protected static final int DEFAULT_WORKER_COUNT = 1;
-  // 2 seconds
+  // 30 seconds. Workers are woken up as soon as tasks are submitted, so polling is only a fallback.
   @VisibleForTesting
-  protected static final long DEFAULT_QUEUE_POLLING_DELAY = 2 * 1000L;
+  protected static final long DEFAULT_QUEUE_POLLING_DELAY = 30 * 1000L;
 
   private final int workerCount;
 
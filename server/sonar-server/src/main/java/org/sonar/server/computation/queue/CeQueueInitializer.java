@@ -58,6 +58,8 @@ public class CeQueueInitializer implements ServerStartHandler {
     try {
       cleaner.clean(dbSession);
       scheduler.startScheduling();
+      // tasks may have been submitted while the Compute Engine was down
+      scheduler.notifyNewTasks();
 
     } finally {
       dbClient.closeSession(dbSession);
@@ -21,6 +21,7 @@ package org.sonar.server.computation.task.projectanalysis;
 
 import org.sonar.server.computation.queue.ReportSubmitter;
 import org.sonar.core.platform.Module;
+import org.sonar.server.computation.task.projectanalysis.batch.ReportPrefetcher;
 import org.sonar.server.computation.task.projectanalysis.container.ContainerFactoryImpl;
 import org.sonar.server.computation.task.projectanalysis.taskprocessor.ReportTaskProcessor;
 import org.sonar.server.computation.task.step.ComputationStepExecutor;
@@ -33,6 +34,7 @@ public class ProjectAnalysisTaskModule extends Module {
       ContainerFactoryImpl.class,
       ComputationStepExecutor.class,
       ReportTaskProcessor.class,
-      ReportSubmitter.class);
+      ReportSubmitter.class,
+      ReportPrefetcher.class);
   }
 }
@@ -0,0 +1,257 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.batch;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.apache.commons.io.FileUtils;
+import org.picocontainer.Startable;
+import org.sonar.api.ce.ComputeEngineSide;
+import org.sonar.api.utils.ZipUtils;
+import org.sonar.api.utils.internal.DefaultTempFolder;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.ce.CeQueueDto;
+import org.sonar.db.ce.CeTaskInputDao;
+import org.sonar.db.ce.CeTaskTypes;
+import org.sonar.server.computation.configuration.CeConfiguration;
+import org.sonar.server.platform.ServerFileSystem;
+
+/**
+ * Extracts in background the reports of the next pending tasks, so that workers do not have to wait for
+ * the extraction when they peek these tasks. Tasks are not claimed: they can still be processed by any worker
+ * or be canceled.
+ */
+@ComputeEngineSide
+public class ReportPrefetcher implements Startable {
+
+  private static final Logger LOG = Loggers.get(ReportPrefetcher.class);
+  private static final String THREAD_NAME_PREFIX = "CE_ReportPrefetcher-";
+
+  private final DbClient dbClient;
+  private final ServerFileSystem fs;
+  private final int maxPrefetchedReports;
+  private final Map<String, Extraction> extractionsByTaskUuid = new ConcurrentHashMap<>();
+  private ExecutorService executorService;
+  private DefaultTempFolder tempFolder;
+
+  public ReportPrefetcher(DbClient dbClient, ServerFileSystem fs, CeConfiguration ceConfiguration) {
+    this.dbClient = dbClient;
+    this.fs = fs;
+    this.maxPrefetchedReports = ceConfiguration.getWorkerCount();
+  }
+
+  @Override
+  public void start() {
+    File tempDir = new File(fs.getTempDir(), "ce");
+    try {
+      FileUtils.forceMkdir(tempDir);
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to create computation temp directory " + tempDir, e);
+    }
+    this.tempFolder = new DefaultTempFolder(new DefaultTempFolder(tempDir).newDir(), true);
+    this.executorService = Executors.newSingleThreadExecutor(
+      new ThreadFactoryBuilder()
+        .setNameFormat(THREAD_NAME_PREFIX + "%d")
+        .setPriority(Thread.MIN_PRIORITY)
+        .build());
+  }
+
+  @Override
+  public void stop() {
+    executorService.shutdownNow();
+    extractionsByTaskUuid.clear();
+    tempFolder.stop();
+  }
+
+  /**
+   * Starts extracting the reports of the next tasks which are eligible for peek. Reports of tasks which
+   * have been removed from queue in the meantime are dropped.
+   */
+  public void prefetchNextReports(DbSession dbSession) {
+    extractionsByTaskUuid.keySet().stream()
+      .filter(taskUuid -> !dbClient.ceQueueDao().selectByUuid(dbSession, taskUuid).isPresent())
+      .forEach(taskUuid -> discard(extractionsByTaskUuid.remove(taskUuid)));
+
+    for (String taskUuid : dbClient.ceQueueDao().selectEligibleForPeek(dbSession, maxPrefetchedReports)) {
+      if (extractionsByTaskUuid.size() >= maxPrefetchedReports) {
+        return;
+      }
+      if (!extractionsByTaskUuid.containsKey(taskUuid) && isReport(dbSession, taskUuid)) {
+        extractionsByTaskUuid.computeIfAbsent(taskUuid, uuid -> {
+          Extraction extraction = new Extraction(uuid);
+          executorService.execute(extraction.future);
+          return extraction;
+        });
+      }
+    }
+  }
+
+  /**
+   * Directory of the report of the specified task, if it has been prefetched. Waits for the extraction
+   * to complete if it is in progress. Extractions which have not started yet, for example because they
+   * are queued behind the extraction of another report, are canceled: the caller extracts the report itself
+   * rather than waiting. The caller becomes the owner of the directory.
+   */
+  public Optional<File> takeReport(String taskUuid) {
+    Extraction extraction = extractionsByTaskUuid.remove(taskUuid);
+    if (extraction == null) {
+      return Optional.empty();
+    }
+    if (extraction.claim()) {
+      extraction.future.cancel(false);
+      return Optional.empty();
+    }
+    try {
+      return Optional.ofNullable(extraction.future.get());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return Optional.empty();
+    } catch (ExecutionException | CancellationException e) {
+      LOG.warn("Fail to prefetch report of task {}", taskUuid, e);
+      return Optional.empty();
+    }
+  }
+
+  @VisibleForTesting
+  int countPrefetchedReports() {
+    return extractionsByTaskUuid.size();
+  }
+
+  /**
+   * Waits for the extractions submitted so far to complete or to be discarded
+   */
+  @VisibleForTesting
+  void awaitExtractions() throws InterruptedException, ExecutionException {
+    executorService.submit(() -> {
+    }).get();
+  }
+
+  private boolean isReport(DbSession dbSession, String taskUuid) {
+    com.google.common.base.Optional<CeQueueDto> task = dbClient.ceQueueDao().selectByUuid(dbSession, taskUuid);
+    return task.isPresent() && CeTaskTypes.REPORT.equals(task.get().getTaskType());
+  }
+
+  @CheckForNull
+  private File extract(String taskUuid) throws IOException {
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      Optional<CeTaskInputDao.DataStream> data = dbClient.ceTaskInputDao().selectData(dbSession, taskUuid);
+      if (!data.isPresent()) {
+        // the worker will fail with the usual error
+        return null;
+      }
+      File unzippedDir = tempFolder.newDir();
+      try (CeTaskInputDao.DataStream reportStream = data.get();
+        InputStream zipStream = new BufferedInputStream(new InterruptibleInputStream(reportStream.getInputStream()))) {
+        ZipUtils.unzip(zipStream, unzippedDir);
+        if (Thread.currentThread().isInterrupted()) {
+          throw new InterruptedIOException("Prefetch of report of task " + taskUuid + " is discarded");
+        }
+      } catch (IOException | RuntimeException e) {
+        // also when the prefetch is discarded during extraction, so that no partial report is left
+        FileUtils.deleteQuietly(unzippedDir);
+        throw e;
+      }
+      return unzippedDir;
+    }
+  }
+
+  private static void discard(@Nullable Extraction extraction) {
+    if (extraction == null || extraction.future.cancel(true)) {
+      // extraction in progress deletes its directory when interrupted
+      return;
+    }
+    try {
+      FileUtils.deleteQuietly(extraction.future.get());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException | CancellationException e) {
+      // nothing to delete
+    }
+  }
+
+  /**
+   * Extraction of a report by the prefetcher thread. It is skipped if the worker which takes the report
+   * claims it first.
+   */
+  private class Extraction {
+    private final AtomicBoolean started = new AtomicBoolean(false);
+    private final FutureTask<File> future;
+
+    private Extraction(String taskUuid) {
+      this.future = new FutureTask<>(() -> claim() ? extract(taskUuid) : null);
+    }
+
+    /**
+     * @return true if the caller is the first to claim the extraction. Only the prefetcher thread extracts
+     * the report when it claims it.
+     */
+    private boolean claim() {
+      return started.compareAndSet(false, true);
+    }
+  }
+
+  /**
+   * Stops the extraction when the prefetcher thread is interrupted. Reading the report from database does not
+   * react to interruptions.
+   */
+  private static class InterruptibleInputStream extends FilterInputStream {
+    private InterruptibleInputStream(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+      checkInterrupted();
+      return super.read();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      checkInterrupted();
+      return super.read(b, off, len);
+    }
+
+    private static void checkInterrupted() throws InterruptedIOException {
+      if (Thread.currentThread().isInterrupted()) {
+        throw new InterruptedIOException("Extraction of report is interrupted");
+      }
+    }
+  }
+}
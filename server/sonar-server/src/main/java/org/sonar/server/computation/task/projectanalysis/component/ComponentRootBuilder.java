@@ -23,6 +23,8 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Optional;
 import com.google.common.base.Supplier;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.function.Function;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
@@ -73,6 +75,11 @@ public class ComponentRootBuilder {
   private final Function<String, Optional<SnapshotDto>> analysisSupplier;
   @CheckForNull
   private final String branch;
+  /**
+   * Files share the few distinct instances of {@link FileAttributes}, one per language and per main/test
+   */
+  private final Map<String, FileAttributes> mainFileAttributesByLanguage = new HashMap<>();
+  private final Map<String, FileAttributes> testFileAttributesByLanguage = new HashMap<>();
 
   public ComponentRootBuilder(@Nullable String branch,
     Function<String, String> uuidSupplier,
@@ -125,7 +132,7 @@ public class ComponentRootBuilder {
       .setUuid(uuidSupplier.apply(componentKey))
       .setKey(componentKey)
       .setDescription(trimToNull(reportComponent.getDescription()))
-      .setFileAttributes(createFileAttributes(reportComponent))
+      .setFileAttributes(sharedFileAttributes(reportComponent))
       .addChildren(toArray(buildChildren(reportComponent, latestModuleKey), Component.class));
   }
 
@@ -182,6 +189,16 @@ public class ComponentRootBuilder {
       .setPath(trimToNull(component.getPath()));
   }
 
+  @CheckForNull
+  private FileAttributes sharedFileAttributes(ScannerReport.Component component) {
+    FileAttributes attributes = createFileAttributes(component);
+    if (attributes == null) {
+      return null;
+    }
+    Map<String, FileAttributes> byLanguage = attributes.isUnitTest() ? testFileAttributesByLanguage : mainFileAttributesByLanguage;
+    return byLanguage.computeIfAbsent(attributes.getLanguageKey(), language -> attributes);
+  }
+
   @VisibleForTesting
   @CheckForNull
   static FileAttributes createFileAttributes(ScannerReport.Component component) {
@@ -66,6 +66,7 @@ import org.sonar.server.computation.task.projectanalysis.issue.RuleTypeCopier;
 import org.sonar.server.computation.task.projectanalysis.issue.ScmAccountToUser;
 import org.sonar.server.computation.task.projectanalysis.issue.ScmAccountToUserLoader;
 import org.sonar.server.computation.task.projectanalysis.issue.TrackerBaseInputFactory;
+import org.sonar.server.computation.task.projectanalysis.issue.TrackerBaseInputPrefetcher;
 import org.sonar.server.computation.task.projectanalysis.issue.TrackerExecution;
 import org.sonar.server.computation.task.projectanalysis.issue.TrackerRawInputFactory;
 import org.sonar.server.computation.task.projectanalysis.issue.UpdateConflictResolver;
@@ -214,6 +215,7 @@ public final class ProjectAnalysisTaskContainerPopulator implements ContainerPop
 
       UpdateConflictResolver.class,
       TrackerBaseInputFactory.class,
+      TrackerBaseInputPrefetcher.class,
       TrackerRawInputFactory.class,
       Tracker.class,
       TrackerExecution.class,
@@ -0,0 +1,154 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.issue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+import javax.annotation.CheckForNull;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.sonar.core.issue.DefaultIssue;
+
+/**
+ * Open issues of a project, grouped by component. Issues are kept in memory up to a given count, then the
+ * issues of the next components are serialized into a temporary file. Issues of a component can be taken
+ * only once, so that memory is released as components are tracked.
+ * <p>
+ * {@link #add(String, List)} must not be called after {@link #finishLoading()}. Other methods are thread-safe.
+ * </p>
+ */
+class BaseIssuesBuffer {
+
+  private final int maxIssuesInMemory;
+  private final Supplier<File> spillFileSupplier;
+  private final Set<String> componentUuids = new HashSet<>();
+  private final Set<String> takenComponentUuids = new HashSet<>();
+  private final Map<String, List<DefaultIssue>> issuesInMemory = new HashMap<>();
+  private final Map<String, Segment> spilledSegments = new HashMap<>();
+  private int issuesInMemoryCount = 0;
+  @CheckForNull
+  private File spillFile;
+  @CheckForNull
+  private OutputStream spillOutput;
+  private long spillFileLength = 0L;
+
+  BaseIssuesBuffer(int maxIssuesInMemory, Supplier<File> spillFileSupplier) {
+    this.maxIssuesInMemory = maxIssuesInMemory;
+    this.spillFileSupplier = spillFileSupplier;
+  }
+
+  void add(String componentUuid, List<DefaultIssue> issues) {
+    componentUuids.add(componentUuid);
+    if (issuesInMemoryCount + issues.size() <= maxIssuesInMemory) {
+      issuesInMemory.put(componentUuid, issues);
+      issuesInMemoryCount += issues.size();
+    } else {
+      spill(componentUuid, issues);
+    }
+  }
+
+  void finishLoading() {
+    IOUtils.closeQuietly(spillOutput);
+    spillOutput = null;
+  }
+
+  /**
+   * Uuids of the components with open issues
+   */
+  Set<String> getComponentUuids() {
+    return Collections.unmodifiableSet(componentUuids);
+  }
+
+  /**
+   * Open issues of the component, or {@link Optional#empty()} if they have already been taken.
+   */
+  synchronized Optional<List<DefaultIssue>> take(String componentUuid) {
+    if (!takenComponentUuids.add(componentUuid)) {
+      return Optional.empty();
+    }
+    List<DefaultIssue> issues = issuesInMemory.remove(componentUuid);
+    if (issues != null) {
+      issuesInMemoryCount -= issues.size();
+      return Optional.of(issues);
+    }
+    Segment segment = spilledSegments.remove(componentUuid);
+    if (segment != null) {
+      return Optional.of(read(segment));
+    }
+    return Optional.of(new ArrayList<>());
+  }
+
+  private void spill(String componentUuid, List<DefaultIssue> issues) {
+    try {
+      if (spillOutput == null) {
+        spillFile = spillFileSupplier.get();
+        spillOutput = FileUtils.openOutputStream(spillFile);
+      }
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (ObjectOutputStream objectOutput = new ObjectOutputStream(bytes)) {
+        objectOutput.writeObject(new ArrayList<>(issues));
+      }
+      spillOutput.write(bytes.toByteArray());
+      spilledSegments.put(componentUuid, new Segment(spillFileLength, bytes.size()));
+      spillFileLength += bytes.size();
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to write issues into file " + spillFile, e);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<DefaultIssue> read(Segment segment) {
+    try (RandomAccessFile file = new RandomAccessFile(spillFile, "r")) {
+      byte[] bytes = new byte[segment.length];
+      file.seek(segment.offset);
+      file.readFully(bytes);
+      try (ObjectInputStream objectInput = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+        return (List<DefaultIssue>) objectInput.readObject();
+      }
+    } catch (IOException | ClassNotFoundException e) {
+      throw new IllegalStateException("Fail to read issues from file " + spillFile, e);
+    }
+  }
+
+  private static final class Segment {
+    private final long offset;
+    private final int length;
+
+    private Segment(long offset, int length) {
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+}
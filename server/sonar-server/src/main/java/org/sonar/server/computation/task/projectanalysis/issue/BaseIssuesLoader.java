@@ -21,11 +21,14 @@ package org.sonar.server.computation.task.projectanalysis.issue;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
+import javax.annotation.CheckForNull;
 import org.apache.ibatis.session.ResultContext;
 import org.apache.ibatis.session.ResultHandler;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.rule.RuleStatus;
+import org.sonar.api.utils.TempFolder;
 import org.sonar.core.issue.DefaultIssue;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
@@ -37,41 +40,44 @@ import org.sonar.server.computation.task.projectanalysis.qualityprofile.ActiveRu
 
 /**
  * Loads all the project open issues from database, including manual issues.
- *
+ * <p>
+ * Issues of the whole project are read at once, with a single query, then buffered per component.
+ * </p>
  */
 public class BaseIssuesLoader {
 
+  private static final int MAX_ISSUES_IN_MEMORY = 50_000;
+
   private final TreeRootHolder treeRootHolder;
   private final DbClient dbClient;
   private final RuleRepository ruleRepository;
   private final ActiveRulesHolder activeRulesHolder;
+  private final TempFolder tempFolder;
+  @CheckForNull
+  private BaseIssuesBuffer buffer;
 
   public BaseIssuesLoader(TreeRootHolder treeRootHolder,
-    DbClient dbClient, RuleRepository ruleRepository, ActiveRulesHolder activeRulesHolder) {
+    DbClient dbClient, RuleRepository ruleRepository, ActiveRulesHolder activeRulesHolder, TempFolder tempFolder) {
     this.activeRulesHolder = activeRulesHolder;
     this.treeRootHolder = treeRootHolder;
     this.dbClient = dbClient;
     this.ruleRepository = ruleRepository;
+    this.tempFolder = tempFolder;
   }
 
   public List<DefaultIssue> loadForComponentUuid(String componentUuid) {
+    Optional<List<DefaultIssue>> bufferedIssues = getBuffer().take(componentUuid);
+    if (bufferedIssues.isPresent()) {
+      return bufferedIssues.get();
+    }
+    // issues of the component have already been loaded once
     DbSession session = dbClient.openSession(false);
     final List<DefaultIssue> result = new ArrayList<>();
     try {
       session.getMapper(IssueMapper.class).selectNonClosedByComponentUuid(componentUuid, new ResultHandler() {
         @Override
         public void handleResult(ResultContext resultContext) {
-          DefaultIssue issue = ((IssueDto) resultContext.getResultObject()).toDefaultIssue();
-
-          // TODO this field should be set outside this class
-          if (!isActive(issue.ruleKey()) || ruleRepository.getByKey(issue.ruleKey()).getStatus() == RuleStatus.REMOVED) {
-            issue.setOnDisabledRule(true);
-            // TODO to be improved, why setOnDisabledRule(true) is not enough ?
-            issue.setBeingClosed(true);
-          }
-          // FIXME
-          issue.setSelectedAt(System.currentTimeMillis());
-          result.add(issue);
+          result.add(toDefaultIssue((IssueDto) resultContext.getResultObject()));
         }
       });
       return result;
@@ -80,6 +86,41 @@ public class BaseIssuesLoader {
     }
   }
 
+  private synchronized BaseIssuesBuffer getBuffer() {
+    if (buffer == null) {
+      buffer = loadBuffer();
+    }
+    return buffer;
+  }
+
+  private BaseIssuesBuffer loadBuffer() {
+    BaseIssuesBuffer result = new BaseIssuesBuffer(MAX_ISSUES_IN_MEMORY, () -> tempFolder.newFile("base-issues", ".dat"));
+    DbSession session = dbClient.openSession(false);
+    try {
+      ComponentIssuesCollector collector = new ComponentIssuesCollector(result);
+      session.getMapper(IssueMapper.class).selectNonClosedByProjectUuid(treeRootHolder.getRoot().getUuid(), collector);
+      collector.flush();
+      return result;
+    } finally {
+      result.finishLoading();
+      MyBatis.closeQuietly(session);
+    }
+  }
+
+  private DefaultIssue toDefaultIssue(IssueDto dto) {
+    DefaultIssue issue = dto.toDefaultIssue();
+
+    // TODO this field should be set outside this class
+    if (!isActive(issue.ruleKey()) || ruleRepository.getByKey(issue.ruleKey()).getStatus() == RuleStatus.REMOVED) {
+      issue.setOnDisabledRule(true);
+      // TODO to be improved, why setOnDisabledRule(true) is not enough ?
+      issue.setBeingClosed(true);
+    }
+    // FIXME
+    issue.setSelectedAt(System.currentTimeMillis());
+    return issue;
+  }
+
   private boolean isActive(RuleKey ruleKey) {
     return activeRulesHolder.get(ruleKey).isPresent();
   }
@@ -88,11 +129,37 @@ public class BaseIssuesLoader {
    * Uuids of all the components that have open issues on this project.
    */
   public Set<String> loadUuidsOfComponentsWithOpenIssues() {
-    DbSession session = dbClient.openSession(false);
-    try {
-      return dbClient.issueDao().selectComponentUuidsOfOpenIssuesForProjectUuid(session, treeRootHolder.getRoot().getUuid());
-    } finally {
-      MyBatis.closeQuietly(session);
+    return getBuffer().getComponentUuids();
+  }
+
+  /**
+   * Groups the issues streamed in component order
+   */
+  private class ComponentIssuesCollector implements ResultHandler {
+    private final BaseIssuesBuffer target;
+    @CheckForNull
+    private String componentUuid;
+    private List<DefaultIssue> componentIssues = new ArrayList<>();
+
+    private ComponentIssuesCollector(BaseIssuesBuffer target) {
+      this.target = target;
+    }
+
+    @Override
+    public void handleResult(ResultContext resultContext) {
+      IssueDto dto = (IssueDto) resultContext.getResultObject();
+      if (!dto.getComponentUuid().equals(componentUuid)) {
+        flush();
+        componentUuid = dto.getComponentUuid();
+      }
+      componentIssues.add(toDefaultIssue(dto));
+    }
+
+    private void flush() {
+      if (componentUuid != null) {
+        target.add(componentUuid, componentIssues);
+        componentIssues = new ArrayList<>();
+      }
     }
   }
 }
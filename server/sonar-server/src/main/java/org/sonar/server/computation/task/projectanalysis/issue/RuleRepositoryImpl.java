@@ -33,10 +33,11 @@ import static java.util.Objects.requireNonNull;
 
 public class RuleRepositoryImpl implements RuleRepository {
 
+  // volatile as rules can be read by the threads loading base issues
   @CheckForNull
-  private Map<RuleKey, Rule> rulesByKey;
+  private volatile Map<RuleKey, Rule> rulesByKey;
   @CheckForNull
-  private Map<Integer, Rule> rulesById;
+  private volatile Map<Integer, Rule> rulesById;
 
   private final DbClient dbClient;
 
@@ -103,8 +104,9 @@ public class RuleRepositoryImpl implements RuleRepository {
       rulesByKeyBuilder.put(ruleDto.getKey(), rule);
       rulesByIdBuilder.put(ruleDto.getId(), rule);
     }
-    this.rulesByKey = rulesByKeyBuilder.build();
+    // rulesByKey is the initialization flag, hence assigned last
     this.rulesById = rulesByIdBuilder.build();
+    this.rulesByKey = rulesByKeyBuilder.build();
   }
 
 }
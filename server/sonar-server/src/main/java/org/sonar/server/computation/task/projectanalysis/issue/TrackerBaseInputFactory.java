@@ -54,6 +54,18 @@ public class TrackerBaseInputFactory {
     return new BaseLazyInput(component, movedFilesRepository.getOriginalFile(component).orNull());
   }
 
+  /**
+   * Same as {@link #create(Component)}, except that data are loaded immediately. Line hashes are
+   * loaded only if the component has issues, as they are not used by tracking otherwise.
+   */
+  public Input<DefaultIssue> load(Component component) {
+    Input<DefaultIssue> input = create(component);
+    if (!input.getIssues().isEmpty()) {
+      input.getLineHashSequence();
+    }
+    return input;
+  }
+
   private class BaseLazyInput extends LazyInput<DefaultIssue> {
     private final Component component;
     @CheckForNull
@@ -0,0 +1,120 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.issue;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.annotation.CheckForNull;
+import org.picocontainer.Startable;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.issue.tracking.Input;
+import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
+
+import static com.google.common.util.concurrent.Uninterruptibles.getUninterruptibly;
+
+/**
+ * Loads in background the base inputs of the next components to be tracked, so that database reads
+ * overlap with the tracking of the current component. Components are expected to be requested in the
+ * post-order of the component tree, which is the order {@link IntegrateIssuesVisitor} visits them.
+ * Any other component is lazy-loaded.
+ * <p>
+ * Not thread-safe: {@link #get(Component)} must be called by the thread visiting the tree.
+ * </p>
+ */
+public class TrackerBaseInputPrefetcher implements Startable {
+
+  private static final String THREAD_NAME_PREFIX = "CE_TrackerBaseInputPrefetcher-";
+  private static final int THREAD_COUNT = 2;
+  private static final int MAX_PREFETCHED_COMPONENTS = 20;
+
+  private final TreeRootHolder treeRootHolder;
+  private final TrackerBaseInputFactory baseInputFactory;
+  private final Map<Component, Future<Input<DefaultIssue>>> prefetchedByComponent = new HashMap<>();
+  @CheckForNull
+  private Deque<Component> componentsToPrefetch;
+  @CheckForNull
+  private ExecutorService executorService;
+
+  public TrackerBaseInputPrefetcher(TreeRootHolder treeRootHolder, TrackerBaseInputFactory baseInputFactory) {
+    this.treeRootHolder = treeRootHolder;
+    this.baseInputFactory = baseInputFactory;
+  }
+
+  @Override
+  public void start() {
+    // executor is created on first use
+  }
+
+  @Override
+  public void stop() {
+    if (executorService != null) {
+      executorService.shutdownNow();
+    }
+  }
+
+  public Input<DefaultIssue> get(Component component) {
+    if (componentsToPrefetch == null) {
+      init();
+    }
+    prefetchNext();
+    Future<Input<DefaultIssue>> prefetched = prefetchedByComponent.remove(component);
+    prefetchNext();
+    if (prefetched == null) {
+      return baseInputFactory.create(component);
+    }
+    try {
+      return getUninterruptibly(prefetched);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(String.format("Fail to load base issues of component '%s'", component.getKey()), e.getCause());
+    }
+  }
+
+  private void init() {
+    componentsToPrefetch = new ArrayDeque<>();
+    addInPostOrder(treeRootHolder.getRoot(), componentsToPrefetch);
+    executorService = Executors.newFixedThreadPool(THREAD_COUNT,
+      new ThreadFactoryBuilder()
+        .setNameFormat(THREAD_NAME_PREFIX + "%d")
+        .setDaemon(true)
+        .build());
+  }
+
+  private void prefetchNext() {
+    while (prefetchedByComponent.size() < MAX_PREFETCHED_COMPONENTS && !componentsToPrefetch.isEmpty()) {
+      Component component = componentsToPrefetch.poll();
+      prefetchedByComponent.put(component, executorService.submit(() -> baseInputFactory.load(component)));
+    }
+  }
+
+  private static void addInPostOrder(Component component, Deque<Component> target) {
+    for (Component child : component.getChildren()) {
+      addInPostOrder(child, target);
+    }
+    target.add(component);
+  }
+}
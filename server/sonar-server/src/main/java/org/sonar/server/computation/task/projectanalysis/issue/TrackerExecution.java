@@ -26,18 +26,18 @@ import org.sonar.server.computation.task.projectanalysis.component.Component;
 
 public class TrackerExecution {
 
-  private final TrackerBaseInputFactory baseInputFactory;
+  private final TrackerBaseInputPrefetcher baseInputPrefetcher;
   private final TrackerRawInputFactory rawInputFactory;
   private final Tracker<DefaultIssue, DefaultIssue> tracker;
 
-  public TrackerExecution(TrackerBaseInputFactory baseInputFactory, TrackerRawInputFactory rawInputFactory,
+  public TrackerExecution(TrackerBaseInputPrefetcher baseInputPrefetcher, TrackerRawInputFactory rawInputFactory,
     Tracker<DefaultIssue, DefaultIssue> tracker) {
-    this.baseInputFactory = baseInputFactory;
+    this.baseInputPrefetcher = baseInputPrefetcher;
     this.rawInputFactory = rawInputFactory;
     this.tracker = tracker;
   }
 
   public Tracking<DefaultIssue, DefaultIssue> track(Component component) {
-    return tracker.track(rawInputFactory.create(component), baseInputFactory.create(component));
+    return tracker.track(rawInputFactory.create(component), baseInputPrefetcher.get(component));
   }
 }
@@ -23,6 +23,8 @@ import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.Optional;
 import org.sonar.api.utils.MessageException;
 import org.sonar.api.utils.TempFolder;
@@ -32,11 +34,13 @@ import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.ce.CeTaskInputDao;
 import org.sonar.server.computation.task.projectanalysis.batch.MutableBatchReportDirectoryHolder;
+import org.sonar.server.computation.task.projectanalysis.batch.ReportPrefetcher;
 import org.sonar.server.computation.task.step.ComputationStep;
 
 /**
  * Extracts the content zip file of the {@link CeTask} to a temp directory and adds a {@link File}
- * representing that temp directory to the {@link MutableBatchReportDirectoryHolder}.
+ * representing that temp directory to the {@link MutableBatchReportDirectoryHolder}. The directory
+ * prefetched by {@link ReportPrefetcher} is used when available.
  */
 public class ExtractReportStep implements ComputationStep {
 
@@ -44,31 +48,54 @@ public class ExtractReportStep implements ComputationStep {
   private final CeTask task;
   private final TempFolder tempFolder;
   private final MutableBatchReportDirectoryHolder reportDirectoryHolder;
+  private final ReportPrefetcher reportPrefetcher;
 
   public ExtractReportStep(DbClient dbClient, CeTask task, TempFolder tempFolder,
-    MutableBatchReportDirectoryHolder reportDirectoryHolder) {
+    MutableBatchReportDirectoryHolder reportDirectoryHolder, ReportPrefetcher reportPrefetcher) {
     this.dbClient = dbClient;
     this.task = task;
     this.tempFolder = tempFolder;
     this.reportDirectoryHolder = reportDirectoryHolder;
+    this.reportPrefetcher = reportPrefetcher;
   }
 
   @Override
   public void execute() {
     try (DbSession dbSession = dbClient.openSession(false)) {
-      Optional<CeTaskInputDao.DataStream> opt = dbClient.ceTaskInputDao().selectData(dbSession, task.getUuid());
-      if (opt.isPresent()) {
-        File unzippedDir = tempFolder.newDir();
-        try (CeTaskInputDao.DataStream reportStream = opt.get();
-             InputStream zipStream = new BufferedInputStream(reportStream.getInputStream())) {
-          ZipUtils.unzip(zipStream, unzippedDir);
-        } catch (IOException e) {
-          throw new IllegalStateException("Fail to extract report " + task.getUuid() + " from database", e);
-        }
-        reportDirectoryHolder.setDirectory(unzippedDir);
+      Optional<File> prefetchedDir = reportPrefetcher.takeReport(task.getUuid());
+      if (prefetchedDir.isPresent()) {
+        reportDirectoryHolder.setDirectory(moveToTempFolder(prefetchedDir.get()));
       } else {
-        throw MessageException.of("Analysis report " + task.getUuid() + " is missing in database");
+        extract(dbSession);
       }
+      // next reports are extracted while the current task is being processed
+      reportPrefetcher.prefetchNextReports(dbSession);
+    }
+  }
+
+  private File moveToTempFolder(File prefetchedDir) {
+    File dir = tempFolder.newDir();
+    try {
+      Files.move(prefetchedDir.toPath(), dir.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      return dir;
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to move report " + task.getUuid() + " to " + dir, e);
+    }
+  }
+
+  private void extract(DbSession dbSession) {
+    Optional<CeTaskInputDao.DataStream> opt = dbClient.ceTaskInputDao().selectData(dbSession, task.getUuid());
+    if (opt.isPresent()) {
+      File unzippedDir = tempFolder.newDir();
+      try (CeTaskInputDao.DataStream reportStream = opt.get();
+           InputStream zipStream = new BufferedInputStream(reportStream.getInputStream())) {
+        ZipUtils.unzip(zipStream, unzippedDir);
+      } catch (IOException e) {
+        throw new IllegalStateException("Fail to extract report " + task.getUuid() + " from database", e);
+      }
+      reportDirectoryHolder.setDirectory(unzippedDir);
+    } else {
+      throw MessageException.of("Analysis report " + task.getUuid() + " is missing in database");
     }
   }
 
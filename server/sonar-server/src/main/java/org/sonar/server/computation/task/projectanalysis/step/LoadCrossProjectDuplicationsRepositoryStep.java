@@ -20,9 +20,19 @@
 package org.sonar.server.computation.task.projectanalysis.step;
 
 import com.google.common.base.Function;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Multimaps;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.db.DbClient;
@@ -57,6 +67,7 @@ import static org.sonar.server.computation.task.projectanalysis.component.Compon
 public class LoadCrossProjectDuplicationsRepositoryStep implements ComputationStep {
 
   private static final Logger LOGGER = Loggers.get(LoadCrossProjectDuplicationsRepositoryStep.class);
+  private static final int MAX_HASHES_PER_BATCH = 5_000;
 
   private final TreeRootHolder treeRootHolder;
   private final BatchReportReader reportReader;
@@ -79,7 +90,11 @@ public class LoadCrossProjectDuplicationsRepositoryStep implements ComputationSt
   @Override
   public void execute() {
     if (crossProjectDuplicationStatusHolder.isEnabled()) {
-      new DepthTraversalTypeAwareCrawler(new CrossProjectDuplicationVisitor()).visit(treeRootHolder.getRoot());
+      try (DbSession dbSession = dbClient.openSession(false)) {
+        CrossProjectDuplicationVisitor visitor = new CrossProjectDuplicationVisitor(dbSession);
+        new DepthTraversalTypeAwareCrawler(visitor).visit(treeRootHolder.getRoot());
+        visitor.flushAll();
+      }
     }
   }
 
@@ -88,10 +103,18 @@ public class LoadCrossProjectDuplicationsRepositoryStep implements ComputationSt
     return "Compute cross project duplications";
   }
 
+  /**
+   * Instead of one query per file, the hashes of several files of the same language are looked up
+   * at once, then candidates are dispatched to the files by hash.
+   */
   private class CrossProjectDuplicationVisitor extends TypeAwareVisitorAdapter {
 
-    private CrossProjectDuplicationVisitor() {
+    private final DbSession dbSession;
+    private final Map<String, FileBatch> batchesByLanguage = new HashMap<>();
+
+    private CrossProjectDuplicationVisitor(DbSession dbSession) {
       super(CrawlerDepthLimit.FILE, PRE_ORDER);
+      this.dbSession = dbSession;
     }
 
     @Override
@@ -102,8 +125,35 @@ public class LoadCrossProjectDuplicationsRepositoryStep implements ComputationSt
         return;
       }
 
-      Collection<String> hashes = from(cpdTextBlocks).transform(CpdTextBlockToHash.INSTANCE).toList();
-      List<DuplicationUnitDto> dtos = selectDuplicates(file, hashes);
+      String language = file.getFileAttributes().getLanguageKey();
+      FileBatch batch = batchesByLanguage.computeIfAbsent(language, FileBatch::new);
+      batch.add(file, cpdTextBlocks);
+      if (batch.hashes.size() >= MAX_HASHES_PER_BATCH) {
+        flush(batch);
+        batchesByLanguage.remove(language);
+      }
+    }
+
+    private void flushAll() {
+      batchesByLanguage.values().forEach(this::flush);
+      batchesByLanguage.clear();
+    }
+
+    private void flush(FileBatch batch) {
+      List<DuplicationUnitDto> dtos = selectDuplicates(batch.language, batch.hashes);
+      if (dtos.isEmpty()) {
+        return;
+      }
+      Multimap<String, DuplicationUnitDto> dtosByHash = Multimaps.index(dtos, DuplicationUnitDto::getHash);
+      for (Map.Entry<Component, List<CpdTextBlock>> fileBlocks : batch.blocksByFile.entrySet()) {
+        computeCpd(fileBlocks.getKey(), fileBlocks.getValue(), dtosByHash);
+      }
+    }
+
+    private void computeCpd(Component file, List<CpdTextBlock> cpdTextBlocks, Multimap<String, DuplicationUnitDto> dtosByHash) {
+      Set<String> hashes = from(cpdTextBlocks).transform(CpdTextBlockToHash.INSTANCE).copyInto(new LinkedHashSet<String>());
+      List<DuplicationUnitDto> dtos = new ArrayList<>();
+      hashes.forEach(hash -> dtos.addAll(dtosByHash.get(hash)));
       if (dtos.isEmpty()) {
         return;
       }
@@ -115,15 +165,29 @@ public class LoadCrossProjectDuplicationsRepositoryStep implements ComputationSt
       integrateCrossProjectDuplications.computeCpd(file, originBlocks, duplicatedBlocks);
     }
 
-    private List<DuplicationUnitDto> selectDuplicates(Component file, Collection<String> hashes) {
-      DbSession dbSession = dbClient.openSession(false);
-      try {
-        Analysis projectAnalysis = analysisMetadataHolder.getBaseAnalysis();
-        String analysisUuid = projectAnalysis == null ? null : projectAnalysis.getUuid();
-        return dbClient.duplicationDao().selectCandidates(dbSession, analysisUuid, file.getFileAttributes().getLanguageKey(), hashes);
-      } finally {
-        dbClient.closeSession(dbSession);
-      }
+    private List<DuplicationUnitDto> selectDuplicates(@Nullable String language, Collection<String> hashes) {
+      Analysis projectAnalysis = analysisMetadataHolder.getBaseAnalysis();
+      String analysisUuid = projectAnalysis == null ? null : projectAnalysis.getUuid();
+      return dbClient.duplicationDao().selectCandidates(dbSession, analysisUuid, language, hashes);
+    }
+  }
+
+  /**
+   * Files of a language waiting for their duplication candidates. Hashes are sorted, so that
+   * the index on hashes is read in order.
+   */
+  private static class FileBatch {
+    private final String language;
+    private final Map<Component, List<CpdTextBlock>> blocksByFile = new LinkedHashMap<>();
+    private final Set<String> hashes = new TreeSet<>();
+
+    private FileBatch(@Nullable String language) {
+      this.language = language;
+    }
+
+    private void add(Component file, List<CpdTextBlock> cpdTextBlocks) {
+      blocksByFile.put(file, cpdTextBlocks);
+      from(cpdTextBlocks).transform(CpdTextBlockToHash.INSTANCE).copyInto(hashes);
     }
   }
 
@@ -23,4 +23,10 @@ public interface CeProcessingScheduler {
 
   void startScheduling();
 
+  /**
+   * Wakes up the workers waiting for the polling delay to expire, so that the tasks which have just
+   * been submitted are processed without delay.
+   */
+  void notifyNewTasks();
+
 }
@@ -22,9 +22,10 @@ package org.sonar.server.computation.taskprocessor;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
-import com.google.common.util.concurrent.ListenableScheduledFuture;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.picocontainer.Startable;
@@ -32,7 +33,6 @@ import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.server.computation.configuration.CeConfiguration;
 
-import static com.google.common.util.concurrent.Futures.addCallback;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 public class CeProcessingSchedulerImpl implements CeProcessingScheduler, Startable {
@@ -68,8 +68,14 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler, Startab
   @Override
   public void startScheduling() {
     for (ChainingCallback chainingCallback : chainingCallbacks) {
-      ListenableScheduledFuture<Boolean> future = executorService.schedule(workerRunnable, delayBetweenTasks, timeUnit);
-      addCallback(future, chainingCallback, executorService);
+      chainingCallback.chainWithDelay();
+    }
+  }
+
+  @Override
+  public void notifyNewTasks() {
+    for (ChainingCallback chainingCallback : chainingCallbacks) {
+      chainingCallback.wakeUp();
     }
   }
 
@@ -80,14 +86,30 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler, Startab
     }
   }
 
+  /**
+   * Chains the calls of a worker. When the worker has nothing to do, the next call is delayed
+   * until new tasks are notified, or until the polling delay expires.
+   */
   private class ChainingCallback implements FutureCallback<Boolean> {
     private final AtomicBoolean keepRunning = new AtomicBoolean(true);
+    // identifies the delayed call while the worker is idle, null otherwise. Delayed calls of previous waits are ignored.
+    private final AtomicReference<Object> waitingToken = new AtomicReference<>();
+    // true when new tasks are notified while the worker is not waiting
+    private final AtomicBoolean notified = new AtomicBoolean(false);
+    @CheckForNull
+    private volatile ListenableFuture<Boolean> workerFuture;
     @CheckForNull
-    private ListenableFuture<Boolean> workerFuture;
+    private volatile ListenableFuture<Boolean> delayedFuture;
 
+    /**
+     * @param result {@code null} if the delayed call was skipped because the worker has already been woken up
+     */
     @Override
     public void onSuccess(@Nullable Boolean result) {
-      if (result != null && result) {
+      if (result == null) {
+        return;
+      }
+      if (result) {
         chainWithoutDelay();
       } else {
         chainWithDelay();
@@ -96,6 +118,10 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler, Startab
 
     @Override
     public void onFailure(Throwable t) {
+      if (t instanceof CancellationException) {
+        // delayed call cancelled by a wake-up, or call cancelled by stop()
+        return;
+      }
       if (t instanceof Error) {
         LOG.error("Compute Engine execution failed. Scheduled processing interrupted.", t);
       } else {
@@ -105,22 +131,48 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler, Startab
 
     private void chainWithoutDelay() {
       if (keepRunning()) {
-        workerFuture = executorService.submit(workerRunnable);
+        addCallback(executorService.submit(workerRunnable));
       }
-      addCallback();
     }
 
     private void chainWithDelay() {
+      Object token = new Object();
+      waitingToken.set(token);
+      if (notified.get()) {
+        wakeUp();
+        return;
+      }
       if (keepRunning()) {
-        workerFuture = executorService.schedule(workerRunnable, delayBetweenTasks, timeUnit);
+        ListenableFuture<Boolean> future = executorService.schedule(() -> callIfWaiting(token), delayBetweenTasks, timeUnit);
+        delayedFuture = future;
+        addCallback(future);
+      }
+    }
+
+    private void wakeUp() {
+      notified.set(true);
+      // read before taking the token, so that the delayed call of a later wait can't be cancelled
+      ListenableFuture<Boolean> pendingDelayedFuture = delayedFuture;
+      if (waitingToken.getAndSet(null) != null) {
+        notified.set(false);
+        if (pendingDelayedFuture != null) {
+          pendingDelayedFuture.cancel(false);
+        }
+        chainWithoutDelay();
       }
-      addCallback();
     }
 
-    private void addCallback() {
-      if (workerFuture != null && keepRunning()) {
-        Futures.addCallback(workerFuture, this, executorService);
+    @CheckForNull
+    private Boolean callIfWaiting(Object token) throws Exception {
+      if (waitingToken.compareAndSet(token, null)) {
+        return workerRunnable.call();
       }
+      return null;
+    }
+
+    private void addCallback(ListenableFuture<Boolean> future) {
+      workerFuture = future;
+      Futures.addCallback(future, this, executorService);
     }
 
     private boolean keepRunning() {
@@ -129,6 +181,7 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler, Startab
 
     public void stop() {
       this.keepRunning.set(false);
+      this.waitingToken.set(null);
       if (workerFuture != null) {
         workerFuture.cancel(false);
       }
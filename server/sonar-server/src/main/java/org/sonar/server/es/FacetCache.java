@@ -0,0 +1,178 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.sonar.api.server.ServerSide;
+import org.sonar.api.utils.System2;
+
+/**
+ * Facets of the searches that only differ by sorting and pagination, for example when browsing
+ * the pages of issues. The key of an entry is the JSON source of the facet request, which includes
+ * the authorization filter of the user, and the refresh count of the searched indices, so that
+ * entries are not used anymore as soon as new documents are visible. The refresh count is
+ * requested to Elasticsearch at most once per {@link #REFRESH_COUNT_TTL_MS} milliseconds, so that it
+ * does not add a round trip to each search. As a consequence, documents made visible by a refresh
+ * (explicit refresh by indexers or periodic refresh) may be missing from facets during at most that
+ * delay.
+ * <p/>
+ * The cache is bounded by the approximate number of characters of keys and facets, as keys are
+ * full facet requests.
+ * <p/>
+ * Concurrent requests of the same facets are coalesced: only the first one hits Elasticsearch,
+ * the others wait for its result.
+ */
+@ServerSide
+public class FacetCache {
+
+  @VisibleForTesting
+  static final long MAX_WEIGHT = 5_000_000L;
+  @VisibleForTesting
+  static final long REFRESH_COUNT_TTL_MS = 1_000L;
+
+  private final EsClient client;
+  private final System2 system;
+  private final Cache<String, Entry> cache = CacheBuilder.newBuilder()
+    .maximumWeight(MAX_WEIGHT)
+    .weigher((String key, Entry entry) -> key.length() + entry.weight)
+    .build();
+  private final Map<String, RefreshCount> refreshCounts = new ConcurrentHashMap<>();
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong savedMillis = new AtomicLong();
+
+  public FacetCache(EsClient client, System2 system) {
+    this.client = client;
+    this.system = system;
+  }
+
+  /**
+   * Facets of the request {@code facetRequest} on the indices {@code indices}. If not cached yet,
+   * they are computed by {@code loader}. The returned instance can be safely modified.
+   */
+  public Facets get(SearchRequestBuilder facetRequest, String[] indices, Supplier<Facets> loader) {
+    String key = getRefreshCount(indices) + facetRequest.toString();
+    boolean[] loaded = new boolean[1];
+    Entry entry;
+    try {
+      entry = cache.get(key, () -> {
+        loaded[0] = true;
+        long start = system.now();
+        Facets facets = loader.get();
+        return new Entry(facets, system.now() - start);
+      });
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    }
+    if (loaded[0]) {
+      misses.incrementAndGet();
+    } else {
+      hits.incrementAndGet();
+      savedMillis.addAndGet(entry.loadingMillis);
+    }
+    return entry.facets.copy();
+  }
+
+  public void invalidate() {
+    cache.invalidateAll();
+    refreshCounts.clear();
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  /**
+   * Cumulated Elasticsearch time saved by the hits, in milliseconds
+   */
+  public long getSavedMillis() {
+    return savedMillis.get();
+  }
+
+  public long size() {
+    return cache.size();
+  }
+
+  private long getRefreshCount(String[] indices) {
+    String key = Arrays.toString(indices);
+    long now = system.now();
+    RefreshCount refreshCount = refreshCounts.get(key);
+    if (refreshCount != null && now - refreshCount.requestedAt < REFRESH_COUNT_TTL_MS) {
+      return refreshCount.count;
+    }
+    // requested out of the map, so that concurrent searches are not blocked by network I/O
+    long count = client.prepareStats(indices).clear().setRefresh(true).get().getTotal().getRefresh().getTotal();
+    refreshCounts.put(key, new RefreshCount(count, now));
+    return count;
+  }
+
+  private static class RefreshCount {
+    private final long count;
+    private final long requestedAt;
+
+    private RefreshCount(long count, long requestedAt) {
+      this.count = count;
+      this.requestedAt = requestedAt;
+    }
+  }
+
+  private static class Entry {
+    private final Facets facets;
+    private final long loadingMillis;
+    private final int weight;
+
+    private Entry(Facets facets, long loadingMillis) {
+      this.facets = facets;
+      this.loadingMillis = loadingMillis;
+      this.weight = weigh(facets);
+    }
+
+    /**
+     * Approximate number of characters of facet names and bucket keys, plus room for the
+     * bucket values
+     */
+    private static int weigh(Facets facets) {
+      int weight = 0;
+      for (Map.Entry<String, LinkedHashMap<String, Long>> facet : facets.getAll().entrySet()) {
+        weight += facet.getKey().length();
+        for (String bucketKey : facet.getValue().keySet()) {
+          weight += bucketKey.length() + 8;
+        }
+      }
+      return weight;
+    }
+  }
+}
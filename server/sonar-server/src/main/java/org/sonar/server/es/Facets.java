@@ -163,6 +163,15 @@ public class Facets {
     return facetsByName.keySet();
   }
 
+  /**
+   * Deep copy, so that the buckets of the copy can be changed without altering this instance
+   */
+  public Facets copy() {
+    LinkedHashMap<String, LinkedHashMap<String, Long>> copy = new LinkedHashMap<>();
+    facetsByName.forEach((name, buckets) -> copy.put(name, new LinkedHashMap<>(buckets)));
+    return new Facets(copy);
+  }
+
   @Override
   public String toString() {
     return ReflectionToStringBuilder.toString(this, ToStringStyle.SIMPLE_STYLE);
@@ -22,14 +22,18 @@ package org.sonar.server.issue.index;
 import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -49,6 +53,8 @@ import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.query.BoolQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.aggregations.AbstractAggregationBuilder;
 import org.elasticsearch.search.aggregations.AggregationBuilder;
 import org.elasticsearch.search.aggregations.AggregationBuilders;
 import org.elasticsearch.search.aggregations.bucket.filter.FilterAggregationBuilder;
@@ -58,6 +64,7 @@ import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramInter
 import org.elasticsearch.search.aggregations.bucket.terms.Terms;
 import org.elasticsearch.search.aggregations.bucket.terms.Terms.Order;
 import org.elasticsearch.search.aggregations.bucket.terms.TermsBuilder;
+import org.elasticsearch.search.aggregations.metrics.max.Max;
 import org.elasticsearch.search.aggregations.metrics.min.Min;
 import org.elasticsearch.search.aggregations.metrics.sum.SumBuilder;
 import org.joda.time.Duration;
@@ -71,6 +78,8 @@ import org.sonar.db.component.ComponentDto;
 import org.sonar.server.es.BaseIndex;
 import org.sonar.server.es.EsClient;
 import org.sonar.server.es.EsUtils;
+import org.sonar.server.es.FacetCache;
+import org.sonar.server.es.Facets;
 import org.sonar.server.es.SearchOptions;
 import org.sonar.server.es.SearchResult;
 import org.sonar.server.es.Sorting;
@@ -139,6 +148,9 @@ public class IssueIndex extends BaseIndex {
   private static final String FACET_SUFFIX_MISSING = "_missing";
 
   private static final String IS_ASSIGNED_FILTER = "__isAssigned";
+  private static final String IS_RESOLVED_FILTER = "__isResolved";
+  private static final String AUTHORIZATION_FILTER = "__authorization";
+  private static final Set<String> PROJECT_STATS_FILTERS = ImmutableSet.of(AUTHORIZATION_FILTER, IS_RESOLVED_FILTER, IssueIndexDefinition.FIELD_ISSUE_PROJECT_UUID);
 
   private static final SumBuilder EFFORT_AGGREGATION = AggregationBuilders.sum(FACET_MODE_EFFORT).field(IssueIndexDefinition.FIELD_ISSUE_EFFORT);
   private static final Order EFFORT_AGGREGATION_ORDER = Order.aggregation(FACET_MODE_EFFORT, false);
@@ -159,15 +171,19 @@ public class IssueIndex extends BaseIndex {
     }
   };
 
+  private static final String[] FACET_CACHE_INDICES = {IssueIndexDefinition.INDEX, ViewIndexDefinition.INDEX};
+
   private final Sorting sorting;
   private final System2 system;
   private final UserSession userSession;
+  private final FacetCache facetCache;
 
-  public IssueIndex(EsClient client, System2 system, UserSession userSession) {
+  public IssueIndex(EsClient client, System2 system, UserSession userSession, FacetCache facetCache) {
     super(client);
 
     this.system = system;
     this.userSession = userSession;
+    this.facetCache = facetCache;
     this.sorting = new Sorting();
     this.sorting.add(IssueQuery.SORT_BY_ASSIGNEE, IssueIndexDefinition.FIELD_ISSUE_ASSIGNEE);
     this.sorting.add(IssueQuery.SORT_BY_STATUS, IssueIndexDefinition.FIELD_ISSUE_STATUS);
@@ -227,14 +243,121 @@ public class IssueIndex extends BaseIndex {
         esFilter.must(filter);
       }
     }
-    if (esFilter.hasClauses()) {
-      requestBuilder.setQuery(boolQuery().must(esQuery).filter(esFilter));
-    } else {
-      requestBuilder.setQuery(esQuery);
+    QueryBuilder requestQuery = esFilter.hasClauses() ? boolQuery().must(esQuery).filter(esFilter) : esQuery;
+    requestBuilder.setQuery(requestQuery);
+
+    Optional<Facets> facetsFromStats = getFacetsFromProjectStats(query, options, filters);
+    if (facetsFromStats.isPresent()) {
+      return new SearchResult<>(requestBuilder.get(), DOC_CONVERTER, facetsFromStats.get());
+    }
+
+    List<AbstractAggregationBuilder> aggregations = createStickyFacets(query, options, filters, esQuery);
+    if (!isFacetCacheable(query, options)) {
+      aggregations.forEach(requestBuilder::addAggregation);
+      return new SearchResult<>(requestBuilder.get(), DOC_CONVERTER);
+    }
+
+    // facets do not depend on sorting and pagination
+    SearchRequestBuilder facetRequest = getClient()
+      .prepareSearch(IssueIndexDefinition.INDEX)
+      .setTypes(IssueIndexDefinition.TYPE_ISSUE)
+      .setQuery(requestQuery)
+      .setSize(0);
+    aggregations.forEach(facetRequest::addAggregation);
+    SearchResponse[] responseWithFacets = new SearchResponse[1];
+    Facets facets = facetCache.get(facetRequest, FACET_CACHE_INDICES, () -> {
+      // docs and facets are requested at once
+      aggregations.forEach(requestBuilder::addAggregation);
+      responseWithFacets[0] = requestBuilder.get();
+      return new Facets(responseWithFacets[0]);
+    });
+    SearchResponse response = responseWithFacets[0] == null ? requestBuilder.get() : responseWithFacets[0];
+    return new SearchResult<>(response, DOC_CONVERTER, facets);
+  }
+
+  /**
+   * Without upper bound, the facet "createdAt" depends on current time, so it can't be cached
+   */
+  private static boolean isFacetCacheable(IssueQuery query, SearchOptions options) {
+    return !options.getFacets().isEmpty()
+      && (!options.getFacets().contains(CREATED_AT) || query.createdBefore() != null);
+  }
+
+  /**
+   * Facets of the unresolved issues of some projects, without other criteria, are read from the counters
+   * maintained by {@link IssueIndexer}. Empty if the query is not supported or if the counters of some
+   * projects are not available.
+   */
+  private Optional<Facets> getFacetsFromProjectStats(IssueQuery query, SearchOptions options, Map<String, QueryBuilder> filters) {
+    if (!isProjectStatsQuery(query, options, filters)) {
+      return Optional.empty();
+    }
+    Set<String> projectUuids = Sets.newHashSet(query.projectUuids());
+    SearchResponse response = getClient()
+      .prepareSearch(IssueIndexDefinition.INDEX)
+      .setTypes(IssueIndexDefinition.TYPE_PROJECT_STATS)
+      .setRouting(projectUuids.toArray(new String[projectUuids.size()]))
+      .setQuery(boolQuery()
+        .filter(filters.get(AUTHORIZATION_FILTER))
+        .filter(termsQuery(IssueIndexDefinition.FIELD_PROJECT_STATS_PROJECT_UUID, projectUuids)))
+      .setSize(projectUuids.size())
+      .get();
+    if (response.getHits().getTotalHits() < projectUuids.size()) {
+      // not authorized or not indexed yet
+      return Optional.empty();
+    }
+
+    List<ProjectIssueStatsDoc> stats = new ArrayList<>();
+    for (SearchHit hit : response.getHits().getHits()) {
+      stats.add(new ProjectIssueStatsDoc(hit.getSource()));
+    }
+    boolean effortMode = hasQueryEffortFacet(query);
+    LinkedHashMap<String, LinkedHashMap<String, Long>> facets = new LinkedHashMap<>();
+    for (String facetName : ProjectIssueStatsDoc.FIELDS_BY_FACET.keySet()) {
+      if (options.getFacets().contains(facetName)) {
+        facets.put(facetName, toFacet(stats, facetName, effortMode));
+      }
     }
+    if (effortMode) {
+      LinkedHashMap<String, Long> total = new LinkedHashMap<>();
+      total.put(Facets.TOTAL, stats.stream().mapToLong(ProjectIssueStatsDoc::effort).sum());
+      facets.put(FACET_MODE_EFFORT, total);
+    }
+    return Optional.of(new Facets(facets));
+  }
 
-    configureStickyFacets(query, options, filters, esQuery, requestBuilder);
-    return new SearchResult<>(requestBuilder.get(), DOC_CONVERTER);
+  private static boolean isProjectStatsQuery(IssueQuery query, SearchOptions options, Map<String, QueryBuilder> filters) {
+    if (options.getFacets().isEmpty()
+      || !ProjectIssueStatsDoc.FIELDS_BY_FACET.keySet().containsAll(options.getFacets())
+      || !BooleanUtils.isFalse(query.resolved())
+      || filters.get(IssueIndexDefinition.FIELD_ISSUE_PROJECT_UUID) == null) {
+      return false;
+    }
+    return filters.entrySet().stream()
+      .filter(filter -> filter.getValue() != null)
+      .allMatch(filter -> PROJECT_STATS_FILTERS.contains(filter.getKey()));
+  }
+
+  /**
+   * Buckets ordered and truncated as Elasticsearch does for terms aggregations
+   */
+  private static LinkedHashMap<String, Long> toFacet(List<ProjectIssueStatsDoc> stats, String facetName, boolean effortMode) {
+    int valueIndex = effortMode ? 1 : 0;
+    Map<String, long[]> buckets = new HashMap<>();
+    for (ProjectIssueStatsDoc doc : stats) {
+      doc.buckets(facetName).forEach((key, values) -> buckets.merge(key, values, (v1, v2) -> new long[] {v1[0] + v2[0], v1[1] + v2[1]}));
+    }
+    LinkedHashMap<String, Long> facet = new LinkedHashMap<>();
+    buckets.entrySet().stream()
+      .filter(bucket -> !bucket.getKey().isEmpty())
+      .sorted(Comparator.<Map.Entry<String, long[]>>comparingLong(bucket -> -bucket.getValue()[valueIndex]).thenComparing(Map.Entry::getKey))
+      .limit(DEFAULT_FACET_SIZE)
+      .forEach(bucket -> facet.put(bucket.getKey(), bucket.getValue()[valueIndex]));
+    long[] unassigned = buckets.get("");
+    if (unassigned != null) {
+      facet.put("", unassigned[valueIndex]);
+    }
+    return facet;
   }
 
   private void configureSorting(IssueQuery query, SearchRequestBuilder esRequest) {
@@ -253,7 +376,7 @@ public class IssueIndex extends BaseIndex {
 
   private Map<String, QueryBuilder> createFilters(IssueQuery query) {
     Map<String, QueryBuilder> filters = new HashMap<>();
-    filters.put("__authorization", createAuthorizationFilter(query.checkAuthorization(), query.userLogin(), query.userGroups()));
+    filters.put(AUTHORIZATION_FILTER, createAuthorizationFilter(query.checkAuthorization(), query.userLogin(), query.userGroups()));
 
     // Issue is assigned Filter
     if (BooleanUtils.isTrue(query.assigned())) {
@@ -263,11 +386,10 @@ public class IssueIndex extends BaseIndex {
     }
 
     // Issue is Resolved Filter
-    String isResolved = "__isResolved";
     if (BooleanUtils.isTrue(query.resolved())) {
-      filters.put(isResolved, existsQuery(IssueIndexDefinition.FIELD_ISSUE_RESOLUTION));
+      filters.put(IS_RESOLVED_FILTER, existsQuery(IssueIndexDefinition.FIELD_ISSUE_RESOLUTION));
     } else if (BooleanUtils.isFalse(query.resolved())) {
-      filters.put(isResolved, boolQuery().mustNot(existsQuery(IssueIndexDefinition.FIELD_ISSUE_RESOLUTION)));
+      filters.put(IS_RESOLVED_FILTER, boolQuery().mustNot(existsQuery(IssueIndexDefinition.FIELD_ISSUE_RESOLUTION)));
     }
 
     // Field Filters
@@ -376,51 +498,53 @@ public class IssueIndex extends BaseIndex {
       "Start bound cannot be larger or equal to end bound");
   }
 
-  private void configureStickyFacets(IssueQuery query, SearchOptions options, Map<String, QueryBuilder> filters, QueryBuilder esQuery, SearchRequestBuilder esSearch) {
+  private List<AbstractAggregationBuilder> createStickyFacets(IssueQuery query, SearchOptions options, Map<String, QueryBuilder> filters, QueryBuilder esQuery) {
+    List<AbstractAggregationBuilder> aggregations = new ArrayList<>();
     if (!options.getFacets().isEmpty()) {
       StickyFacetBuilder stickyFacetBuilder = newStickyFacetBuilder(query, filters, esQuery);
       // Execute Term aggregations
-      addSimpleStickyFacetIfNeeded(options, stickyFacetBuilder, esSearch,
+      addSimpleStickyFacetIfNeeded(options, stickyFacetBuilder, aggregations,
         SEVERITIES, IssueIndexDefinition.FIELD_ISSUE_SEVERITY);
-      addSimpleStickyFacetIfNeeded(options, stickyFacetBuilder, esSearch,
+      addSimpleStickyFacetIfNeeded(options, stickyFacetBuilder, aggregations,
         STATUSES, IssueIndexDefinition.FIELD_ISSUE_STATUS);
-      addSimpleStickyFacetIfNeeded(options, stickyFacetBuilder, esSearch,
+      addSimpleStickyFacetIfNeeded(options, stickyFacetBuilder, aggregations,
         PROJECT_UUIDS, IssueIndexDefinition.FIELD_ISSUE_PROJECT_UUID, query.projectUuids().toArray());
-      addSimpleStickyFacetIfNeeded(options, stickyFacetBuilder, esSearch,
+      addSimpleStickyFacetIfNeeded(options, stickyFacetBuilder, aggregations,
         MODULE_UUIDS, IssueIndexDefinition.FIELD_ISSUE_MODULE_UUID, query.moduleUuids().toArray());
-      addSimpleStickyFacetIfNeeded(options, stickyFacetBuilder, esSearch,
+      addSimpleStickyFacetIfNeeded(options, stickyFacetBuilder, aggregations,
         DIRECTORIES, IssueIndexDefinition.FIELD_ISSUE_DIRECTORY_PATH, query.directories().toArray());
-      addSimpleStickyFacetIfNeeded(options, stickyFacetBuilder, esSearch,
+      addSimpleStickyFacetIfNeeded(options, stickyFacetBuilder, aggregations,
         FILE_UUIDS, IssueIndexDefinition.FIELD_ISSUE_COMPONENT_UUID, query.fileUuids().toArray());
-      addSimpleStickyFacetIfNeeded(options, stickyFacetBuilder, esSearch,
+      addSimpleStickyFacetIfNeeded(options, stickyFacetBuilder, aggregations,
         LANGUAGES, IssueIndexDefinition.FIELD_ISSUE_LANGUAGE, query.languages().toArray());
-      addSimpleStickyFacetIfNeeded(options, stickyFacetBuilder, esSearch,
+      addSimpleStickyFacetIfNeeded(options, stickyFacetBuilder, aggregations,
         RULES, IssueIndexDefinition.FIELD_ISSUE_RULE_KEY, query.rules().toArray());
 
-      addSimpleStickyFacetIfNeeded(options, stickyFacetBuilder, esSearch,
+      addSimpleStickyFacetIfNeeded(options, stickyFacetBuilder, aggregations,
         AUTHORS, IssueIndexDefinition.FIELD_ISSUE_AUTHOR_LOGIN, query.authors().toArray());
 
       if (options.getFacets().contains(TAGS)) {
-        esSearch.addAggregation(stickyFacetBuilder.buildStickyFacet(IssueIndexDefinition.FIELD_ISSUE_TAGS, TAGS, query.tags().toArray()));
+        aggregations.add(stickyFacetBuilder.buildStickyFacet(IssueIndexDefinition.FIELD_ISSUE_TAGS, TAGS, query.tags().toArray()));
       }
       if (options.getFacets().contains(TYPES)) {
-        esSearch.addAggregation(stickyFacetBuilder.buildStickyFacet(IssueIndexDefinition.FIELD_ISSUE_TYPE, TYPES, query.types().toArray()));
+        aggregations.add(stickyFacetBuilder.buildStickyFacet(IssueIndexDefinition.FIELD_ISSUE_TYPE, TYPES, query.types().toArray()));
       }
       if (options.getFacets().contains(RESOLUTIONS)) {
-        esSearch.addAggregation(createResolutionFacet(query, filters, esQuery));
+        aggregations.add(createResolutionFacet(query, filters, esQuery));
       }
       if (options.getFacets().contains(ASSIGNEES)) {
-        esSearch.addAggregation(createAssigneesFacet(query, filters, esQuery));
+        aggregations.add(createAssigneesFacet(query, filters, esQuery));
       }
-      addAssignedToMeFacetIfNeeded(esSearch, options, query, filters, esQuery);
+      addAssignedToMeFacetIfNeeded(aggregations, options, query, filters, esQuery);
       if (options.getFacets().contains(CREATED_AT)) {
-        getCreatedAtFacet(query, filters, esQuery).ifPresent(esSearch::addAggregation);
+        getCreatedAtFacet(query, filters, esQuery).ifPresent(aggregations::add);
       }
     }
 
     if (hasQueryEffortFacet(query)) {
-      esSearch.addAggregation(EFFORT_AGGREGATION);
+      aggregations.add(EFFORT_AGGREGATION);
     }
+    return aggregations;
   }
 
   private static StickyFacetBuilder newStickyFacetBuilder(IssueQuery query, Map<String, QueryBuilder> filters, QueryBuilder esQuery) {
@@ -430,10 +554,10 @@ public class IssueIndex extends BaseIndex {
     return new StickyFacetBuilder(esQuery, filters);
   }
 
-  private static void addSimpleStickyFacetIfNeeded(SearchOptions options, StickyFacetBuilder stickyFacetBuilder, SearchRequestBuilder esSearch,
+  private static void addSimpleStickyFacetIfNeeded(SearchOptions options, StickyFacetBuilder stickyFacetBuilder, List<AbstractAggregationBuilder> aggregations,
     String facetName, String fieldName, Object... selectedValues) {
     if (options.getFacets().contains(facetName)) {
-      esSearch.addAggregation(stickyFacetBuilder.buildStickyFacet(fieldName, facetName, DEFAULT_FACET_SIZE, selectedValues));
+      aggregations.add(stickyFacetBuilder.buildStickyFacet(fieldName, facetName, DEFAULT_FACET_SIZE, selectedValues));
     }
   }
 
@@ -547,7 +671,7 @@ public class IssueIndex extends BaseIndex {
     return values.stream().map(Pattern::quote).collect(Collectors.toArrayList(values.size()));
   }
 
-  private void addAssignedToMeFacetIfNeeded(SearchRequestBuilder builder, SearchOptions options, IssueQuery query, Map<String, QueryBuilder> filters, QueryBuilder queryBuilder) {
+  private void addAssignedToMeFacetIfNeeded(List<AbstractAggregationBuilder> aggregations, SearchOptions options, IssueQuery query, Map<String, QueryBuilder> filters, QueryBuilder queryBuilder) {
     String login = userSession.getLogin();
 
     if (!options.getFacets().contains(FACET_ASSIGNED_TO_ME) || StringUtils.isEmpty(login)) {
@@ -566,7 +690,7 @@ public class IssueIndex extends BaseIndex {
       .filter(facetFilter)
       .subAggregation(addEffortAggregationIfNeeded(query, AggregationBuilders.terms(facetName + "__terms").field(fieldName).include(login)));
 
-    builder.addAggregation(
+    aggregations.add(
       AggregationBuilders.global(facetName)
         .subAggregation(facetTopAggregation));
   }
@@ -577,7 +701,7 @@ public class IssueIndex extends BaseIndex {
 
     // Same as in super.stickyFacetBuilder
     Map<String, QueryBuilder> resolutionFilters = Maps.newHashMap(filters);
-    resolutionFilters.remove("__isResolved");
+    resolutionFilters.remove(IS_RESOLVED_FILTER);
     resolutionFilters.remove(fieldName);
     StickyFacetBuilder assigneeFacetBuilder = newStickyFacetBuilder(query, resolutionFilters, esQuery);
     BoolQueryBuilder facetFilter = assigneeFacetBuilder.getStickyFacetFilter(fieldName);
@@ -686,21 +810,6 @@ public class IssueIndex extends BaseIndex {
    * Only fields needed for the batch are returned.
    */
   public Iterator<IssueDoc> selectIssuesForBatch(ComponentDto component) {
-    BoolQueryBuilder filter = boolQuery()
-      .must(createAuthorizationFilter(true, userSession.getLogin(), userSession.getUserGroups()))
-      .mustNot(termsQuery(IssueIndexDefinition.FIELD_ISSUE_STATUS, Issue.STATUS_CLOSED));
-
-    switch (component.scope()) {
-      case Scopes.PROJECT:
-        filter.must(termsQuery(IssueIndexDefinition.FIELD_ISSUE_MODULE_PATH, component.uuid()));
-        break;
-      case Scopes.FILE:
-        filter.must(termsQuery(IssueIndexDefinition.FIELD_ISSUE_COMPONENT_UUID, component.uuid()));
-        break;
-      default:
-        throw new IllegalStateException(String.format("Component of scope '%s' is not allowed", component.scope()));
-    }
-
     SearchRequestBuilder requestBuilder = getClient()
       .prepareSearch(IssueIndexDefinition.INDEX)
       .setTypes(IssueIndexDefinition.TYPE_ISSUE)
@@ -714,9 +823,43 @@ public class IssueIndex extends BaseIndex {
           IssueIndexDefinition.FIELD_ISSUE_LINE, IssueIndexDefinition.FIELD_ISSUE_MESSAGE, IssueIndexDefinition.FIELD_ISSUE_CHECKSUM,
           IssueIndexDefinition.FIELD_ISSUE_FUNC_CREATED_AT},
         null)
-      .setQuery(boolQuery().must(matchAllQuery()).filter(filter));
+      .setQuery(boolQuery().must(matchAllQuery()).filter(createIssuesForBatchFilter(component)));
     SearchResponse response = requestBuilder.get();
 
     return EsUtils.scroll(getClient(), response.getScrollId(), DOC_CONVERTER);
   }
+
+  /**
+   * Version of the issues returned by {@link #selectIssuesForBatch(ComponentDto)}, computed without loading them.
+   * It changes when an issue is added, updated, closed or deleted.
+   */
+  public String selectIssuesForBatchStamp(ComponentDto component) {
+    SearchResponse response = getClient()
+      .prepareSearch(IssueIndexDefinition.INDEX)
+      .setTypes(IssueIndexDefinition.TYPE_ISSUE)
+      .setSize(0)
+      .setQuery(boolQuery().must(matchAllQuery()).filter(createIssuesForBatchFilter(component)))
+      .addAggregation(AggregationBuilders.max(IssueIndexDefinition.FIELD_ISSUE_TECHNICAL_UPDATED_AT).field(IssueIndexDefinition.FIELD_ISSUE_TECHNICAL_UPDATED_AT))
+      .get();
+    Max lastUpdate = response.getAggregations().get(IssueIndexDefinition.FIELD_ISSUE_TECHNICAL_UPDATED_AT);
+    return response.getHits().getTotalHits() + "-" + (long) lastUpdate.getValue();
+  }
+
+  private BoolQueryBuilder createIssuesForBatchFilter(ComponentDto component) {
+    BoolQueryBuilder filter = boolQuery()
+      .must(createAuthorizationFilter(true, userSession.getLogin(), userSession.getUserGroups()))
+      .mustNot(termsQuery(IssueIndexDefinition.FIELD_ISSUE_STATUS, Issue.STATUS_CLOSED));
+
+    switch (component.scope()) {
+      case Scopes.PROJECT:
+        filter.must(termsQuery(IssueIndexDefinition.FIELD_ISSUE_MODULE_PATH, component.uuid()));
+        break;
+      case Scopes.FILE:
+        filter.must(termsQuery(IssueIndexDefinition.FIELD_ISSUE_COMPONENT_UUID, component.uuid()));
+        break;
+      default:
+        throw new IllegalStateException(String.format("Component of scope '%s' is not allowed", component.scope()));
+    }
+    return filter;
+  }
 }
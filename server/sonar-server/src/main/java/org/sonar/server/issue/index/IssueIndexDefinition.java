@@ -33,12 +33,18 @@ public class IssueIndexDefinition implements IndexDefinition {
 
   public static final String TYPE_AUTHORIZATION = "authorization";
   public static final String TYPE_ISSUE = "issue";
+  public static final String TYPE_PROJECT_STATS = "projectStats";
 
   public static final String FIELD_AUTHORIZATION_PROJECT_UUID = "project";
   public static final String FIELD_AUTHORIZATION_GROUPS = "groups";
   public static final String FIELD_AUTHORIZATION_USERS = "users";
   public static final String FIELD_AUTHORIZATION_UPDATED_AT = "updatedAt";
 
+  public static final String FIELD_PROJECT_STATS_PROJECT_UUID = "project";
+  public static final String FIELD_PROJECT_STATS_COUNT = "count";
+  public static final String FIELD_PROJECT_STATS_EFFORT = "effort";
+  public static final String FIELD_PROJECT_STATS_FACETS = "facets";
+
   public static final String FIELD_ISSUE_ASSIGNEE = "assignee";
   public static final String FIELD_ISSUE_ATTRIBUTES = "attributes";
   public static final String FIELD_ISSUE_AUTHOR_LOGIN = "authorLogin";
@@ -131,5 +137,15 @@ public class IssueIndexDefinition implements IndexDefinition {
     authorizationMapping.stringFieldBuilder(FIELD_AUTHORIZATION_PROJECT_UUID).disableNorms().build();
     authorizationMapping.stringFieldBuilder(FIELD_AUTHORIZATION_GROUPS).disableNorms().build();
     authorizationMapping.stringFieldBuilder(FIELD_AUTHORIZATION_USERS).disableNorms().build();
+
+    // type "projectStats", counters of unresolved issues, see ProjectIssueStatsDoc
+    NewIndex.NewIndexType statsMapping = index.createType(TYPE_PROJECT_STATS);
+    statsMapping.setAttribute("_parent", ImmutableMap.of("type", TYPE_AUTHORIZATION));
+    statsMapping.setAttribute("_routing", ImmutableMap.of("required", "true"));
+    statsMapping.stringFieldBuilder(FIELD_PROJECT_STATS_PROJECT_UUID).disableNorms().build();
+    statsMapping.createLongField(FIELD_PROJECT_STATS_COUNT);
+    statsMapping.createLongField(FIELD_PROJECT_STATS_EFFORT);
+    // buckets are only read, never searched
+    statsMapping.setProperty(FIELD_PROJECT_STATS_FACETS, ImmutableMap.of("type", "object", "enabled", false));
   }
 }
@@ -19,12 +19,34 @@
  */
 package org.sonar.server.issue.index;
 
+import com.google.common.collect.Iterators;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 import javax.annotation.Nullable;
+import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.get.MultiGetItemResponse;
+import org.elasticsearch.action.get.MultiGetRequest;
+import org.elasticsearch.action.get.MultiGetRequestBuilder;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.index.engine.VersionConflictEngineException;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.Aggregations;
+import org.elasticsearch.search.aggregations.bucket.missing.Missing;
+import org.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.elasticsearch.search.aggregations.metrics.sum.Sum;
+import org.elasticsearch.search.aggregations.metrics.sum.SumBuilder;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.server.es.BaseIndexer;
@@ -33,17 +55,24 @@ import org.sonar.server.es.EsClient;
 import org.sonar.server.es.EsUtils;
 
 import static org.elasticsearch.index.query.QueryBuilders.boolQuery;
+import static org.elasticsearch.index.query.QueryBuilders.existsQuery;
 import static org.elasticsearch.index.query.QueryBuilders.termQuery;
+import static org.sonar.server.issue.index.IssueIndexDefinition.FIELD_ISSUE_ASSIGNEE;
+import static org.sonar.server.issue.index.IssueIndexDefinition.FIELD_ISSUE_EFFORT;
 import static org.sonar.server.issue.index.IssueIndexDefinition.FIELD_ISSUE_PROJECT_UUID;
+import static org.sonar.server.issue.index.IssueIndexDefinition.FIELD_ISSUE_RESOLUTION;
 import static org.sonar.server.issue.index.IssueIndexDefinition.FIELD_ISSUE_TECHNICAL_UPDATED_AT;
 import static org.sonar.server.issue.index.IssueIndexDefinition.INDEX;
 import static org.sonar.server.issue.index.IssueIndexDefinition.TYPE_AUTHORIZATION;
 import static org.sonar.server.issue.index.IssueIndexDefinition.TYPE_ISSUE;
+import static org.sonar.server.issue.index.IssueIndexDefinition.TYPE_PROJECT_STATS;
+import static org.sonarqube.ws.client.issue.IssueFilterParameters.ASSIGNEES;
 
 public class IssueIndexer extends BaseIndexer {
 
   private static final String DELETE_ERROR_MESSAGE = "Fail to delete some issues of project [%s]";
   private static final int MAX_BATCH_SIZE = 1000;
+  private static final String UNASSIGNED_AGGREGATION = "unassigned";
 
   private final DbClient dbClient;
 
@@ -52,54 +81,207 @@ public class IssueIndexer extends BaseIndexer {
     this.dbClient = dbClient;
   }
 
+  /**
+   * Incremental indexing, for example after the change of an issue by a user. Counters of the
+   * touched projects are not computed again, as it would aggregate all their issues for each change,
+   * but are updated with the differences between the previous and the new versions of the issues.
+   * Counters are computed when all issues are indexed (empty index).
+   */
   @Override
   protected long doIndex(long lastUpdatedAt) {
-    return doIndex(createBulkIndexer(false), lastUpdatedAt, null);
+    if (lastUpdatedAt == 0L) {
+      Set<String> projectUuids = new HashSet<>();
+      long maxDate = doIndex(createBulkIndexer(false), lastUpdatedAt, null, projectUuids);
+      updateProjectStats(projectUuids);
+      return maxDate;
+    }
+    Map<String, ProjectIssueStatsDoc> deltas = new HashMap<>();
+    long maxDate = doIndex(createBulkIndexer(false), lastUpdatedAt, null, batch -> addStatsDeltas(batch, deltas));
+    applyStatsDeltas(deltas.values());
+    return maxDate;
   }
 
   public void indexAll() {
-    doIndex(createBulkIndexer(true), 0L, null);
+    Set<String> projectUuids = new HashSet<>();
+    doIndex(createBulkIndexer(true), 0L, null, projectUuids);
+    updateProjectStats(projectUuids);
   }
 
   public void index(String projectUuid) {
-    super.index(lastUpdatedAt -> doIndex(createBulkIndexer(false), lastUpdatedAt, projectUuid));
+    super.index(lastUpdatedAt -> {
+      Set<String> projectUuids = new HashSet<>();
+      long maxDate = doIndex(createBulkIndexer(false), lastUpdatedAt, projectUuid, projectUuids);
+      updateProjectStats(projectUuids);
+      return maxDate;
+    });
   }
 
   /**
    * For benchmarks
    */
   public void index(Iterator<IssueDoc> issues) {
-    doIndex(createBulkIndexer(false), issues);
+    Set<String> projectUuids = new HashSet<>();
+    doIndex(createBulkIndexer(false), issues, projectUuids);
+    updateProjectStats(projectUuids);
   }
 
-  private long doIndex(BulkIndexer bulk, long lastUpdatedAt, @Nullable String projectUuid) {
+  private long doIndex(BulkIndexer bulk, long lastUpdatedAt, @Nullable String projectUuid, Set<String> projectUuids) {
+    return doIndex(bulk, lastUpdatedAt, projectUuid, batch -> batch.forEach(issue -> projectUuids.add(issue.projectUuid())));
+  }
+
+  private long doIndex(BulkIndexer bulk, long lastUpdatedAt, @Nullable String projectUuid, Consumer<List<IssueDoc>> beforeIndexing) {
     try (DbSession dbSession = dbClient.openSession(false)) {
       IssueResultSetIterator rowIt = IssueResultSetIterator.create(dbClient, dbSession, lastUpdatedAt, projectUuid);
-      long maxDate = doIndex(bulk, rowIt);
+      long maxDate = doIndex(bulk, rowIt, beforeIndexing);
       rowIt.close();
       return maxDate;
     }
   }
 
-  private long doIndex(BulkIndexer bulk, Iterator<IssueDoc> issues) {
+  private static long doIndex(BulkIndexer bulk, Iterator<IssueDoc> issues, Set<String> projectUuids) {
+    return doIndex(bulk, issues, batch -> batch.forEach(issue -> projectUuids.add(issue.projectUuid())));
+  }
+
+  /**
+   * @param beforeIndexing called with each batch of issues, before the batch is sent to the index
+   */
+  private static long doIndex(BulkIndexer bulk, Iterator<IssueDoc> issues, Consumer<List<IssueDoc>> beforeIndexing) {
     bulk.start();
     long maxDate = 0L;
-    while (issues.hasNext()) {
-      IssueDoc issue = issues.next();
-      bulk.add(newIndexRequest(issue));
+    Iterator<List<IssueDoc>> batches = Iterators.partition(issues, MAX_BATCH_SIZE);
+    while (batches.hasNext()) {
+      List<IssueDoc> batch = batches.next();
+      beforeIndexing.accept(batch);
+      for (IssueDoc issue : batch) {
+        bulk.add(newIndexRequest(issue));
 
-      // it's more efficient to sort programmatically than in SQL on some databases (MySQL for instance)
-      maxDate = Math.max(maxDate, issue.getTechnicalUpdateDate().getTime());
+        // it's more efficient to sort programmatically than in SQL on some databases (MySQL for instance)
+        maxDate = Math.max(maxDate, issue.getTechnicalUpdateDate().getTime());
+      }
     }
     bulk.stop();
     return maxDate;
   }
 
+  /**
+   * Adds to the counters of {@code deltas} the given issues and removes their versions currently indexed.
+   */
+  private void addStatsDeltas(List<IssueDoc> issues, Map<String, ProjectIssueStatsDoc> deltas) {
+    MultiGetRequestBuilder request = esClient.prepareMultiGet();
+    for (IssueDoc issue : issues) {
+      request.add(new MultiGetRequest.Item(INDEX, TYPE_ISSUE, issue.key()).routing(issue.projectUuid()));
+    }
+    MultiGetItemResponse[] responses = request.get().getResponses();
+    for (int i = 0; i < responses.length; i++) {
+      GetResponse previous = responses[i].getResponse();
+      if (previous != null && previous.isExists()) {
+        IssueDoc previousIssue = new IssueDoc(previous.getSourceAsMap());
+        deltas.computeIfAbsent(previousIssue.projectUuid(), ProjectIssueStatsDoc::newDelta).addIssue(previousIssue, -1);
+      }
+      IssueDoc issue = issues.get(i);
+      deltas.computeIfAbsent(issue.projectUuid(), ProjectIssueStatsDoc::newDelta).addIssue(issue, 1);
+    }
+  }
+
+  /**
+   * Updates the counters of projects with the given differences. Issues must be already indexed and visible.
+   * Projects without counters are ignored, searches fall back to aggregations until the next indexing
+   * of the project. Counters updated concurrently are computed again.
+   */
+  private void applyStatsDeltas(Collection<ProjectIssueStatsDoc> deltas) {
+    if (deltas.isEmpty()) {
+      return;
+    }
+    List<String> conflictingProjectUuids = new ArrayList<>();
+    for (ProjectIssueStatsDoc delta : deltas) {
+      String projectUuid = delta.projectUuid();
+      GetResponse response = esClient.prepareGet(INDEX, TYPE_PROJECT_STATS, projectUuid).setRouting(projectUuid).get();
+      if (!response.isExists()) {
+        continue;
+      }
+      ProjectIssueStatsDoc stats = new ProjectIssueStatsDoc(response.getSourceAsMap()).add(delta);
+      try {
+        esClient.prepareIndex(INDEX, TYPE_PROJECT_STATS)
+          .setId(projectUuid)
+          .setRouting(projectUuid)
+          .setParent(projectUuid)
+          .setVersion(response.getVersion())
+          .setSource(stats.getFields())
+          .get();
+      } catch (IllegalStateException e) {
+        if (!(ExceptionsHelper.unwrapCause(e.getCause()) instanceof VersionConflictEngineException)) {
+          throw e;
+        }
+        conflictingProjectUuids.add(projectUuid);
+      }
+    }
+    esClient.prepareRefresh(INDEX).get();
+    updateProjectStats(conflictingProjectUuids);
+  }
+
+  /**
+   * Computes again the counters of unresolved issues of the given projects. Issues must be already
+   * indexed and visible.
+   */
+  private void updateProjectStats(Collection<String> projectUuids) {
+    if (projectUuids.isEmpty()) {
+      return;
+    }
+    BulkIndexer bulk = new BulkIndexer(esClient, INDEX);
+    bulk.start();
+    for (String projectUuid : projectUuids) {
+      bulk.add(newIndexRequest(computeProjectStats(projectUuid)));
+    }
+    bulk.stop();
+  }
+
+  private ProjectIssueStatsDoc computeProjectStats(String projectUuid) {
+    SearchRequestBuilder request = esClient.prepareSearch(INDEX)
+      .setTypes(TYPE_ISSUE)
+      .setRouting(projectUuid)
+      .setQuery(boolQuery()
+        .filter(termQuery(FIELD_ISSUE_PROJECT_UUID, projectUuid))
+        .mustNot(existsQuery(FIELD_ISSUE_RESOLUTION)))
+      .setSize(0)
+      .addAggregation(newEffortAggregation())
+      .addAggregation(AggregationBuilders.missing(UNASSIGNED_AGGREGATION).field(FIELD_ISSUE_ASSIGNEE).subAggregation(newEffortAggregation()));
+    // size 0 means all the buckets
+    ProjectIssueStatsDoc.FIELDS_BY_FACET.forEach((facetName, field) -> request.addAggregation(
+      AggregationBuilders.terms(facetName).field(field).size(0).subAggregation(newEffortAggregation())));
+    SearchResponse response = request.get();
+
+    Aggregations aggregations = response.getAggregations();
+    ProjectIssueStatsDoc doc = new ProjectIssueStatsDoc()
+      .setProjectUuid(projectUuid)
+      .setCount(response.getHits().getTotalHits())
+      .setEffort(effort(aggregations));
+    for (String facetName : ProjectIssueStatsDoc.FIELDS_BY_FACET.keySet()) {
+      Terms terms = aggregations.get(facetName);
+      for (Terms.Bucket bucket : terms.getBuckets()) {
+        doc.addBucket(facetName, bucket.getKeyAsString(), bucket.getDocCount(), effort(bucket.getAggregations()));
+      }
+    }
+    Missing unassigned = aggregations.get(UNASSIGNED_AGGREGATION);
+    if (unassigned.getDocCount() > 0L) {
+      doc.addBucket(ASSIGNEES, "", unassigned.getDocCount(), effort(unassigned.getAggregations()));
+    }
+    return doc;
+  }
+
+  private static SumBuilder newEffortAggregation() {
+    return AggregationBuilders.sum(FIELD_ISSUE_EFFORT).field(FIELD_ISSUE_EFFORT);
+  }
+
+  private static long effort(Aggregations aggregations) {
+    Sum sum = aggregations.get(FIELD_ISSUE_EFFORT);
+    return Math.round(sum.getValue());
+  }
+
   public void deleteProject(String uuid) {
     BulkIndexer bulk = new BulkIndexer(esClient, INDEX);
     bulk.start();
     SearchRequestBuilder search = esClient.prepareSearch(INDEX)
-      .setTypes(TYPE_ISSUE, TYPE_AUTHORIZATION)
+      .setTypes(TYPE_ISSUE, TYPE_AUTHORIZATION, TYPE_PROJECT_STATS)
       .setRouting(uuid)
       .setQuery(boolQuery().must(termQuery(FIELD_ISSUE_PROJECT_UUID, uuid)));
     bulk.addDeletion(search);
@@ -126,6 +308,7 @@ public class IssueIndexer extends BaseIndexer {
     }
     EsUtils.executeBulkRequest(builder, DELETE_ERROR_MESSAGE, projectUuid);
     esClient.prepareRefresh(INDEX).get();
+    updateProjectStats(Collections.singletonList(projectUuid));
   }
 
   private BulkIndexer createBulkIndexer(boolean large) {
@@ -134,6 +317,13 @@ public class IssueIndexer extends BaseIndexer {
     return bulk;
   }
 
+  private static IndexRequest newIndexRequest(ProjectIssueStatsDoc stats) {
+    return new IndexRequest(INDEX, TYPE_PROJECT_STATS, stats.getId())
+      .routing(stats.getRouting())
+      .parent(stats.getParent())
+      .source(stats.getFields());
+  }
+
   private static IndexRequest newIndexRequest(IssueDoc issue) {
     String projectUuid = issue.projectUuid();
 
@@ -0,0 +1,197 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue.index;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.sonar.server.es.BaseDoc;
+
+import static org.sonarqube.ws.client.issue.IssueFilterParameters.ASSIGNEES;
+import static org.sonarqube.ws.client.issue.IssueFilterParameters.RULES;
+import static org.sonarqube.ws.client.issue.IssueFilterParameters.SEVERITIES;
+import static org.sonarqube.ws.client.issue.IssueFilterParameters.STATUSES;
+import static org.sonarqube.ws.client.issue.IssueFilterParameters.TYPES;
+
+/**
+ * Counters of the unresolved issues of a project, computed by {@link IssueIndexer} when the issues
+ * of the project are indexed at once (end of analysis, purge, full indexing) and updated with the
+ * differences of issues indexed incrementally (change by a user). They answer the common facets of
+ * api/issues/search without aggregating all the issue documents of the project.
+ * <p/>
+ * Each facet is a list of buckets, with the number of issues and their effort. Unassigned issues
+ * are counted in the bucket with empty key of facet {@link org.sonarqube.ws.client.issue.IssueFilterParameters#ASSIGNEES}.
+ */
+public class ProjectIssueStatsDoc extends BaseDoc {
+
+  /**
+   * Fields of issue documents, by name of facet
+   */
+  public static final Map<String, String> FIELDS_BY_FACET = ImmutableMap.of(
+    SEVERITIES, IssueIndexDefinition.FIELD_ISSUE_SEVERITY,
+    STATUSES, IssueIndexDefinition.FIELD_ISSUE_STATUS,
+    RULES, IssueIndexDefinition.FIELD_ISSUE_RULE_KEY,
+    TYPES, IssueIndexDefinition.FIELD_ISSUE_TYPE,
+    ASSIGNEES, IssueIndexDefinition.FIELD_ISSUE_ASSIGNEE);
+
+  private static final String BUCKET_KEY = "key";
+  private static final String BUCKET_COUNT = "count";
+  private static final String BUCKET_EFFORT = "effort";
+
+  /**
+   * Empty counters, to which issues are added or from which they are removed
+   */
+  public static ProjectIssueStatsDoc newDelta(String projectUuid) {
+    return new ProjectIssueStatsDoc().setProjectUuid(projectUuid).setCount(0L).setEffort(0L);
+  }
+
+  public ProjectIssueStatsDoc(Map<String, Object> fields) {
+    super(fields);
+  }
+
+  public ProjectIssueStatsDoc() {
+    super(new HashMap<>());
+    setField(IssueIndexDefinition.FIELD_PROJECT_STATS_FACETS, new HashMap<String, List<Map<String, Object>>>());
+  }
+
+  @Override
+  public String getId() {
+    return projectUuid();
+  }
+
+  @Override
+  public String getRouting() {
+    return projectUuid();
+  }
+
+  @Override
+  public String getParent() {
+    return projectUuid();
+  }
+
+  public String projectUuid() {
+    return getField(IssueIndexDefinition.FIELD_PROJECT_STATS_PROJECT_UUID);
+  }
+
+  public ProjectIssueStatsDoc setProjectUuid(String s) {
+    setField(IssueIndexDefinition.FIELD_PROJECT_STATS_PROJECT_UUID, s);
+    return this;
+  }
+
+  public long count() {
+    return ((Number) getField(IssueIndexDefinition.FIELD_PROJECT_STATS_COUNT)).longValue();
+  }
+
+  public ProjectIssueStatsDoc setCount(long l) {
+    setField(IssueIndexDefinition.FIELD_PROJECT_STATS_COUNT, l);
+    return this;
+  }
+
+  public long effort() {
+    return ((Number) getField(IssueIndexDefinition.FIELD_PROJECT_STATS_EFFORT)).longValue();
+  }
+
+  public ProjectIssueStatsDoc setEffort(long l) {
+    setField(IssueIndexDefinition.FIELD_PROJECT_STATS_EFFORT, l);
+    return this;
+  }
+
+  public ProjectIssueStatsDoc addBucket(String facetName, String key, long count, long effort) {
+    Map<String, List<Map<String, Object>>> facets = getField(IssueIndexDefinition.FIELD_PROJECT_STATS_FACETS);
+    facets.computeIfAbsent(facetName, k -> new ArrayList<>()).add(ImmutableMap.of(BUCKET_KEY, key, BUCKET_COUNT, count, BUCKET_EFFORT, effort));
+    return this;
+  }
+
+  /**
+   * Adds ({@code sign} is 1) or removes ({@code sign} is -1) an issue. Resolved issues are not counted.
+   */
+  public ProjectIssueStatsDoc addIssue(IssueDoc issue, int sign) {
+    Map<String, Object> issueFields = issue.getFields();
+    if (issueFields.get(IssueIndexDefinition.FIELD_ISSUE_RESOLUTION) != null) {
+      return this;
+    }
+    Number issueEffort = (Number) issueFields.get(IssueIndexDefinition.FIELD_ISSUE_EFFORT);
+    long effort = sign * (issueEffort == null ? 0L : issueEffort.longValue());
+    setCount(count() + sign);
+    setEffort(effort() + effort);
+    FIELDS_BY_FACET.forEach((facetName, field) -> {
+      Object value = issueFields.get(field);
+      if (value != null) {
+        addToBucket(facetName, value.toString(), sign, effort);
+      } else if (ASSIGNEES.equals(facetName)) {
+        addToBucket(facetName, "", sign, effort);
+      }
+    });
+    return this;
+  }
+
+  /**
+   * Adds the counters of {@code delta}, as built by {@link #newDelta(String)}
+   */
+  public ProjectIssueStatsDoc add(ProjectIssueStatsDoc delta) {
+    setCount(count() + delta.count());
+    setEffort(effort() + delta.effort());
+    for (String facetName : FIELDS_BY_FACET.keySet()) {
+      delta.buckets(facetName).forEach((key, values) -> addToBucket(facetName, key, values[0], values[1]));
+    }
+    return this;
+  }
+
+  /**
+   * Buckets are removed when they do not count any issue. Buckets of deltas can count no issue
+   * but a change of effort.
+   */
+  private void addToBucket(String facetName, String key, long count, long effort) {
+    Map<String, List<Map<String, Object>>> facets = getField(IssueIndexDefinition.FIELD_PROJECT_STATS_FACETS);
+    List<Map<String, Object>> buckets = facets.computeIfAbsent(facetName, k -> new ArrayList<>());
+    for (int i = 0; i < buckets.size(); i++) {
+      Map<String, Object> bucket = buckets.get(i);
+      if (key.equals(bucket.get(BUCKET_KEY))) {
+        long newCount = ((Number) bucket.get(BUCKET_COUNT)).longValue() + count;
+        long newEffort = ((Number) bucket.get(BUCKET_EFFORT)).longValue() + effort;
+        if (newCount == 0L && newEffort == 0L) {
+          buckets.remove(i);
+        } else {
+          buckets.set(i, ImmutableMap.of(BUCKET_KEY, key, BUCKET_COUNT, newCount, BUCKET_EFFORT, newEffort));
+        }
+        return;
+      }
+    }
+    if (count != 0L || effort != 0L) {
+      buckets.add(ImmutableMap.of(BUCKET_KEY, key, BUCKET_COUNT, count, BUCKET_EFFORT, effort));
+    }
+  }
+
+  /**
+   * Number of issues and effort, by bucket key, of the given facet
+   */
+  public Map<String, long[]> buckets(String facetName) {
+    Map<String, List<Map<String, Object>>> facets = getField(IssueIndexDefinition.FIELD_PROJECT_STATS_FACETS);
+    List<Map<String, Object>> buckets = facets.getOrDefault(facetName, Collections.emptyList());
+    Map<String, long[]> result = new HashMap<>();
+    for (Map<String, Object> bucket : buckets) {
+      result.put((String) bucket.get(BUCKET_KEY), new long[] {((Number) bucket.get(BUCKET_COUNT)).longValue(), ((Number) bucket.get(BUCKET_EFFORT)).longValue()});
+    }
+    return result;
+  }
+}
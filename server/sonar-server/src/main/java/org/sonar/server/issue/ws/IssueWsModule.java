@@ -27,6 +27,7 @@ public class IssueWsModule extends Module {
     add(
       IssuesWs.class,
       SearchResponseLoader.class,
+      SearchResponseCache.class,
       SearchResponseFormat.class,
       OperationResponseWriter.class,
       AssignAction.class,
@@ -45,7 +45,6 @@ import org.sonar.server.issue.index.IssueDoc;
 import org.sonar.server.issue.index.IssueIndex;
 import org.sonar.server.rule.RuleKeyFunctions;
 import org.sonar.server.user.UserSession;
-import org.sonarqube.ws.Issues.SearchWsResponse;
 import org.sonarqube.ws.client.issue.SearchWsRequest;
 
 import static com.google.common.collect.FluentIterable.from;
@@ -55,7 +54,6 @@ import static java.util.Collections.singletonList;
 import static org.sonar.api.utils.Paging.forPageIndex;
 import static org.sonar.server.es.SearchOptions.MAX_LIMIT;
 import static org.sonar.server.ws.KeyExamples.KEY_PROJECT_EXAMPLE_001;
-import static org.sonar.server.ws.WsUtils.writeProtobuf;
 import static org.sonarqube.ws.client.issue.IssueFilterParameters.ADDITIONAL_FIELDS;
 import static org.sonarqube.ws.client.issue.IssueFilterParameters.ASC;
 import static org.sonarqube.ws.client.issue.IssueFilterParameters.ASSIGNED;
@@ -285,11 +283,10 @@ public class SearchAction implements IssuesWsAction {
 
   @Override
   public final void handle(Request request, Response response) throws Exception {
-    SearchWsResponse searchWsResponse = doHandle(toSearchWsRequest(request), request);
-    writeProtobuf(searchWsResponse, request, response);
+    doHandle(toSearchWsRequest(request), request, response);
   }
 
-  private SearchWsResponse doHandle(SearchWsRequest request, Request wsRequest) {
+  private void doHandle(SearchWsRequest request, Request wsRequest, Response wsResponse) {
     // prepare the Elasticsearch request
     SearchOptions options = new SearchOptions();
     options.setPage(request.getPage(), request.getPageSize());
@@ -326,7 +323,7 @@ public class SearchAction implements IssuesWsAction {
     // FIXME allow long in Paging
     Paging paging = forPageIndex(options.getPage()).withPageSize(options.getLimit()).andTotal((int) result.getTotal());
 
-    return searchResponseFormat.formatSearch(additionalFields, data, paging, facets);
+    searchResponseFormat.writeSearch(additionalFields, data, paging, facets, wsRequest, wsResponse);
   }
 
   private Facets reorderFacets(@Nullable Facets facets, Collection<String> orderedNames) {
@@ -0,0 +1,99 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue.ws;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.server.ServerSide;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.rule.RuleDto;
+import org.sonar.db.user.UserDto;
+
+/**
+ * Rules and users referenced by the responses of api/issues/search. The same few rules and
+ * users are returned by most of the requests, so they are kept in memory for a few seconds.
+ * Changes are visible to search responses after at most {@link #EXPIRATION_IN_SECONDS} seconds.
+ */
+@ServerSide
+public class SearchResponseCache {
+
+  @VisibleForTesting
+  static final long EXPIRATION_IN_SECONDS = 10L;
+  private static final long MAX_SIZE = 10_000L;
+
+  private final DbClient dbClient;
+  private final Cache<RuleKey, RuleDto> rulesByKey = newCache();
+  private final Cache<String, UserDto> usersByLogin = newCache();
+
+  public SearchResponseCache(DbClient dbClient) {
+    this.dbClient = dbClient;
+  }
+
+  private static <K, V> Cache<K, V> newCache() {
+    return CacheBuilder.newBuilder()
+      .expireAfterWrite(EXPIRATION_IN_SECONDS, TimeUnit.SECONDS)
+      .maximumSize(MAX_SIZE)
+      .build();
+  }
+
+  public List<RuleDto> getRules(DbSession dbSession, Collection<RuleKey> keys) {
+    return getAll(rulesByKey, keys, missingKeys -> dbClient.ruleDao().selectByKeys(dbSession, missingKeys), RuleDto::getKey);
+  }
+
+  public List<UserDto> getUsers(DbSession dbSession, Collection<String> logins) {
+    return getAll(usersByLogin, logins, missingLogins -> dbClient.userDao().selectByLogins(dbSession, missingLogins), UserDto::getLogin);
+  }
+
+  public void invalidate() {
+    rulesByKey.invalidateAll();
+    usersByLogin.invalidateAll();
+  }
+
+  /**
+   * Values of the given keys, in no particular order. Missing values are loaded in a single call.
+   * Keys that do not exist are ignored.
+   */
+  private static <K, V> List<V> getAll(Cache<K, V> cache, Collection<K> keys, Function<List<K>, List<V>> loader, Function<V, K> keyFunction) {
+    Map<K, V> present = cache.getAllPresent(keys);
+    List<V> result = new ArrayList<>(present.values());
+    List<K> missingKeys = new ArrayList<>();
+    for (K key : keys) {
+      if (!present.containsKey(key)) {
+        missingKeys.add(key);
+      }
+    }
+    if (!missingKeys.isEmpty()) {
+      for (V value : loader.apply(missingKeys)) {
+        cache.put(keyFunction.apply(value), value);
+        result.add(value);
+      }
+    }
+    return result;
+  }
+}
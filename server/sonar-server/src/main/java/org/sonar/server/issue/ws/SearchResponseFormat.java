@@ -20,6 +20,12 @@
 package org.sonar.server.issue.ws;
 
 import com.google.common.base.Strings;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.Descriptors;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -29,12 +35,16 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import javax.annotation.Nullable;
+import org.apache.commons.io.IOUtils;
 import org.sonar.api.resources.Language;
 import org.sonar.api.resources.Languages;
+import org.sonar.api.server.ws.Request;
+import org.sonar.api.server.ws.Response;
 import org.sonar.api.utils.DateUtils;
 import org.sonar.api.utils.Duration;
 import org.sonar.api.utils.Durations;
 import org.sonar.api.utils.Paging;
+import org.sonar.core.util.ProtobufJsonWriter;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.issue.IssueChangeDto;
 import org.sonar.db.issue.IssueDto;
@@ -48,14 +58,20 @@ import org.sonar.server.issue.workflow.Transition;
 import org.sonar.server.ws.WsResponseCommonFormat;
 import org.sonarqube.ws.Common;
 import org.sonarqube.ws.Issues;
+import org.sonarqube.ws.MediaTypes;
 
 import static com.google.common.base.Strings.nullToEmpty;
 
 public class SearchResponseFormat {
 
+  private static final Descriptors.FieldDescriptor ISSUES_FIELD = Issues.SearchWsResponse.getDescriptor()
+    .findFieldByNumber(Issues.SearchWsResponse.ISSUES_FIELD_NUMBER);
+
   private final Durations durations;
   private final WsResponseCommonFormat commonFormat;
   private final Languages languages;
+  // languages are provided by plugins, so they don't change while server is up
+  private final Supplier<Issues.Languages> languagesResponse = Suppliers.memoize(this::formatLanguages);
 
   public SearchResponseFormat(Durations durations, WsResponseCommonFormat commonFormat, Languages languages) {
     this.durations = durations;
@@ -63,27 +79,82 @@ public class SearchResponseFormat {
     this.languages = languages;
   }
 
-  public Issues.SearchWsResponse formatSearch(Set<SearchAdditionalField> fields, SearchResponseData data,
-    Paging paging, @Nullable Facets facets) {
-    Issues.SearchWsResponse.Builder response = Issues.SearchWsResponse.newBuilder();
+  /**
+   * Writes the response of api/issues/search. Issues are formatted and written one by one,
+   * so that the whole response is never built in memory.
+   */
+  public void writeSearch(Set<SearchAdditionalField> fields, SearchResponseData data, Paging paging, @Nullable Facets facets,
+    Request request, Response response) {
+    Issues.SearchWsResponse.Builder header = Issues.SearchWsResponse.newBuilder();
+    formatPaging(paging, header);
+    formatEffortTotal(data, header);
 
-    formatPaging(paging, response);
-    formatEffortTotal(data, response);
-    response.addAllIssues(formatIssues(fields, data));
-    response.addAllComponents(formatComponents(data));
+    Issues.SearchWsResponse.Builder trailer = Issues.SearchWsResponse.newBuilder();
+    trailer.addAllComponents(formatComponents(data));
     if (facets != null) {
-      formatFacets(facets, response);
+      formatFacets(facets, trailer);
     }
     if (fields.contains(SearchAdditionalField.RULES)) {
-      response.setRules(formatRules(data));
+      trailer.setRules(formatRules(data));
     }
     if (fields.contains(SearchAdditionalField.USERS)) {
-      response.setUsers(formatUsers(data));
+      trailer.setUsers(formatUsers(data));
     }
     if (fields.contains(SearchAdditionalField.LANGUAGES)) {
-      response.setLanguages(formatLanguages());
+      trailer.setLanguages(languagesResponse.get());
+    }
+
+    OutputStream output = response.stream().output();
+    try {
+      if (request.getMediaType().equals(MediaTypes.PROTOBUF)) {
+        response.stream().setMediaType(MediaTypes.PROTOBUF);
+        writeProtobuf(fields, data, header.build(), trailer.build(), output);
+      } else {
+        response.stream().setMediaType(MediaTypes.JSON);
+        writeJson(fields, data, header.build(), trailer.build(), output);
+      }
+    } catch (Exception e) {
+      throw new IllegalStateException("Error while writing response of issue search", e);
+    } finally {
+      IOUtils.closeQuietly(output);
     }
-    return response.build();
+  }
+
+  /**
+   * Concatenation of serialized messages is equivalent to merging them, so the repeated
+   * field "issues" can be written element by element.
+   */
+  private void writeProtobuf(Set<SearchAdditionalField> fields, SearchResponseData data, Issues.SearchWsResponse header,
+    Issues.SearchWsResponse trailer, OutputStream output) throws IOException {
+    CodedOutputStream codedOutput = CodedOutputStream.newInstance(output);
+    header.writeTo(codedOutput);
+    Issues.Issue.Builder issueBuilder = Issues.Issue.newBuilder();
+    for (IssueDto dto : data.getIssues()) {
+      codedOutput.writeMessage(Issues.SearchWsResponse.ISSUES_FIELD_NUMBER, formatIssue(fields, issueBuilder, dto, data));
+    }
+    trailer.writeTo(codedOutput);
+    codedOutput.flush();
+  }
+
+  /**
+   * Fields declared before "issues" are written from the header, fields declared after from the trailer,
+   * so that the JSON document is the same as the one of the complete message.
+   */
+  private void writeJson(Set<SearchAdditionalField> fields, SearchResponseData data, Issues.SearchWsResponse header,
+    Issues.SearchWsResponse trailer, OutputStream output) {
+    int issuesIndex = ISSUES_FIELD.getIndex();
+    ProtobufJsonWriter json = new ProtobufJsonWriter(output);
+    json.beginObject();
+    json.writeFields(header, field -> field.getIndex() < issuesIndex);
+    json.name(ISSUES_FIELD.getName()).beginArray();
+    Issues.Issue.Builder issueBuilder = Issues.Issue.newBuilder();
+    for (IssueDto dto : data.getIssues()) {
+      json.write(formatIssue(fields, issueBuilder, dto, data));
+    }
+    json.endArray();
+    json.writeFields(trailer, field -> field.getIndex() > issuesIndex);
+    json.endObject();
+    json.flush();
   }
 
   public Issues.Operation formatOperation(SearchResponseData data) {
@@ -119,24 +190,19 @@ public class SearchResponseFormat {
     response.setPaging(commonFormat.formatPaging(paging));
   }
 
-  private List<Issues.Issue> formatIssues(Set<SearchAdditionalField> fields, SearchResponseData data) {
-    List<Issues.Issue> result = new ArrayList<>();
-    Issues.Issue.Builder issueBuilder = Issues.Issue.newBuilder();
-    for (IssueDto dto : data.getIssues()) {
-      issueBuilder.clear();
-      formatIssue(issueBuilder, dto, data);
-      if (fields.contains(SearchAdditionalField.ACTIONS)) {
-        formatIssueActions(data, issueBuilder, dto);
-      }
-      if (fields.contains(SearchAdditionalField.TRANSITIONS)) {
-        formatIssueTransitions(data, issueBuilder, dto);
-      }
-      if (fields.contains(SearchAdditionalField.COMMENTS)) {
-        formatIssueComments(data, issueBuilder, dto);
-      }
-      result.add(issueBuilder.build());
+  private Issues.Issue formatIssue(Set<SearchAdditionalField> fields, Issues.Issue.Builder issueBuilder, IssueDto dto, SearchResponseData data) {
+    issueBuilder.clear();
+    formatIssue(issueBuilder, dto, data);
+    if (fields.contains(SearchAdditionalField.ACTIONS)) {
+      formatIssueActions(data, issueBuilder, dto);
     }
-    return result;
+    if (fields.contains(SearchAdditionalField.TRANSITIONS)) {
+      formatIssueTransitions(data, issueBuilder, dto);
+    }
+    if (fields.contains(SearchAdditionalField.COMMENTS)) {
+      formatIssueComments(data, issueBuilder, dto);
+    }
+    return issueBuilder.build();
   }
 
   private void formatIssue(Issues.Issue.Builder issueBuilder, IssueDto dto, SearchResponseData data) {
@@ -348,7 +414,7 @@ public class SearchResponseFormat {
     return wsUsers;
   }
 
-  private Issues.Languages.Builder formatLanguages() {
+  private Issues.Languages formatLanguages() {
     Issues.Languages.Builder wsLangs = Issues.Languages.newBuilder();
     Issues.Language.Builder wsLang = Issues.Language.newBuilder();
     for (Language lang : languages.all()) {
@@ -358,7 +424,7 @@ public class SearchResponseFormat {
         .setName(lang.getName());
       wsLangs.addLanguages(wsLang);
     }
-    return wsLangs;
+    return wsLangs.build();
   }
 
   private void formatFacets(Facets facets, Issues.SearchWsResponse.Builder wsSearch) {
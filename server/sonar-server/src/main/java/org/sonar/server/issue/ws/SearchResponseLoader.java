@@ -19,15 +19,26 @@
  */
 package org.sonar.server.issue.ws;
 
+import com.google.common.base.Throwables;
 import com.google.common.collect.MultimapBuilder;
 import com.google.common.collect.SetMultimap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import javax.annotation.Nullable;
+import org.picocontainer.Startable;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.core.issue.DefaultIssue;
 import org.sonar.db.DbClient;
@@ -36,6 +47,7 @@ import org.sonar.db.component.ComponentDto;
 import org.sonar.db.issue.IssueChangeDto;
 import org.sonar.db.issue.IssueDto;
 import org.sonar.db.protobuf.DbIssues;
+import org.sonar.db.rule.RuleDto;
 import org.sonar.server.es.Facets;
 import org.sonar.server.issue.ActionService;
 import org.sonar.server.issue.IssueCommentService;
@@ -51,53 +63,125 @@ import static org.sonar.server.issue.ws.SearchAdditionalField.USERS;
 
 /**
  * Loads all the information required for the response of api/issues/search.
+ * <p/>
+ * Once issues are loaded, rules, comments and components are loaded concurrently, each
+ * with its own {@link DbSession}. Everything that depends on the user session (permissions
+ * on comments, actions, transitions) stays on the thread of the request.
  */
-public class SearchResponseLoader {
+public class SearchResponseLoader implements Startable {
+
+  private static final int THREADS = 8;
+  private static final int QUEUE_SIZE = 100;
 
   private final DbClient dbClient;
   private final IssueService issueService;
   private final ActionService actionService;
   private final IssueCommentService commentService;
+  private final SearchResponseCache cache;
+  private ThreadPoolExecutor executor;
 
-  public SearchResponseLoader(DbClient dbClient, IssueService issueService, ActionService actionService, IssueCommentService commentService) {
+  public SearchResponseLoader(DbClient dbClient, IssueService issueService, ActionService actionService, IssueCommentService commentService,
+    SearchResponseCache cache) {
     this.dbClient = dbClient;
     this.issueService = issueService;
     this.actionService = actionService;
     this.commentService = commentService;
+    this.cache = cache;
+  }
+
+  @Override
+  public void start() {
+    // when the queue is full, lookups are executed by the thread of the request
+    executor = new ThreadPoolExecutor(THREADS, THREADS, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(QUEUE_SIZE),
+      new ThreadFactoryBuilder().setNameFormat("IssueSearch-%d").setDaemon(true).build(),
+      new ThreadPoolExecutor.CallerRunsPolicy());
+    executor.allowCoreThreadTimeOut(true);
+  }
+
+  @Override
+  public void stop() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
   }
 
   /**
    * The issue keys are given by the multi-criteria search in Elasticsearch index.
    */
   public SearchResponseData load(Collector collector, @Nullable Facets facets) {
+    SearchResponseData result;
     DbSession dbSession = dbClient.openSession(false);
     try {
-      SearchResponseData result = new SearchResponseData(dbClient.issueDao().selectByOrderedKeys(dbSession, collector.getIssueKeys()));
-      collector.collect(result.getIssues());
-
-      loadRules(collector, dbSession, result);
-      // order is important - loading of comments complete the list of users: loadComments() is
-      // before loadUsers()
-      loadComments(collector, dbSession, result);
-      loadUsers(collector, dbSession, result);
-      loadComponents(collector, dbSession, result);
-      loadActionsAndTransitions(collector, result);
-      completeTotalEffortFromFacet(facets, result);
-      return result;
+      result = new SearchResponseData(dbClient.issueDao().selectByOrderedKeys(dbSession, collector.getIssueKeys()));
     } finally {
       dbClient.closeSession(dbSession);
     }
+    collector.collect(result.getIssues());
+
+    // collector is not thread-safe, keys are copied before submitting the lookups
+    List<RuleKey> ruleKeys = collector.contains(RULES) ? collector.<RuleKey>get(RULES) : Collections.<RuleKey>emptyList();
+    Set<String> componentUuids = new HashSet<>(collector.getComponentUuids());
+    Set<String> projectUuids = new HashSet<>(collector.getProjectUuids());
+    Future<List<RuleDto>> rules = submit(session -> cache.getRules(session, ruleKeys));
+    Future<List<IssueChangeDto>> comments = submit(session -> loadComments(collector, session));
+    Future<List<ComponentDto>> components = submit(session -> loadComponents(componentUuids, projectUuids, session));
+
+    if (collector.contains(RULES)) {
+      result.setRules(get(rules));
+    }
+    // order is important - loading of comments complete the list of users: comments are
+    // processed before loading users
+    processComments(collector, get(comments), result);
+    loadUsers(collector, result);
+    result.addComponents(get(components));
+    loadActionsAndTransitions(collector, result);
+    completeTotalEffortFromFacet(facets, result);
+    return result;
+  }
+
+  private <T> Future<T> submit(Function<DbSession, T> loader) {
+    return executor.submit(() -> {
+      DbSession dbSession = dbClient.openSession(false);
+      try {
+        return loader.apply(dbSession);
+      } finally {
+        dbClient.closeSession(dbSession);
+      }
+    });
+  }
+
+  private static <T> T get(Future<T> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while loading response of issue search", e);
+    } catch (ExecutionException e) {
+      Throwables.propagateIfPossible(e.getCause());
+      throw new IllegalStateException("Fail to load response of issue search", e.getCause());
+    }
   }
 
-  private void loadUsers(Collector collector, DbSession dbSession, SearchResponseData result) {
+  private void loadUsers(Collector collector, SearchResponseData result) {
     if (collector.contains(USERS)) {
-      result.setUsers(dbClient.userDao().selectByLogins(dbSession, collector.<String>get(USERS)));
+      DbSession dbSession = dbClient.openSession(false);
+      try {
+        result.setUsers(cache.getUsers(dbSession, collector.<String>get(USERS)));
+      } finally {
+        dbClient.closeSession(dbSession);
+      }
     }
   }
 
-  private void loadComments(Collector collector, DbSession dbSession, SearchResponseData result) {
+  private List<IssueChangeDto> loadComments(Collector collector, DbSession dbSession) {
+    if (collector.contains(COMMENTS)) {
+      return dbClient.issueChangeDao().selectByTypeAndIssueKeys(dbSession, collector.getIssueKeys(), IssueChangeDto.TYPE_COMMENT);
+    }
+    return Collections.emptyList();
+  }
+
+  private void processComments(Collector collector, List<IssueChangeDto> comments, SearchResponseData result) {
     if (collector.contains(COMMENTS)) {
-      List<IssueChangeDto> comments = dbClient.issueChangeDao().selectByTypeAndIssueKeys(dbSession, collector.getIssueKeys(), IssueChangeDto.TYPE_COMMENT);
       result.setComments(comments);
       for (IssueChangeDto comment : comments) {
         collector.add(USERS, comment.getUserLogin());
@@ -108,22 +192,17 @@ public class SearchResponseLoader {
     }
   }
 
-  private void loadRules(Collector collector, DbSession dbSession, SearchResponseData result) {
-    if (collector.contains(RULES)) {
-      result.setRules(dbClient.ruleDao().selectByKeys(dbSession, collector.<RuleKey>get(RULES)));
-    }
-  }
-
-  private void loadComponents(Collector collector, DbSession dbSession, SearchResponseData result) {
+  private List<ComponentDto> loadComponents(Set<String> componentUuids, Set<String> projectUuids, DbSession dbSession) {
     // always load components and projects, because some issue fields still relate to component ids/keys.
     // They should be dropped but are kept for backward-compatibility (see SearchResponseFormat)
-    result.addComponents(dbClient.componentDao().selectByUuids(dbSession, collector.getComponentUuids()));
-    result.addComponents(dbClient.componentDao().selectSubProjectsByComponentUuids(dbSession, collector.getComponentUuids()));
-    for (ComponentDto component : result.getComponents()) {
-      collector.addProjectUuid(component.projectUuid());
+    List<ComponentDto> components = new ArrayList<>();
+    components.addAll(dbClient.componentDao().selectByUuids(dbSession, componentUuids));
+    components.addAll(dbClient.componentDao().selectSubProjectsByComponentUuids(dbSession, componentUuids));
+    for (ComponentDto component : components) {
+      projectUuids.add(component.projectUuid());
     }
-    List<ComponentDto> projects = dbClient.componentDao().selectByUuids(dbSession, collector.getProjectUuids());
-    result.addComponents(projects);
+    components.addAll(dbClient.componentDao().selectByUuids(dbSession, projectUuids));
+    return components;
   }
 
   private void loadActionsAndTransitions(Collector collector, SearchResponseData result) {
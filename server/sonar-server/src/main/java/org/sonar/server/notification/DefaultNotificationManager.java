@@ -21,14 +21,27 @@ package org.sonar.server.notification;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.SetMultimap;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import java.io.IOException;
 import java.io.InvalidClassException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.sonar.api.notifications.Notification;
 import org.sonar.api.notifications.NotificationChannel;
@@ -38,18 +51,39 @@ import org.sonar.api.utils.log.Loggers;
 import org.sonar.db.notification.NotificationQueueDao;
 import org.sonar.db.notification.NotificationQueueDto;
 import org.sonar.db.property.PropertiesDao;
+import org.sonar.server.issue.notification.IssueChangeNotification;
+import org.sonar.server.issue.notification.MyNewIssuesNotification;
+import org.sonar.server.issue.notification.NewIssuesNotification;
 
 public class DefaultNotificationManager implements NotificationManager {
 
   private static final Logger LOG = Loggers.get(DefaultNotificationManager.class);
 
   private static final String UNABLE_TO_READ_NOTIFICATION = "Unable to read notification";
+  private static final long RECIPIENTS_CACHE_TTL_IN_SECONDS = 10;
+  private static final long RECIPIENTS_CACHE_MAX_SIZE = 1_000;
+
+  /**
+   * Notifications whose state is entirely held by the fields of {@link Notification} and which do not override its
+   * behavior. They are queued in compact form and are read back as {@link Notification}.
+   */
+  private static final Set<Class<? extends Notification>> COMPACT_CLASSES = ImmutableSet.of(
+    Notification.class,
+    IssueChangeNotification.class,
+    NewIssuesNotification.class,
+    MyNewIssuesNotification.class);
 
   private NotificationChannel[] notificationChannels;
   private NotificationQueueDao notificationQueueDao;
   private PropertiesDao propertiesDao;
 
+  private final Cache<List<String>, Multimap<String, NotificationChannel>> recipientsCache = CacheBuilder.newBuilder()
+    .expireAfterWrite(RECIPIENTS_CACHE_TTL_IN_SECONDS, TimeUnit.SECONDS)
+    .maximumSize(RECIPIENTS_CACHE_MAX_SIZE)
+    .build();
+
   private boolean alreadyLoggedDeserializationIssue = false;
+  private volatile Long lastQueueLag;
 
   /**
    * Default constructor used by Pico
@@ -72,7 +106,7 @@ public class DefaultNotificationManager implements NotificationManager {
    */
   @Override
   public void scheduleForSending(Notification notification) {
-    NotificationQueueDto dto = NotificationQueueDto.toNotificationQueueDto(notification);
+    NotificationQueueDto dto = NotificationQueueDto.toNotificationQueueDto(notification, COMPACT_CLASSES);
     notificationQueueDao.insert(Arrays.asList(dto));
   }
 
@@ -81,29 +115,59 @@ public class DefaultNotificationManager implements NotificationManager {
     notificationQueueDao.insert(Lists.transform(notification, new Function<Notification, NotificationQueueDto>() {
       @Override
       public NotificationQueueDto apply(Notification notification) {
-        return NotificationQueueDto.toNotificationQueueDto(notification);
+        return NotificationQueueDto.toNotificationQueueDto(notification, COMPACT_CLASSES);
       }
     }));
   }
 
   /**
-   * Give the notification queue so that it can be processed
+   * Give the oldest notifications of the queue so that they can be processed. They stay in the queue until they
+   * are removed with {@link #removeFromQueue(List)}, so that a stop of the server during their delivery
+   * does not lose them. Notifications which can't be read are removed immediately.
    */
-  public Notification getFromQueue() {
-    int batchSize = 1;
+  public List<QueuedNotification> getFromQueue(int batchSize) {
     List<NotificationQueueDto> notificationDtos = notificationQueueDao.selectOldest(batchSize);
     if (notificationDtos.isEmpty()) {
-      return null;
+      return Collections.emptyList();
+    }
+
+    List<QueuedNotification> notifications = new ArrayList<>(notificationDtos.size());
+    List<NotificationQueueDto> unreadableDtos = new ArrayList<>();
+    Long oldestQueuedAt = null;
+    for (NotificationQueueDto dto : notificationDtos) {
+      Notification notification = convertToNotification(dto);
+      if (notification == null) {
+        unreadableDtos.add(dto);
+      } else {
+        notifications.add(new QueuedNotification(dto, notification));
+      }
+      Long queuedAt = dto.getQueuedAt();
+      if (queuedAt != null && (oldestQueuedAt == null || queuedAt < oldestQueuedAt)) {
+        oldestQueuedAt = queuedAt;
+      }
     }
-    notificationQueueDao.delete(notificationDtos);
+    if (!unreadableDtos.isEmpty()) {
+      notificationQueueDao.delete(unreadableDtos);
+    }
+    if (oldestQueuedAt != null) {
+      lastQueueLag = System.currentTimeMillis() - oldestQueuedAt;
+    }
+    return notifications;
+  }
 
-    return convertToNotification(notificationDtos);
+  /**
+   * Remove from the queue, at once, notifications returned by {@link #getFromQueue(int)}, once they have been processed.
+   */
+  public void removeFromQueue(List<QueuedNotification> notifications) {
+    if (!notifications.isEmpty()) {
+      notificationQueueDao.delete(Lists.transform(notifications, n -> n.dto));
+    }
   }
 
-  private Notification convertToNotification(List<NotificationQueueDto> notifications) {
+  @CheckForNull
+  private Notification convertToNotification(NotificationQueueDto notification) {
     try {
-      // If batchSize is increased then we should return a list instead of a single element
-      return notifications.get(0).toNotification();
+      return notification.toNotification();
     } catch (InvalidClassException e) {
       // SONAR-4739
       if (!alreadyLoggedDeserializationIssue) {
@@ -112,10 +176,21 @@ public class DefaultNotificationManager implements NotificationManager {
       }
       return null;
     } catch (IOException | ClassNotFoundException e) {
+      // the notification would block the queue forever
+      notificationQueueDao.delete(Collections.singletonList(notification));
       throw new SonarException(UNABLE_TO_READ_NOTIFICATION, e);
     }
   }
 
+  /**
+   * Time spent in queue by the oldest notification of the last dequeued batch, in milliseconds,
+   * or {@code null} if unknown.
+   */
+  @CheckForNull
+  public Long getLastQueueLag() {
+    return lastQueueLag;
+  }
+
   @VisibleForTesting
   void logDeserializationIssue() {
     LOG.warn("It is impossible to send pending notifications which existed prior to the upgrade of SonarQube. They will be ignored.");
@@ -132,33 +207,46 @@ public class DefaultNotificationManager implements NotificationManager {
   public Multimap<String, NotificationChannel> findSubscribedRecipientsForDispatcher(NotificationDispatcher dispatcher,
                                                                                      @Nullable String projectUuid) {
     String dispatcherKey = dispatcher.getKey();
+    return getOrLoadRecipients(Arrays.asList("recipients", dispatcherKey, projectUuid), () -> {
+      SetMultimap<String, NotificationChannel> recipients = HashMultimap.create();
+      for (NotificationChannel channel : notificationChannels) {
+        String channelKey = channel.getKey();
 
-    SetMultimap<String, NotificationChannel> recipients = HashMultimap.create();
-    for (NotificationChannel channel : notificationChannels) {
-      String channelKey = channel.getKey();
-
-      // Find users subscribed globally to the dispatcher (i.e. not on a specific project)
-      addUsersToRecipientListForChannel(propertiesDao.selectUsersForNotification(dispatcherKey, channelKey, null), recipients, channel);
+        // Find users subscribed globally to the dispatcher (i.e. not on a specific project)
+        addUsersToRecipientListForChannel(propertiesDao.selectUsersForNotification(dispatcherKey, channelKey, null), recipients, channel);
 
-      if (projectUuid != null) {
-        // Find users subscribed to the dispatcher specifically for the project
-        addUsersToRecipientListForChannel(propertiesDao.selectUsersForNotification(dispatcherKey, channelKey, projectUuid), recipients, channel);
+        if (projectUuid != null) {
+          // Find users subscribed to the dispatcher specifically for the project
+          addUsersToRecipientListForChannel(propertiesDao.selectUsersForNotification(dispatcherKey, channelKey, projectUuid), recipients, channel);
+        }
       }
-    }
-
-    return recipients;
+      return recipients;
+    });
   }
 
   @Override
   public Multimap<String, NotificationChannel> findNotificationSubscribers(NotificationDispatcher dispatcher, @Nullable String componentKey) {
     String dispatcherKey = dispatcher.getKey();
+    return getOrLoadRecipients(Arrays.asList("subscribers", dispatcherKey, componentKey), () -> {
+      SetMultimap<String, NotificationChannel> recipients = HashMultimap.create();
+      for (NotificationChannel channel : notificationChannels) {
+        addUsersToRecipientListForChannel(propertiesDao.selectNotificationSubscribers(dispatcherKey, channel.getKey(), componentKey), recipients, channel);
+      }
+      return recipients;
+    });
+  }
 
-    SetMultimap<String, NotificationChannel> recipients = HashMultimap.create();
-    for (NotificationChannel channel : notificationChannels) {
-      addUsersToRecipientListForChannel(propertiesDao.selectNotificationSubscribers(dispatcherKey, channel.getKey(), componentKey), recipients, channel);
+  /**
+   * Recipients are kept for a few seconds, so that the notifications of an analysis or of a batch of the queue
+   * resolve them once per dispatcher and project.
+   */
+  private Multimap<String, NotificationChannel> getOrLoadRecipients(List<String> cacheKey, Supplier<Multimap<String, NotificationChannel>> loader) {
+    try {
+      return recipientsCache.get(cacheKey, () -> ImmutableSetMultimap.copyOf(loader.get()));
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      Throwables.propagateIfPossible(e.getCause());
+      throw new IllegalStateException(e.getCause());
     }
-
-    return recipients;
   }
 
   @VisibleForTesting
@@ -172,4 +260,20 @@ public class DefaultNotificationManager implements NotificationManager {
     }
   }
 
+  /**
+   * Notification read from the queue, which is still in the queue until it is removed
+   */
+  public static final class QueuedNotification {
+    private final NotificationQueueDto dto;
+    private final Notification notification;
+
+    QueuedNotification(NotificationQueueDto dto, Notification notification) {
+      this.dto = dto;
+      this.notification = notification;
+    }
+
+    public Notification getNotification() {
+      return notification;
+    }
+  }
 }
@@ -21,9 +21,15 @@ package org.sonar.server.notification;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import org.picocontainer.Startable;
 import org.sonar.api.Properties;
 import org.sonar.api.Property;
@@ -32,6 +38,7 @@ import org.sonar.api.notifications.Notification;
 import org.sonar.api.server.ServerSide;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
+import org.sonar.server.notification.DefaultNotificationManager.QueuedNotification;
 
 @Properties({
   @Property(
@@ -43,34 +50,54 @@ import org.sonar.api.utils.log.Loggers;
     key = NotificationDaemon.PROPERTY_DELAY_BEFORE_REPORTING_STATUS,
     defaultValue = "600",
     name = "Delay before reporting notification status, in seconds",
+    global = false),
+  @Property(
+    key = NotificationDaemon.PROPERTY_WORKERS,
+    defaultValue = "2",
+    name = "Number of threads delivering notifications",
     global = false)
 })
 @ServerSide
 public class NotificationDaemon implements Startable {
   private static final String THREAD_NAME_PREFIX = "sq-notification-service-";
+  private static final String WORKER_THREAD_NAME_PREFIX = "sq-notification-worker-";
+  private static final int BATCH_SIZE = 100;
 
   private static final Logger LOG = Loggers.get(NotificationDaemon.class);
 
   public static final String PROPERTY_DELAY = "sonar.notifications.delay";
   public static final String PROPERTY_DELAY_BEFORE_REPORTING_STATUS = "sonar.notifications.runningDelayBeforeReportingStatus";
+  public static final String PROPERTY_WORKERS = "sonar.notifications.workers";
 
   private final long delayInSeconds;
   private final long delayBeforeReportingStatusInSeconds;
+  private final int workers;
   private final DefaultNotificationManager manager;
   private final NotificationService service;
 
+  private final AtomicLong deliveredCount = new AtomicLong();
+  private volatile double lastThroughput = 0.0;
+
   private ScheduledExecutorService executorService;
-  private boolean stopping = false;
+  private ExecutorService workerService;
+  private volatile boolean stopping = false;
 
   public NotificationDaemon(Settings settings, DefaultNotificationManager manager, NotificationService service) {
     this.delayInSeconds = settings.getLong(PROPERTY_DELAY);
     this.delayBeforeReportingStatusInSeconds = settings.getLong(PROPERTY_DELAY_BEFORE_REPORTING_STATUS);
+    this.workers = Math.max(1, settings.getInt(PROPERTY_WORKERS));
     this.manager = manager;
     this.service = service;
   }
 
   @Override
   public void start() {
+    // slow channels, for example SMTP servers, must not block the other deliveries
+    workerService = Executors.newFixedThreadPool(workers,
+      new ThreadFactoryBuilder()
+        .setNameFormat(WORKER_THREAD_NAME_PREFIX + "%d")
+        .setPriority(Thread.MIN_PRIORITY)
+        .build());
     executorService = Executors.newSingleThreadScheduledExecutor(
       new ThreadFactoryBuilder()
         .setNameFormat(THREAD_NAME_PREFIX + "%d")
@@ -83,7 +110,7 @@ public class NotificationDaemon implements Startable {
         LOG.error("Error in NotificationService", e);
       }
     }, 0, delayInSeconds, TimeUnit.SECONDS);
-    LOG.info("Notification service started (delay {} sec.)", delayInSeconds);
+    LOG.info("Notification service started (delay {} sec., {} workers)", delayInSeconds, workers);
   }
 
   @Override
@@ -92,6 +119,8 @@ public class NotificationDaemon implements Startable {
       stopping = true;
       executorService.shutdown();
       executorService.awaitTermination(5, TimeUnit.SECONDS);
+      workerService.shutdown();
+      workerService.awaitTermination(5, TimeUnit.SECONDS);
     } catch (InterruptedException e) {
       LOG.error("Error during stop of notification service", e);
       Thread.currentThread().interrupt();
@@ -105,10 +134,10 @@ public class NotificationDaemon implements Startable {
     long lastLog = start;
     long notifSentCount = 0;
 
-    Notification notifToSend = manager.getFromQueue();
-    while (notifToSend != null) {
-      service.deliver(notifToSend);
-      notifSentCount++;
+    List<QueuedNotification> notifsToSend = manager.getFromQueue(BATCH_SIZE);
+    while (!notifsToSend.isEmpty()) {
+      deliver(notifsToSend);
+      notifSentCount += notifsToSend.size();
       if (stopping) {
         break;
       }
@@ -119,10 +148,51 @@ public class NotificationDaemon implements Startable {
         long spentTimeInMinutes = (now - start) / (60 * 1000);
         log(notifSentCount, remainingNotifCount, spentTimeInMinutes);
       }
-      notifToSend = manager.getFromQueue();
+      notifsToSend = manager.getFromQueue(BATCH_SIZE);
+    }
+    if (notifSentCount > 0) {
+      lastThroughput = notifSentCount * 1000.0 / Math.max(1L, now() - start);
     }
   }
 
+  /**
+   * Notifications are removed from the queue only once processed, even if delivery failed, so that they are delivered
+   * again if the server stops meanwhile. The batch is removed at once. If removal fails, the failure stops the processing
+   * of the queue until the next run, instead of fetching and delivering the same notifications again immediately.
+   */
+  private void deliver(List<QueuedNotification> notifications) {
+    List<Future<?>> futures = new ArrayList<>(notifications.size());
+    for (QueuedNotification notification : notifications) {
+      futures.add(workerService.submit(() -> service.deliver(notification.getNotification())));
+    }
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+        deliveredCount.incrementAndGet();
+      } catch (ExecutionException e) {
+        LOG.error("Fail to deliver notification", e.getCause());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+    manager.removeFromQueue(notifications);
+  }
+
+  /**
+   * Number of notifications delivered since startup
+   */
+  public long getDeliveredCount() {
+    return deliveredCount.get();
+  }
+
+  /**
+   * Number of notifications delivered per second during the last processing of the queue
+   */
+  public double getLastThroughput() {
+    return lastThroughput;
+  }
+
   @VisibleForTesting
   void log(long notifSentCount, long remainingNotifCount, long spentTimeInMinutes) {
     LOG.info("{} notifications sent during the past {} minutes and {} still waiting to be sent",
@@ -32,6 +32,7 @@ import org.sonar.db.component.ResourceDto;
 import org.sonar.db.permission.PermissionRepository;
 import org.sonar.server.component.ComponentFinder;
 import org.sonar.server.issue.index.IssueAuthorizationIndexer;
+import org.sonar.server.user.AuthorizationCache;
 import org.sonar.server.user.UserSession;
 
 import static org.sonar.server.permission.PermissionPrivilegeChecker.checkGlobalAdminUser;
@@ -45,14 +46,16 @@ public class PermissionService {
   private final IssueAuthorizationIndexer issueAuthorizationIndexer;
   private final UserSession userSession;
   private final ComponentFinder componentFinder;
+  private final AuthorizationCache authorizationCache;
 
   public PermissionService(DbClient dbClient, PermissionRepository permissionRepository, IssueAuthorizationIndexer issueAuthorizationIndexer, UserSession userSession,
-    ComponentFinder componentFinder) {
+    ComponentFinder componentFinder, AuthorizationCache authorizationCache) {
     this.dbClient = dbClient;
     this.permissionRepository = permissionRepository;
     this.issueAuthorizationIndexer = issueAuthorizationIndexer;
     this.userSession = userSession;
     this.componentFinder = componentFinder;
+    this.authorizationCache = authorizationCache;
   }
 
   public List<String> globalPermissions() {
@@ -125,6 +128,7 @@ public class PermissionService {
   }
 
   private void indexProjectPermissions() {
+    authorizationCache.invalidate();
     issueAuthorizationIndexer.index();
   }
 }
@@ -0,0 +1,74 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.sonar.server.es.FacetCache;
+
+/**
+ * Efficiency of the cache of Elasticsearch facets
+ */
+public class FacetCacheMonitor extends BaseMonitorMBean implements FacetCacheMonitorMBean {
+
+  private final FacetCache facetCache;
+
+  public FacetCacheMonitor(FacetCache facetCache) {
+    this.facetCache = facetCache;
+  }
+
+  @Override
+  public String name() {
+    return "FacetCache";
+  }
+
+  @Override
+  public long getHits() {
+    return facetCache.getHits();
+  }
+
+  @Override
+  public long getMisses() {
+    return facetCache.getMisses();
+  }
+
+  @Override
+  public double getHitRate() {
+    long hits = getHits();
+    long total = hits + getMisses();
+    return total == 0L ? 0.0 : ((double) hits / total);
+  }
+
+  @Override
+  public long getSavedMillis() {
+    return facetCache.getSavedMillis();
+  }
+
+  @Override
+  public Map<String, Object> attributes() {
+    Map<String, Object> attributes = new LinkedHashMap<>();
+    attributes.put("Entries", facetCache.size());
+    attributes.put("Hits", getHits());
+    attributes.put("Misses", getMisses());
+    attributes.put("Hit Rate", getHitRate());
+    attributes.put("Saved Elasticsearch Time (ms)", getSavedMillis());
+    return attributes;
+  }
+}
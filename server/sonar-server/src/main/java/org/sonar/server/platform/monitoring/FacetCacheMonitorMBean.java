@@ -17,29 +17,31 @@
  * along with this program; if not, write to the Free Software Foundation,
  * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
  */
-package org.sonar.scanner.issue.tracking;
+package org.sonar.server.platform.monitoring;
 
-import com.persistit.Value;
-import com.persistit.encoding.CoderContext;
-import com.persistit.encoding.ValueCoder;
-import java.io.IOException;
-import org.sonar.scanner.protocol.input.ScannerInput.ServerIssue;
+/**
+ * The public attributes of {@link org.sonar.server.platform.monitoring.FacetCacheMonitor}
+ * to be exported in JMX bean.
+ */
+public interface FacetCacheMonitorMBean {
 
-public class ServerIssueValueCoder implements ValueCoder {
+  /**
+   * Number of searches whose facets were found in cache
+   */
+  long getHits();
 
-  @Override
-  public void put(Value value, Object object, CoderContext context) {
-    ServerIssue issue = (ServerIssue) object;
-    value.putByteArray(issue.toByteArray());
-  }
+  /**
+   * Number of searches whose facets were computed by Elasticsearch
+   */
+  long getMisses();
 
-  @Override
-  public Object get(Value value, Class<?> clazz, CoderContext context) {
-    try {
-      return ServerIssue.parseFrom(value.getByteArray());
-    } catch (IOException e) {
-      throw new IllegalStateException("Unable to read issue from cache", e);
-    }
-  }
+  /**
+   * Ratio of hits among all the searches with facets, between 0 and 1
+   */
+  double getHitRate();
 
+  /**
+   * Cumulated Elasticsearch time saved by the hits, in milliseconds
+   */
+  long getSavedMillis();
 }
@@ -144,7 +144,9 @@ import org.sonar.server.platform.ServerLogging;
 import org.sonar.server.platform.SettingsChangeNotifier;
 import org.sonar.server.platform.monitoring.DatabaseMonitor;
 import org.sonar.server.platform.monitoring.EsMonitor;
+import org.sonar.server.platform.monitoring.FacetCacheMonitor;
 import org.sonar.server.platform.monitoring.JvmPropsMonitor;
+import org.sonar.server.platform.monitoring.NotificationMonitor;
 import org.sonar.server.platform.monitoring.PluginsMonitor;
 import org.sonar.server.platform.monitoring.SettingsMonitor;
 import org.sonar.server.platform.monitoring.SonarQubeMonitor;
@@ -239,6 +241,7 @@ import org.sonar.server.ui.ws.GlobalNavigationAction;
 import org.sonar.server.ui.ws.NavigationWs;
 import org.sonar.server.ui.ws.SettingsNavigationAction;
 import org.sonar.server.updatecenter.UpdateCenterModule;
+import org.sonar.server.user.AuthorizationCache;
 import org.sonar.server.user.DefaultUserFinder;
 import org.sonar.server.user.DefaultUserService;
 import org.sonar.server.user.DeprecatedUserFinder;
@@ -416,6 +419,7 @@ public class PlatformLevel4 extends PlatformLevel {
       NewUserNotifier.class,
       DefaultUserFinder.class,
       DefaultUserService.class,
+      AuthorizationCache.class,
       UserIndexDefinition.class,
       UserIndexer.class,
       UserIndex.class,
@@ -561,9 +565,11 @@ public class PlatformLevel4 extends PlatformLevel {
       SettingsMonitor.class,
       SonarQubeMonitor.class,
       EsMonitor.class,
+      FacetCacheMonitor.class,
       PluginsMonitor.class,
       JvmPropsMonitor.class,
       DatabaseMonitor.class,
+      NotificationMonitor.class,
       MigrateDbAction.class,
       LogsAction.class,
       ChangeLogLevelAction.class,
@@ -20,10 +20,12 @@
 package org.sonar.server.plugins;
 
 import java.io.File;
-import org.apache.commons.io.FileUtils;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
 import org.sonar.api.ce.ComputeEngineSide;
 import org.sonar.api.server.ServerSide;
-import org.sonar.api.utils.ZipUtils;
 import org.sonar.core.platform.ExplodedPlugin;
 import org.sonar.core.platform.PluginInfo;
 import org.sonar.core.platform.PluginJarExploder;
@@ -35,6 +37,7 @@ import static org.apache.commons.io.FileUtils.forceMkdir;
 @ComputeEngineSide
 public class ServerPluginJarExploder extends PluginJarExploder {
 
+  private static final String DATA_RELATIVE_PATH = "web/exploded-plugins";
   private final ServerFileSystem fs;
 
   public ServerPluginJarExploder(ServerFileSystem fs) {
@@ -44,23 +47,45 @@ public class ServerPluginJarExploder extends PluginJarExploder {
   /**
    * JAR files of directory extensions/plugins can be moved when server is up and plugins are uninstalled.
    * For this reason these files must not be locked by classloaders. They are copied to the directory
-   * web/deploy/plugins in order to be loaded by {@link org.sonar.core.platform.PluginLoader}.
+   * web/exploded-plugins in order to be loaded by {@link org.sonar.core.platform.PluginLoader}.
+   * This directory is kept between restarts, so the JAR is copied again only when it changed.
+   * <p/>
+   * The JAR is also deployed to web/deploy/plugins, the directory from which scanners download plugins.
+   * It is cleaned up at each startup, so it can't hold the exploded plugins.
    */
   @Override
   public ExplodedPlugin explode(PluginInfo pluginInfo) {
-    File toDir = new File(fs.getDeployedPluginsDir(), pluginInfo.getKey());
+    File toDir = new File(getExplodedPluginsDir(), pluginInfo.getKey());
     try {
-      forceMkdir(toDir);
-      org.sonar.core.util.FileUtils.cleanDirectory(toDir);
-
-      File jarSource = pluginInfo.getNonNullJarFile();
-      File jarTarget = new File(toDir, jarSource.getName());
-      FileUtils.copyFile(jarSource, jarTarget);
-      ZipUtils.unzip(jarSource, toDir, newLibFilter());
-      return explodeFromUnzippedDir(pluginInfo.getKey(), jarTarget, toDir);
+      ExplodedPlugin explodedPlugin = explodeIfModified(pluginInfo, toDir);
+      deploy(explodedPlugin.getMain(), new File(fs.getDeployedPluginsDir(), pluginInfo.getKey()));
+      return explodedPlugin;
     } catch (Exception e) {
       throw new IllegalStateException(String.format(
         "Fail to unzip plugin [%s] %s to %s", pluginInfo.getKey(), pluginInfo.getNonNullJarFile().getAbsolutePath(), toDir.getAbsolutePath()), e);
     }
   }
+
+  @Override
+  public void deleteUninstalled(Collection<PluginInfo> installedPlugins) {
+    deleteDirsOfOtherPlugins(getExplodedPluginsDir(), installedPlugins);
+  }
+
+  private File getExplodedPluginsDir() {
+    return new File(fs.getDataDir(), DATA_RELATIVE_PATH);
+  }
+
+  /**
+   * The JAR is linked rather than copied when the file system supports hard links
+   */
+  private static void deploy(File jar, File toDir) throws IOException {
+    forceMkdir(toDir);
+    Path target = new File(toDir, jar.getName()).toPath();
+    Files.deleteIfExists(target);
+    try {
+      Files.createLink(target, jar.toPath());
+    } catch (IOException | UnsupportedOperationException e) {
+      Files.copy(jar.toPath(), target);
+    }
+  }
 }
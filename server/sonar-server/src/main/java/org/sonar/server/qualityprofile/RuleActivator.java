@@ -23,7 +23,7 @@ import com.google.common.base.Splitter;
 import com.google.common.collect.Lists;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Iterator;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import javax.annotation.CheckForNull;
@@ -78,20 +78,24 @@ public class RuleActivator {
 
   public List<ActiveRuleChange> activate(DbSession dbSession, RuleActivation activation, String profileKey) {
     RuleActivatorContext context = contextFactory.create(profileKey, activation.getRuleKey(), dbSession);
-    return doActivate(dbSession, activation, context);
+    return doActivate(dbSession, activation, context, null);
   }
 
   public List<ActiveRuleChange> activate(DbSession dbSession, RuleActivation activation, QProfileName profileName) {
     RuleActivatorContext context = contextFactory.create(profileName, activation.getRuleKey(), dbSession);
-    return doActivate(dbSession, activation, context);
+    return doActivate(dbSession, activation, context, null);
   }
 
   List<ActiveRuleChange> activate(DbSession dbSession, RuleActivation activation, QualityProfileDto profileDto) {
     RuleActivatorContext context = contextFactory.create(profileDto, activation.getRuleKey(), dbSession);
-    return doActivate(dbSession, activation, context);
+    return doActivate(dbSession, activation, context, null);
   }
 
-  private List<ActiveRuleChange> doActivate(DbSession dbSession, RuleActivation activation, RuleActivatorContext context) {
+  /**
+   * @param snapshot if not null, the preloaded state used instead of db reads. It is updated with the persisted changes.
+   */
+  private List<ActiveRuleChange> doActivate(DbSession dbSession, RuleActivation activation, RuleActivatorContext context,
+    @Nullable RuleActivatorSnapshot snapshot) {
     context.verifyForActivation();
     List<ActiveRuleChange> changes = Lists.newArrayList();
     ActiveRuleChange change;
@@ -136,24 +140,32 @@ public class RuleActivator {
 
     if (change != null) {
       changes.add(change);
-      persist(change, context, dbSession);
+      persist(change, context, dbSession, snapshot);
     }
 
     if (!stopPropagation) {
-      changes.addAll(cascadeActivation(dbSession, activation, context.profile().getKey()));
+      changes.addAll(cascadeActivation(dbSession, activation, context.profile().getKey(), snapshot));
     }
 
     if (!changes.isEmpty()) {
-      updateProfileDates(dbSession, context);
+      updateProfileDates(dbSession, context, snapshot);
     }
     return changes;
   }
 
-  private void updateProfileDates(DbSession dbSession, RuleActivatorContext context) {
-    QualityProfileDto profile = context.profile();
-    profile.setRulesUpdatedAtAsDate(context.getInitDate());
+  private void updateProfileDates(DbSession dbSession, RuleActivatorContext context, @Nullable RuleActivatorSnapshot snapshot) {
+    if (snapshot == null) {
+      updateProfileDates(dbSession, context.profile(), context.getInitDate());
+    } else {
+      // profiles are updated once at the end of the bulk change
+      snapshot.markAsUpdated(context.profile());
+    }
+  }
+
+  private void updateProfileDates(DbSession dbSession, QualityProfileDto profile, Date date) {
+    profile.setRulesUpdatedAtAsDate(date);
     if (userSession.isLoggedIn()) {
-      profile.setUserUpdatedAt(context.getInitDate().getTime());
+      profile.setUserUpdatedAt(date.getTime());
     }
     db.qualityProfileDao().update(dbSession, profile);
   }
@@ -221,19 +233,23 @@ public class RuleActivator {
     return null;
   }
 
-  private List<ActiveRuleChange> cascadeActivation(DbSession session, RuleActivation activation, String profileKey) {
+  private List<ActiveRuleChange> cascadeActivation(DbSession session, RuleActivation activation, String profileKey, @Nullable RuleActivatorSnapshot snapshot) {
     List<ActiveRuleChange> changes = Lists.newArrayList();
 
     // get all inherited profiles
-    List<QualityProfileDto> children = db.qualityProfileDao().selectChildren(session, profileKey);
+    List<QualityProfileDto> children = snapshot == null ? db.qualityProfileDao().selectChildren(session, profileKey) : snapshot.children(profileKey);
     for (QualityProfileDto child : children) {
       RuleActivation childActivation = new RuleActivation(activation).setCascade(true);
-      changes.addAll(activate(session, childActivation, child.getKey()));
+      if (snapshot == null) {
+        changes.addAll(activate(session, childActivation, child.getKey()));
+      } else {
+        changes.addAll(doActivate(session, childActivation, snapshot.createContext(child.getKey(), activation.getRuleKey()), snapshot));
+      }
     }
     return changes;
   }
 
-  private ActiveRuleDto persist(ActiveRuleChange change, RuleActivatorContext context, DbSession dbSession) {
+  private ActiveRuleDto persist(ActiveRuleChange change, RuleActivatorContext context, DbSession dbSession, @Nullable RuleActivatorSnapshot snapshot) {
     ActiveRuleDto activeRule = null;
     if (change.getType() == ActiveRuleChange.Type.ACTIVATED) {
       activeRule = doInsert(change, context, dbSession);
@@ -246,6 +262,13 @@ public class RuleActivator {
     }
 
     db.qProfileChangeDao().insert(dbSession, change.toDto());
+    if (snapshot != null) {
+      if (activeRule == null) {
+        snapshot.removeActiveRule(change.getKey());
+      } else {
+        snapshot.putActiveRule(activeRule, context.activeRuleParamsAsMap().values());
+      }
+    }
     return activeRule;
   }
 
@@ -264,11 +287,13 @@ public class RuleActivator {
     activeRule.setUpdatedAt(system2.now());
     activeRule.setCreatedAt(system2.now());
     dao.insert(dbSession, activeRule);
+    context.setActiveRule(activeRule);
     for (Map.Entry<String, String> param : change.getParameters().entrySet()) {
       if (param.getValue() != null) {
         ActiveRuleParamDto paramDto = ActiveRuleParamDto.createFor(context.ruleParamsByKeys().get(param.getKey()));
         paramDto.setValue(param.getValue());
         dao.insertParam(dbSession, activeRule, paramDto);
+        context.activeRuleParamsAsMap().put(paramDto.getKey(), paramDto);
       }
     }
     return activeRule;
@@ -297,6 +322,7 @@ public class RuleActivator {
             activeRuleParamDto = ActiveRuleParamDto.createFor(context.ruleParamsByKeys().get(param.getKey()));
             activeRuleParamDto.setValue(param.getValue());
             dao.insertParam(dbSession, activeRule, activeRuleParamDto);
+            context.activeRuleParamsAsMap().put(param.getKey(), activeRuleParamDto);
           }
         } else {
           if (param.getValue() != null) {
@@ -304,6 +330,7 @@ public class RuleActivator {
             dao.updateParam(dbSession, activeRule, activeRuleParamDto);
           } else {
             dao.deleteParam(dbSession, activeRule, activeRuleParamDto);
+            context.activeRuleParamsAsMap().remove(param.getKey());
           }
         }
       }
@@ -350,12 +377,14 @@ public class RuleActivator {
    * @param force if true then inherited rules are deactivated
    */
   public List<ActiveRuleChange> deactivate(DbSession dbSession, ActiveRuleKey key, boolean force) {
-    return cascadeDeactivation(key, dbSession, false, force);
+    return cascadeDeactivation(key, dbSession, false, force, null);
   }
 
-  private List<ActiveRuleChange> cascadeDeactivation(ActiveRuleKey key, DbSession dbSession, boolean isCascade, boolean force) {
+  private List<ActiveRuleChange> cascadeDeactivation(ActiveRuleKey key, DbSession dbSession, boolean isCascade, boolean force,
+    @Nullable RuleActivatorSnapshot snapshot) {
     List<ActiveRuleChange> changes = Lists.newArrayList();
-    RuleActivatorContext context = contextFactory.create(key.qProfile(), key.ruleKey(), dbSession);
+    RuleActivatorContext context = snapshot == null ? contextFactory.create(key.qProfile(), key.ruleKey(), dbSession)
+      : snapshot.createContext(key.qProfile(), key.ruleKey());
     ActiveRuleChange change;
     ActiveRuleDto activeRuleDto = context.activeRule();
     if (activeRuleDto == null) {
@@ -366,18 +395,18 @@ public class RuleActivator {
     }
     change = ActiveRuleChange.createFor(ActiveRuleChange.Type.DEACTIVATED, key);
     changes.add(change);
-    persist(change, context, dbSession);
+    persist(change, context, dbSession, snapshot);
 
     // get all inherited profiles
-    List<QualityProfileDto> profiles = db.qualityProfileDao().selectChildren(dbSession, key.qProfile());
+    List<QualityProfileDto> profiles = snapshot == null ? db.qualityProfileDao().selectChildren(dbSession, key.qProfile()) : snapshot.children(key.qProfile());
 
     for (QualityProfileDto profile : profiles) {
       ActiveRuleKey activeRuleKey = ActiveRuleKey.of(profile.getKey(), key.ruleKey());
-      changes.addAll(cascadeDeactivation(activeRuleKey, dbSession, true, force));
+      changes.addAll(cascadeDeactivation(activeRuleKey, dbSession, true, force, snapshot));
     }
 
     if (!changes.isEmpty()) {
-      updateProfileDates(dbSession, context);
+      updateProfileDates(dbSession, context, snapshot);
     }
 
     return changes;
@@ -401,13 +430,13 @@ public class RuleActivator {
     DbSession dbSession = db.openSession(false);
     BulkChangeResult result = new BulkChangeResult();
     try {
-      Iterator<RuleKey> rules = ruleIndex.searchAll(ruleQuery);
-      while (rules.hasNext()) {
-        RuleKey ruleKey = rules.next();
+      List<RuleKey> ruleKeys = newArrayList(ruleIndex.searchAll(ruleQuery));
+      RuleActivatorSnapshot snapshot = contextFactory.createSnapshot(profileKey, ruleKeys, dbSession);
+      for (RuleKey ruleKey : ruleKeys) {
         try {
           RuleActivation activation = new RuleActivation(ruleKey);
           activation.setSeverity(severity);
-          List<ActiveRuleChange> changes = activate(dbSession, activation, profileKey);
+          List<ActiveRuleChange> changes = doActivate(dbSession, activation, snapshot.createContext(profileKey, ruleKey), snapshot);
           result.addChanges(changes);
           if (!changes.isEmpty()) {
             result.incrementSucceeded();
@@ -419,6 +448,7 @@ public class RuleActivator {
           result.getErrors().add(e.errors());
         }
       }
+      updateProfileDates(dbSession, snapshot);
       dbSession.commit();
       activeRuleIndexer.index(result.getChanges());
     } finally {
@@ -431,12 +461,12 @@ public class RuleActivator {
     DbSession dbSession = db.openSession(false);
     BulkChangeResult result = new BulkChangeResult();
     try {
-      Iterator<RuleKey> rules = ruleIndex.searchAll(ruleQuery);
-      while (rules.hasNext()) {
+      List<RuleKey> ruleKeys = newArrayList(ruleIndex.searchAll(ruleQuery));
+      RuleActivatorSnapshot snapshot = contextFactory.createSnapshot(profile, ruleKeys, dbSession);
+      for (RuleKey ruleKey : ruleKeys) {
         try {
-          RuleKey ruleKey = rules.next();
           ActiveRuleKey key = ActiveRuleKey.of(profile, ruleKey);
-          List<ActiveRuleChange> changes = deactivate(dbSession, key);
+          List<ActiveRuleChange> changes = cascadeDeactivation(key, dbSession, false, false, snapshot);
           result.addChanges(changes);
           if (!changes.isEmpty()) {
             result.incrementSucceeded();
@@ -447,6 +477,7 @@ public class RuleActivator {
           result.getErrors().add(e.errors());
         }
       }
+      updateProfileDates(dbSession, snapshot);
       dbSession.commit();
       activeRuleIndexer.index(result.getChanges());
       return result;
@@ -455,6 +486,12 @@ public class RuleActivator {
     }
   }
 
+  private void updateProfileDates(DbSession dbSession, RuleActivatorSnapshot snapshot) {
+    for (QualityProfileDto updatedProfile : snapshot.updatedProfiles()) {
+      updateProfileDates(dbSession, updatedProfile, snapshot.getInitDate());
+    }
+  }
+
   public List<ActiveRuleChange> setParent(DbSession dbSession, String profileKey, @Nullable String parentKey) {
     QualityProfileDto profile = db.qualityProfileDao().selectOrFailByKey(dbSession, profileKey);
     List<ActiveRuleChange> changes = new ArrayList<>();
@@ -20,7 +20,9 @@
 package org.sonar.server.qualityprofile;
 
 import com.google.common.base.Optional;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.server.ServerSide;
 import org.sonar.db.DbClient;
@@ -65,6 +67,44 @@ public class RuleActivatorContextFactory {
     return create(ruleKey, session, new RuleActivatorContext().setProfile(profile));
   }
 
+  /**
+   * Loads in a few queries the rules, the profile, its parent and descendants, and the related active rules,
+   * so that the given rules can be (de)activated without any other db read.
+   */
+  RuleActivatorSnapshot createSnapshot(String profileKey, List<RuleKey> ruleKeys, DbSession session) {
+    QualityProfileDto profile = db.qualityProfileDao().selectByKey(session, profileKey);
+    if (profile == null) {
+      throw new BadRequestException("Quality profile not found: " + profileKey);
+    }
+    RuleActivatorSnapshot snapshot = new RuleActivatorSnapshot(profile);
+    String parentKee = profile.getParentKee();
+    if (parentKee != null) {
+      QualityProfileDto parent = db.qualityProfileDao().selectByKey(session, parentKee);
+      if (parent != null) {
+        snapshot.addProfile(parent);
+      }
+    }
+    for (QualityProfileDto descendant : db.qualityProfileDao().selectDescendants(session, profileKey)) {
+      snapshot.addProfile(descendant);
+    }
+
+    snapshot.addRules(db.ruleDao().selectByKeys(session, ruleKeys), db.ruleDao().selectRuleParamsByRuleKeys(session, ruleKeys));
+
+    List<ActiveRuleKey> activeRuleKeys = new ArrayList<>();
+    for (QualityProfileDto p : snapshot.profiles()) {
+      for (RuleKey ruleKey : ruleKeys) {
+        activeRuleKeys.add(ActiveRuleKey.of(p.getKey(), ruleKey));
+      }
+    }
+    List<ActiveRuleDto> activeRules = db.activeRuleDao().selectByKeys(session, activeRuleKeys);
+    List<Integer> activeRuleIds = new ArrayList<>();
+    for (ActiveRuleDto activeRule : activeRules) {
+      activeRuleIds.add(activeRule.getId());
+    }
+    snapshot.addActiveRules(activeRules, db.activeRuleDao().selectParamsByActiveRuleIds(session, activeRuleIds));
+    return snapshot;
+  }
+
   private RuleActivatorContext create(RuleKey ruleKey, DbSession session, RuleActivatorContext context) {
     initRule(ruleKey, context, session);
     initActiveRules(context.profile().getKey(), ruleKey, context, session, false);
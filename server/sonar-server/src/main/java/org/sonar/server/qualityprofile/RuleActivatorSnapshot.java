@@ -0,0 +1,168 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.qualityprofile;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.db.qualityprofile.ActiveRuleDto;
+import org.sonar.db.qualityprofile.ActiveRuleKey;
+import org.sonar.db.qualityprofile.ActiveRuleParamDto;
+import org.sonar.db.qualityprofile.QualityProfileDto;
+import org.sonar.db.rule.RuleDto;
+import org.sonar.db.rule.RuleParamDto;
+import org.sonar.server.exceptions.BadRequestException;
+
+/**
+ * In-memory state of a profile hierarchy for a set of rules, loaded once by
+ * {@link RuleActivatorContextFactory#createSnapshot} so that bulk changes do not
+ * query the database for each rule. It is kept up-to-date by {@link RuleActivator}
+ * as changes are persisted.
+ */
+class RuleActivatorSnapshot {
+
+  private final Date initDate = new Date();
+  private final QualityProfileDto profile;
+  private final Map<String, QualityProfileDto> profilesByKey = new HashMap<>();
+  private final ListMultimap<String, QualityProfileDto> childrenByKey = ArrayListMultimap.create();
+  private final Map<RuleKey, RuleDto> rulesByKey = new HashMap<>();
+  private final ListMultimap<RuleKey, RuleParamDto> ruleParamsByRuleKey = ArrayListMultimap.create();
+  private final Map<ActiveRuleKey, ActiveRuleDto> activeRulesByKey = new HashMap<>();
+  private final ListMultimap<Integer, ActiveRuleParamDto> activeRuleParamsByActiveRuleId = ArrayListMultimap.create();
+  private final Map<String, QualityProfileDto> updatedProfiles = new LinkedHashMap<>();
+
+  RuleActivatorSnapshot(QualityProfileDto profile) {
+    this.profile = profile;
+    this.profilesByKey.put(profile.getKey(), profile);
+  }
+
+  QualityProfileDto profile() {
+    return profile;
+  }
+
+  Date getInitDate() {
+    return initDate;
+  }
+
+  void addProfile(QualityProfileDto p) {
+    profilesByKey.put(p.getKey(), p);
+    String parentKey = p.getParentKee();
+    if (parentKey != null && !p.getKey().equals(profile.getKey())) {
+      childrenByKey.put(parentKey, p);
+    }
+  }
+
+  Collection<QualityProfileDto> profiles() {
+    return profilesByKey.values();
+  }
+
+  List<QualityProfileDto> children(String profileKey) {
+    return childrenByKey.get(profileKey);
+  }
+
+  void addRules(Collection<RuleDto> rules, Collection<RuleParamDto> ruleParams) {
+    Map<Integer, RuleKey> ruleKeysById = new HashMap<>();
+    for (RuleDto rule : rules) {
+      rulesByKey.put(rule.getKey(), rule);
+      ruleKeysById.put(rule.getId(), rule.getKey());
+    }
+    for (RuleParamDto ruleParam : ruleParams) {
+      RuleKey ruleKey = ruleKeysById.get(ruleParam.getRuleId());
+      if (ruleKey != null) {
+        ruleParamsByRuleKey.put(ruleKey, ruleParam);
+      }
+    }
+  }
+
+  void addActiveRules(Collection<ActiveRuleDto> activeRules, Collection<ActiveRuleParamDto> activeRuleParams) {
+    for (ActiveRuleDto activeRule : activeRules) {
+      activeRulesByKey.put(activeRule.getKey(), activeRule);
+    }
+    for (ActiveRuleParamDto activeRuleParam : activeRuleParams) {
+      activeRuleParamsByActiveRuleId.put(activeRuleParam.getActiveRuleId(), activeRuleParam);
+    }
+  }
+
+  /**
+   * Same as {@link RuleActivatorContextFactory#create(QualityProfileDto, RuleKey, org.sonar.db.DbSession)}, without db access
+   */
+  RuleActivatorContext createContext(String profileKey, RuleKey ruleKey) {
+    QualityProfileDto p = profilesByKey.get(profileKey);
+    if (p == null) {
+      throw new BadRequestException("Quality profile not found: " + profileKey);
+    }
+    RuleDto rule = rulesByKey.get(ruleKey);
+    if (rule == null) {
+      throw new BadRequestException("Rule not found: " + ruleKey);
+    }
+    RuleActivatorContext context = new RuleActivatorContext()
+      .setProfile(p)
+      .setRule(rule)
+      .setRuleParams(ruleParamsByRuleKey.get(ruleKey));
+    ActiveRuleDto activeRule = activeRulesByKey.get(ActiveRuleKey.of(profileKey, ruleKey));
+    context.setActiveRule(activeRule);
+    context.setActiveRuleParams(activeRuleParams(activeRule));
+    String parentKey = p.getParentKee();
+    if (parentKey != null) {
+      ActiveRuleDto parentActiveRule = activeRulesByKey.get(ActiveRuleKey.of(parentKey, ruleKey));
+      context.setParentActiveRule(parentActiveRule);
+      context.setParentActiveRuleParams(activeRuleParams(parentActiveRule));
+    }
+    return context;
+  }
+
+  @CheckForNull
+  private List<ActiveRuleParamDto> activeRuleParams(@Nullable ActiveRuleDto activeRule) {
+    if (activeRule == null) {
+      return null;
+    }
+    // copy, as the context may be modified while the change is persisted
+    return new ArrayList<>(activeRuleParamsByActiveRuleId.get(activeRule.getId()));
+  }
+
+  void putActiveRule(ActiveRuleDto activeRule, Collection<ActiveRuleParamDto> params) {
+    activeRulesByKey.put(activeRule.getKey(), activeRule);
+    activeRuleParamsByActiveRuleId.replaceValues(activeRule.getId(), params);
+  }
+
+  void removeActiveRule(ActiveRuleKey key) {
+    ActiveRuleDto activeRule = activeRulesByKey.remove(key);
+    if (activeRule != null) {
+      activeRuleParamsByActiveRuleId.removeAll(activeRule.getId());
+    }
+  }
+
+  void markAsUpdated(QualityProfileDto p) {
+    updatedProfiles.put(p.getKey(), p);
+  }
+
+  Collection<QualityProfileDto> updatedProfiles() {
+    return updatedProfiles.values();
+  }
+}
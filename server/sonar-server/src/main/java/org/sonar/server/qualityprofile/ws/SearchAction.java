@@ -36,7 +36,7 @@ import org.sonarqube.ws.client.qualityprofile.SearchWsRequest;
 import static java.lang.String.format;
 import static java.util.function.Function.identity;
 import static org.sonar.api.utils.DateUtils.formatDateTime;
-import static org.sonar.server.ws.WsUtils.writeProtobuf;
+import static org.sonar.server.ws.WsUtils.writeCacheableProtobuf;
 import static org.sonarqube.ws.client.qualityprofile.QualityProfileWsParameters.*;
 
 public class SearchAction implements QProfileWsAction {
@@ -85,7 +85,7 @@ public class SearchAction implements QProfileWsAction {
   @Override
   public void handle(Request request, Response response) throws Exception {
     SearchWsResponse searchWsResponse = doHandle(toSearchWsRequest(request));
-    writeProtobuf(searchWsResponse, request, response);
+    writeCacheableProtobuf(searchWsResponse, request, response);
   }
 
   private static SearchWsRequest toSearchWsRequest(Request request) {
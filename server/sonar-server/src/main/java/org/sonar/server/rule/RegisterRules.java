@@ -20,14 +20,16 @@
 package org.sonar.server.rule;
 
 import com.google.common.base.Function;
-import com.google.common.base.Optional;
+import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Maps;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import javax.annotation.Nonnull;
@@ -70,6 +72,11 @@ public class RegisterRules implements Startable {
 
   private static final Logger LOG = Loggers.get(RegisterRules.class);
 
+  /**
+   * Internal property storing the fingerprints of the repositories registered by the last startup
+   */
+  static final String FINGERPRINTS_PROPERTY = "rules.fingerprints";
+
   private final RuleDefinitionsLoader defLoader;
   private final RuleActivator ruleActivator;
   private final DbClient dbClient;
@@ -95,21 +102,31 @@ public class RegisterRules implements Startable {
     DbSession session = dbClient.openSession(false);
     try {
       Map<RuleKey, RuleDto> allRules = loadRules(session);
+      Map<Integer, RuleDto> rulesById = allRules.values().stream().collect(Collectors.uniqueIndex(RuleDto::getId));
+      Map<String, String> previousFingerprints = RuleRepositoryFingerprint.parse(
+        dbClient.internalPropertiesDao().selectByKey(session, FINGERPRINTS_PROPERTY).orElse(null));
+      Map<String, String> fingerprints = new LinkedHashMap<>();
 
       RulesDefinition.Context context = defLoader.load();
-      for (RulesDefinition.ExtendedRepository repoDef : getRepositories(context)) {
-        if (languages.get(repoDef.language()) != null) {
-          for (RulesDefinition.Rule ruleDef : repoDef.rules()) {
-            registerRule(ruleDef, allRules, session);
-          }
+      for (Map.Entry<String, List<RulesDefinition.ExtendedRepository>> repoDefs : getRepositoriesByKey(context).entrySet()) {
+        String fingerprint = RuleRepositoryFingerprint.of(repoDefs.getValue());
+        fingerprints.put(repoDefs.getKey(), fingerprint);
+        if (fingerprint.equals(previousFingerprints.get(repoDefs.getKey())) && skipRules(repoDefs.getValue(), allRules)) {
+          LOG.debug("Rules of repository {} are up-to-date", repoDefs.getKey());
+        } else {
+          registerRules(repoDefs.getValue(), allRules, session);
           session.commit();
         }
       }
-      List<RuleDto> activeRules = processRemainingDbRules(allRules.values(), session);
+      List<RuleDto> activeRules = processRemainingDbRules(allRules.values(), rulesById, session);
       List<ActiveRuleChange> changes = removeActiveRulesOnStillExistingRepositories(session, activeRules, context);
       session.commit();
 
       persistRepositories(session, context.repositories());
+      if (!fingerprints.equals(previousFingerprints)) {
+        saveFingerprints(session, fingerprints);
+      }
+      // only the rules with a new update date are indexed
       ruleIndexer.index();
       activeRuleIndexer.index(changes);
       profiler.stopDebug();
@@ -118,6 +135,15 @@ public class RegisterRules implements Startable {
     }
   }
 
+  private void saveFingerprints(DbSession dbSession, Map<String, String> fingerprints) {
+    if (fingerprints.isEmpty()) {
+      dbClient.internalPropertiesDao().saveAsEmpty(dbSession, FINGERPRINTS_PROPERTY);
+    } else {
+      dbClient.internalPropertiesDao().save(dbSession, FINGERPRINTS_PROPERTY, RuleRepositoryFingerprint.format(fingerprints));
+    }
+    dbSession.commit();
+  }
+
   private void persistRepositories(DbSession dbSession, List<RulesDefinition.Repository> repositories) {
     dbClient.ruleRepositoryDao().truncate(dbSession);
     List<RuleRepositoryDto> dtos = repositories
@@ -133,7 +159,50 @@ public class RegisterRules implements Startable {
     // nothing
   }
 
-  private void registerRule(RulesDefinition.Rule ruleDef, Map<RuleKey, RuleDto> allRules, DbSession session) {
+  /**
+   * Rules of a repository which fingerprint did not change since last startup are kept as-is, unless
+   * some of them are missing or have been removed in db.
+   */
+  private static boolean skipRules(List<RulesDefinition.ExtendedRepository> repoDefs, Map<RuleKey, RuleDto> allRules) {
+    for (RulesDefinition.ExtendedRepository repoDef : repoDefs) {
+      for (RulesDefinition.Rule ruleDef : repoDef.rules()) {
+        RuleDto rule = allRules.get(RuleKey.of(repoDef.key(), ruleDef.key()));
+        if (rule == null || (rule.getStatus() == RuleStatus.REMOVED && ruleDef.status() != RuleStatus.REMOVED)) {
+          return false;
+        }
+      }
+    }
+    for (RulesDefinition.ExtendedRepository repoDef : repoDefs) {
+      for (RulesDefinition.Rule ruleDef : repoDef.rules()) {
+        allRules.remove(RuleKey.of(repoDef.key(), ruleDef.key()));
+      }
+    }
+    return true;
+  }
+
+  private void registerRules(List<RulesDefinition.ExtendedRepository> repoDefs, Map<RuleKey, RuleDto> allRules, DbSession session) {
+    List<Integer> existingRuleIds = new ArrayList<>();
+    for (RulesDefinition.ExtendedRepository repoDef : repoDefs) {
+      for (RulesDefinition.Rule ruleDef : repoDef.rules()) {
+        RuleDto rule = allRules.get(RuleKey.of(repoDef.key(), ruleDef.key()));
+        if (rule != null) {
+          existingRuleIds.add(rule.getId());
+        }
+      }
+    }
+    ListMultimap<Integer, RuleParamDto> paramsByRuleId = ArrayListMultimap.create();
+    for (RuleParamDto param : dbClient.ruleDao().selectRuleParamsByRuleIds(session, existingRuleIds)) {
+      paramsByRuleId.put(param.getRuleId(), param);
+    }
+    for (RulesDefinition.ExtendedRepository repoDef : repoDefs) {
+      for (RulesDefinition.Rule ruleDef : repoDef.rules()) {
+        registerRule(ruleDef, allRules, paramsByRuleId, session);
+      }
+    }
+  }
+
+  private void registerRule(RulesDefinition.Rule ruleDef, Map<RuleKey, RuleDto> allRules, ListMultimap<Integer, RuleParamDto> paramsByRuleId,
+    DbSession session) {
     RuleKey ruleKey = RuleKey.of(ruleDef.repository().key(), ruleDef.key());
 
     RuleDto rule = allRules.containsKey(ruleKey) ? allRules.remove(ruleKey) : createRuleDto(ruleDef, session);
@@ -155,7 +224,7 @@ public class RegisterRules implements Startable {
       update(session, rule);
     }
 
-    mergeParams(ruleDef, rule, session);
+    mergeParams(ruleDef, rule, paramsByRuleId.get(rule.getId()), session);
   }
 
   private Map<RuleKey, RuleDto> loadRules(DbSession session) {
@@ -166,6 +235,19 @@ public class RegisterRules implements Startable {
     return rules;
   }
 
+  /**
+   * Repositories of installed languages, grouped with their extensions
+   */
+  private Map<String, List<RulesDefinition.ExtendedRepository>> getRepositoriesByKey(RulesDefinition.Context context) {
+    Map<String, List<RulesDefinition.ExtendedRepository>> result = new LinkedHashMap<>();
+    for (RulesDefinition.ExtendedRepository repoDef : getRepositories(context)) {
+      if (languages.get(repoDef.language()) != null) {
+        result.computeIfAbsent(repoDef.key(), k -> new ArrayList<>()).add(repoDef);
+      }
+    }
+    return result;
+  }
+
   private List<RulesDefinition.ExtendedRepository> getRepositories(RulesDefinition.Context context) {
     List<RulesDefinition.ExtendedRepository> repositories = new ArrayList<>();
     for (RulesDefinition.Repository repoDef : context.repositories()) {
@@ -296,8 +378,7 @@ public class RegisterRules implements Startable {
     return changed;
   }
 
-  private void mergeParams(RulesDefinition.Rule ruleDef, RuleDto rule, DbSession session) {
-    List<RuleParamDto> paramDtos = dbClient.ruleDao().selectRuleParamsByRuleKey(session, rule.getKey());
+  private void mergeParams(RulesDefinition.Rule ruleDef, RuleDto rule, List<RuleParamDto> paramDtos, DbSession session) {
     Map<String, RuleParamDto> existingParamsByName = Maps.newHashMap();
 
     for (RuleParamDto paramDto : paramDtos) {
@@ -370,7 +451,7 @@ public class RegisterRules implements Startable {
     return changed;
   }
 
-  private List<RuleDto> processRemainingDbRules(Collection<RuleDto> existingRules, DbSession session) {
+  private List<RuleDto> processRemainingDbRules(Collection<RuleDto> existingRules, Map<Integer, RuleDto> rulesById, DbSession session) {
     // custom rules check status of template, so they must be processed at the end
     List<RuleDto> customRules = newArrayList();
     List<RuleDto> removedRules = newArrayList();
@@ -386,9 +467,10 @@ public class RegisterRules implements Startable {
     for (RuleDto customRule : customRules) {
       Integer templateId = customRule.getTemplateId();
       checkNotNull(templateId, "Template id of the custom rule '%s' is null", customRule);
-      Optional<RuleDto> template = dbClient.ruleDao().selectById(templateId, session);
-      if (template.isPresent() && template.get().getStatus() != RuleStatus.REMOVED) {
-        if (updateCustomRuleFromTemplateRule(customRule, template.get())) {
+      // template rules are up-to-date in memory
+      RuleDto template = rulesById.get(templateId);
+      if (template != null && template.getStatus() != RuleStatus.REMOVED) {
+        if (updateCustomRuleFromTemplateRule(customRule, template)) {
           update(session, customRule);
         }
       } else {
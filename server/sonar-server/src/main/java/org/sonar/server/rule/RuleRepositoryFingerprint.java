@@ -0,0 +1,136 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.rule;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import javax.annotation.Nullable;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.sonar.api.server.debt.DebtRemediationFunction;
+import org.sonar.api.server.rule.RulesDefinition;
+
+/**
+ * Hash of everything that {@link RegisterRules} persists for a repository, including its extensions.
+ * Two definitions with the same fingerprint lead to the same rows in db.
+ */
+class RuleRepositoryFingerprint {
+
+  /**
+   * To be incremented when the way rules are registered changes, so that all repositories are
+   * registered again.
+   */
+  private static final int FORMAT_VERSION = 1;
+  private static final char FIELD_SEPARATOR = '\u0000';
+  private static final char LINE_SEPARATOR = '\n';
+  private static final char KEY_VALUE_SEPARATOR = '=';
+
+  private RuleRepositoryFingerprint() {
+    // only static methods
+  }
+
+  static String of(List<RulesDefinition.ExtendedRepository> repositories) {
+    MessageDigest digest = DigestUtils.getSha1Digest();
+    update(digest, String.valueOf(FORMAT_VERSION));
+    update(digest, RegisterRules.class.getPackage().getImplementationVersion());
+    for (RulesDefinition.ExtendedRepository repository : repositories) {
+      update(digest, repository.key());
+      update(digest, repository.language());
+      if (repository instanceof RulesDefinition.Repository) {
+        update(digest, ((RulesDefinition.Repository) repository).name());
+      }
+      List<RulesDefinition.Rule> rules = new ArrayList<>(repository.rules());
+      rules.sort(Comparator.comparing(RulesDefinition.Rule::key));
+      for (RulesDefinition.Rule rule : rules) {
+        update(digest, rule);
+      }
+    }
+    return Hex.encodeHexString(digest.digest());
+  }
+
+  private static void update(MessageDigest digest, RulesDefinition.Rule rule) {
+    update(digest, rule.key());
+    update(digest, rule.name());
+    update(digest, rule.htmlDescription());
+    update(digest, rule.markdownDescription());
+    update(digest, rule.internalKey());
+    update(digest, rule.severity());
+    update(digest, String.valueOf(rule.template()));
+    update(digest, rule.status().name());
+    update(digest, rule.type().name());
+    update(digest, rule.gapDescription());
+    DebtRemediationFunction function = rule.debtRemediationFunction();
+    if (function != null) {
+      update(digest, function.type().name());
+      update(digest, function.gapMultiplier());
+      update(digest, function.baseEffort());
+    }
+    for (String tag : new TreeSet<>(rule.tags())) {
+      update(digest, tag);
+    }
+    List<RulesDefinition.Param> params = new ArrayList<>(rule.params());
+    params.sort(Comparator.comparing(RulesDefinition.Param::key));
+    for (RulesDefinition.Param param : params) {
+      update(digest, param.key());
+      update(digest, param.description());
+      update(digest, param.defaultValue());
+      update(digest, param.type().toString());
+    }
+    digest.update((byte) LINE_SEPARATOR);
+  }
+
+  private static void update(MessageDigest digest, @Nullable String s) {
+    if (s != null) {
+      digest.update(s.getBytes(StandardCharsets.UTF_8));
+    }
+    digest.update((byte) FIELD_SEPARATOR);
+  }
+
+  /**
+   * Fingerprints by repository key, as stored in db
+   */
+  static String format(Map<String, String> fingerprintsByRepositoryKey) {
+    StringBuilder sb = new StringBuilder();
+    for (Map.Entry<String, String> entry : fingerprintsByRepositoryKey.entrySet()) {
+      sb.append(entry.getKey()).append(KEY_VALUE_SEPARATOR).append(entry.getValue()).append(LINE_SEPARATOR);
+    }
+    return sb.toString();
+  }
+
+  static Map<String, String> parse(@Nullable String s) {
+    Map<String, String> result = new LinkedHashMap<>();
+    if (s == null) {
+      return result;
+    }
+    for (String line : s.split(String.valueOf(LINE_SEPARATOR))) {
+      int index = line.lastIndexOf(KEY_VALUE_SEPARATOR);
+      if (index > 0) {
+        result.put(line.substring(0, index), line.substring(index + 1));
+      }
+    }
+    return result;
+  }
+}
@@ -22,11 +22,13 @@ package org.sonar.server.search;
 import org.sonar.core.platform.Module;
 import org.sonar.server.es.EsClientProvider;
 import org.sonar.server.es.EsClientStopper;
+import org.sonar.server.es.FacetCache;
 
 public class EsSearchModule extends Module {
   @Override
   protected void configureModule() {
     add(new EsClientProvider());
     add(EsClientStopper.class);
+    add(FacetCache.class);
   }
 }
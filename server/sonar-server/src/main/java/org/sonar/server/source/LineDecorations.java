@@ -0,0 +1,141 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.source;
+
+import java.util.Arrays;
+import javax.annotation.Nullable;
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Highlighting and symbol references of a single line, parsed into offsets sorted in the order
+ * the HTML tags must be opened and closed. Unlike {@link HtmlTextDecorator}, the line is rendered
+ * in a single pass, so it must not contain end of line characters.
+ */
+final class LineDecorations {
+
+  private static final String ENTITY_SEPARATOR = ";";
+  private static final String FIELD_SEPARATOR = ",";
+  private static final String SYMBOL_PREFIX = "sym-";
+  private static final String SYMBOL_SUFFIX = " sym";
+  private static final String OPENING_TAG_PREFIX = "<span class=\"";
+  private static final String OPENING_TAG_SUFFIX = "\">";
+  private static final String CLOSING_TAG = "</span>";
+
+  private final int[] openingOffsets;
+  private final String[] cssClasses;
+  private final int[] closingOffsets;
+
+  private LineDecorations(int[] openingOffsets, String[] cssClasses, int[] closingOffsets) {
+    this.openingOffsets = openingOffsets;
+    this.cssClasses = cssClasses;
+    this.closingOffsets = closingOffsets;
+  }
+
+  static LineDecorations parse(@Nullable String highlighting, @Nullable String symbols) {
+    String[] rules = StringUtils.isNotBlank(highlighting) ? highlighting.split(ENTITY_SEPARATOR) : new String[0];
+    String[] references = StringUtils.isNotBlank(symbols) ? symbols.split(ENTITY_SEPARATOR) : new String[0];
+    int maxTags = rules.length + references.length;
+    int[] openings = new int[maxTags];
+    String[] classes = new String[maxTags];
+    int[] closings = new int[maxTags];
+    int count = 0;
+    for (String rule : rules) {
+      String[] fields = rule.split(FIELD_SEPARATOR);
+      int startOffset = Integer.parseInt(fields[0]);
+      int endOffset = Integer.parseInt(fields[1]);
+      if (startOffset < endOffset) {
+        openings[count] = startOffset;
+        classes[count] = fields[2];
+        closings[count] = endOffset;
+        count++;
+      }
+    }
+    for (String reference : references) {
+      String[] fields = reference.split(FIELD_SEPARATOR);
+      openings[count] = Integer.parseInt(fields[0]);
+      closings[count] = Integer.parseInt(fields[1]);
+      classes[count] = SYMBOL_PREFIX + Integer.parseInt(fields[2]) + SYMBOL_SUFFIX;
+      count++;
+    }
+    return sort(openings, classes, Arrays.copyOf(closings, count), count);
+  }
+
+  /**
+   * Tags starting at the same offset are opened in the order they are declared, highlighting first.
+   */
+  private static LineDecorations sort(int[] openings, String[] classes, int[] closings, int count) {
+    long[] keys = new long[count];
+    for (int i = 0; i < count; i++) {
+      keys[i] = ((long) openings[i] << 32) | i;
+    }
+    Arrays.sort(keys);
+    int[] sortedOpenings = new int[count];
+    String[] sortedClasses = new String[count];
+    for (int i = 0; i < count; i++) {
+      int index = (int) keys[i];
+      sortedOpenings[i] = openings[index];
+      sortedClasses[i] = classes[index];
+    }
+    Arrays.sort(closings);
+    return new LineDecorations(sortedOpenings, sortedClasses, closings);
+  }
+
+  String toHtml(String line) {
+    StringBuilder html = new StringBuilder(line.length() + cssClasses.length * 32);
+    int opening = 0;
+    int closing = 0;
+    int openTags = 0;
+    for (int offset = 0; offset < line.length(); offset++) {
+      while (closing < closingOffsets.length && closingOffsets[closing] == offset) {
+        if (openTags > 0) {
+          html.append(CLOSING_TAG);
+          openTags--;
+        }
+        closing++;
+      }
+      while (opening < openingOffsets.length && openingOffsets[opening] == offset) {
+        html.append(OPENING_TAG_PREFIX).append(cssClasses[opening]).append(OPENING_TAG_SUFFIX);
+        openTags++;
+        opening++;
+      }
+      appendEscaped(line.charAt(offset), html);
+    }
+    for (; openTags > 0; openTags--) {
+      html.append(CLOSING_TAG);
+    }
+    return html.toString();
+  }
+
+  private static void appendEscaped(char c, StringBuilder html) {
+    switch (c) {
+      case HtmlTextDecorator.HTML_OPENING:
+        html.append(HtmlTextDecorator.ENCODED_HTML_OPENING);
+        break;
+      case HtmlTextDecorator.HTML_CLOSING:
+        html.append(HtmlTextDecorator.ENCODED_HTML_CLOSING);
+        break;
+      case HtmlTextDecorator.AMPERSAND:
+        html.append(HtmlTextDecorator.ENCODED_AMPERSAND);
+        break;
+      default:
+        html.append(c);
+    }
+  }
+}
@@ -24,8 +24,15 @@ import com.google.common.base.Functions;
 import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.FluentIterable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.protobuf.DbFileSources;
@@ -33,8 +40,17 @@ import org.sonar.db.source.FileSourceDto;
 
 public class SourceService {
 
+  /**
+   * Maximum number of characters of the HTML lines kept in memory
+   */
+  private static final long HTML_CACHE_MAX_CHARS = 20_000_000L;
+
   private final DbClient dbClient;
   private final HtmlSourceDecorator htmlDecorator;
+  private final Cache<String, String[]> htmlLinesByDataHash = CacheBuilder.newBuilder()
+    .maximumWeight(HTML_CACHE_MAX_CHARS)
+    .weigher((String dataHash, String[] htmlLines) -> weigh(htmlLines))
+    .build();
 
   public SourceService(DbClient dbClient, HtmlSourceDecorator htmlDecorator) {
     this.dbClient = dbClient;
@@ -58,13 +74,66 @@ public class SourceService {
     return getLines(dbSession, fileUuid, from, toInclusive, LineToRaw.INSTANCE);
   }
 
+  /**
+   * Returns a range of lines as HTML.
+   * @see #getLinesAsHtml(DbSession, String, int, int, BiFunction)
+   */
   public Optional<Iterable<String>> getLinesAsHtml(DbSession dbSession, String fileUuid, int from, int toInclusive) {
-    return getLines(dbSession, fileUuid, from, toInclusive, lineToHtml());
+    return getLinesAsHtml(dbSession, fileUuid, from, toInclusive, (line, html) -> html);
+  }
+
+  /**
+   * Returns a range of lines, each of them transformed along with its HTML rendering. User permission is not verified.
+   * The rendering of all the lines of a file is kept in memory, so that the files displayed again are
+   * not decorated again while their data hash does not change.
+   * @see #getLines(DbSession, String, int, int)
+   */
+  public <E> Optional<Iterable<E>> getLinesAsHtml(DbSession dbSession, String fileUuid, int from, int toInclusive,
+    BiFunction<DbFileSources.Line, String, E> function) {
+    verifyRange(from, toInclusive);
+    FileSourceDto dto = dbClient.fileSourceDao().selectSourceByFileUuid(dbSession, fileUuid);
+    if (dto == null) {
+      return Optional.absent();
+    }
+    List<DbFileSources.Line> lines = dto.getSourceData().getLinesList();
+    String[] htmlLines = getHtmlLines(dto.getDataHash(), lines);
+    IsGreaterOrEqualThanLine filter = new IsGreaterOrEqualThanLine(from);
+    List<E> result = new ArrayList<>();
+    for (int i = 0; i < lines.size() && result.size() <= toInclusive - from; i++) {
+      DbFileSources.Line line = lines.get(i);
+      if (filter.apply(line)) {
+        result.add(function.apply(line, htmlLines == null ? toHtml(line) : htmlLines[i]));
+      }
+    }
+    return Optional.of(result);
+  }
+
+  @CheckForNull
+  private String[] getHtmlLines(@Nullable String dataHash, List<DbFileSources.Line> lines) {
+    if (dataHash == null) {
+      return null;
+    }
+    String[] htmlLines = htmlLinesByDataHash.getIfPresent(dataHash);
+    if (htmlLines == null) {
+      htmlLines = new String[lines.size()];
+      for (int i = 0; i < htmlLines.length; i++) {
+        htmlLines[i] = toHtml(lines.get(i));
+      }
+      htmlLinesByDataHash.put(dataHash, htmlLines);
+    }
+    return htmlLines;
+  }
+
+  private static int weigh(String[] htmlLines) {
+    int chars = 0;
+    for (String htmlLine : htmlLines) {
+      chars += htmlLine == null ? 0 : htmlLine.length();
+    }
+    return chars;
   }
 
   private <E> Optional<Iterable<E>> getLines(DbSession dbSession, String fileUuid, int from, int toInclusive, Function<DbFileSources.Line, E> function) {
-    verifyLine(from);
-    Preconditions.checkArgument(toInclusive >= from, String.format("Line number must greater than or equal to %d, got %d", from, toInclusive));
+    verifyRange(from, toInclusive);
     FileSourceDto dto = dbClient.fileSourceDao().selectSourceByFileUuid(dbSession, fileUuid);
     if (dto == null) {
       return Optional.absent();
@@ -76,12 +145,14 @@ public class SourceService {
       .transform(function));
   }
 
-  private static void verifyLine(int line) {
-    Preconditions.checkArgument(line >= 1, String.format("Line number must start at 1, got %d", line));
+  private static void verifyRange(int from, int toInclusive) {
+    Preconditions.checkArgument(from >= 1, String.format("Line number must start at 1, got %d", from));
+    Preconditions.checkArgument(toInclusive >= from, String.format("Line number must greater than or equal to %d, got %d", from, toInclusive));
   }
 
-  private Function<DbFileSources.Line, String> lineToHtml() {
-    return line -> htmlDecorator.getDecoratedSourceAsHtml(line.getSource(), line.getHighlighting(), line.getSymbols());
+  @CheckForNull
+  private String toHtml(DbFileSources.Line line) {
+    return htmlDecorator.getDecoratedSourceAsHtml(line.getSource(), line.getHighlighting(), line.getSymbols());
   }
 
   private enum LineToRaw implements Function<DbFileSources.Line, String> {
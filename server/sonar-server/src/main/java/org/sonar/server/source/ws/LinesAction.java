@@ -23,6 +23,7 @@ import com.google.common.base.MoreObjects;
 import com.google.common.base.Optional;
 import com.google.common.io.Resources;
 import java.util.Date;
+import javax.annotation.Nullable;
 import org.sonar.api.server.ws.Request;
 import org.sonar.api.server.ws.Response;
 import org.sonar.api.server.ws.WebService;
@@ -35,7 +36,6 @@ import org.sonar.db.component.ComponentDto;
 import org.sonar.db.protobuf.DbFileSources;
 import org.sonar.server.component.ComponentFinder;
 import org.sonar.server.exceptions.NotFoundException;
-import org.sonar.server.source.HtmlSourceDecorator;
 import org.sonar.server.source.SourceService;
 import org.sonar.server.user.UserSession;
 
@@ -51,15 +51,12 @@ public class LinesAction implements SourcesWsAction {
 
   private final ComponentFinder componentFinder;
   private final SourceService sourceService;
-  private final HtmlSourceDecorator htmlSourceDecorator;
   private final DbClient dbClient;
   private final UserSession userSession;
 
-  public LinesAction(ComponentFinder componentFinder, DbClient dbClient, SourceService sourceService,
-                     HtmlSourceDecorator htmlSourceDecorator, UserSession userSession) {
+  public LinesAction(ComponentFinder componentFinder, DbClient dbClient, SourceService sourceService, UserSession userSession) {
     this.componentFinder = componentFinder;
     this.sourceService = sourceService;
-    this.htmlSourceDecorator = htmlSourceDecorator;
     this.dbClient = dbClient;
     this.userSession = userSession;
   }
@@ -121,7 +118,7 @@ public class LinesAction implements SourcesWsAction {
       int from = request.mandatoryParamAsInt(PARAM_FROM);
       int to = MoreObjects.firstNonNull(request.paramAsInt(PARAM_TO), Integer.MAX_VALUE);
 
-      Optional<Iterable<DbFileSources.Line>> lines = sourceService.getLines(dbSession, file.uuid(), from, to);
+      Optional<Iterable<HtmlLine>> lines = sourceService.getLinesAsHtml(dbSession, file.uuid(), from, to, HtmlLine::new);
       if (!lines.isPresent()) {
         throw new NotFoundException();
       }
@@ -134,12 +131,13 @@ public class LinesAction implements SourcesWsAction {
     }
   }
 
-  private void writeSource(Iterable<DbFileSources.Line> lines, JsonWriter json) {
+  private static void writeSource(Iterable<HtmlLine> htmlLines, JsonWriter json) {
     json.name("sources").beginArray();
-    for (DbFileSources.Line line : lines) {
+    for (HtmlLine htmlLine : htmlLines) {
+      DbFileSources.Line line = htmlLine.line;
       json.beginObject()
         .prop("line", line.getLine())
-        .prop("code", htmlSourceDecorator.getDecoratedSourceAsHtml(line.getSource(), line.getHighlighting(), line.getSymbols()))
+        .prop("code", htmlLine.html)
         .prop("scmAuthor", line.getScmAuthor())
         .prop("scmRevision", line.getScmRevision());
       if (line.hasScmDate()) {
@@ -169,4 +167,13 @@ public class LinesAction implements SourcesWsAction {
     json.endArray();
   }
 
+  private static class HtmlLine {
+    private final DbFileSources.Line line;
+    private final String html;
+
+    HtmlLine(DbFileSources.Line line, @Nullable String html) {
+      this.line = line;
+      this.html = html;
+    }
+  }
 }
@@ -0,0 +1,217 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.user;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.server.ServerSide;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbClient;
+import org.sonar.db.component.ResourceDto;
+import org.sonar.db.user.AuthorizationDao;
+
+/**
+ * Projects that users are authorized to access, shared by the {@link ServerUserSession} of all the requests.
+ * <p/>
+ * Must be invalidated when permissions, groups, group memberships, users or component keys are changed, and when
+ * components are deleted. As permissions can also be granted by the Compute Engine (permission template applied
+ * on new projects), a project missing from the cached set is reloaded, at most once every
+ * {@link #MIN_RELOAD_INTERVAL_IN_MS} ms.
+ */
+@ServerSide
+public class AuthorizationCache {
+
+  @VisibleForTesting
+  static final long MIN_RELOAD_INTERVAL_IN_MS = 5_000L;
+  private static final long EXPIRATION_IN_MINUTES = 5L;
+  private static final long MAX_CACHED_PROJECTS = 1_000_000L;
+  private static final long MAX_CACHED_COMPONENTS = 100_000L;
+
+  private final DbClient dbClient;
+  private final System2 system2;
+  private final Cache<ProjectSetKey, ProjectSet> projectSets = CacheBuilder.newBuilder()
+    .expireAfterWrite(EXPIRATION_IN_MINUTES, TimeUnit.MINUTES)
+    .maximumWeight(MAX_CACHED_PROJECTS)
+    .weigher((ProjectSetKey key, ProjectSet projects) -> projects.size() + 1)
+    .build();
+  private final Cache<String, String> rootProjectKeyByComponentKey = newComponentCache();
+  private final Cache<String, String> projectUuidByComponentUuid = newComponentCache();
+
+  public AuthorizationCache(DbClient dbClient, System2 system2) {
+    this.dbClient = dbClient;
+    this.system2 = system2;
+  }
+
+  private static Cache<String, String> newComponentCache() {
+    return CacheBuilder.newBuilder()
+      .expireAfterWrite(EXPIRATION_IN_MINUTES, TimeUnit.MINUTES)
+      .maximumSize(MAX_CACHED_COMPONENTS)
+      .build();
+  }
+
+  public boolean hasRootProjectPermissionByKey(@Nullable Integer userId, String permission, String projectKey) {
+    return hasRootProjectPermission(new ProjectSetKey(userId, permission, false), projectKey);
+  }
+
+  public boolean hasRootProjectPermissionByUuid(@Nullable Integer userId, String permission, String projectUuid) {
+    return hasRootProjectPermission(new ProjectSetKey(userId, permission, true), projectUuid);
+  }
+
+  private boolean hasRootProjectPermission(ProjectSetKey key, String project) {
+    ProjectSet projects = get(projectSets, key, () -> load(key));
+    if (projects.contains(project)) {
+      return true;
+    }
+    if (system2.now() - projects.loadedAt < MIN_RELOAD_INTERVAL_IN_MS) {
+      return false;
+    }
+    ProjectSet reloaded = load(key);
+    projectSets.put(key, reloaded);
+    return reloaded.contains(project);
+  }
+
+  private ProjectSet load(ProjectSetKey key) {
+    AuthorizationDao authorizationDao = dbClient.authorizationDao();
+    Collection<String> projects = key.byUuid ? authorizationDao.selectAuthorizedRootProjectsUuids(key.userId, key.permission)
+      : authorizationDao.selectAuthorizedRootProjectsKeys(key.userId, key.permission);
+    return new ProjectSet(projects, system2.now());
+  }
+
+  /**
+   * Key of the root project of a component, or {@code null} if the component does not exist
+   */
+  @CheckForNull
+  public String getRootProjectKey(String componentKey) {
+    String projectKey = rootProjectKeyByComponentKey.getIfPresent(componentKey);
+    if (projectKey == null) {
+      ResourceDto project = dbClient.resourceDao().getRootProjectByComponentKey(componentKey);
+      if (project == null) {
+        return null;
+      }
+      projectKey = project.getKey();
+      rootProjectKeyByComponentKey.put(componentKey, projectKey);
+    }
+    return projectKey;
+  }
+
+  /**
+   * UUID of the project of a component, or {@code null} if the component does not exist
+   */
+  @CheckForNull
+  public String getProjectUuid(String componentUuid) {
+    String projectUuid = projectUuidByComponentUuid.getIfPresent(componentUuid);
+    if (projectUuid == null) {
+      ResourceDto component = dbClient.resourceDao().selectResource(componentUuid);
+      if (component == null) {
+        return null;
+      }
+      projectUuid = component.getProjectUuid();
+      projectUuidByComponentUuid.put(componentUuid, projectUuid);
+    }
+    return projectUuid;
+  }
+
+  /**
+   * To be called when the groups of a user are changed
+   */
+  public void invalidateUser(long userId) {
+    projectSets.asMap().keySet().removeIf(key -> key.userId != null && key.userId.longValue() == userId);
+  }
+
+  /**
+   * To be called when permissions or groups are changed, when users are deactivated and when components are
+   * deleted or their keys are changed
+   */
+  public void invalidate() {
+    projectSets.invalidateAll();
+    rootProjectKeyByComponentKey.invalidateAll();
+    projectUuidByComponentUuid.invalidateAll();
+  }
+
+  private static <K, V> V get(Cache<K, V> cache, K key, Callable<V> loader) {
+    try {
+      return cache.get(key, loader);
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      Throwables.propagateIfPossible(e.getCause());
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  private static final class ProjectSetKey {
+    private final Integer userId;
+    private final String permission;
+    private final boolean byUuid;
+
+    private ProjectSetKey(@Nullable Integer userId, String permission, boolean byUuid) {
+      this.userId = userId;
+      this.permission = permission;
+      this.byUuid = byUuid;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      ProjectSetKey that = (ProjectSetKey) o;
+      return byUuid == that.byUuid && Objects.equals(userId, that.userId) && permission.equals(that.permission);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(userId, permission, byUuid);
+    }
+  }
+
+  /**
+   * Sorted array of project keys or UUIDs, much more compact than a hash set
+   */
+  private static final class ProjectSet {
+    private final String[] sortedProjects;
+    private final long loadedAt;
+
+    private ProjectSet(Collection<String> projects, long loadedAt) {
+      this.sortedProjects = projects.stream().distinct().sorted().toArray(String[]::new);
+      this.loadedAt = loadedAt;
+    }
+
+    boolean contains(String project) {
+      return Arrays.binarySearch(sortedProjects, project) >= 0;
+    }
+
+    int size() {
+      return sortedProjects.length;
+    }
+  }
+}
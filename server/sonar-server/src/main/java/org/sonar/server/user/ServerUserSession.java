@@ -19,40 +19,35 @@
  */
 package org.sonar.server.user;
 
-import static com.google.common.collect.Maps.newHashMap;
 import static java.util.Objects.requireNonNull;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
-import org.sonar.db.component.ResourceDao;
-import org.sonar.db.component.ResourceDto;
 import org.sonar.db.user.AuthorizationDao;
 import org.sonar.db.user.GroupDto;
 import org.sonar.db.user.UserDto;
 
 /**
- * Part of the current HTTP session
+ * Part of the current HTTP session. Project permissions are read from the {@link AuthorizationCache}
+ * shared by all the requests.
  */
 public class ServerUserSession extends AbstractUserSession<ServerUserSession> {
-  private Map<String, String> projectKeyByComponentKey = newHashMap();
 
   private final DbClient dbClient;
   private final AuthorizationDao authorizationDao;
-  private final ResourceDao resourceDao;
+  private final AuthorizationCache authorizationCache;
 
-  private ServerUserSession(DbClient dbClient, @Nullable UserDto userDto) {
+  private ServerUserSession(DbClient dbClient, AuthorizationCache authorizationCache, @Nullable UserDto userDto) {
     super(ServerUserSession.class);
     this.dbClient = dbClient;
     this.authorizationDao = dbClient.authorizationDao();
-    this.resourceDao = dbClient.resourceDao();
+    this.authorizationCache = authorizationCache;
     this.globalPermissions = null;
     if(userDto != null){
       this.setLogin(userDto.getLogin());
@@ -62,13 +57,13 @@ public class ServerUserSession extends AbstractUserSession<ServerUserSession> {
     }
   }
 
-  public static ServerUserSession createForUser(DbClient dbClient, UserDto userDto){
+  public static ServerUserSession createForUser(DbClient dbClient, AuthorizationCache authorizationCache, UserDto userDto){
     requireNonNull(userDto, "UserDto must not be null");
-    return new ServerUserSession(dbClient, userDto);
+    return new ServerUserSession(dbClient, authorizationCache, userDto);
   }
 
-  public static ServerUserSession createForAnonymous(DbClient dbClient){
-    return new ServerUserSession(dbClient, null);
+  public static ServerUserSession createForAnonymous(DbClient dbClient, AuthorizationCache authorizationCache){
+    return new ServerUserSession(dbClient, authorizationCache, null);
   }
 
   private Set<String> getUserGroups(String userLogin) {
@@ -92,53 +87,14 @@ public class ServerUserSession extends AbstractUserSession<ServerUserSession> {
     return globalPermissions;
   }
 
-  private boolean hasProjectPermission(String permission, String projectKey) {
-    if (!projectPermissionsCheckedByKey.contains(permission)) {
-      Collection<String> projectKeys = authorizationDao.selectAuthorizedRootProjectsKeys(userId, permission);
-      for (String key : projectKeys) {
-        projectKeyByPermission.put(permission, key);
-      }
-      projectPermissionsCheckedByKey.add(permission);
-    }
-    return projectKeyByPermission.get(permission).contains(projectKey);
-  }
-
-  // To keep private
-  private boolean hasProjectPermissionByUuid(String permission, String projectUuid) {
-    if (!projectPermissionsCheckedByUuid.contains(permission)) {
-      Collection<String> projectUuids = authorizationDao.selectAuthorizedRootProjectsUuids(userId, permission);
-      addProjectPermission(permission, projectUuids);
-    }
-    return projectUuidByPermission.get(permission).contains(projectUuid);
-  }
-
-  private void addProjectPermission(String permission, Collection<String> authorizedProjectUuids) {
-    for (String key : authorizedProjectUuids) {
-      projectUuidByPermission.put(permission, key);
-    }
-    projectPermissionsCheckedByUuid.add(permission);
-  }
-
   @Override
   public boolean hasComponentPermission(String permission, String componentKey) {
     if (hasPermission(permission)) {
       return true;
     }
 
-    String projectKey = projectKeyByComponentKey.get(componentKey);
-    if (projectKey == null) {
-      ResourceDto project = resourceDao.getRootProjectByComponentKey(componentKey);
-      if (project == null) {
-        return false;
-      }
-      projectKey = project.getKey();
-    }
-    boolean hasComponentPermission = hasProjectPermission(permission, projectKey);
-    if (hasComponentPermission) {
-      projectKeyByComponentKey.put(componentKey, projectKey);
-      return true;
-    }
-    return false;
+    String projectKey = authorizationCache.getRootProjectKey(componentKey);
+    return projectKey != null && authorizationCache.hasRootProjectPermissionByKey(userId, permission, projectKey);
   }
 
   @Override
@@ -147,20 +103,8 @@ public class ServerUserSession extends AbstractUserSession<ServerUserSession> {
       return true;
     }
 
-    String projectUuid = projectUuidByComponentUuid.get(componentUuid);
-    if (projectUuid == null) {
-      ResourceDto project = resourceDao.selectResource(componentUuid);
-      if (project == null) {
-        return false;
-      }
-      projectUuid = project.getProjectUuid();
-    }
-    boolean hasComponentPermission = hasProjectPermissionByUuid(permission, projectUuid);
-    if (hasComponentPermission) {
-      projectUuidByComponentUuid.put(componentUuid, projectUuid);
-      return true;
-    }
-    return false;
+    String projectUuid = authorizationCache.getProjectUuid(componentUuid);
+    return projectUuid != null && authorizationCache.hasRootProjectPermissionByUuid(userId, permission, projectUuid);
   }
 
 }
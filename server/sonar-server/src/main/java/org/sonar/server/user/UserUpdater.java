@@ -72,13 +72,16 @@ public class UserUpdater {
   private final DbClient dbClient;
   private final UserIndexer userIndexer;
   private final System2 system2;
+  private final AuthorizationCache authorizationCache;
 
-  public UserUpdater(NewUserNotifier newUserNotifier, Settings settings, DbClient dbClient, UserIndexer userIndexer, System2 system2) {
+  public UserUpdater(NewUserNotifier newUserNotifier, Settings settings, DbClient dbClient, UserIndexer userIndexer, System2 system2,
+    AuthorizationCache authorizationCache) {
     this.newUserNotifier = newUserNotifier;
     this.settings = settings;
     this.dbClient = dbClient;
     this.userIndexer = userIndexer;
     this.system2 = system2;
+    this.authorizationCache = authorizationCache;
   }
 
   /**
@@ -98,13 +101,17 @@ public class UserUpdater {
     UserDto userDto = createNewUserDto(dbSession, newUser);
     String login = userDto.getLogin();
     UserDto existingUser = dbClient.userDao().selectByLogin(dbSession, userDto.getLogin());
+    UserDto user;
     if (existingUser == null) {
       saveUser(dbSession, userDto);
       addDefaultGroup(dbSession, userDto);
+      user = userDto;
     } else {
       isUserReactivated = reactivateUser(dbSession, existingUser, login, newUser);
+      user = existingUser;
     }
     dbSession.commit();
+    authorizationCache.invalidateUser(user.getId());
     notifyNewUser(userDto.getLogin(), userDto.getName(), newUser.email());
     userIndexer.index();
     return isUserReactivated;
@@ -161,6 +168,8 @@ public class UserUpdater {
     } finally {
       dbClient.closeSession(dbSession);
     }
+    // permissions and group memberships of the user are removed
+    authorizationCache.invalidate();
     userIndexer.index();
   }
 
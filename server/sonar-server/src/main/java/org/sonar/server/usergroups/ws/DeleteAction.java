@@ -31,6 +31,7 @@ import org.sonar.db.DbSession;
 import org.sonar.db.MyBatis;
 import org.sonar.db.permission.PermissionQuery;
 import org.sonar.db.user.GroupDto;
+import org.sonar.server.user.AuthorizationCache;
 import org.sonar.server.user.UserSession;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -43,13 +44,15 @@ public class DeleteAction implements UserGroupsWsAction {
   private final DbClient dbClient;
   private final UserGroupFinder userGroupFinder;
   private final UserSession userSession;
+  private final AuthorizationCache authorizationCache;
   private final Settings settings;
 
-  public DeleteAction(DbClient dbClient, UserGroupFinder userGroupFinder, UserSession userSession, Settings settings) {
+  public DeleteAction(DbClient dbClient, UserGroupFinder userGroupFinder, UserSession userSession, Settings settings, AuthorizationCache authorizationCache) {
     this.dbClient = dbClient;
     this.userGroupFinder = userGroupFinder;
     this.userSession = userSession;
     this.settings = settings;
+    this.authorizationCache = authorizationCache;
   }
 
   @Override
@@ -85,6 +88,7 @@ public class DeleteAction implements UserGroupsWsAction {
       dbClient.groupDao().deleteById(dbSession, groupId);
 
       dbSession.commit();
+      authorizationCache.invalidate();
       response.noContent();
     } finally {
       MyBatis.closeQuietly(dbSession);
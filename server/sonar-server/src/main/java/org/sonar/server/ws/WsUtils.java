@@ -20,22 +20,25 @@
 package org.sonar.server.ws;
 
 import com.google.common.base.Optional;
+import com.google.common.base.Splitter;
+import com.google.common.hash.Hashing;
+import com.google.common.net.HttpHeaders;
 import com.google.protobuf.Message;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
 import javax.annotation.Nullable;
 import org.apache.commons.io.IOUtils;
 import org.sonar.api.server.ws.Request;
 import org.sonar.api.server.ws.Response;
-import org.sonar.api.utils.text.JsonWriter;
-import org.sonar.core.util.ProtobufJsonFormat;
+import org.sonar.core.util.ProtobufJsonWriter;
 import org.sonar.server.exceptions.BadRequestException;
 import org.sonar.server.exceptions.NotFoundException;
 import org.sonarqube.ws.MediaTypes;
 import org.sonarqube.ws.MessageFormatter;
 
 import static java.lang.String.format;
+import static java.net.HttpURLConnection.HTTP_NOT_MODIFIED;
+import static org.apache.commons.lang.StringUtils.removeStart;
 
 public class WsUtils {
 
@@ -51,9 +54,7 @@ public class WsUtils {
         msg.writeTo(output);
       } else {
         response.stream().setMediaType(MediaTypes.JSON);
-        try (OutputStreamWriter writer = new OutputStreamWriter(output, StandardCharsets.UTF_8)) {
-          ProtobufJsonFormat.write(msg, JsonWriter.of(writer));
-        }
+        new ProtobufJsonWriter(output).write(msg).flush();
       }
     } catch (Exception e) {
       throw new IllegalStateException(format("Error while writing protobuf message %s", MessageFormatter.print(msg)), e);
@@ -62,6 +63,73 @@ public class WsUtils {
     }
   }
 
+  /**
+   * Same as {@link #writeProtobuf(Message, Request, Response)}, but clients can keep the response in cache. The ETag
+   * is the digest of the message.
+   */
+  public static void writeCacheableProtobuf(Message msg, Request request, Response response) {
+    if (!isNotModified(request, response, etagOf(request.getMediaType(), msg.toByteArray()))) {
+      writeProtobuf(msg, request, response);
+    }
+  }
+
+  /**
+   * Same as {@link #writeProtobuf(Message, Request, Response)}, but clients must not store the response, for example
+   * because it contains secured settings.
+   */
+  public static void writeNotStoredProtobuf(Message msg, Request request, Response response) {
+    setNotStored(response);
+    writeProtobuf(msg, request, response);
+  }
+
+  /**
+   * Forbids clients, including the disk cache of scanners, to store the response.
+   */
+  public static void setNotStored(Response response) {
+    response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-store");
+  }
+
+  /**
+   * Supports conditional requests. Clients can keep the response in cache, as long as they validate it
+   * with the header If-None-Match.
+   *
+   * @return true if the client already has the representation identified by {@code etag}. Status is then 304
+   * and the response body must not be written.
+   */
+  public static boolean isNotModified(Request request, Response response, String etag) {
+    String quotedEtag = "\"" + etag + "\"";
+    response.setHeader(HttpHeaders.ETAG, quotedEtag);
+    // responses depend on permissions of user, so they must not be stored by shared caches
+    response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+    java.util.Optional<String> ifNoneMatch = request.header(HttpHeaders.IF_NONE_MATCH);
+    if (ifNoneMatch.isPresent() && matchesETag(ifNoneMatch.get(), quotedEtag)) {
+      response.stream().setStatus(HTTP_NOT_MODIFIED);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * ETag of the content of a response. Representations in different media types have different ETags.
+   */
+  public static String etagOf(String mediaType, byte[] content) {
+    return Hashing.sha1().newHasher()
+      .putString(mediaType, StandardCharsets.UTF_8)
+      .putBytes(content)
+      .hash()
+      .toString();
+  }
+
+  private static boolean matchesETag(String ifNoneMatch, String quotedEtag) {
+    for (String candidate : Splitter.on(',').trimResults().omitEmptyStrings().split(ifNoneMatch)) {
+      // weak comparison, as defined for If-None-Match
+      if ("*".equals(candidate) || quotedEtag.equals(removeStart(candidate, "W/"))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   /**
    * @throws BadRequestException
    */
@@ -24,6 +24,7 @@ import java.io.IOException;
 import java.util.Optional;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
 import okio.Buffer;
 import org.junit.Before;
 import org.junit.Rule;
@@ -134,6 +135,34 @@ public class CeHttpClientTest {
     underTest.changeLogLevel(LoggerLevel.INFO);
   }
 
+  @Test
+  public void notifyNewTasks_posts_to_newTasks() throws Exception {
+    server.enqueue(new MockResponse().setResponseCode(200));
+    setUpWithHttpUrl(ProcessId.COMPUTE_ENGINE);
+
+    underTest.notifyNewTasks();
+
+    RecordedRequest request = server.takeRequest();
+    assertThat(request.getMethod()).isEqualTo("POST");
+    assertThat(request.getPath()).isEqualTo("/newTasks");
+  }
+
+  @Test
+  public void notifyNewTasks_throws_ISE_if_http_error() {
+    server.enqueue(new MockResponse().setResponseCode(500));
+    setUpWithHttpUrl(ProcessId.COMPUTE_ENGINE);
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("Failed to call HTTP server of process " + ProcessId.COMPUTE_ENGINE);
+
+    underTest.notifyNewTasks();
+  }
+
+  @Test
+  public void notifyNewTasks_does_not_fail_if_process_is_down() {
+    underTest.notifyNewTasks();
+  }
+
   private void setUpWithHttpUrl(ProcessId processId) {
     try (DefaultProcessCommands processCommands = DefaultProcessCommands.secondary(ipcSharedDir, processId.getIpcIndex())) {
       processCommands.setUp();
@@ -0,0 +1,82 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.http;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import org.junit.After;
+import org.junit.Test;
+import org.sonar.ce.queue.CeTask;
+
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+public class CeQueueHttpNotifierTest {
+
+  private CeHttpClient ceHttpClient = mock(CeHttpClient.class);
+  private CeQueueHttpNotifier underTest = new CeQueueHttpNotifier(ceHttpClient);
+
+  @After
+  public void tearDown() {
+    underTest.stop();
+  }
+
+  @Test
+  public void notify_compute_engine_of_submitted_tasks() {
+    underTest.onSubmit(Collections.singletonList(mock(CeTask.class)));
+
+    verify(ceHttpClient, timeout(1_000)).notifyNewTasks();
+  }
+
+  @Test
+  public void submitter_does_not_wait_for_notification() throws Exception {
+    CountDownLatch notified = new CountDownLatch(1);
+    doAnswer(invocation -> {
+      notified.await();
+      return null;
+    }).when(ceHttpClient).notifyNewTasks();
+
+    underTest.onSubmit(Collections.singletonList(mock(CeTask.class)));
+    underTest.onSubmit(Collections.singletonList(mock(CeTask.class)));
+    notified.countDown();
+
+    verify(ceHttpClient, timeout(1_000).atLeast(1)).notifyNewTasks();
+  }
+
+  @Test
+  public void do_not_notify_when_no_tasks_are_submitted() {
+    underTest.onSubmit(Collections.<CeTask>emptyList());
+
+    verifyZeroInteractions(ceHttpClient);
+  }
+
+  @Test
+  public void ignore_failure_of_notification() {
+    doThrow(new IllegalStateException("Compute Engine is down")).when(ceHttpClient).notifyNewTasks();
+
+    underTest.onSubmit(Collections.singletonList(mock(CeTask.class)));
+
+    verify(ceHttpClient, timeout(1_000)).notifyNewTasks();
+  }
+}
@@ -38,8 +38,11 @@ import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.ComponentTesting;
 
 import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 
 public class CeQueueImplTest {
 
@@ -83,6 +86,18 @@ public class CeQueueImplTest {
     verifyCeTask(taskSubmit, task, null);
   }
 
+  @Test
+  public void submit_and_massSubmit_notify_listeners_of_committed_tasks() {
+    CeQueueListener listener = mock(CeQueueListener.class);
+    CeQueue underTest = new CeQueueImpl(dbTester.getDbClient(), uuidFactory, new CeQueueListener[] {listener});
+
+    CeTask task = underTest.submit(createTaskSubmit(CeTaskTypes.REPORT, "PROJECT_1", "rob"));
+    List<CeTask> tasks = underTest.massSubmit(asList(createTaskSubmit("some type"), createTaskSubmit("other type")));
+
+    verify(listener).onSubmit(singletonList(task));
+    verify(listener).onSubmit(tasks);
+  }
+
   @Test
   public void submit_fails_with_ISE_if_paused() {
     underTest.pauseSubmit();
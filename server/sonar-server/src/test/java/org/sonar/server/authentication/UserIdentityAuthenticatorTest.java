@@ -42,6 +42,7 @@ import org.sonar.db.user.UserDao;
 import org.sonar.db.user.UserDto;
 import org.sonar.db.user.UserGroupDto;
 import org.sonar.db.user.UserTesting;
+import org.sonar.server.user.AuthorizationCache;
 import org.sonar.server.user.NewUserNotifier;
 import org.sonar.server.user.UserUpdater;
 import org.sonar.server.user.index.UserIndexer;
@@ -50,6 +51,7 @@ import static com.google.common.collect.Sets.newHashSet;
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 
 public class UserIdentityAuthenticatorTest {
 
@@ -86,14 +88,17 @@ public class UserIdentityAuthenticatorTest {
   HttpServletRequest request = mock(HttpServletRequest.class);
   HttpServletResponse response = mock(HttpServletResponse.class);
 
+  AuthorizationCache authorizationCache = mock(AuthorizationCache.class);
+
   UserUpdater userUpdater = new UserUpdater(
     mock(NewUserNotifier.class),
     settings,
     dbClient,
     mock(UserIndexer.class),
-    system2);
+    system2,
+    authorizationCache);
 
-  UserIdentityAuthenticator underTest = new UserIdentityAuthenticator(dbClient, userUpdater);
+  UserIdentityAuthenticator underTest = new UserIdentityAuthenticator(dbClient, userUpdater, authorizationCache);
 
   @Before
   public void setUp() throws Exception {
@@ -233,6 +238,7 @@ public class UserIdentityAuthenticatorTest {
     dbSession.commit();
 
     verifyUserGroups(USER_LOGIN, "group1");
+    verify(authorizationCache).invalidateUser(user.getId());
   }
 
   @Test
@@ -78,7 +78,8 @@ public class GlobalActionTest {
       ));
 
     WsTester.TestRequest request = tester.newGetRequest("batch", "global");
-    request.execute().assertJson(getClass(), "return_global_referentials.json");
+    request.execute().assertJson(getClass(), "return_global_referentials.json")
+      .assertHeader("Cache-Control", "private, no-cache");
   }
 
   @Test
@@ -92,7 +93,8 @@ public class GlobalActionTest {
       ));
 
     WsTester.TestRequest request = tester.newGetRequest("batch", "global");
-    request.execute().assertJson(getClass(), "return_global_settings.json");
+    request.execute().assertJson(getClass(), "return_global_settings.json")
+      .assertHeader("Cache-Control", "private, no-store");
   }
 
   @Test
@@ -28,6 +28,7 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.sonar.api.config.MapSettings;
 import org.sonar.api.security.DefaultGroups;
+import org.sonar.api.utils.DateUtils;
 import org.sonar.api.utils.System2;
 import org.sonar.api.web.UserRole;
 import org.sonar.db.DbTester;
@@ -37,6 +38,7 @@ import org.sonar.scanner.protocol.Constants.Severity;
 import org.sonar.scanner.protocol.input.ScannerInput.ServerIssue;
 import org.sonar.server.component.ComponentFinder;
 import org.sonar.server.es.EsTester;
+import org.sonar.server.es.FacetCache;
 import org.sonar.server.exceptions.ForbiddenException;
 import org.sonar.server.issue.IssueTesting;
 import org.sonar.server.issue.index.IssueAuthorizationDao;
@@ -87,7 +89,7 @@ public class IssuesActionTest {
 
   @Before
   public void before() {
-    issueIndex = new IssueIndex(es.client(), System2.INSTANCE, userSessionRule);
+    issueIndex = new IssueIndex(es.client(), System2.INSTANCE, userSessionRule, new FacetCache(es.client(), System2.INSTANCE));
     issueIndexer = new IssueIndexer(null, es.client());
     issueAuthorizationIndexer = new IssueAuthorizationIndexer(null, es.client());
     issuesAction = new IssuesAction(db.getDbClient(), issueIndex, userSessionRule, new ComponentFinder(db.getDbClient()));
@@ -321,6 +323,31 @@ public class IssuesActionTest {
     tester.newGetRequest("batch", "issues").setParam("key", "Other component key").execute();
   }
 
+  @Test
+  public void return_not_modified_if_issues_did_not_change() throws Exception {
+    ComponentDto project = ComponentTesting.newProjectDto(PROJECT_UUID).setKey(PROJECT_KEY);
+    ComponentDto module = ComponentTesting.newModuleDto(MODULE_UUID, project).setKey(MODULE_KEY);
+    ComponentDto file = ComponentTesting.newFileDto(module, null, FILE_UUID).setKey(FILE_KEY);
+    db.getDbClient().componentDao().insert(db.getSession(), project, module, file);
+    db.getSession().commit();
+    indexIssues(IssueTesting.newDoc("EFGH", file));
+    addBrowsePermissionOnComponent(PROJECT_KEY);
+
+    WsTester.Result result = tester.newGetRequest("batch", "issues").setParam("key", PROJECT_KEY).execute();
+    String etag = result.header("ETag");
+    assertThat(etag).isNotEmpty();
+    assertThat(result.output()).isNotEmpty();
+
+    result = tester.newGetRequest("batch", "issues").setParam("key", PROJECT_KEY).setHeader("If-None-Match", etag).execute();
+    result.assertNotModified();
+    assertThat(result.output()).isEmpty();
+
+    indexIssues(IssueTesting.newDoc("IJKL", file).setTechnicalUpdateDate(DateUtils.parseDate("2015-01-01")));
+    result = tester.newGetRequest("batch", "issues").setParam("key", PROJECT_KEY).setHeader("If-None-Match", etag).execute();
+    assertThat(result.header("ETag")).isNotEqualTo(etag);
+    assertThat(result.output()).isNotEmpty();
+  }
+
   private void indexIssues(IssueDoc... issues) {
     issueIndexer.index(Arrays.asList(issues).iterator());
     for (IssueDoc issue : issues) {
@@ -19,6 +19,7 @@
  */
 package org.sonar.server.batch;
 
+import com.google.common.collect.ImmutableMap;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
@@ -87,4 +88,32 @@ public class ProjectActionTest {
     WsProjectResponse wsProjectResponse = WsProjectResponse.parseFrom(result.getInputStream());
     assertThat(wsProjectResponse.getFileDataByModuleAndPath()).isEmpty();
   }
+
+  @Test
+  public void response_with_secured_settings_must_not_be_stored() throws Exception {
+    ProjectRepositories projectRepositories = new ProjectRepositories().addSettings("module-1", ImmutableMap.of("foo", "bar", "foo.secured", "1234"));
+    when(projectDataLoader.load(any(ProjectDataQuery.class))).thenReturn(projectRepositories);
+
+    TestResponse result = ws.newRequest()
+      .setMediaType(MediaTypes.PROTOBUF)
+      .setParam("key", "org.codehaus.sonar:sonar")
+      .execute();
+
+    assertThat(result.getHeader("Cache-Control")).isEqualTo("private, no-store");
+    assertThat(result.getHeader("ETag")).isNull();
+  }
+
+  @Test
+  public void response_without_secured_settings_can_be_cached() throws Exception {
+    ProjectRepositories projectRepositories = new ProjectRepositories().addSettings("module-1", ImmutableMap.of("foo", "bar"));
+    when(projectDataLoader.load(any(ProjectDataQuery.class))).thenReturn(projectRepositories);
+
+    TestResponse result = ws.newRequest()
+      .setMediaType(MediaTypes.PROTOBUF)
+      .setParam("key", "org.codehaus.sonar:sonar")
+      .execute();
+
+    assertThat(result.getHeader("Cache-Control")).isEqualTo("private, no-cache");
+    assertThat(result.getHeader("ETag")).isNotNull();
+  }
 }
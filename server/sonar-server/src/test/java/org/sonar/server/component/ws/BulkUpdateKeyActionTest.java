@@ -40,6 +40,7 @@ import org.sonar.server.exceptions.BadRequestException;
 import org.sonar.server.exceptions.ForbiddenException;
 import org.sonar.server.exceptions.NotFoundException;
 import org.sonar.server.tester.UserSessionRule;
+import org.sonar.server.user.AuthorizationCache;
 import org.sonar.server.ws.TestRequest;
 import org.sonar.server.ws.WsActionTester;
 import org.sonarqube.ws.MediaTypes;
@@ -50,6 +51,8 @@ import org.sonarqube.ws.WsComponents.BulkUpdateKeyWsResponse.Key;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.tuple;
 import static org.assertj.guava.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.sonar.db.component.ComponentTesting.newFileDto;
 import static org.sonar.db.component.ComponentTesting.newModuleDto;
 import static org.sonar.db.component.ComponentTesting.newProjectDto;
@@ -77,7 +80,8 @@ public class BulkUpdateKeyActionTest {
 
   ComponentFinder componentFinder = new ComponentFinder(dbClient);
 
-  WsActionTester ws = new WsActionTester(new BulkUpdateKeyAction(dbClient, componentFinder, userSession));
+  AuthorizationCache authorizationCache = mock(AuthorizationCache.class);
+  WsActionTester ws = new WsActionTester(new BulkUpdateKeyAction(dbClient, componentFinder, userSession, authorizationCache));
 
   @Before
   public void setUp() {
@@ -134,6 +138,7 @@ public class BulkUpdateKeyActionTest {
     assertComponentKeyUpdated(file.key(), "your_project:root:module:src/File.xoo");
     assertComponentKeyNotUpdated(inactiveModule.key());
     assertComponentKeyNotUpdated(inactiveFile.key());
+    verify(authorizationCache).invalidate();
   }
 
   @Test
@@ -53,6 +53,7 @@ public class CeQueueInitializerTest {
 
     inOrder.verify(cleaner).clean(any(DbSession.class));
     inOrder.verify(scheduler).startScheduling();
+    inOrder.verify(scheduler).notifyNewTasks();
   }
 
   @Test
@@ -0,0 +1,216 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.batch;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CountDownLatch;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.ZipUtils;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.DbTester;
+import org.sonar.db.ce.CeQueueDto;
+import org.sonar.db.ce.CeTaskInputDao;
+import org.sonar.db.ce.CeTaskTypes;
+import org.sonar.server.computation.configuration.CeConfiguration;
+import org.sonar.server.platform.ServerFileSystem;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ReportPrefetcherTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Rule
+  public DbTester dbTester = DbTester.create(System2.INSTANCE);
+
+  private ServerFileSystem fs = mock(ServerFileSystem.class);
+  private CeConfiguration ceConfiguration = mock(CeConfiguration.class);
+  private CeTaskInputDao inputDao;
+  private ReportPrefetcher underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    when(fs.getTempDir()).thenReturn(temp.newFolder());
+    when(ceConfiguration.getWorkerCount()).thenReturn(2);
+    underTest = new ReportPrefetcher(dbTester.getDbClient(), fs, ceConfiguration);
+    underTest.start();
+  }
+
+  @After
+  public void tearDown() {
+    underTest.stop();
+  }
+
+  @Test
+  public void prefetch_reports_of_pending_tasks() throws Exception {
+    insertTask("T1", "P1", CeTaskTypes.REPORT, "{report1}");
+    insertTask("T2", "P2", CeTaskTypes.REPORT, "{report2}");
+
+    underTest.prefetchNextReports(dbTester.getSession());
+    underTest.awaitExtractions();
+
+    assertThat(new File(underTest.takeReport("T1").get(), "metadata.pb")).hasContent("{report1}");
+    assertThat(new File(underTest.takeReport("T2").get(), "metadata.pb")).hasContent("{report2}");
+    // reports are taken only once
+    assertThat(underTest.takeReport("T1").isPresent()).isFalse();
+    assertThat(underTest.countPrefetchedReports()).isEqualTo(0);
+  }
+
+  @Test
+  public void prefetch_at_most_as_many_reports_as_workers() throws Exception {
+    insertTask("T1", "P1", CeTaskTypes.REPORT, "{report1}");
+    insertTask("T2", "P2", CeTaskTypes.REPORT, "{report2}");
+    insertTask("T3", "P3", CeTaskTypes.REPORT, "{report3}");
+
+    underTest.prefetchNextReports(dbTester.getSession());
+
+    assertThat(underTest.countPrefetchedReports()).isEqualTo(2);
+    assertThat(underTest.takeReport("T3").isPresent()).isFalse();
+  }
+
+  @Test
+  public void ignore_tasks_which_are_not_reports() throws Exception {
+    insertTask("T1", "P1", "OTHER", "{report1}");
+
+    underTest.prefetchNextReports(dbTester.getSession());
+
+    assertThat(underTest.takeReport("T1").isPresent()).isFalse();
+  }
+
+  @Test
+  public void report_is_absent_if_task_has_no_input() throws Exception {
+    insertTask("T1", "P1", CeTaskTypes.REPORT, null);
+
+    underTest.prefetchNextReports(dbTester.getSession());
+
+    assertThat(underTest.takeReport("T1").isPresent()).isFalse();
+  }
+
+  @Test
+  public void drop_reports_of_tasks_removed_from_queue() throws Exception {
+    insertTask("T1", "P1", CeTaskTypes.REPORT, "{report1}");
+    underTest.prefetchNextReports(dbTester.getSession());
+    assertThat(underTest.countPrefetchedReports()).isEqualTo(1);
+
+    dbTester.getDbClient().ceQueueDao().deleteByUuid(dbTester.getSession(), "T1");
+    dbTester.getSession().commit();
+    underTest.prefetchNextReports(dbTester.getSession());
+
+    assertThat(underTest.countPrefetchedReports()).isEqualTo(0);
+  }
+
+  @Test
+  public void report_is_extracted_by_caller_if_its_extraction_has_not_started() throws Exception {
+    insertTask("T1", "P1", CeTaskTypes.REPORT, "{report1}");
+    insertTask("T2", "P2", CeTaskTypes.REPORT, "{report2}");
+    CountDownLatch t1Started = new CountDownLatch(1);
+    CountDownLatch releaseT1 = new CountDownLatch(1);
+    underTest = newPrefetcherBlockingOnExtraction("T1", t1Started, releaseT1);
+
+    underTest.prefetchNextReports(dbTester.getSession());
+    t1Started.await();
+
+    // extraction of T2 is queued behind T1
+    assertThat(underTest.takeReport("T2").isPresent()).isFalse();
+
+    releaseT1.countDown();
+    assertThat(new File(underTest.takeReport("T1").get(), "metadata.pb")).hasContent("{report1}");
+    underTest.awaitExtractions();
+    verify(inputDao, never()).selectData(any(DbSession.class), eq("T2"));
+  }
+
+  @Test
+  public void partial_report_is_deleted_when_extraction_is_discarded() throws Exception {
+    insertTask("T1", "P1", CeTaskTypes.REPORT, "{report1}");
+    CountDownLatch t1Started = new CountDownLatch(1);
+    underTest = newPrefetcherBlockingOnExtraction("T1", t1Started, new CountDownLatch(1));
+
+    underTest.prefetchNextReports(dbTester.getSession());
+    t1Started.await();
+    dbTester.getDbClient().ceQueueDao().deleteByUuid(dbTester.getSession(), "T1");
+    dbTester.getSession().commit();
+    underTest.prefetchNextReports(dbTester.getSession());
+    underTest.awaitExtractions();
+
+    assertThat(underTest.countPrefetchedReports()).isEqualTo(0);
+    assertThat(FileUtils.listFiles(fs.getTempDir(), null, true)).isEmpty();
+  }
+
+  /**
+   * Extraction of the report of {@code taskUuid} waits for {@code release} once the report is loaded from db. It
+   * goes on with the thread interrupted if the extraction is discarded in the meantime.
+   */
+  private ReportPrefetcher newPrefetcherBlockingOnExtraction(String taskUuid, CountDownLatch started, CountDownLatch release) {
+    underTest.stop();
+    DbClient dbClient = spy(dbTester.getDbClient());
+    inputDao = spy(dbTester.getDbClient().ceTaskInputDao());
+    when(dbClient.ceTaskInputDao()).thenReturn(inputDao);
+    doAnswer(invocation -> {
+      Object data = invocation.callRealMethod();
+      started.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return data;
+    }).when(inputDao).selectData(any(DbSession.class), eq(taskUuid));
+    ReportPrefetcher prefetcher = new ReportPrefetcher(dbClient, fs, ceConfiguration);
+    prefetcher.start();
+    return prefetcher;
+  }
+
+  private void insertTask(String uuid, String componentUuid, String type, String reportContent) throws IOException {
+    CeQueueDto dto = new CeQueueDto();
+    dto.setUuid(uuid);
+    dto.setTaskType(type);
+    dto.setComponentUuid(componentUuid);
+    dto.setStatus(CeQueueDto.Status.PENDING);
+    dbTester.getDbClient().ceQueueDao().insert(dbTester.getSession(), dto);
+    if (reportContent != null) {
+      File zipDir = temp.newFolder();
+      FileUtils.write(new File(zipDir, "metadata.pb"), reportContent);
+      File zip = temp.newFile();
+      ZipUtils.zipDir(zipDir, zip);
+      try (InputStream input = FileUtils.openInputStream(zip)) {
+        dbTester.getDbClient().ceTaskInputDao().insert(dbTester.getSession(), uuid, input);
+      }
+    }
+    dbTester.getSession().commit();
+  }
+}
@@ -24,6 +24,7 @@ import com.google.common.base.Supplier;
 import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
 import org.junit.Rule;
@@ -453,6 +454,22 @@ public class ComponentRootBuilderTest {
     assertThat(reportAttributes.getPath()).isNull();
   }
 
+  @Test
+  public void files_with_same_language_and_type_share_FileAttributes() {
+    ScannerReport.Component project = newBuilder().setType(PROJECT).setRef(1).addChildRef(2).addChildRef(3).addChildRef(4).build();
+    scannerComponentProvider.add(newBuilder().setRef(2).setType(FILE).setPath("file 1").setLanguage("java"));
+    scannerComponentProvider.add(newBuilder().setRef(3).setType(FILE).setPath("file 2").setLanguage("java"));
+    scannerComponentProvider.add(newBuilder().setRef(4).setType(FILE).setPath("file 3").setLanguage("java").setIsTest(true));
+
+    Component root = underTest.build(project, PROJECT_KEY);
+
+    List<Component> files = root.getChildren();
+    assertThat(files.get(0).getFileAttributes()).isSameAs(files.get(1).getFileAttributes());
+    assertThat(files.get(2).getFileAttributes()).isNotSameAs(files.get(0).getFileAttributes());
+    assertThat(files.get(2).getFileAttributes().isUnitTest()).isTrue();
+    assertThat(files.get(2).getFileAttributes().getLanguageKey()).isEqualTo("java");
+  }
+
   @Test
   public void createFileAttributes_returns_null_when_type_is_not_FILE() {
     Arrays.stream(ScannerReport.Component.ComponentType.values())
@@ -0,0 +1,96 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.issue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.core.issue.DefaultIssue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BaseIssuesBufferTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private BaseIssuesBuffer underTest = new BaseIssuesBuffer(2, () -> {
+    try {
+      return temp.newFile();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  });
+
+  @Test
+  public void take_issues_kept_in_memory_and_spilled_on_disk() {
+    underTest.add("FILE1", issues("I1", "I2"));
+    // exceeds the limit of issues in memory
+    underTest.add("FILE2", issues("I3"));
+    underTest.add("FILE3", issues("I4", "I5"));
+    underTest.finishLoading();
+
+    assertThat(underTest.getComponentUuids()).containsOnly("FILE1", "FILE2", "FILE3");
+    assertThat(underTest.take("FILE3").get()).extracting("key").containsExactly("I4", "I5");
+    assertThat(underTest.take("FILE1").get()).extracting("key").containsExactly("I1", "I2");
+    assertThat(underTest.take("FILE2").get()).extracting("key").containsExactly("I3");
+  }
+
+  @Test
+  public void take_empty_list_if_component_has_no_issues() {
+    underTest.finishLoading();
+
+    assertThat(underTest.take("FILE1").get()).isEmpty();
+  }
+
+  @Test
+  public void issues_can_be_taken_only_once() {
+    underTest.add("FILE1", issues("I1"));
+    underTest.finishLoading();
+
+    assertThat(underTest.take("FILE1").isPresent()).isTrue();
+    assertThat(underTest.take("FILE1").isPresent()).isFalse();
+    // uuids are kept
+    assertThat(underTest.getComponentUuids()).containsOnly("FILE1");
+  }
+
+  @Test
+  public void do_not_create_file_if_all_issues_fit_in_memory() {
+    BaseIssuesBuffer buffer = new BaseIssuesBuffer(10, () -> {
+      throw new IllegalStateException("file must not be created");
+    });
+    buffer.add("FILE1", issues("I1", "I2"));
+    buffer.finishLoading();
+
+    assertThat(buffer.take("FILE1").get()).hasSize(2);
+  }
+
+  private static List<DefaultIssue> issues(String... keys) {
+    DefaultIssue[] issues = new DefaultIssue[keys.length];
+    for (int i = 0; i < keys.length; i++) {
+      issues[i] = new DefaultIssue().setKey(keys[i]);
+    }
+    return Arrays.asList(issues);
+  }
+}
@@ -22,6 +22,7 @@ package org.sonar.server.computation.task.projectanalysis.issue;
 import com.google.common.base.Optional;
 import java.util.Collections;
 import java.util.List;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -31,6 +32,7 @@ import org.sonar.api.issue.Issue;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.rule.Severity;
 import org.sonar.api.utils.System2;
+import org.sonar.api.utils.internal.JUnitTempFolder;
 import org.sonar.core.issue.DefaultIssue;
 import org.sonar.core.issue.tracking.Tracker;
 import org.sonar.db.DbTester;
@@ -85,6 +87,8 @@ public class IntegrateIssuesVisitorTest {
   @Rule
   public TemporaryFolder temp = new TemporaryFolder();
   @Rule
+  public JUnitTempFolder tempFolder = new JUnitTempFolder();
+  @Rule
   public DbTester dbTester = DbTester.create(System2.INSTANCE);
   @Rule
   public TreeRootHolderRule treeRootHolder = new TreeRootHolderRule();
@@ -103,9 +107,11 @@ public class IntegrateIssuesVisitorTest {
 
   IssueFilter issueFilter = mock(IssueFilter.class);
 
-  BaseIssuesLoader baseIssuesLoader = new BaseIssuesLoader(treeRootHolder, dbTester.getDbClient(), ruleRepositoryRule, activeRulesHolderRule);
+  BaseIssuesLoader baseIssuesLoader = new BaseIssuesLoader(treeRootHolder, dbTester.getDbClient(), ruleRepositoryRule, activeRulesHolderRule, tempFolder);
   MovedFilesRepository movedFilesRepository = mock(MovedFilesRepository.class);
-  TrackerExecution tracker = new TrackerExecution(new TrackerBaseInputFactory(baseIssuesLoader, dbTester.getDbClient(), movedFilesRepository),
+  TrackerBaseInputPrefetcher baseInputPrefetcher = new TrackerBaseInputPrefetcher(treeRootHolder,
+    new TrackerBaseInputFactory(baseIssuesLoader, dbTester.getDbClient(), movedFilesRepository));
+  TrackerExecution tracker = new TrackerExecution(baseInputPrefetcher,
     new TrackerRawInputFactory(treeRootHolder, reportReader,
       fileSourceRepository, new CommonRuleEngineImpl(), issueFilter),
     new Tracker<>());
@@ -127,6 +133,11 @@ public class IntegrateIssuesVisitorTest {
     underTest = new IntegrateIssuesVisitor(tracker, issueCache, issueLifecycle, issueVisitors, componentsWithUnprocessedIssues, componentIssuesRepository, movedFilesRepository);
   }
 
+  @After
+  public void tearDown() {
+    baseInputPrefetcher.stop();
+  }
+
   @Test
   public void process_new_issue() throws Exception {
     componentsWithUnprocessedIssues.setUuids(Collections.<String>emptySet());
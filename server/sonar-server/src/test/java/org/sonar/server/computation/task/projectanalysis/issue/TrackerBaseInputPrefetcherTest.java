@@ -0,0 +1,110 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.issue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.issue.tracking.Input;
+import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.ReportComponent;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolderRule;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TrackerBaseInputPrefetcherTest {
+
+  private static final Component FILE_1 = ReportComponent.builder(Component.Type.FILE, 3).build();
+  private static final Component FILE_2 = ReportComponent.builder(Component.Type.FILE, 4).build();
+  private static final Component MODULE = ReportComponent.builder(Component.Type.MODULE, 2).addChildren(FILE_1, FILE_2).build();
+  private static final Component PROJECT = ReportComponent.builder(Component.Type.PROJECT, 1).addChildren(MODULE).build();
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  @Rule
+  public TreeRootHolderRule treeRootHolder = new TreeRootHolderRule();
+
+  private TrackerBaseInputFactory baseInputFactory = mock(TrackerBaseInputFactory.class);
+  private TrackerBaseInputPrefetcher underTest = new TrackerBaseInputPrefetcher(treeRootHolder, baseInputFactory);
+
+  @Before
+  public void setUp() {
+    treeRootHolder.setRoot(PROJECT);
+  }
+
+  @After
+  public void tearDown() {
+    underTest.stop();
+  }
+
+  @Test
+  public void prefetch_inputs_of_next_components_in_post_order() {
+    Input<DefaultIssue> file1Input = mockInput();
+    Input<DefaultIssue> file2Input = mockInput();
+    Input<DefaultIssue> moduleInput = mockInput();
+    when(baseInputFactory.load(FILE_1)).thenReturn(file1Input);
+    when(baseInputFactory.load(FILE_2)).thenReturn(file2Input);
+    when(baseInputFactory.load(MODULE)).thenReturn(moduleInput);
+
+    assertThat(underTest.get(FILE_1)).isSameAs(file1Input);
+
+    // next components are loaded without being requested
+    verify(baseInputFactory, timeout(1000)).load(FILE_2);
+    verify(baseInputFactory, timeout(1000)).load(MODULE);
+    verify(baseInputFactory, timeout(1000)).load(PROJECT);
+    assertThat(underTest.get(FILE_2)).isSameAs(file2Input);
+    assertThat(underTest.get(MODULE)).isSameAs(moduleInput);
+    verify(baseInputFactory, never()).create(FILE_1);
+  }
+
+  @Test
+  public void lazy_load_input_of_component_requested_twice() {
+    Input<DefaultIssue> lazyInput = mockInput();
+    when(baseInputFactory.create(FILE_1)).thenReturn(lazyInput);
+
+    underTest.get(FILE_1);
+
+    assertThat(underTest.get(FILE_1)).isSameAs(lazyInput);
+  }
+
+  @Test
+  public void fail_if_loading_fails() {
+    when(baseInputFactory.load(FILE_1)).thenThrow(new IllegalArgumentException("db failure"));
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("Fail to load base issues of component '" + FILE_1.getKey() + "'");
+
+    underTest.get(FILE_1);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Input<DefaultIssue> mockInput() {
+    return mock(Input.class);
+  }
+}
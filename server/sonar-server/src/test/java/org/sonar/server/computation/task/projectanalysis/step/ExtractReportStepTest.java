@@ -22,7 +22,9 @@ package org.sonar.server.computation.task.projectanalysis.step;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Optional;
 import org.apache.commons.io.FileUtils;
+import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -33,12 +35,18 @@ import org.sonar.api.utils.internal.JUnitTempFolder;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
 import org.sonar.ce.queue.CeTask;
+import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
 import org.sonar.db.ce.CeTaskTypes;
 import org.sonar.server.computation.task.projectanalysis.batch.BatchReportDirectoryHolderImpl;
 import org.sonar.server.computation.task.projectanalysis.batch.MutableBatchReportDirectoryHolder;
+import org.sonar.server.computation.task.projectanalysis.batch.ReportPrefetcher;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class ExtractReportStepTest {
 
@@ -59,7 +67,14 @@ public class ExtractReportStepTest {
   private MutableBatchReportDirectoryHolder reportDirectoryHolder = new BatchReportDirectoryHolderImpl();
   private CeTask ceTask = new CeTask.Builder().setType(CeTaskTypes.REPORT).setUuid(TASK_UUID).build();
 
-  private ExtractReportStep underTest = new ExtractReportStep(dbTester.getDbClient(), ceTask, tempFolder, reportDirectoryHolder);
+  private ReportPrefetcher reportPrefetcher = mock(ReportPrefetcher.class);
+
+  private ExtractReportStep underTest = new ExtractReportStep(dbTester.getDbClient(), ceTask, tempFolder, reportDirectoryHolder, reportPrefetcher);
+
+  @Before
+  public void setUp() {
+    when(reportPrefetcher.takeReport(TASK_UUID)).thenReturn(Optional.empty());
+  }
 
   @Test
   public void fail_if_report_zip_does_not_exist() throws Exception {
@@ -85,6 +100,22 @@ public class ExtractReportStepTest {
     assertThat(unzippedDir).isDirectory().exists();
     assertThat(unzippedDir.listFiles()).hasSize(1);
     assertThat(new File(unzippedDir, "metadata.pb")).hasContent("{metadata}");
+    verify(reportPrefetcher).prefetchNextReports(any(DbSession.class));
+  }
+
+  @Test
+  public void use_prefetched_report() throws Exception {
+    File prefetchedDir = tempFolder.newDir();
+    FileUtils.write(new File(prefetchedDir, "metadata.pb"), "{prefetched}");
+    when(reportPrefetcher.takeReport(TASK_UUID)).thenReturn(Optional.of(prefetchedDir));
+
+    underTest.execute();
+
+    File reportDir = reportDirectoryHolder.getDirectory();
+    assertThat(reportDir.listFiles()).hasSize(1);
+    assertThat(new File(reportDir, "metadata.pb")).hasContent("{prefetched}");
+    assertThat(prefetchedDir).doesNotExist();
+    verify(reportPrefetcher).prefetchNextReports(any(DbSession.class));
   }
 
   private File generateReport() throws IOException {
@@ -65,7 +65,8 @@ public class CeProcessingSchedulerImplTest {
 
   private CeWorkerCallable ceWorkerRunnable = mock(CeWorkerCallable.class);
   private StubCeProcessingSchedulerExecutorService processingExecutorService = new StubCeProcessingSchedulerExecutorService();
-  private SchedulerCall regularDelayedPoll = new SchedulerCall(ceWorkerRunnable, 2000L, TimeUnit.MILLISECONDS);
+  // delayed polls call the worker only if it has not been woken up in the meantime, through another callable
+  private SchedulerCall regularDelayedPoll = new SchedulerCall(null, ceConfiguration.getQueuePollingDelay(), TimeUnit.MILLISECONDS);
   private SchedulerCall notDelayedPoll = new SchedulerCall(ceWorkerRunnable);
 
   private CeProcessingSchedulerImpl underTest = new CeProcessingSchedulerImpl(ceConfiguration, processingExecutorService, ceWorkerRunnable);
@@ -112,6 +113,61 @@ public class CeProcessingSchedulerImplTest {
       );
   }
 
+  @Test
+  public void notifyNewTasks_calls_waiting_CeWorkerCallable_without_delay() throws Exception {
+    when(ceWorkerRunnable.call())
+      .thenReturn(false)
+      .thenThrow(ERROR_TO_INTERRUPT_CHAINING);
+
+    underTest.startScheduling();
+    underTest.notifyNewTasks();
+    processingExecutorService.runFutures();
+
+    // the first delayed poll does nothing as the worker has already been called
+    verify(ceWorkerRunnable, times(2)).call();
+    assertThat(processingExecutorService.getSchedulerCalls()).containsExactly(
+      regularDelayedPoll,
+      notDelayedPoll,
+      regularDelayedPoll
+      );
+  }
+
+  @Test
+  public void notifyNewTasks_while_CeWorkerCallable_is_running_is_not_lost() throws Exception {
+    when(ceWorkerRunnable.call())
+      .then(invocation -> {
+        underTest.notifyNewTasks();
+        return false;
+      })
+      .thenThrow(ERROR_TO_INTERRUPT_CHAINING);
+
+    startSchedulingAndRun();
+
+    assertThat(processingExecutorService.getSchedulerCalls()).containsExactly(
+      regularDelayedPoll,
+      notDelayedPoll
+      );
+  }
+
+  @Test
+  public void repeated_notifyNewTasks_keep_a_single_pending_call() throws Exception {
+    when(ceWorkerRunnable.call())
+      .thenReturn(false, false, false, false, false)
+      .thenThrow(ERROR_TO_INTERRUPT_CHAINING);
+
+    underTest.startScheduling();
+    for (int i = 0; i < 5; i++) {
+      underTest.notifyNewTasks();
+    }
+
+    verify(ceWorkerRunnable, times(5)).call();
+    assertThat(processingExecutorService.getPendingFuturesCount()).isEqualTo(1);
+
+    // delayed calls of previous waits do not call the worker
+    processingExecutorService.runFutures();
+    verify(ceWorkerRunnable, times(6)).call();
+  }
+
   @Test
   public void startScheduling_schedules_CeWorkerCallable_at_fixed_rate_run_head_of_queue() throws Exception {
     when(ceWorkerRunnable.call())
@@ -190,12 +246,12 @@ public class CeProcessingSchedulerImplTest {
     ListenableScheduledFuture listenableScheduledFuture = mock(ListenableScheduledFuture.class);
     CeProcessingSchedulerExecutorService processingExecutorService = mock(CeProcessingSchedulerExecutorService.class);
     CeProcessingSchedulerImpl underTest = new CeProcessingSchedulerImpl(ceConfiguration, processingExecutorService, ceWorkerRunnable);
-    when(processingExecutorService.schedule(ceWorkerRunnable, ceConfiguration.getQueuePollingDelay(), MILLISECONDS))
+    when(processingExecutorService.schedule(any(Callable.class), eq(ceConfiguration.getQueuePollingDelay()), eq(MILLISECONDS)))
         .thenReturn(listenableScheduledFuture);
 
     underTest.startScheduling();
 
-    verify(processingExecutorService, times(workerCount)).schedule(ceWorkerRunnable, ceConfiguration.getQueuePollingDelay(), MILLISECONDS);
+    verify(processingExecutorService, times(workerCount)).schedule(any(Callable.class), eq(ceConfiguration.getQueuePollingDelay()), eq(MILLISECONDS));
     verify(listenableScheduledFuture, times(workerCount)).addListener(any(Runnable.class), eq(processingExecutorService));
   }
 
@@ -223,6 +279,10 @@ public class CeProcessingSchedulerImplTest {
       return schedulerCalls;
     }
 
+    public long getPendingFuturesCount() {
+      return futures.stream().filter(future -> !future.isCancelled()).count();
+    }
+
     public void runFutures() throws ExecutionException, InterruptedException {
       while (futures.peek() != null) {
         Future<?> future = futures.poll();
@@ -234,7 +294,7 @@ public class CeProcessingSchedulerImplTest {
 
     @Override
     public <V> ListenableScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
-      this.schedulerCalls.add(new SchedulerCall(callable, delay, unit));
+      this.schedulerCalls.add(new SchedulerCall(null, delay, unit));
       return delegate.schedule(callable, delay, unit);
     }
 
@@ -496,11 +556,12 @@ public class CeProcessingSchedulerImplTest {
    */
   @Immutable
   private static final class SchedulerCall {
+    @Nullable
     private final Callable<?> callable;
     private final long delay;
     private final TimeUnit unit;
 
-    private SchedulerCall(Callable<?> callable, long delay, TimeUnit unit) {
+    private SchedulerCall(@Nullable Callable<?> callable, long delay, TimeUnit unit) {
       this.callable = callable;
       this.delay = delay;
       this.unit = unit;
@@ -0,0 +1,164 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import com.google.common.base.Strings;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.utils.System2;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
+import static org.elasticsearch.index.query.QueryBuilders.termQuery;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FacetCacheTest {
+
+  private static final String[] INDICES = {FakeIndexDefinition.INDEX};
+
+  @Rule
+  public EsTester esTester = new EsTester(new FakeIndexDefinition());
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  private AtomicInteger loads = new AtomicInteger();
+  private System2 system = mock(System2.class);
+  private FacetCache underTest = new FacetCache(esTester.client(), system);
+
+  @Test
+  public void load_facets_only_once() throws Exception {
+    esTester.putDocuments(FakeIndexDefinition.INDEX, FakeIndexDefinition.TYPE, FakeIndexDefinition.newDoc(1), FakeIndexDefinition.newDoc(1), FakeIndexDefinition.newDoc(2));
+
+    Facets facets = underTest.get(newFacetRequest(), INDICES, loader(newFacetRequest()));
+    assertThat(facets.get("ints")).containsExactly(entry("1", 2L), entry("2", 1L));
+
+    facets = underTest.get(newFacetRequest(), INDICES, loader(newFacetRequest()));
+    assertThat(facets.get("ints")).containsExactly(entry("1", 2L), entry("2", 1L));
+
+    assertThat(loads.get()).isEqualTo(1);
+    assertThat(underTest.getHits()).isEqualTo(1L);
+    assertThat(underTest.getMisses()).isEqualTo(1L);
+    assertThat(underTest.size()).isEqualTo(1L);
+  }
+
+  @Test
+  public void reload_facets_when_index_is_refreshed() throws Exception {
+    esTester.putDocuments(FakeIndexDefinition.INDEX, FakeIndexDefinition.TYPE, FakeIndexDefinition.newDoc(1));
+    underTest.get(newFacetRequest(), INDICES, loader(newFacetRequest()));
+
+    esTester.putDocuments(FakeIndexDefinition.INDEX, FakeIndexDefinition.TYPE, FakeIndexDefinition.newDoc(2));
+    when(system.now()).thenReturn(FacetCache.REFRESH_COUNT_TTL_MS);
+    Facets facets = underTest.get(newFacetRequest(), INDICES, loader(newFacetRequest()));
+
+    assertThat(facets.get("ints")).containsOnly(entry("1", 1L), entry("2", 1L));
+    assertThat(loads.get()).isEqualTo(2);
+    assertThat(underTest.getHits()).isEqualTo(0L);
+  }
+
+  @Test
+  public void refresh_count_of_indices_is_not_requested_again_before_ttl() throws Exception {
+    esTester.putDocuments(FakeIndexDefinition.INDEX, FakeIndexDefinition.TYPE, FakeIndexDefinition.newDoc(1));
+    underTest.get(newFacetRequest(), INDICES, loader(newFacetRequest()));
+
+    esTester.putDocuments(FakeIndexDefinition.INDEX, FakeIndexDefinition.TYPE, FakeIndexDefinition.newDoc(2));
+    when(system.now()).thenReturn(FacetCache.REFRESH_COUNT_TTL_MS - 1);
+    Facets facets = underTest.get(newFacetRequest(), INDICES, loader(newFacetRequest()));
+
+    assertThat(facets.get("ints")).containsOnly(entry("1", 1L));
+    assertThat(loads.get()).isEqualTo(1);
+    assertThat(underTest.getHits()).isEqualTo(1L);
+  }
+
+  @Test
+  public void cache_is_bounded_by_weight_of_entries() throws Exception {
+    esTester.putDocuments(FakeIndexDefinition.INDEX, FakeIndexDefinition.TYPE, FakeIndexDefinition.newDoc(1));
+    SearchRequestBuilder hugeRequest = newFacetRequest().setQuery(termQuery(FakeIndexDefinition.INT_FIELD, Strings.repeat("1", (int) FacetCache.MAX_WEIGHT)));
+
+    underTest.get(hugeRequest, INDICES, () -> new Facets(new LinkedHashMap<>()));
+
+    assertThat(underTest.size()).isEqualTo(0L);
+  }
+
+  @Test
+  public void requests_with_different_queries_are_not_shared() throws Exception {
+    esTester.putDocuments(FakeIndexDefinition.INDEX, FakeIndexDefinition.TYPE, FakeIndexDefinition.newDoc(1), FakeIndexDefinition.newDoc(2));
+
+    underTest.get(newFacetRequest(), INDICES, loader(newFacetRequest()));
+    SearchRequestBuilder filteredRequest = newFacetRequest().setQuery(termQuery(FakeIndexDefinition.INT_FIELD, 2));
+    Facets facets = underTest.get(filteredRequest, INDICES, loader(filteredRequest));
+
+    assertThat(facets.get("ints")).containsOnly(entry("2", 1L));
+    assertThat(loads.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void returned_facets_can_be_modified() throws Exception {
+    esTester.putDocuments(FakeIndexDefinition.INDEX, FakeIndexDefinition.TYPE, FakeIndexDefinition.newDoc(1));
+
+    underTest.get(newFacetRequest(), INDICES, loader(newFacetRequest())).get("ints").put("3", 10L);
+    Facets facets = underTest.get(newFacetRequest(), INDICES, loader(newFacetRequest()));
+
+    assertThat(facets.get("ints")).containsOnly(entry("1", 1L));
+  }
+
+  @Test
+  public void invalidate() throws Exception {
+    esTester.putDocuments(FakeIndexDefinition.INDEX, FakeIndexDefinition.TYPE, FakeIndexDefinition.newDoc(1));
+    underTest.get(newFacetRequest(), INDICES, loader(newFacetRequest()));
+
+    underTest.invalidate();
+    underTest.get(newFacetRequest(), INDICES, loader(newFacetRequest()));
+
+    assertThat(loads.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void propagate_failure_of_loader() {
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("boom");
+
+    underTest.get(newFacetRequest(), INDICES, () -> {
+      throw new IllegalStateException("boom");
+    });
+  }
+
+  private SearchRequestBuilder newFacetRequest() {
+    return esTester.client().prepareSearch(FakeIndexDefinition.INDEX)
+      .setQuery(matchAllQuery())
+      .setSize(0)
+      .addAggregation(AggregationBuilders.terms("ints").field(FakeIndexDefinition.INT_FIELD));
+  }
+
+  private Supplier<Facets> loader(SearchRequestBuilder request) {
+    return () -> {
+      loads.incrementAndGet();
+      return new Facets(request.get());
+    };
+  }
+}
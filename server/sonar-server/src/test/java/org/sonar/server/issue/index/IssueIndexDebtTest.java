@@ -36,6 +36,7 @@ import org.sonar.api.utils.System2;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.ComponentTesting;
 import org.sonar.server.es.EsTester;
+import org.sonar.server.es.FacetCache;
 import org.sonar.server.es.SearchOptions;
 import org.sonar.server.es.SearchResult;
 import org.sonar.server.issue.IssueQuery;
@@ -75,7 +76,7 @@ public class IssueIndexDebtTest {
     System2 system = mock(System2.class);
     when(system.getDefaultTimeZone()).thenReturn(TimeZone.getTimeZone("+01:00"));
     when(system.now()).thenReturn(System.currentTimeMillis());
-    index = new IssueIndex(tester.client(), system, userSessionRule);
+    index = new IssueIndex(tester.client(), system, userSessionRule, new FacetCache(tester.client(), system));
   }
 
   @Test
@@ -38,7 +38,7 @@ public class IssueIndexDefinitionTest {
     assertThat(underTest.getIndices()).hasSize(1);
     NewIndex issuesIndex = underTest.getIndices().get("issues");
     assertThat(issuesIndex).isNotNull();
-    assertThat(issuesIndex.getTypes().keySet()).containsOnly("issue", "authorization");
+    assertThat(issuesIndex.getTypes().keySet()).containsOnly("issue", "authorization", "projectStats");
 
     // no cluster by default
     assertThat(issuesIndex.getSettings().get("index.number_of_shards")).isEqualTo("5");
@@ -45,6 +45,7 @@ import org.sonar.api.utils.System2;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.ComponentTesting;
 import org.sonar.server.es.EsTester;
+import org.sonar.server.es.FacetCache;
 import org.sonar.server.es.SearchOptions;
 import org.sonar.server.es.SearchResult;
 import org.sonar.server.exceptions.NotFoundException;
@@ -89,7 +90,7 @@ public class IssueIndexTest {
     when(system.getDefaultTimeZone()).thenReturn(TimeZone.getTimeZone("GMT-1:00"));
     when(system.now()).thenReturn(System.currentTimeMillis());
 
-    underTest = new IssueIndex(tester.client(), system, userSessionRule);
+    underTest = new IssueIndex(tester.client(), system, userSessionRule, new FacetCache(tester.client(), system));
   }
 
   @Test
@@ -191,6 +192,51 @@ public class IssueIndexTest {
     assertThat(result.getFacets().get("projectUuids")).containsOnly(entry("ABCD", 2L), entry("EFGH", 1L));
   }
 
+  @Test
+  public void facets_are_the_same_on_all_pages() {
+    ComponentDto project = ComponentTesting.newProjectDto("ABCD");
+    ComponentDto project2 = ComponentTesting.newProjectDto("EFGH");
+
+    indexIssues(
+      IssueTesting.newDoc("ISSUE1", ComponentTesting.newFileDto(project, null)),
+      IssueTesting.newDoc("ISSUE2", ComponentTesting.newFileDto(project, null)),
+      IssueTesting.newDoc("ISSUE3", ComponentTesting.newFileDto(project2, null)));
+
+    IssueQuery query = IssueQuery.builder(userSessionRule).sort(IssueQuery.SORT_BY_CREATION_DATE).build();
+    SearchResult<IssueDoc> page1 = underTest.search(query, new SearchOptions().setPage(1, 2).addFacets(newArrayList("projectUuids")));
+    SearchResult<IssueDoc> page2 = underTest.search(query, new SearchOptions().setPage(2, 2).addFacets(newArrayList("projectUuids")));
+
+    assertThat(page1.getDocs()).hasSize(2);
+    assertThat(page2.getDocs()).hasSize(1);
+    assertThat(page2.getTotal()).isEqualTo(3);
+    assertThat(page1.getFacets().get("projectUuids")).containsOnly(entry("ABCD", 2L), entry("EFGH", 1L));
+    assertThat(page2.getFacets().get("projectUuids")).containsOnly(entry("ABCD", 2L), entry("EFGH", 1L));
+  }
+
+  @Test
+  public void facets_on_unresolved_issues_of_project() {
+    ComponentDto project = ComponentTesting.newProjectDto("ABCD");
+    ComponentDto file = ComponentTesting.newFileDto(project, null);
+
+    indexIssues(
+      IssueTesting.newDoc("ISSUE1", file).setSeverity(Severity.MAJOR).setAssignee("steve"),
+      IssueTesting.newDoc("ISSUE2", file).setSeverity(Severity.MAJOR).setAssignee(null),
+      IssueTesting.newDoc("ISSUE3", file).setSeverity(Severity.BLOCKER).setStatus(Issue.STATUS_CLOSED).setResolution(Issue.RESOLUTION_FIXED));
+
+    IssueQuery.Builder query = IssueQuery.builder(userSessionRule).projectUuids(newArrayList("ABCD")).resolved(false);
+    SearchOptions options = new SearchOptions().addFacets(newArrayList("severities", "statuses", "assignees"));
+
+    SearchResult<IssueDoc> result = underTest.search(query.build(), options);
+    assertThat(result.getTotal()).isEqualTo(2);
+    assertThat(result.getFacets().get("severities")).containsOnly(entry("MAJOR", 2L));
+    assertThat(result.getFacets().get("statuses")).containsOnly(entry("OPEN", 2L));
+    assertThat(result.getFacets().get("assignees")).containsExactly(entry("steve", 1L), entry("", 1L));
+
+    result = underTest.search(query.facetMode("effort").build(), options);
+    assertThat(result.getFacets().get("severities")).containsOnly(entry("MAJOR", 20L));
+    assertThat(result.getFacets().get("effort")).containsOnly(entry("total", 20L));
+  }
+
   @Test
   public void filter_by_modules() {
     ComponentDto project = ComponentTesting.newProjectDto();
@@ -24,13 +24,16 @@ import com.google.common.collect.FluentIterable;
 import com.google.common.collect.Iterators;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import javax.annotation.Nonnull;
 import org.elasticsearch.search.SearchHit;
 import org.junit.Rule;
 import org.junit.Test;
 import org.sonar.api.config.MapSettings;
+import org.sonar.api.issue.Issue;
 import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rule.Severity;
 import org.sonar.api.utils.System2;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbTester;
@@ -83,6 +86,40 @@ public class IssueIndexerTest {
     assertThat(doc.getTechnicalUpdateDate().getTime()).isEqualTo(1550000000000L);
   }
 
+  @Test
+  public void index_computes_stats_of_unresolved_issues() {
+    IssueIndexer indexer = createIndexer();
+    indexer.index(asList(
+      newDoc().setKey("I1").setProjectUuid(A_PROJECT_UUID).setSeverity(Severity.MAJOR).setAssignee("steve").setEffort(10L),
+      newDoc().setKey("I2").setProjectUuid(A_PROJECT_UUID).setSeverity(Severity.BLOCKER).setAssignee(null).setEffort(5L),
+      newDoc().setKey("I3").setProjectUuid(A_PROJECT_UUID).setSeverity(Severity.MAJOR).setResolution(Issue.RESOLUTION_FIXED)).iterator());
+
+    List<ProjectIssueStatsDoc> stats = esTester.getDocuments(IssueIndexDefinition.INDEX, IssueIndexDefinition.TYPE_PROJECT_STATS, ProjectIssueStatsDoc.class);
+    assertThat(stats).hasSize(1);
+    ProjectIssueStatsDoc doc = stats.get(0);
+    assertThat(doc.projectUuid()).isEqualTo(A_PROJECT_UUID);
+    assertThat(doc.count()).isEqualTo(2L);
+    assertThat(doc.effort()).isEqualTo(15L);
+    assertThat(doc.buckets("severities")).containsOnlyKeys(Severity.MAJOR, Severity.BLOCKER);
+    assertThat(doc.buckets("severities").get(Severity.MAJOR)).containsExactly(1L, 10L);
+    assertThat(doc.buckets("assignees")).containsOnlyKeys("steve", "");
+    assertThat(doc.buckets("assignees").get("")).containsExactly(1L, 5L);
+  }
+
+  @Test
+  public void delete_issues_by_keys_updates_stats() throws Exception {
+    IssueIndexer indexer = createIndexer();
+    indexer.index(asList(
+      newDoc().setKey("I1").setProjectUuid(A_PROJECT_UUID),
+      newDoc().setKey("I2").setProjectUuid(A_PROJECT_UUID)).iterator());
+
+    indexer.deleteByKeys(A_PROJECT_UUID, asList("I1"));
+
+    List<ProjectIssueStatsDoc> stats = esTester.getDocuments(IssueIndexDefinition.INDEX, IssueIndexDefinition.TYPE_PROJECT_STATS, ProjectIssueStatsDoc.class);
+    assertThat(stats).hasSize(1);
+    assertThat(stats.get(0).count()).isEqualTo(1L);
+  }
+
   @Test
   public void deleteProject_deletes_issues() {
     dbTester.prepareDbUnit(getClass(), "index.xml");
@@ -96,6 +133,7 @@ public class IssueIndexerTest {
     indexer.deleteProject("THE_PROJECT");
 
     assertThat(esTester.countDocuments("issues", "issue")).isZero();
+    assertThat(esTester.countDocuments("issues", "projectStats")).isZero();
   }
 
   @Test
@@ -106,6 +144,68 @@ public class IssueIndexerTest {
     indexer.index("THE_PROJECT_1");
 
     verifyIssueKeys("ABCDE");
+    List<ProjectIssueStatsDoc> stats = esTester.getDocuments(IssueIndexDefinition.INDEX, IssueIndexDefinition.TYPE_PROJECT_STATS, ProjectIssueStatsDoc.class);
+    assertThat(stats).extracting(ProjectIssueStatsDoc::projectUuid).containsOnly("THE_PROJECT_1");
+  }
+
+  @Test
+  public void incremental_indexing_updates_stats_with_differences_of_issues() {
+    IssueIndexer indexer = createIndexer();
+    indexer.index(asList(
+      newDoc().setKey("I1").setProjectUuid("THE_PROJECT").setSeverity(Severity.MAJOR).setAssignee("steve").setEffort(10L).setTechnicalUpdateDate(new Date(1_000L)),
+      newDoc().setKey("ABCDE").setProjectUuid("THE_PROJECT").setSeverity(Severity.BLOCKER).setAssignee(null).setEffort(5L).setTechnicalUpdateDate(new Date(1_000L)))
+      .iterator());
+
+    // ABCDE is resolved in db
+    dbTester.prepareDbUnit(getClass(), "index.xml");
+    indexer.index();
+
+    verifyIssueKeys("I1", "ABCDE");
+    List<ProjectIssueStatsDoc> stats = esTester.getDocuments(IssueIndexDefinition.INDEX, IssueIndexDefinition.TYPE_PROJECT_STATS, ProjectIssueStatsDoc.class);
+    assertThat(stats).hasSize(1);
+    ProjectIssueStatsDoc doc = stats.get(0);
+    assertThat(doc.count()).isEqualTo(1L);
+    assertThat(doc.effort()).isEqualTo(10L);
+    assertThat(doc.buckets("severities")).containsOnlyKeys(Severity.MAJOR);
+    assertThat(doc.buckets("assignees")).containsOnlyKeys("steve");
+    assertThat(doc.buckets("assignees").get("steve")).containsExactly(1L, 10L);
+  }
+
+  @Test
+  public void incremental_indexing_does_not_create_missing_stats() throws Exception {
+    dbTester.prepareDbUnit(getClass(), "index.xml");
+    IssueIndexer indexer = createIndexer();
+    // index is not empty, so that indexing is incremental
+    esTester.putDocuments(IssueIndexDefinition.INDEX, IssueIndexDefinition.TYPE_ISSUE,
+      newDoc().setKey("I1").setProjectUuid("OTHER_PROJECT").setTechnicalUpdateDate(new Date(1_000L)));
+
+    indexer.index();
+
+    verifyIssueKeys("I1", "ABCDE");
+    assertThat(esTester.countDocuments(IssueIndexDefinition.INDEX, IssueIndexDefinition.TYPE_PROJECT_STATS)).isZero();
+  }
+
+  @Test
+  public void delta_of_changed_issue_is_applied_to_counters() {
+    ProjectIssueStatsDoc stats = ProjectIssueStatsDoc.newDelta("P1")
+      .addIssue(newDoc().setSeverity(Severity.MAJOR).setAssignee("steve").setEffort(10L), 1)
+      .addIssue(newDoc().setSeverity(Severity.MINOR).setAssignee(null).setEffort(5L), 1);
+
+    ProjectIssueStatsDoc delta = ProjectIssueStatsDoc.newDelta("P1")
+      .addIssue(newDoc().setSeverity(Severity.MINOR).setAssignee(null).setEffort(5L), -1)
+      .addIssue(newDoc().setSeverity(Severity.MINOR).setAssignee(null).setEffort(8L), 1);
+    stats.add(delta);
+
+    assertThat(stats.count()).isEqualTo(2L);
+    assertThat(stats.effort()).isEqualTo(18L);
+    assertThat(stats.buckets("severities").get(Severity.MINOR)).containsExactly(1L, 8L);
+    assertThat(stats.buckets("assignees").get("")).containsExactly(1L, 8L);
+
+    stats.add(ProjectIssueStatsDoc.newDelta("P1").addIssue(newDoc().setSeverity(Severity.MAJOR).setAssignee("steve").setEffort(10L), -1));
+
+    assertThat(stats.count()).isEqualTo(1L);
+    assertThat(stats.buckets("severities")).containsOnlyKeys(Severity.MINOR);
+    assertThat(stats.buckets("assignees")).containsOnlyKeys("");
   }
 
   @Test
@@ -53,6 +53,9 @@ import org.sonar.server.search.QueryContext;
 import org.sonar.server.tester.ServerTester;
 import org.sonar.server.tester.UserSessionRule;
 import org.sonar.server.ws.WsTester;
+import org.sonarqube.ws.Common;
+import org.sonarqube.ws.Issues;
+import org.sonarqube.ws.MediaTypes;
 
 import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -145,6 +148,32 @@ public class SearchActionMediumTest {
     result.assertJson(this.getClass(), "response_contains_all_fields_except_additional_fields.json");
   }
 
+  @Test
+  public void return_protobuf_response() throws Exception {
+    db.userDao().insert(session, new UserDto().setLogin("simon").setName("Simon").setEmail("simon@email.com"));
+    ComponentDto project = insertComponent(ComponentTesting.newProjectDto("PROJECT_ID").setKey("PROJECT_KEY"));
+    setDefaultProjectPermission(project);
+    ComponentDto file = insertComponent(ComponentTesting.newFileDto(project, null, "FILE_ID").setKey("FILE_KEY"));
+    RuleDto rule = newRule();
+    db.issueDao().insert(session, IssueTesting.newDto(rule, file, project).setKee("ISSUE_1").setAssignee("simon"));
+    db.issueDao().insert(session, IssueTesting.newDto(rule, file, project).setKee("ISSUE_2"));
+    session.commit();
+    tester.get(IssueIndexer.class).indexAll();
+
+    WsTester.Result result = wsTester.newGetRequest(API_ENDPOINT, SEARCH_ACTION)
+      .setMediaType(MediaTypes.PROTOBUF)
+      .setParam("additionalFields", "rules,users")
+      .execute();
+
+    Issues.SearchWsResponse response = Issues.SearchWsResponse.parseFrom(result.output());
+    assertThat(response.getTotal()).isEqualTo(2);
+    assertThat(response.getPaging().getTotal()).isEqualTo(2);
+    assertThat(response.getIssuesList()).extracting(Issues.Issue::getKey).containsOnly("ISSUE_1", "ISSUE_2");
+    assertThat(response.getComponentsList()).extracting(Issues.Component::getKey).containsOnly("PROJECT_KEY", "FILE_KEY");
+    assertThat(response.getRules().getRulesList()).extracting(Common.Rule::getKey).containsOnly(rule.getKey().toString());
+    assertThat(response.getUsers().getUsersList()).extracting(Common.User::getLogin).containsOnly("simon");
+  }
+
   @Test
   public void issue_with_comments() throws Exception {
     db.userDao().insert(session, new UserDto().setLogin("john").setName("John"));
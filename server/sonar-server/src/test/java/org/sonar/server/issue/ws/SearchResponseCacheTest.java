@@ -0,0 +1,109 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue.ws;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.rule.RuleDao;
+import org.sonar.db.rule.RuleDto;
+import org.sonar.db.rule.RuleTesting;
+import org.sonar.db.user.UserDao;
+import org.sonar.db.user.UserDto;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+public class SearchResponseCacheTest {
+
+  static final RuleKey RULE_KEY_1 = RuleKey.of("java", "S001");
+  static final RuleKey RULE_KEY_2 = RuleKey.of("java", "S002");
+
+  DbClient dbClient = mock(DbClient.class);
+  DbSession dbSession = mock(DbSession.class);
+  RuleDao ruleDao = mock(RuleDao.class);
+  UserDao userDao = mock(UserDao.class);
+  SearchResponseCache underTest = new SearchResponseCache(dbClient);
+
+  @Before
+  public void setUp() {
+    when(dbClient.ruleDao()).thenReturn(ruleDao);
+    when(dbClient.userDao()).thenReturn(userDao);
+  }
+
+  @Test
+  public void load_only_missing_rules() {
+    RuleDto rule1 = RuleTesting.newDto(RULE_KEY_1);
+    RuleDto rule2 = RuleTesting.newDto(RULE_KEY_2);
+    when(ruleDao.selectByKeys(dbSession, singletonList(RULE_KEY_1))).thenReturn(singletonList(rule1));
+    when(ruleDao.selectByKeys(dbSession, singletonList(RULE_KEY_2))).thenReturn(singletonList(rule2));
+
+    assertThat(underTest.getRules(dbSession, singletonList(RULE_KEY_1))).containsOnly(rule1);
+    assertThat(underTest.getRules(dbSession, Arrays.asList(RULE_KEY_1, RULE_KEY_2))).containsOnly(rule1, rule2);
+    assertThat(underTest.getRules(dbSession, Arrays.asList(RULE_KEY_2, RULE_KEY_1))).containsOnly(rule1, rule2);
+
+    verify(ruleDao).selectByKeys(dbSession, singletonList(RULE_KEY_1));
+    verify(ruleDao).selectByKeys(dbSession, singletonList(RULE_KEY_2));
+    verifyNoMoreInteractions(ruleDao);
+  }
+
+  @Test
+  public void ignore_unknown_users() {
+    UserDto simon = new UserDto().setLogin("simon");
+    when(userDao.selectByLogins(eq(dbSession), anyListOf(String.class))).thenReturn(singletonList(simon));
+
+    assertThat(underTest.getUsers(dbSession, Arrays.asList("simon", "unknown"))).containsOnly(simon);
+    assertThat(underTest.getUsers(dbSession, singletonList("simon"))).containsOnly(simon);
+
+    verify(userDao).selectByLogins(dbSession, Arrays.asList("simon", "unknown"));
+    verifyNoMoreInteractions(userDao);
+  }
+
+  @Test
+  public void do_not_load_anything_when_no_keys() {
+    assertThat(underTest.getRules(dbSession, Collections.emptyList())).isEmpty();
+    assertThat(underTest.getUsers(dbSession, Collections.emptyList())).isEmpty();
+
+    verifyNoMoreInteractions(ruleDao, userDao);
+  }
+
+  @Test
+  public void reload_after_invalidation() {
+    UserDto simon = new UserDto().setLogin("simon");
+    when(userDao.selectByLogins(dbSession, singletonList("simon"))).thenReturn(singletonList(simon));
+    underTest.getUsers(dbSession, singletonList("simon"));
+
+    underTest.invalidate();
+    underTest.getUsers(dbSession, singletonList("simon"));
+
+    verify(userDao, times(2)).selectByLogins(dbSession, singletonList("simon"));
+  }
+}
@@ -24,11 +24,12 @@ import com.google.common.collect.Multimap;
 import java.io.InvalidClassException;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import org.junit.Before;
 import org.junit.Test;
-import org.mockito.InOrder;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.sonar.api.notifications.Notification;
@@ -36,11 +37,13 @@ import org.sonar.api.notifications.NotificationChannel;
 import org.sonar.db.notification.NotificationQueueDao;
 import org.sonar.db.notification.NotificationQueueDto;
 import org.sonar.db.property.PropertiesDao;
+import org.sonar.server.issue.notification.IssueChangeNotification;
+import org.sonar.server.notification.DefaultNotificationManager.QueuedNotification;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
-import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.only;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
@@ -93,17 +96,58 @@ public class DefaultNotificationManagerTest {
   }
 
   @Test
-  public void shouldGetFromQueueAndDelete() {
+  public void get_from_queue_without_removing() {
     Notification notification = new Notification("test");
     NotificationQueueDto dto = NotificationQueueDto.toNotificationQueueDto(notification);
-    List<NotificationQueueDto> dtos = Arrays.asList(dto);
-    when(notificationQueueDao.selectOldest(1)).thenReturn(dtos);
+    when(notificationQueueDao.selectOldest(1)).thenReturn(Arrays.asList(dto));
+
+    List<QueuedNotification> queued = manager.getFromQueue(1);
+
+    assertThat(queued).extracting("notification").containsExactly(notification);
+    verify(notificationQueueDao, never()).delete(any(List.class));
+  }
+
+  @Test
+  public void remove_from_queue() {
+    NotificationQueueDto dto = NotificationQueueDto.toNotificationQueueDto(new Notification("test"));
+    when(notificationQueueDao.selectOldest(1)).thenReturn(Arrays.asList(dto));
+
+    manager.removeFromQueue(manager.getFromQueue(1));
+
+    verify(notificationQueueDao).delete(Arrays.asList(dto));
+  }
+
+  @Test
+  public void queue_known_issue_notifications_in_compact_form() throws Exception {
+    manager.scheduleForSending(new IssueChangeNotification().setFieldValue("key", "value"));
+
+    ArgumentCaptor<List> dtos = ArgumentCaptor.forClass(List.class);
+    verify(notificationQueueDao).insert(dtos.capture());
+    NotificationQueueDto dto = (NotificationQueueDto) dtos.getValue().get(0);
+    assertThat(dto.getQueuedAt()).isNotNull();
+    assertThat(dto.toNotification().getFieldValue("key")).isEqualTo("value");
+  }
 
-    assertThat(manager.getFromQueue()).isNotNull();
+  @Test
+  public void get_batch_from_queue_and_compute_lag() {
+    Notification notification1 = new Notification("test1");
+    Notification notification2 = new Notification("test2");
+    List<NotificationQueueDto> dtos = Arrays.asList(NotificationQueueDto.toNotificationQueueDto(notification1), NotificationQueueDto.toNotificationQueueDto(notification2));
+    when(notificationQueueDao.selectOldest(10)).thenReturn(dtos);
+
+    assertThat(manager.getLastQueueLag()).isNull();
+    assertThat(manager.getFromQueue(10)).extracting("notification").containsExactly(notification1, notification2);
+
+    assertThat(manager.getLastQueueLag()).isGreaterThanOrEqualTo(0L);
+  }
+
+  @Test
+  public void get_empty_batch_from_queue() {
+    when(notificationQueueDao.selectOldest(10)).thenReturn(Collections.emptyList());
 
-    InOrder inOrder = inOrder(notificationQueueDao);
-    inOrder.verify(notificationQueueDao).selectOldest(1);
-    inOrder.verify(notificationQueueDao).delete(dtos);
+    assertThat(manager.getFromQueue(10)).isEmpty();
+
+    verify(notificationQueueDao, never()).delete(any(List.class));
   }
 
   // SONAR-4739
@@ -115,10 +159,11 @@ public class DefaultNotificationManagerTest {
     when(notificationQueueDao.selectOldest(1)).thenReturn(dtos);
 
     manager = spy(manager);
-    assertThat(manager.getFromQueue()).isNull();
-    assertThat(manager.getFromQueue()).isNull();
+    assertThat(manager.getFromQueue(1)).isEmpty();
+    assertThat(manager.getFromQueue(1)).isEmpty();
 
     verify(manager, times(1)).logDeserializationIssue();
+    verify(notificationQueueDao, times(2)).delete(dtos);
   }
 
   @Test
@@ -162,6 +207,18 @@ public class DefaultNotificationManagerTest {
     assertThat(map.get("user4")).isNull();
   }
 
+  @Test
+  public void load_recipients_once_per_dispatcher_and_project() {
+    when(propertiesDao.selectUsersForNotification("NewViolations", "Email", "uuid_45")).thenReturn(Lists.newArrayList("user1"));
+
+    assertThat(manager.findSubscribedRecipientsForDispatcher(dispatcher, "uuid_45").keySet()).containsOnly("user1");
+    assertThat(manager.findSubscribedRecipientsForDispatcher(dispatcher, "uuid_45").keySet()).containsOnly("user1");
+    manager.findSubscribedRecipientsForDispatcher(dispatcher, "uuid_56");
+
+    verify(propertiesDao, times(1)).selectUsersForNotification("NewViolations", "Email", "uuid_45");
+    verify(propertiesDao, times(1)).selectUsersForNotification("NewViolations", "Email", "uuid_56");
+  }
+
   @Test
   public void findNotificationSubscribers() {
     when(propertiesDao.selectNotificationSubscribers("NewViolations", "Email", "struts")).thenReturn(Lists.newArrayList("user1", "user2"));
@@ -29,17 +29,25 @@ import org.sonar.api.config.MapSettings;
 import org.sonar.api.notifications.Notification;
 import org.sonar.api.notifications.NotificationChannel;
 import org.sonar.db.DbClient;
+import org.sonar.db.notification.NotificationQueueDto;
 import org.sonar.db.property.PropertiesDao;
+import org.sonar.server.notification.DefaultNotificationManager.QueuedNotification;
 
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyListOf;
+import static org.mockito.Mockito.anyInt;
 import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.same;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -50,6 +58,7 @@ public class NotificationDaemonTest {
 
   private DefaultNotificationManager manager = mock(DefaultNotificationManager.class);
   private Notification notification = mock(Notification.class);
+  private QueuedNotification queuedNotification = new QueuedNotification(new NotificationQueueDto(), notification);
   private NotificationChannel emailChannel = mock(NotificationChannel.class);
   private NotificationChannel gtalkChannel = mock(NotificationChannel.class);
   private NotificationDispatcher commentOnIssueAssignedToMe = mock(NotificationDispatcher.class);
@@ -68,7 +77,7 @@ public class NotificationDaemonTest {
     when(commentOnIssueCreatedByMe.getType()).thenReturn("issue-changes");
     when(qualityGateChange.getKey()).thenReturn("QGateChange");
     when(qualityGateChange.getType()).thenReturn("qgate-changes");
-    when(manager.getFromQueue()).thenReturn(notification).thenReturn(null);
+    when(manager.getFromQueue(anyInt())).thenReturn(singletonList(queuedNotification)).thenReturn(emptyList());
 
     Settings settings = new MapSettings().setProperty("sonar.notifications.delay", 1L);
 
@@ -174,7 +183,7 @@ public class NotificationDaemonTest {
   @Test
   public void shouldNotStopWhenException() {
     setUpMocks();
-    when(manager.getFromQueue()).thenThrow(new RuntimeException("Unexpected exception")).thenReturn(notification).thenReturn(null);
+    when(manager.getFromQueue(anyInt())).thenThrow(new RuntimeException("Unexpected exception")).thenReturn(singletonList(queuedNotification)).thenReturn(emptyList());
     doAnswer(addUser(ASSIGNEE_SIMON, emailChannel)).when(commentOnIssueAssignedToMe).dispatch(same(notification), any(NotificationDispatcher.Context.class));
     doAnswer(addUser(CREATOR_SIMON, emailChannel)).when(commentOnIssueCreatedByMe).dispatch(same(notification), any(NotificationDispatcher.Context.class));
 
@@ -216,7 +225,7 @@ public class NotificationDaemonTest {
   public void shouldLogEvery10Minutes() {
     setUpMocks();
     // Emulate 2 notifications in DB
-    when(manager.getFromQueue()).thenReturn(notification).thenReturn(notification).thenReturn(null);
+    when(manager.getFromQueue(anyInt())).thenReturn(singletonList(queuedNotification)).thenReturn(singletonList(queuedNotification)).thenReturn(emptyList());
     when(manager.count()).thenReturn(1L).thenReturn(0L);
     underTest = spy(underTest);
     // Emulate processing of each notification take 10 min to have a log each time
@@ -227,6 +236,50 @@ public class NotificationDaemonTest {
     underTest.stop();
   }
 
+  @Test
+  public void deliver_batches_and_compute_statistics() {
+    setUpMocks();
+    Notification other = mock(Notification.class);
+    QueuedNotification queuedOther = new QueuedNotification(new NotificationQueueDto(), other);
+    when(manager.getFromQueue(anyInt())).thenReturn(Arrays.asList(queuedNotification, queuedOther)).thenReturn(emptyList());
+    doAnswer(addUser(ASSIGNEE_SIMON, emailChannel)).when(commentOnIssueAssignedToMe).dispatch(any(Notification.class), any(NotificationDispatcher.Context.class));
+
+    underTest.start();
+    verify(emailChannel, timeout(2000)).deliver(notification, ASSIGNEE_SIMON);
+    verify(emailChannel, timeout(2000)).deliver(other, ASSIGNEE_SIMON);
+    verify(manager, timeout(2000)).removeFromQueue(Arrays.asList(queuedNotification, queuedOther));
+    underTest.stop();
+
+    assertThat(underTest.getDeliveredCount()).isEqualTo(2);
+    assertThat(underTest.getLastThroughput()).isGreaterThan(0.0);
+  }
+
+  @Test
+  public void remove_notification_from_queue_when_dispatch_fails() {
+    setUpMocks();
+    doThrow(new IllegalStateException("SMTP failure")).when(commentOnIssueAssignedToMe).dispatch(same(notification), any(NotificationDispatcher.Context.class));
+
+    underTest.start();
+    verify(manager, timeout(2000)).removeFromQueue(singletonList(queuedNotification));
+    underTest.stop();
+
+    verify(emailChannel, never()).deliver(any(Notification.class), anyString());
+  }
+
+  @Test
+  public void stop_processing_queue_when_notifications_can_not_be_removed() {
+    setUpMocks();
+    underTest = new NotificationDaemon(new MapSettings().setProperty("sonar.notifications.delay", 3600L), manager, service);
+    when(manager.getFromQueue(anyInt())).thenReturn(singletonList(queuedNotification));
+    doThrow(new IllegalStateException("DB failure")).when(manager).removeFromQueue(anyListOf(QueuedNotification.class));
+
+    underTest.start();
+    verify(manager, timeout(2000)).removeFromQueue(singletonList(queuedNotification));
+    underTest.stop();
+
+    verify(manager, times(1)).getFromQueue(anyInt());
+  }
+
   @Test
   public void hasProjectSubscribersForType() {
     setUpMocks();
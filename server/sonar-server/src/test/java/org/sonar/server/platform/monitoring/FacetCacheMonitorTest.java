@@ -0,0 +1,60 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+import java.util.Map;
+import org.junit.Test;
+import org.sonar.server.es.FacetCache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FacetCacheMonitorTest {
+
+  FacetCache facetCache = mock(FacetCache.class);
+  FacetCacheMonitor underTest = new FacetCacheMonitor(facetCache);
+
+  @Test
+  public void name_is_not_empty() {
+    assertThat(underTest.name()).isNotEmpty();
+  }
+
+  @Test
+  public void attributes() {
+    when(facetCache.size()).thenReturn(5L);
+    when(facetCache.getHits()).thenReturn(30L);
+    when(facetCache.getMisses()).thenReturn(10L);
+    when(facetCache.getSavedMillis()).thenReturn(1_500L);
+
+    Map<String, Object> attributes = underTest.attributes();
+
+    assertThat(attributes).containsEntry("Entries", 5L)
+      .containsEntry("Hits", 30L)
+      .containsEntry("Misses", 10L)
+      .containsEntry("Hit Rate", 0.75)
+      .containsEntry("Saved Elasticsearch Time (ms)", 1_500L);
+  }
+
+  @Test
+  public void hit_rate_is_zero_if_no_searches() {
+    assertThat(underTest.getHitRate()).isEqualTo(0.0);
+  }
+}
@@ -20,6 +20,7 @@
 package org.sonar.server.plugins;
 
 import java.io.File;
+import org.apache.commons.io.FileUtils;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
@@ -27,6 +28,7 @@ import org.sonar.core.platform.ExplodedPlugin;
 import org.sonar.core.platform.PluginInfo;
 import org.sonar.server.platform.ServerFileSystem;
 
+import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -41,7 +43,9 @@ public class ServerPluginJarExploderTest {
 
   @Test
   public void copy_all_classloader_files_to_dedicated_directory() throws Exception {
+    File dataDir = temp.newFolder();
     File deployDir = temp.newFolder();
+    when(fs.getDataDir()).thenReturn(dataDir);
     when(fs.getDeployedPluginsDir()).thenReturn(deployDir);
     File jar = TestProjectUtils.jarOf("test-libs-plugin");
     PluginInfo info = PluginInfo.create(jar);
@@ -49,15 +53,49 @@ public class ServerPluginJarExploderTest {
     ExplodedPlugin exploded = underTest.explode(info);
 
     // all the files loaded by classloaders (JAR + META-INF/libs/*.jar) are copied to the dedicated directory
-    // web/deploy/{pluginKey}
-    File pluginDeployDir = new File(deployDir, "testlibs");
+    // web/exploded-plugins/{pluginKey}
+    File pluginExplodedDir = new File(dataDir, "web/exploded-plugins/testlibs");
 
     assertThat(exploded.getKey()).isEqualTo("testlibs");
-    assertThat(exploded.getMain()).isFile().exists().hasParent(pluginDeployDir);
+    assertThat(exploded.getMain()).isFile().exists().hasParent(pluginExplodedDir);
     assertThat(exploded.getLibs()).extracting("name").containsOnly("commons-daemon-1.0.15.jar", "commons-email-20030310.165926.jar");
     for (File lib : exploded.getLibs()) {
       assertThat(lib).exists().isFile();
-      assertThat(lib.getCanonicalPath()).startsWith(pluginDeployDir.getCanonicalPath());
+      assertThat(lib.getCanonicalPath()).startsWith(pluginExplodedDir.getCanonicalPath());
     }
+    // scanners download the JAR from web/deploy/plugins/{pluginKey}
+    assertThat(new File(deployDir, "testlibs/" + exploded.getMain().getName())).isFile().hasContentEqualTo(jar);
+  }
+
+  @Test
+  public void deploy_jar_again_without_exploding_it_when_deploy_directory_has_been_cleaned_up() throws Exception {
+    File dataDir = temp.newFolder();
+    File deployDir = temp.newFolder();
+    when(fs.getDataDir()).thenReturn(dataDir);
+    when(fs.getDeployedPluginsDir()).thenReturn(deployDir);
+    PluginInfo info = PluginInfo.create(TestProjectUtils.jarOf("test-libs-plugin"));
+    File marker = new File(underTest.explode(info).getMain().getParentFile(), "marker.txt");
+    assertThat(marker.createNewFile()).isTrue();
+
+    FileUtils.cleanDirectory(deployDir);
+    ExplodedPlugin exploded = underTest.explode(info);
+
+    assertThat(marker).exists();
+    assertThat(new File(deployDir, "testlibs/" + exploded.getMain().getName())).isFile();
+  }
+
+  @Test
+  public void delete_exploded_directories_of_uninstalled_plugins() throws Exception {
+    File dataDir = temp.newFolder();
+    when(fs.getDataDir()).thenReturn(dataDir);
+    File installedDir = new File(dataDir, "web/exploded-plugins/testlibs");
+    File uninstalledDir = new File(dataDir, "web/exploded-plugins/uninstalled");
+    FileUtils.forceMkdir(installedDir);
+    FileUtils.forceMkdir(uninstalledDir);
+
+    underTest.deleteUninstalled(singletonList(PluginInfo.create(TestProjectUtils.jarOf("test-libs-plugin"))));
+
+    assertThat(installedDir).exists();
+    assertThat(uninstalledDir).doesNotExist();
   }
 }
@@ -1078,6 +1078,28 @@ public class RuleActivatorMediumTest {
     verifyHasActiveRuleInDbAndIndex(ActiveRuleKey.of(XOO_P3_KEY, XOO_X2), BLOCKER, INHERITED, Collections.<String, String>emptyMap());
   }
 
+  @Test
+  public void bulk_activation_propagates_to_descendants_and_keeps_overrides() {
+    createChildProfiles();
+
+    // x1 is overridden on P2 before activation on P1
+    activate(new RuleActivation(XOO_X1).setSeverity(MINOR).setParameter("max", "5"), XOO_P2_KEY);
+
+    RuleQuery query = new RuleQuery().setRepositories(Arrays.asList(XOO_X1.repository())).setLanguages(Arrays.asList("xoo"));
+    BulkChangeResult result = ruleActivator.bulkActivate(query, XOO_P1_KEY, BLOCKER);
+    dbSession.clearCache();
+
+    assertThat(result.countSucceeded()).isGreaterThanOrEqualTo(2);
+    verifyHasActiveRuleInDbAndIndex(ActiveRuleKey.of(XOO_P1_KEY, XOO_X1), BLOCKER, null, ImmutableMap.of("max", "10"));
+    verifyHasActiveRuleInDbAndIndex(ActiveRuleKey.of(XOO_P1_KEY, XOO_X2), BLOCKER, null, Collections.<String, String>emptyMap());
+    verifyHasActiveRuleInDbAndIndex(ActiveRuleKey.of(XOO_P2_KEY, XOO_X1), MINOR, OVERRIDES, ImmutableMap.of("max", "5"));
+    verifyHasActiveRuleInDbAndIndex(ActiveRuleKey.of(XOO_P2_KEY, XOO_X2), BLOCKER, INHERITED, Collections.<String, String>emptyMap());
+    verifyHasActiveRuleInDbAndIndex(ActiveRuleKey.of(XOO_P3_KEY, XOO_X1), MINOR, INHERITED, ImmutableMap.of("max", "5"));
+    verifyHasActiveRuleInDbAndIndex(ActiveRuleKey.of(XOO_P3_KEY, XOO_X2), BLOCKER, INHERITED, Collections.<String, String>emptyMap());
+    assertThat(db.qualityProfileDao().selectByKey(dbSession, XOO_P1_KEY).getRulesUpdatedAt()).isNotEmpty();
+    assertThat(db.qualityProfileDao().selectByKey(dbSession, XOO_P3_KEY).getRulesUpdatedAt()).isNotEmpty();
+  }
+
   private int countActiveRules(String profileKey) {
     List<ActiveRuleDto> activeRuleDtos = db.activeRuleDao().selectByProfileKey(dbSession, profileKey);
     return activeRuleDtos.size();
@@ -329,6 +329,27 @@ public class RegisterRulesTest {
     assertThat(rule1.getUpdatedAt()).isEqualTo(DATE1.getTime());
   }
 
+  @Test
+  public void skip_repositories_with_unchanged_definitions() {
+    execute(new FakeRepositoryV1());
+    assertThat(dbClient.internalPropertiesDao().selectByKey(dbTester.getSession(), RegisterRules.FINGERPRINTS_PROPERTY)).isPresent();
+
+    // rule is changed in db only -> not reverted as definitions did not change
+    RuleDto rule1 = dbClient.ruleDao().selectOrFailByKey(dbTester.getSession(), RULE_KEY1);
+    dbClient.ruleDao().update(dbTester.getSession(), rule1.setName("Changed"));
+    dbTester.getSession().commit();
+
+    when(system.now()).thenReturn(DATE2.getTime());
+    execute(new FakeRepositoryV1());
+    assertThat(dbClient.ruleDao().selectOrFailByKey(dbTester.getSession(), RULE_KEY1).getName()).isEqualTo("Changed");
+
+    // definitions changed -> repository is registered again
+    execute(new FakeRepositoryV2());
+    rule1 = dbClient.ruleDao().selectOrFailByKey(dbTester.getSession(), RULE_KEY1);
+    assertThat(rule1.getName()).isEqualTo("One v2");
+    assertThat(rule1.getUpdatedAt()).isEqualTo(DATE2.getTime());
+  }
+
   @Test
   public void do_not_update_already_removed_rules() {
     execute(new FakeRepositoryV1());
@@ -0,0 +1,68 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.rule;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.Collections;
+import java.util.Map;
+import org.junit.Test;
+import org.sonar.api.server.rule.RulesDefinition;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RuleRepositoryFingerprintTest {
+
+  @Test
+  public void same_definitions_have_same_fingerprint() {
+    assertThat(fingerprint(new RegisterRulesTest.FakeRepositoryV1())).isEqualTo(fingerprint(new RegisterRulesTest.FakeRepositoryV1()));
+  }
+
+  @Test
+  public void fingerprint_changes_when_definitions_change() {
+    assertThat(fingerprint(new RegisterRulesTest.FakeRepositoryV1())).isNotEqualTo(fingerprint(new RegisterRulesTest.FakeRepositoryV2()));
+    assertThat(fingerprint(newRepository("default1"))).isNotEqualTo(fingerprint(newRepository("default2")));
+  }
+
+  @Test
+  public void format_and_parse() {
+    Map<String, String> fingerprints = ImmutableMap.of("squid", "abc", "common-java", "def");
+
+    assertThat(RuleRepositoryFingerprint.parse(RuleRepositoryFingerprint.format(fingerprints))).isEqualTo(fingerprints);
+    assertThat(RuleRepositoryFingerprint.parse(null)).isEmpty();
+    assertThat(RuleRepositoryFingerprint.parse("")).isEmpty();
+  }
+
+  private static RulesDefinition newRepository(String paramDefaultValue) {
+    return context -> {
+      RulesDefinition.NewRepository repo = context.createRepository("fake", "java");
+      repo.createRule("rule1")
+        .setName("One")
+        .setHtmlDescription("Description of One")
+        .createParam("param1").setDefaultValue(paramDefaultValue);
+      repo.done();
+    };
+  }
+
+  private static String fingerprint(RulesDefinition definition) {
+    RulesDefinition.Context context = new RulesDefinition.Context();
+    definition.define(context);
+    return RuleRepositoryFingerprint.of(Collections.singletonList(context.repository("fake")));
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.source;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LineDecorationsTest {
+
+  @Test
+  public void render_line_without_decorations() {
+    assertThat(LineDecorations.parse(null, null).toHtml("if (a < b && c > d) {")).isEqualTo("if (a &lt; b &amp;&amp; c &gt; d) {");
+    assertThat(LineDecorations.parse("", " ").toHtml("")).isEqualTo("");
+  }
+
+  @Test
+  public void open_tags_in_order_of_offsets_then_declaration() {
+    LineDecorations decorations = LineDecorations.parse("11,16,k;0,6,k;0,20,cd", "7,9,3");
+
+    assertThat(decorations.toHtml("public int foo() {}")).isEqualTo(
+      "<span class=\"k\"><span class=\"cd\">public</span> <span class=\"sym-3 sym\">in</span>t <span class=\"k\">foo()</span> {}</span>");
+  }
+
+  @Test
+  public void close_tags_left_open_at_end_of_line() {
+    assertThat(LineDecorations.parse("2,50,s", "0,1,8").toHtml("a \"b\"")).isEqualTo("<span class=\"sym-8 sym\">a</span> <span class=\"s\">\"b\"</span>");
+  }
+
+  @Test
+  public void ignore_empty_highlighting_rules() {
+    assertThat(LineDecorations.parse("1,1,k", null).toHtml("abc")).isEqualTo("abc");
+  }
+
+  @Test
+  public void render_same_html_as_text_decorator() {
+    String line = "  private static final String A = \"<a>\"; // a & b";
+    String highlighting = "2,9,k;10,16,k;17,22,k;34,39,s;41,51,cd";
+    String symbols = "30,31,1";
+
+    DecorationDataHolder holder = new DecorationDataHolder();
+    holder.loadSyntaxHighlightingData(highlighting);
+    holder.loadLineSymbolReferences(symbols);
+    String expected = new HtmlTextDecorator().decorateTextWithHtml(line, holder, 1, 1).get(0);
+
+    assertThat(LineDecorations.parse(highlighting, symbols).toHtml(line)).isEqualTo(expected);
+  }
+}
@@ -34,7 +34,10 @@ import org.sonar.db.source.FileSourceDto;
 import org.sonar.server.source.index.FileSourceTesting;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class SourceServiceTest {
@@ -90,6 +93,21 @@ public class SourceServiceTest {
     assertThat(lines).containsExactly("HTML_5", "HTML_6", "HTML_7");
   }
 
+  @Test
+  public void decorate_lines_once_per_data_hash() throws Exception {
+    FileSourceDto dto = new FileSourceDto();
+    dto.setFileUuid("OTHER_FILE_UUID").setProjectUuid("PROJECT_UUID").setDataHash("DATA_HASH");
+    dto.setSourceData(FileSourceTesting.newFakeData(3).build());
+    dbTester.getDbClient().fileSourceDao().insert(dto);
+    when(htmlDecorator.getDecoratedSourceAsHtml("SOURCE_2", "HIGHLIGHTING_2", "SYMBOLS_2")).thenReturn("HTML_2");
+
+    assertThat(underTest.getLinesAsHtml(dbTester.getSession(), "OTHER_FILE_UUID", 2, 2).get()).containsExactly("HTML_2");
+    assertThat(underTest.getLinesAsHtml(dbTester.getSession(), "OTHER_FILE_UUID", 1, 3, (line, html) -> line.getLine() + ":" + html).get())
+      .containsExactly("1:null", "2:HTML_2", "3:null");
+
+    verify(htmlDecorator, times(3)).getDecoratedSourceAsHtml(anyString(), anyString(), anyString());
+  }
+
   @Test
   public void getLines_fails_if_range_starts_at_zero() {
     expectedException.expect(IllegalArgumentException.class);
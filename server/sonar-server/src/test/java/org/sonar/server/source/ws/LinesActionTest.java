@@ -82,7 +82,7 @@ public class LinesActionTest {
     sourceService = new SourceService(dbTester.getDbClient(), htmlSourceDecorator);
     componentDao = new ComponentDao();
     wsTester = new WsTester(new SourcesWs(
-      new LinesAction(new ComponentFinder(dbTester.getDbClient()), dbTester.getDbClient(), sourceService, htmlSourceDecorator, userSessionRule)));
+      new LinesAction(new ComponentFinder(dbTester.getDbClient()), dbTester.getDbClient(), sourceService, userSessionRule)));
   }
 
   @Test
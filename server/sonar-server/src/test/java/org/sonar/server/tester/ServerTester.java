@@ -42,9 +42,12 @@ import org.sonar.core.platform.ComponentContainer;
 import org.sonar.process.ProcessEntryPoint;
 import org.sonar.process.ProcessProperties;
 import org.sonar.server.es.EsServerHolder;
+import org.sonar.server.es.FacetCache;
+import org.sonar.server.issue.ws.SearchResponseCache;
 import org.sonar.server.platform.BackendCleanup;
 import org.sonar.server.platform.ServerTesterPlatform;
 import org.sonar.server.plugins.UpdateCenterClient;
+import org.sonar.server.user.AuthorizationCache;
 import org.sonar.server.ws.WsTester;
 import org.sonar.test.TestUtils;
 
@@ -223,6 +226,25 @@ public class ServerTester extends ExternalResource {
   public void clearDbAndIndexes() {
     checkStarted();
     get(BackendCleanup.class).clearAll();
+    clearCaches();
+  }
+
+  /**
+   * In-memory caches of db and index data must not return data of previous tests
+   */
+  private void clearCaches() {
+    AuthorizationCache authorizationCache = get(AuthorizationCache.class);
+    if (authorizationCache != null) {
+      authorizationCache.invalidate();
+    }
+    SearchResponseCache searchResponseCache = get(SearchResponseCache.class);
+    if (searchResponseCache != null) {
+      searchResponseCache.invalidate();
+    }
+    FacetCache facetCache = get(FacetCache.class);
+    if (facetCache != null) {
+      facetCache.invalidate();
+    }
   }
 
   public void clearIndexes() {
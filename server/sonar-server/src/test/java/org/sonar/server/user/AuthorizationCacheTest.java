@@ -0,0 +1,134 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.user;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbClient;
+import org.sonar.db.component.ResourceDao;
+import org.sonar.db.component.ResourceDto;
+import org.sonar.db.user.AuthorizationDao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AuthorizationCacheTest {
+
+  static final int USER_ID = 10;
+
+  DbClient dbClient = mock(DbClient.class);
+  AuthorizationDao authorizationDao = mock(AuthorizationDao.class);
+  ResourceDao resourceDao = mock(ResourceDao.class);
+  System2 system2 = mock(System2.class);
+  AuthorizationCache underTest = new AuthorizationCache(dbClient, system2);
+
+  @Before
+  public void setUp() {
+    when(dbClient.authorizationDao()).thenReturn(authorizationDao);
+    when(dbClient.resourceDao()).thenReturn(resourceDao);
+    when(system2.now()).thenReturn(1_000L);
+  }
+
+  @Test
+  public void load_authorized_projects_once() {
+    when(authorizationDao.selectAuthorizedRootProjectsKeys(USER_ID, "user")).thenReturn(Arrays.asList("P2", "P1"));
+    when(authorizationDao.selectAuthorizedRootProjectsUuids(USER_ID, "user")).thenReturn(Collections.singletonList("UUID1"));
+
+    assertThat(underTest.hasRootProjectPermissionByKey(USER_ID, "user", "P1")).isTrue();
+    assertThat(underTest.hasRootProjectPermissionByKey(USER_ID, "user", "P2")).isTrue();
+    assertThat(underTest.hasRootProjectPermissionByKey(USER_ID, "user", "P3")).isFalse();
+    assertThat(underTest.hasRootProjectPermissionByUuid(USER_ID, "user", "UUID1")).isTrue();
+
+    verify(authorizationDao, times(1)).selectAuthorizedRootProjectsKeys(USER_ID, "user");
+    verify(authorizationDao, times(1)).selectAuthorizedRootProjectsUuids(USER_ID, "user");
+  }
+
+  @Test
+  public void cache_anonymous_permissions() {
+    when(authorizationDao.selectAuthorizedRootProjectsKeys(null, "user")).thenReturn(Collections.singletonList("P1"));
+
+    assertThat(underTest.hasRootProjectPermissionByKey(null, "user", "P1")).isTrue();
+    assertThat(underTest.hasRootProjectPermissionByKey(null, "user", "P1")).isTrue();
+
+    verify(authorizationDao, times(1)).selectAuthorizedRootProjectsKeys(null, "user");
+  }
+
+  @Test
+  public void reload_missing_project_after_min_interval() {
+    when(authorizationDao.selectAuthorizedRootProjectsKeys(USER_ID, "user"))
+      .thenReturn(Collections.singletonList("P1"))
+      .thenReturn(Arrays.asList("P1", "NEW"));
+
+    assertThat(underTest.hasRootProjectPermissionByKey(USER_ID, "user", "NEW")).isFalse();
+
+    when(system2.now()).thenReturn(1_000L + AuthorizationCache.MIN_RELOAD_INTERVAL_IN_MS);
+    assertThat(underTest.hasRootProjectPermissionByKey(USER_ID, "user", "NEW")).isTrue();
+    verify(authorizationDao, times(2)).selectAuthorizedRootProjectsKeys(USER_ID, "user");
+  }
+
+  @Test
+  public void invalidate() {
+    when(authorizationDao.selectAuthorizedRootProjectsKeys(USER_ID, "user"))
+      .thenReturn(Collections.singletonList("P1"))
+      .thenReturn(Collections.emptyList());
+    assertThat(underTest.hasRootProjectPermissionByKey(USER_ID, "user", "P1")).isTrue();
+
+    underTest.invalidate();
+
+    assertThat(underTest.hasRootProjectPermissionByKey(USER_ID, "user", "P1")).isFalse();
+  }
+
+  @Test
+  public void invalidate_user() {
+    when(authorizationDao.selectAuthorizedRootProjectsKeys(USER_ID, "user"))
+      .thenReturn(Collections.singletonList("P1"))
+      .thenReturn(Collections.emptyList());
+    when(authorizationDao.selectAuthorizedRootProjectsKeys(null, "user")).thenReturn(Collections.singletonList("P1"));
+    assertThat(underTest.hasRootProjectPermissionByKey(USER_ID, "user", "P1")).isTrue();
+    assertThat(underTest.hasRootProjectPermissionByKey(null, "user", "P1")).isTrue();
+
+    underTest.invalidateUser(USER_ID);
+
+    assertThat(underTest.hasRootProjectPermissionByKey(USER_ID, "user", "P1")).isFalse();
+    assertThat(underTest.hasRootProjectPermissionByKey(null, "user", "P1")).isTrue();
+    verify(authorizationDao, times(1)).selectAuthorizedRootProjectsKeys(null, "user");
+  }
+
+  @Test
+  public void cache_root_projects_of_components() {
+    when(resourceDao.getRootProjectByComponentKey("P1:File.java")).thenReturn(new ResourceDto().setKey("P1"));
+    when(resourceDao.selectResource("FILE_UUID")).thenReturn(new ResourceDto().setProjectUuid("PROJECT_UUID"));
+
+    assertThat(underTest.getRootProjectKey("P1:File.java")).isEqualTo("P1");
+    assertThat(underTest.getRootProjectKey("P1:File.java")).isEqualTo("P1");
+    assertThat(underTest.getRootProjectKey("unknown")).isNull();
+    assertThat(underTest.getProjectUuid("FILE_UUID")).isEqualTo("PROJECT_UUID");
+    assertThat(underTest.getProjectUuid("FILE_UUID")).isEqualTo("PROJECT_UUID");
+
+    verify(resourceDao, times(1)).getRootProjectByComponentKey("P1:File.java");
+    verify(resourceDao, times(1)).selectResource("FILE_UUID");
+  }
+}
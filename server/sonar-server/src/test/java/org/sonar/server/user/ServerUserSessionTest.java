@@ -65,6 +65,8 @@ public class ServerUserSessionTest {
 
   DbSession dbSession = dbTester.getSession();
 
+  AuthorizationCache authorizationCache = new AuthorizationCache(dbClient, System2.INSTANCE);
+
   UserDto userDto = newUserDto().setLogin(LOGIN);
   ComponentDto project, file;
 
@@ -264,12 +266,25 @@ public class ServerUserSessionTest {
     assertThat(session.hasComponentPermission(UserRole.ADMIN, FILE_KEY)).isFalse();
   }
 
+  @Test
+  public void share_project_permissions_between_sessions() {
+    addProjectPermissions(project, UserRole.USER);
+    assertThat(newUserSession(userDto).hasComponentPermission(UserRole.USER, FILE_KEY)).isTrue();
+
+    addProjectPermissions(project, UserRole.CODEVIEWER);
+    authorizationCache.invalidate();
+
+    UserSession session = newUserSession(userDto);
+    assertThat(session.hasComponentPermission(UserRole.USER, FILE_KEY)).isTrue();
+    assertThat(session.hasComponentPermission(UserRole.CODEVIEWER, FILE_KEY)).isTrue();
+  }
+
   private ServerUserSession newUserSession(UserDto userDto) {
-    return createForUser(dbClient, userDto);
+    return createForUser(dbClient, authorizationCache, userDto);
   }
 
   private ServerUserSession newAnonymousSession() {
-    return createForAnonymous(dbClient);
+    return createForAnonymous(dbClient, authorizationCache);
   }
 
   private void addGlobalPermissions(String... permissions) {
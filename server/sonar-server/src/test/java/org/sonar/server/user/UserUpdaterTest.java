@@ -77,6 +77,7 @@ public class UserUpdaterTest {
   DbClient dbClient = db.getDbClient();
 
   NewUserNotifier newUserNotifier = mock(NewUserNotifier.class);
+  AuthorizationCache authorizationCache = mock(AuthorizationCache.class);
 
   ArgumentCaptor<NewUserHandler.Context> newUserHandler = ArgumentCaptor.forClass(NewUserHandler.Context.class);
 
@@ -93,7 +94,7 @@ public class UserUpdaterTest {
   public void setUp() {
     userIndexer = new UserIndexer(dbClient, es.client());
     userUpdater = new UserUpdater(newUserNotifier, settings, dbClient,
-      userIndexer, system2);
+      userIndexer, system2, authorizationCache);
 
     when(system2.now()).thenReturn(NOW);
   }
@@ -446,6 +447,7 @@ public class UserUpdaterTest {
     assertThat(membership.groups()).hasSize(1);
     assertThat(membership.groups().get(0).name()).isEqualTo("sonar-users");
     assertThat(membership.groups().get(0).isMember()).isTrue();
+    verify(authorizationCache).invalidateUser(userDao.selectByLogin(session, "user").getId());
   }
 
   @Test
@@ -593,6 +595,7 @@ public class UserUpdaterTest {
     assertThat(membership.groups()).hasSize(1);
     assertThat(membership.groups().get(0).name()).isEqualTo("sonar-users");
     assertThat(membership.groups().get(0).isMember()).isTrue();
+    verify(authorizationCache).invalidateUser(userDao.selectByLogin(session, DEFAULT_LOGIN).getId());
   }
 
   @Test
@@ -970,6 +973,16 @@ public class UserUpdaterTest {
     }
   }
 
+  @Test
+  public void invalidate_authorizations_when_deactivating_user() {
+    addUser(newUserDto().setLogin(DEFAULT_LOGIN).setActive(true));
+
+    userUpdater.deactivateUserByLogin(DEFAULT_LOGIN);
+
+    assertThat(userDao.selectByLogin(session, DEFAULT_LOGIN).isActive()).isFalse();
+    verify(authorizationCache).invalidate();
+  }
+
   private void createDefaultGroup() {
     settings.setProperty(CORE_DEFAULT_GROUP, "sonar-users");
     groupDao.insert(session, new GroupDto().setName("sonar-users").setDescription("Sonar Users"));
@@ -46,9 +46,11 @@ import org.sonar.db.user.UserGroupDto;
 import org.sonar.db.user.UserPermissionDto;
 import org.sonar.server.exceptions.NotFoundException;
 import org.sonar.server.tester.UserSessionRule;
+import org.sonar.server.user.AuthorizationCache;
 import org.sonar.server.ws.WsTester;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
 import static org.sonar.db.user.GroupTesting.newGroupDto;
 import static org.sonar.db.user.UserTesting.newUserDto;
 import static org.sonar.server.usergroups.ws.UserGroupsWsParameters.PARAM_GROUP_NAME;
@@ -86,7 +88,8 @@ public class DeleteActionTest {
         dbClient,
         new UserGroupFinder(dbClient),
         userSession,
-        settings)));
+        settings,
+        mock(AuthorizationCache.class))));
   }
 
   @Test
@@ -38,9 +38,11 @@ import org.sonar.db.user.UserGroupDao;
 import org.sonar.db.user.UserGroupDto;
 import org.sonar.server.exceptions.NotFoundException;
 import org.sonar.server.tester.UserSessionRule;
+import org.sonar.server.user.AuthorizationCache;
 import org.sonar.server.ws.WsTester;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
 import static org.sonar.server.usergroups.ws.UserGroupsWsParameters.PARAM_GROUP_NAME;
 import static org.sonar.server.usergroups.ws.UserGroupsWsParameters.PARAM_LOGIN;
 
@@ -71,7 +73,7 @@ public class RemoveUserActionTest {
     groupMembershipDao = dbClient.groupMembershipDao();
     userGroupDao = dbClient.userGroupDao();
 
-    ws = new WsTester(new UserGroupsWs(new RemoveUserAction(dbClient, userSession)));
+    ws = new WsTester(new UserGroupsWs(new RemoveUserAction(dbClient, userSession, mock(AuthorizationCache.class))));
   }
 
   @Test
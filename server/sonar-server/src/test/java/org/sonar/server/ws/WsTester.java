@@ -57,9 +57,11 @@ public class WsTester {
 
     private final String method;
     private String path;
+    private String mediaType = MediaTypes.JSON;
 
     private Map<String, String> params = Maps.newHashMap();
     private final Map<String, Part> parts = Maps.newHashMap();
+    private final Map<String, String> headers = Maps.newHashMap();
 
     private TestRequest(String method) {
       this.method = method;
@@ -72,7 +74,12 @@ public class WsTester {
 
     @Override
     public String getMediaType() {
-      return MediaTypes.JSON;
+      return mediaType;
+    }
+
+    public TestRequest setMediaType(String s) {
+      this.mediaType = s;
+      return this;
     }
 
     @Override
@@ -130,6 +137,16 @@ public class WsTester {
       return this;
     }
 
+    @Override
+    public java.util.Optional<String> header(String name) {
+      return java.util.Optional.ofNullable(headers.get(name));
+    }
+
+    public TestRequest setHeader(String name, String value) {
+      headers.put(name, value);
+      return this;
+    }
+
     public Result execute() throws Exception {
       TestResponse response = new TestResponse();
       verifyRequest(action(), this);
@@ -280,6 +297,11 @@ public class WsTester {
       assertThat(response.getHeader(name)).isEqualTo(value);
       return this;
     }
+
+    @CheckForNull
+    public String header(String name) {
+      return response.getHeader(name);
+    }
   }
 
   private final WebService.Context context = new WebService.Context();
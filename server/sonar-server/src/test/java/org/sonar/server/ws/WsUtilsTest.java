@@ -68,6 +68,41 @@ public class WsUtilsTest {
     assertThat(Issues.Issue.parseFrom(response.getFlushedOutput()).getKey()).isEqualTo("I1");
   }
 
+  @Test
+  public void write_cacheable_protobuf_with_etag() throws Exception {
+    Issues.Issue msg = Issues.Issue.newBuilder().setKey("I1").build();
+    DumbResponse response = new DumbResponse();
+
+    WsUtils.writeCacheableProtobuf(msg, new TestRequest(), response);
+
+    String etag = response.getHeader("ETag");
+    assertThat(etag).startsWith("\"").endsWith("\"");
+    assertThat(response.getHeader("Cache-Control")).isEqualTo("private, no-cache");
+    assertThat(response.outputAsString()).contains("\"key\":\"I1\"");
+
+    DumbResponse protobufResponse = new DumbResponse();
+    WsUtils.writeCacheableProtobuf(msg, new TestRequest().setMediaType(MediaTypes.PROTOBUF), protobufResponse);
+    assertThat(protobufResponse.getHeader("ETag")).isNotEqualTo(etag);
+  }
+
+  @Test
+  public void write_nothing_if_etag_matches_If_None_Match() throws Exception {
+    Issues.Issue msg = Issues.Issue.newBuilder().setKey("I1").build();
+    DumbResponse response = new DumbResponse();
+    WsUtils.writeCacheableProtobuf(msg, new TestRequest(), response);
+    String etag = response.getHeader("ETag");
+
+    DumbResponse notModified = new DumbResponse();
+    WsUtils.writeCacheableProtobuf(msg, new TestRequest().setHeader("If-None-Match", "\"other\", W/" + etag), notModified);
+    assertThat(notModified.stream().status()).isEqualTo(304);
+    assertThat(notModified.getFlushedOutput()).isEmpty();
+
+    DumbResponse modified = new DumbResponse();
+    WsUtils.writeCacheableProtobuf(Issues.Issue.newBuilder().setKey("I2").build(), new TestRequest().setHeader("If-None-Match", etag), modified);
+    assertThat(modified.stream().status()).isNotEqualTo(304);
+    assertThat(modified.outputAsString()).contains("\"key\":\"I2\"");
+  }
+
   @Test
   public void log_message_when_error_writing_message() throws IOException {
     TestRequest request = new TestRequest();
@@ -20,23 +20,124 @@
 package org.sonar.core.platform;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Properties;
+import java.util.Set;
+import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.sonar.api.utils.ZipUtils;
 
+import static org.apache.commons.io.FileUtils.copyFile;
+import static org.apache.commons.io.FileUtils.forceMkdir;
 import static org.apache.commons.io.FileUtils.listFiles;
 
 public abstract class PluginJarExploder {
 
   protected static final String LIB_RELATIVE_PATH_IN_JAR = "META-INF/lib";
 
+  /**
+   * Describes the JAR file from which a directory has been exploded
+   */
+  private static final String STAMP_FILENAME = ".exploded";
+  private static final String STAMP_CHECKSUM = "checksum";
+  private static final String STAMP_SIZE = "size";
+  private static final String STAMP_LAST_MODIFIED = "lastModified";
+
   public abstract ExplodedPlugin explode(PluginInfo info);
 
+  /**
+   * Called by {@link PluginLoader} before the installed plugins are exploded. Implementations which keep exploded
+   * plugins between restarts delete the ones of the plugins which are no longer installed. Does nothing by default.
+   */
+  public void deleteUninstalled(Collection<PluginInfo> installedPlugins) {
+    // nothing to do
+  }
+
   protected ZipUtils.ZipEntryFilter newLibFilter() {
     return ZipLibFilter.INSTANCE;
   }
 
+  /**
+   * Copies the plugin JAR file to {@code toDir} and unzips its libraries. The directory is kept as-is when
+   * it has already been exploded from a JAR file with the same content, for example during a previous startup,
+   * and the copy of the JAR file still exists.
+   * The checksum of the JAR file is computed only if its size or date changed since then.
+   */
+  protected ExplodedPlugin explodeIfModified(PluginInfo info, File toDir) throws IOException {
+    File jarSource = info.getNonNullJarFile();
+    File jarTarget = new File(toDir, jarSource.getName());
+    File stampFile = new File(toDir, STAMP_FILENAME);
+    Properties stamp = readStamp(stampFile);
+    String checksum = stamp.getProperty(STAMP_CHECKSUM);
+    boolean sameFile = String.valueOf(jarSource.length()).equals(stamp.getProperty(STAMP_SIZE))
+      && String.valueOf(jarSource.lastModified()).equals(stamp.getProperty(STAMP_LAST_MODIFIED));
+    if (!sameFile || !jarTarget.isFile()) {
+      String previousChecksum = checksum;
+      checksum = checksum(jarSource);
+      if (!checksum.equals(previousChecksum) || !jarTarget.isFile()) {
+        forceMkdir(toDir);
+        // the stamp is deleted first and written last, so that an interrupted explosion is done again
+        org.sonar.core.util.FileUtils.cleanDirectory(toDir);
+        copyFile(jarSource, jarTarget);
+        ZipUtils.unzip(jarSource, toDir, newLibFilter());
+      }
+      writeStamp(stampFile, jarSource, checksum);
+    }
+    return explodeFromUnzippedDir(info.getKey(), jarTarget, toDir);
+  }
+
+  /**
+   * Deletes the sub-directories of {@code dir} which are not named after the key of one of the given plugins
+   */
+  protected static void deleteDirsOfOtherPlugins(File dir, Collection<PluginInfo> plugins) {
+    File[] pluginDirs = dir.listFiles(File::isDirectory);
+    if (pluginDirs == null) {
+      return;
+    }
+    Set<String> pluginKeys = plugins.stream().map(PluginInfo::getKey).collect(Collectors.toSet());
+    for (File pluginDir : pluginDirs) {
+      if (!pluginKeys.contains(pluginDir.getName())) {
+        try {
+          org.sonar.core.util.FileUtils.deleteDirectory(pluginDir);
+        } catch (IOException e) {
+          throw new IllegalStateException("Fail to delete directory of uninstalled plugin " + pluginDir.getAbsolutePath(), e);
+        }
+      }
+    }
+  }
+
+  private static Properties readStamp(File stampFile) throws IOException {
+    Properties props = new Properties();
+    if (stampFile.isFile()) {
+      try (InputStream input = Files.newInputStream(stampFile.toPath())) {
+        props.load(input);
+      }
+    }
+    return props;
+  }
+
+  private static void writeStamp(File stampFile, File jar, String checksum) throws IOException {
+    Properties props = new Properties();
+    props.setProperty(STAMP_CHECKSUM, checksum);
+    props.setProperty(STAMP_SIZE, String.valueOf(jar.length()));
+    props.setProperty(STAMP_LAST_MODIFIED, String.valueOf(jar.lastModified()));
+    try (OutputStream output = Files.newOutputStream(stampFile.toPath())) {
+      props.store(output, null);
+    }
+  }
+
+  private static String checksum(File file) throws IOException {
+    try (InputStream input = Files.newInputStream(file.toPath())) {
+      return DigestUtils.md5Hex(input);
+    }
+  }
+
   protected ExplodedPlugin explodeFromUnzippedDir(String pluginKey, File jarFile, File unzippedDir) {
     File libDir = new File(unzippedDir, PluginJarExploder.LIB_RELATIVE_PATH_IN_JAR);
     Collection<File> libs;
@@ -22,11 +22,17 @@ package org.sonar.core.platform;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.Closeable;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.apache.commons.lang.SystemUtils;
 import org.sonar.api.Plugin;
 import org.sonar.api.utils.log.Loggers;
@@ -80,6 +86,7 @@ public class PluginLoader {
   @VisibleForTesting
   Collection<PluginClassLoaderDef> defineClassloaders(Map<String, PluginInfo> infoByKeys) {
     Map<String, PluginClassLoaderDef> classloadersByBasePlugin = new HashMap<>();
+    Map<String, ExplodedPlugin> explodedPluginsByKey = explode(infoByKeys.values());
 
     for (PluginInfo info : infoByKeys.values()) {
       String baseKey = basePluginKey(info, infoByKeys);
@@ -88,7 +95,7 @@ public class PluginLoader {
         def = new PluginClassLoaderDef(baseKey);
         classloadersByBasePlugin.put(baseKey, def);
       }
-      ExplodedPlugin explodedPlugin = jarExploder.explode(info);
+      ExplodedPlugin explodedPlugin = explodedPluginsByKey.get(info.getKey());
       def.addFiles(asList(explodedPlugin.getMain()));
       def.addFiles(explodedPlugin.getLibs());
       def.addMainClass(info.getKey(), info.getMainClass());
@@ -115,6 +122,54 @@ public class PluginLoader {
     return classloadersByBasePlugin.values();
   }
 
+  /**
+   * JAR files are exploded in parallel, as it's mostly I/O. On the contrary classloaders are created
+   * and plugins are instantiated sequentially, because plugin classloaders delegate to each others and are not
+   * parallel capable.
+   */
+  private Map<String, ExplodedPlugin> explode(Collection<PluginInfo> infos) {
+    jarExploder.deleteUninstalled(infos);
+    Map<String, ExplodedPlugin> result = new HashMap<>();
+    if (infos.size() <= 1) {
+      for (PluginInfo info : infos) {
+        result.put(info.getKey(), jarExploder.explode(info));
+      }
+      return result;
+    }
+    int threads = Math.min(infos.size(), Runtime.getRuntime().availableProcessors());
+    ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+      .setNameFormat("PluginJarExploder-%d")
+      .setDaemon(true)
+      .build());
+    try {
+      Map<String, Future<ExplodedPlugin>> futures = new LinkedHashMap<>();
+      for (PluginInfo info : infos) {
+        futures.put(info.getKey(), executor.submit(() -> jarExploder.explode(info)));
+      }
+      for (Map.Entry<String, Future<ExplodedPlugin>> future : futures.entrySet()) {
+        result.put(future.getKey(), getExplodedPlugin(future.getValue()));
+      }
+      return result;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static ExplodedPlugin getExplodedPlugin(Future<ExplodedPlugin> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while exploding plugins", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IllegalStateException(cause);
+    }
+  }
+
   private static boolean isPrivileged(String basePluginKey) {
     return PRIVILEGED_PLUGINS_BASE_KEYS.contains(basePluginKey);
   }
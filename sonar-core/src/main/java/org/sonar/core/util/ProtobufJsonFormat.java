@@ -24,8 +24,9 @@ import com.google.protobuf.MapEntry;
 import com.google.protobuf.Message;
 import java.io.StringWriter;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 import org.sonar.api.utils.text.JsonWriter;
 
 /**
@@ -124,6 +125,8 @@ import org.sonar.api.utils.text.JsonWriter;
  *     }
  *   }
  * </pre>
+ *
+ * <p>{@link ProtobufJsonWriter} generates the same JSON, straight to an {@link java.io.OutputStream}.</p>
  */
 public class ProtobufJsonFormat {
 
@@ -132,7 +135,7 @@ public class ProtobufJsonFormat {
   }
 
   static class MessageType {
-    private static final Map<Class<? extends Message>, MessageType> TYPES_BY_CLASS = new HashMap<>();
+    private static final Map<Class<? extends Message>, MessageType> TYPES_BY_CLASS = new ConcurrentHashMap<>();
 
     private final Descriptors.FieldDescriptor[] fieldDescriptors;
     private final boolean doesWrapRepeated;
@@ -143,12 +146,7 @@ public class ProtobufJsonFormat {
     }
 
     static MessageType of(Message message) {
-      MessageType type = TYPES_BY_CLASS.get(message.getClass());
-      if (type == null) {
-        type = new MessageType(message.getDescriptorForType());
-        TYPES_BY_CLASS.put(message.getClass(), type);
-      }
-      return type;
+      return TYPES_BY_CLASS.computeIfAbsent(message.getClass(), c -> new MessageType(message.getDescriptorForType()));
     }
   }
 
@@ -159,6 +157,16 @@ public class ProtobufJsonFormat {
     writer.endObject();
   }
 
+  /**
+   * Writes the fields accepted by {@code filter}, without the enclosing braces. It allows
+   * to stream a large message in several parts, for example by writing the elements of
+   * a repeated field one by one between two calls.
+   */
+  public static void writeFields(Message message, JsonWriter writer, Predicate<Descriptors.FieldDescriptor> filter) {
+    writer.setSerializeNulls(false).setSerializeEmptys(true);
+    writeMessage(message, writer, filter);
+  }
+
   public static String toJson(Message message) {
     StringWriter json = new StringWriter();
     JsonWriter jsonWriter = JsonWriter.of(json);
@@ -167,8 +175,15 @@ public class ProtobufJsonFormat {
   }
 
   private static void writeMessage(Message message, JsonWriter writer) {
+    writeMessage(message, writer, f -> true);
+  }
+
+  private static void writeMessage(Message message, JsonWriter writer, Predicate<Descriptors.FieldDescriptor> filter) {
     MessageType type = MessageType.of(message);
     for (Descriptors.FieldDescriptor fieldDescriptor : type.fieldDescriptors) {
+      if (!filter.test(fieldDescriptor)) {
+        continue;
+      }
       if (fieldDescriptor.isRepeated()) {
         writer.name(fieldDescriptor.getName());
         if (fieldDescriptor.isMapField()) {
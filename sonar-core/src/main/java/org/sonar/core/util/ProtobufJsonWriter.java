@@ -0,0 +1,430 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.util;
+
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.MapEntry;
+import com.google.protobuf.Message;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Writes Protocol Buffers messages as UTF-8 JSON directly to an {@link OutputStream}. The generated
+ * JSON is the same as the one of {@link ProtobufJsonFormat}, but the descriptors of each type of message
+ * are compiled once into a {@link MessagePlan}, and characters are encoded without
+ * intermediary {@link java.io.Writer}.
+ * <p>
+ * Not thread-safe. {@link #flush()} must be called once the document is complete.
+ * </p>
+ */
+public class ProtobufJsonWriter {
+
+  private static final Map<Class<? extends Message>, MessagePlan> PLANS_BY_CLASS = new ConcurrentHashMap<>();
+  private static final byte[][] ASCII_REPLACEMENTS = new byte[128][];
+  private static final byte[] LINE_SEPARATOR_REPLACEMENT = "\\u2028".getBytes(UTF_8);
+  private static final byte[] PARAGRAPH_SEPARATOR_REPLACEMENT = "\\u2029".getBytes(UTF_8);
+  private static final int BUFFER_SIZE = 8192;
+  // longest encoding of a char: unicode escape sequence
+  private static final int MAX_BYTES_PER_CHAR = 6;
+
+  static {
+    for (int c = 0; c < 0x20; c++) {
+      ASCII_REPLACEMENTS[c] = String.format("\\u%04x", c).getBytes(UTF_8);
+    }
+    ASCII_REPLACEMENTS['"'] = "\\\"".getBytes(UTF_8);
+    ASCII_REPLACEMENTS['\\'] = "\\\\".getBytes(UTF_8);
+    ASCII_REPLACEMENTS['\t'] = "\\t".getBytes(UTF_8);
+    ASCII_REPLACEMENTS['\b'] = "\\b".getBytes(UTF_8);
+    ASCII_REPLACEMENTS['\n'] = "\\n".getBytes(UTF_8);
+    ASCII_REPLACEMENTS['\r'] = "\\r".getBytes(UTF_8);
+    ASCII_REPLACEMENTS['\f'] = "\\f".getBytes(UTF_8);
+  }
+
+  private enum Scope {
+    EMPTY_ARRAY, NONEMPTY_ARRAY, EMPTY_OBJECT, NONEMPTY_OBJECT, DANGLING_NAME, DOCUMENT
+  }
+
+  private final OutputStream output;
+  private final byte[] buffer = new byte[BUFFER_SIZE];
+  private int position = 0;
+  private Scope[] scopes = new Scope[16];
+  private int depth = 0;
+
+  public ProtobufJsonWriter(OutputStream output) {
+    this.output = output;
+    push(Scope.DOCUMENT);
+  }
+
+  public ProtobufJsonWriter beginObject() {
+    beforeValue();
+    writeByte('{');
+    push(Scope.EMPTY_OBJECT);
+    return this;
+  }
+
+  public ProtobufJsonWriter endObject() {
+    pop();
+    writeByte('}');
+    return this;
+  }
+
+  public ProtobufJsonWriter beginArray() {
+    beforeValue();
+    writeByte('[');
+    push(Scope.EMPTY_ARRAY);
+    return this;
+  }
+
+  public ProtobufJsonWriter endArray() {
+    pop();
+    writeByte(']');
+    return this;
+  }
+
+  public ProtobufJsonWriter name(String name) {
+    beforeName();
+    writeString(name);
+    writeByte(':');
+    scopes[depth - 1] = Scope.DANGLING_NAME;
+    return this;
+  }
+
+  /**
+   * Writes the message as a JSON object, for example as an element of an array.
+   */
+  public ProtobufJsonWriter write(Message message) {
+    beforeValue();
+    writeObject(message, planOf(message));
+    return this;
+  }
+
+  /**
+   * Writes the fields accepted by {@code filter} in the current object, without enclosing braces.
+   * See {@link ProtobufJsonFormat#writeFields(Message, org.sonar.api.utils.text.JsonWriter, Predicate)}.
+   */
+  public ProtobufJsonWriter writeFields(Message message, Predicate<Descriptors.FieldDescriptor> filter) {
+    for (FieldPlan field : planOf(message).fields) {
+      if (filter.test(field.descriptor) && field.isPresentIn(message)) {
+        beforeName();
+        writeField(message, field);
+        scopes[depth - 1] = Scope.NONEMPTY_OBJECT;
+      }
+    }
+    return this;
+  }
+
+  public void flush() {
+    try {
+      output.write(buffer, 0, position);
+      position = 0;
+      output.flush();
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to write JSON", e);
+    }
+  }
+
+  private void beforeName() {
+    Scope scope = scopes[depth - 1];
+    if (scope == Scope.NONEMPTY_OBJECT) {
+      writeByte(',');
+    } else if (scope != Scope.EMPTY_OBJECT) {
+      throw new IllegalStateException("Nesting problem: name is not expected");
+    }
+  }
+
+  private void beforeValue() {
+    Scope scope = scopes[depth - 1];
+    switch (scope) {
+      case DOCUMENT:
+        break;
+      case EMPTY_ARRAY:
+        scopes[depth - 1] = Scope.NONEMPTY_ARRAY;
+        break;
+      case NONEMPTY_ARRAY:
+        writeByte(',');
+        break;
+      case DANGLING_NAME:
+        scopes[depth - 1] = Scope.NONEMPTY_OBJECT;
+        break;
+      default:
+        throw new IllegalStateException("Nesting problem: value is not expected");
+    }
+  }
+
+  private void push(Scope scope) {
+    if (depth == scopes.length) {
+      scopes = Arrays.copyOf(scopes, depth * 2);
+    }
+    scopes[depth] = scope;
+    depth++;
+  }
+
+  private void pop() {
+    depth--;
+  }
+
+  private void writeObject(Message message, MessagePlan plan) {
+    writeByte('{');
+    boolean empty = true;
+    for (FieldPlan field : plan.fields) {
+      if (field.isPresentIn(message)) {
+        if (!empty) {
+          writeByte(',');
+        }
+        empty = false;
+        writeField(message, field);
+      }
+    }
+    writeByte('}');
+  }
+
+  private void writeField(Message message, FieldPlan field) {
+    writeBytes(field.jsonName);
+    writeFieldValue(field, message.getField(field.descriptor));
+  }
+
+  private void writeFieldValue(FieldPlan field, Object value) {
+    if (field.isMap) {
+      writeMap(field, (Collection<MapEntry>) value);
+    } else if (field.descriptor.isRepeated()) {
+      writeArray(field, (List) value);
+    } else {
+      writeSingleValue(field, value);
+    }
+  }
+
+  private void writeArray(FieldPlan field, List values) {
+    writeByte('[');
+    for (int i = 0; i < values.size(); i++) {
+      if (i > 0) {
+        writeByte(',');
+      }
+      writeSingleValue(field, values.get(i));
+    }
+    writeByte(']');
+  }
+
+  private void writeMap(FieldPlan field, Collection<MapEntry> entries) {
+    writeByte('{');
+    boolean empty = true;
+    for (MapEntry entry : entries) {
+      if (!empty) {
+        writeByte(',');
+      }
+      empty = false;
+      // Key fields are always double-quoted in json
+      writeString(entry.getKey().toString());
+      writeByte(':');
+      writeSingleValue(field.mapValue, entry.getValue());
+    }
+    writeByte('}');
+  }
+
+  private void writeSingleValue(FieldPlan field, Object value) {
+    switch (field.javaType) {
+      case INT:
+      case LONG:
+        writeAscii(value.toString());
+        break;
+      case DOUBLE:
+        writeDouble((Double) value);
+        break;
+      case BOOLEAN:
+        writeAscii(((Boolean) value) ? "true" : "false");
+        break;
+      case STRING:
+        writeString((String) value);
+        break;
+      case ENUM:
+        writeString(((Descriptors.EnumValueDescriptor) value).getName());
+        break;
+      case MESSAGE:
+        writeMessageValue((Message) value);
+        break;
+      default:
+        throw new IllegalStateException(String.format("JSON format does not support type '%s' of field '%s'", field.javaType, field.descriptor.getName()));
+    }
+  }
+
+  private void writeMessageValue(Message message) {
+    MessagePlan plan = planOf(message);
+    if (plan.doesWrapRepeated) {
+      FieldPlan repeated = plan.fields[0];
+      writeFieldValue(repeated, message.getField(repeated.descriptor));
+    } else {
+      writeObject(message, plan);
+    }
+  }
+
+  private void writeDouble(Double value) {
+    if (value.isNaN() || value.isInfinite()) {
+      throw new IllegalArgumentException("Numeric values must be finite, but was " + value);
+    }
+    writeAscii(value.toString());
+  }
+
+  private void writeAscii(String s) {
+    int length = s.length();
+    ensureCapacity(length);
+    for (int i = 0; i < length; i++) {
+      buffer[position] = (byte) s.charAt(i);
+      position++;
+    }
+  }
+
+  /**
+   * Same escaping as {@link com.google.gson.stream.JsonWriter}, not HTML-safe. Unpaired surrogates are
+   * replaced by '?', as {@link java.io.OutputStreamWriter} does.
+   */
+  private void writeString(String s) {
+    writeByte('"');
+    int length = s.length();
+    for (int i = 0; i < length; i++) {
+      ensureCapacity(MAX_BYTES_PER_CHAR);
+      char c = s.charAt(i);
+      if (c < 0x80) {
+        byte[] replacement = ASCII_REPLACEMENTS[c];
+        if (replacement == null) {
+          buffer[position] = (byte) c;
+          position++;
+        } else {
+          writeBytes(replacement);
+        }
+      } else if (c < 0x800) {
+        buffer[position] = (byte) (0xc0 | (c >> 6));
+        buffer[position + 1] = (byte) (0x80 | (c & 0x3f));
+        position += 2;
+      } else if (c == '\u2028') {
+        writeBytes(LINE_SEPARATOR_REPLACEMENT);
+      } else if (c == '\u2029') {
+        writeBytes(PARAGRAPH_SEPARATOR_REPLACEMENT);
+      } else if (Character.isSurrogate(c)) {
+        if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+          int codePoint = Character.toCodePoint(c, s.charAt(i + 1));
+          buffer[position] = (byte) (0xf0 | (codePoint >> 18));
+          buffer[position + 1] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+          buffer[position + 2] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+          buffer[position + 3] = (byte) (0x80 | (codePoint & 0x3f));
+          position += 4;
+          i++;
+        } else {
+          buffer[position] = '?';
+          position++;
+        }
+      } else {
+        buffer[position] = (byte) (0xe0 | (c >> 12));
+        buffer[position + 1] = (byte) (0x80 | ((c >> 6) & 0x3f));
+        buffer[position + 2] = (byte) (0x80 | (c & 0x3f));
+        position += 3;
+      }
+    }
+    writeByte('"');
+  }
+
+  private void writeByte(char c) {
+    ensureCapacity(1);
+    buffer[position] = (byte) c;
+    position++;
+  }
+
+  private void writeBytes(byte[] bytes) {
+    if (bytes.length > buffer.length - position) {
+      flushBuffer();
+      if (bytes.length > buffer.length) {
+        writeToOutput(bytes, bytes.length);
+        return;
+      }
+    }
+    System.arraycopy(bytes, 0, buffer, position, bytes.length);
+    position += bytes.length;
+  }
+
+  private void ensureCapacity(int length) {
+    if (length > buffer.length - position) {
+      flushBuffer();
+    }
+    if (length > buffer.length) {
+      throw new IllegalStateException("Value is too long: " + length);
+    }
+  }
+
+  private void flushBuffer() {
+    writeToOutput(buffer, position);
+    position = 0;
+  }
+
+  private void writeToOutput(byte[] bytes, int length) {
+    try {
+      output.write(bytes, 0, length);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to write JSON", e);
+    }
+  }
+
+  private static MessagePlan planOf(Message message) {
+    return PLANS_BY_CLASS.computeIfAbsent(message.getClass(), c -> new MessagePlan(message.getDescriptorForType()));
+  }
+
+  /**
+   * What to write for each field of a type of message
+   */
+  static class MessagePlan {
+    private final FieldPlan[] fields;
+    private final boolean doesWrapRepeated;
+
+    private MessagePlan(Descriptors.Descriptor descriptor) {
+      List<Descriptors.FieldDescriptor> descriptors = descriptor.getFields();
+      this.fields = new FieldPlan[descriptors.size()];
+      for (int i = 0; i < fields.length; i++) {
+        fields[i] = new FieldPlan(descriptors.get(i));
+      }
+      this.doesWrapRepeated = fields.length == 1 && fields[0].descriptor.isRepeated() && descriptor.getName().equalsIgnoreCase(fields[0].descriptor.getName());
+    }
+  }
+
+  private static class FieldPlan {
+    private final Descriptors.FieldDescriptor descriptor;
+    private final Descriptors.FieldDescriptor.JavaType javaType;
+    private final byte[] jsonName;
+    private final boolean isMap;
+    private final FieldPlan mapValue;
+
+    private FieldPlan(Descriptors.FieldDescriptor descriptor) {
+      this.descriptor = descriptor;
+      this.javaType = descriptor.getJavaType();
+      // names of protobuf fields do not need to be escaped
+      this.jsonName = ("\"" + descriptor.getName() + "\":").getBytes(UTF_8);
+      this.isMap = descriptor.isMapField();
+      this.mapValue = isMap ? new FieldPlan(descriptor.getMessageType().findFieldByName("value")) : null;
+    }
+
+    private boolean isPresentIn(Message message) {
+      return descriptor.isRepeated() || message.hasField(descriptor);
+    }
+  }
+}
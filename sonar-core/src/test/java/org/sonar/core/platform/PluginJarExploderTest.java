@@ -74,7 +74,70 @@ public class PluginJarExploderTest {
     assertThat(exploded.getMain()).isSameAs(jarFile);
   }
 
-  private File getFile(String filename) {
+  @Test
+  public void explode_again_only_if_jar_content_changed() throws Exception {
+    File jarFile = temp.newFile("checkstyle.jar");
+    FileUtils.copyFile(getFile("sonar-checkstyle-plugin-2.8.jar"), jarFile);
+    final File toDir = temp.newFolder();
+    PluginInfo pluginInfo = new PluginInfo("checkstyle").setJarFile(jarFile);
+    PluginJarExploder exploder = new PluginJarExploder() {
+      @Override
+      public ExplodedPlugin explode(PluginInfo info) {
+        try {
+          return explodeIfModified(info, toDir);
+        } catch (Exception e) {
+          throw new IllegalStateException(e);
+        }
+      }
+    };
+
+    ExplodedPlugin exploded = exploder.explode(pluginInfo);
+    assertThat(exploded.getMain()).isEqualTo(new File(toDir, "checkstyle.jar"));
+    assertThat(exploded.getLibs()).extracting("name").containsOnly("antlr-2.7.6.jar", "checkstyle-5.1.jar", "commons-cli-1.0.jar");
+    File marker = new File(toDir, "marker.txt");
+    assertThat(marker.createNewFile()).isTrue();
+
+    // same content, different date -> not exploded again
+    assertThat(jarFile.setLastModified(jarFile.lastModified() - 10_000L)).isTrue();
+    exploded = exploder.explode(pluginInfo);
+    assertThat(marker).exists();
+    assertThat(exploded.getLibs()).hasSize(3);
+
+    // content changed -> exploded again
+    File otherContent = temp.newFolder();
+    FileUtils.write(new File(otherContent, "foo.txt"), "foo", "UTF-8");
+    ZipUtils.zipDir(otherContent, jarFile);
+    exploded = exploder.explode(pluginInfo);
+    assertThat(marker).doesNotExist();
+    assertThat(exploded.getLibs()).isEmpty();
+  }
+
+  @Test
+  public void explode_again_if_copy_of_jar_is_missing() throws Exception {
+    File jarFile = temp.newFile("checkstyle.jar");
+    FileUtils.copyFile(getFile("sonar-checkstyle-plugin-2.8.jar"), jarFile);
+    final File toDir = temp.newFolder();
+    PluginInfo pluginInfo = new PluginInfo("checkstyle").setJarFile(jarFile);
+    PluginJarExploder exploder = new PluginJarExploder() {
+      @Override
+      public ExplodedPlugin explode(PluginInfo info) {
+        try {
+          return explodeIfModified(info, toDir);
+        } catch (Exception e) {
+          throw new IllegalStateException(e);
+        }
+      }
+    };
+    File copiedJar = exploder.explode(pluginInfo).getMain();
+
+    assertThat(copiedJar.delete()).isTrue();
+    ExplodedPlugin exploded = exploder.explode(pluginInfo);
+
+    assertThat(exploded.getMain()).isFile().hasContentEqualTo(jarFile);
+    assertThat(exploded.getLibs()).hasSize(3);
+  }
+
+    private File getFile(String filename) {
     return FileUtils.toFile(getClass().getResource("/org/sonar/core/platform/" + filename));
   }
 }
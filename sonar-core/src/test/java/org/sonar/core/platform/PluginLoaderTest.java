@@ -22,6 +22,7 @@ package org.sonar.core.platform;
 import com.google.common.collect.ImmutableMap;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -71,6 +72,47 @@ public class PluginLoaderTest {
   }
 
   @Test
+  public void fail_if_a_plugin_can_not_be_exploded() throws Exception {
+    PluginLoader underTest = new PluginLoader(new FakePluginExploder() {
+      @Override
+      public ExplodedPlugin explode(PluginInfo info) {
+        if (info.getKey().equals("bar")) {
+          throw new IllegalStateException("Fail to unzip plugin [bar]");
+        }
+        return super.explode(info);
+      }
+    }, classloaderFactory);
+
+    try {
+      underTest.defineClassloaders(ImmutableMap.of("foo", create52PluginInfo("foo"), "bar", create52PluginInfo("bar")));
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessage("Fail to unzip plugin [bar]");
+    }
+  }
+
+  @Test
+  public void delete_uninstalled_plugins_before_exploding_installed_ones() throws Exception {
+    List<String> calls = new ArrayList<>();
+    PluginLoader underTest = new PluginLoader(new FakePluginExploder() {
+      @Override
+      public void deleteUninstalled(Collection<PluginInfo> installedPlugins) {
+        installedPlugins.forEach(info -> calls.add("delete uninstalled, keep " + info.getKey()));
+      }
+
+      @Override
+      public ExplodedPlugin explode(PluginInfo info) {
+        calls.add("explode " + info.getKey());
+        return super.explode(info);
+      }
+    }, classloaderFactory);
+
+    underTest.defineClassloaders(ImmutableMap.of("foo", create52PluginInfo("foo")));
+
+    assertThat(calls).containsExactly("delete uninstalled, keep foo", "explode foo");
+  }
+
+    @Test
   public void define_classloader() throws Exception {
     File jarFile = temp.newFile();
     PluginInfo info = new PluginInfo("foo")
@@ -104,6 +104,24 @@ public class ProtobufJsonFormatTest {
       .isEqualTo("{\"strings\":[\"one\",\"two\"],\"nesteds\":[{\"label\":\"nestedOne\"},{\"label\":\"nestedTwo\"}]}");
   }
 
+  @Test
+  public void stream_repeated_field_between_parts_of_message() {
+    TestArray msg = TestArray.newBuilder().addStrings("one").addStrings("two").build();
+    StringWriter json = new StringWriter();
+    JsonWriter writer = JsonWriter.of(json);
+
+    writer.beginObject();
+    ProtobufJsonFormat.writeFields(msg, writer, field -> field.getNumber() == TestArray.STRINGS_FIELD_NUMBER);
+    writer.name("nesteds").beginArray();
+    ProtobufJsonFormat.write(NestedMsg.newBuilder().setLabel("nestedOne").build(), writer);
+    ProtobufJsonFormat.write(NestedMsg.newBuilder().setLabel("nestedTwo").build(), writer);
+    writer.endArray();
+    writer.endObject().close();
+
+    assertThat(json.toString())
+      .isEqualTo("{\"strings\":[\"one\",\"two\"],\"nesteds\":[{\"label\":\"nestedOne\"},{\"label\":\"nestedTwo\"}]}");
+  }
+
   @Test
   public void write_empty_array() {
     TestArray msg = TestArray.newBuilder().build();
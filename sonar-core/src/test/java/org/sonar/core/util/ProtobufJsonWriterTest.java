@@ -0,0 +1,151 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.util;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Message;
+import java.io.ByteArrayOutputStream;
+import org.apache.commons.lang.StringUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.core.test.Test.Countries;
+import org.sonar.core.test.Test.Country;
+import org.sonar.core.test.Test.FakeEnum;
+import org.sonar.core.test.Test.NestedMsg;
+import org.sonar.core.test.Test.PrimitiveTypeMsg;
+import org.sonar.core.test.Test.TestArray;
+import org.sonar.core.test.Test.TestMap;
+import org.sonar.core.test.Test.TestMapOfArray;
+import org.sonar.core.test.Test.TestMapOfMap;
+import org.sonar.core.test.Test.TestNullableArray;
+import org.sonar.core.test.Test.TestNullableMap;
+import org.sonar.core.test.Test.Translations;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.core.util.ProtobufJsonFormat.toJson;
+
+public class ProtobufJsonWriterTest {
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  @Test
+  public void write_same_json_as_ProtobufJsonFormat() {
+    verifySameJson(PrimitiveTypeMsg.newBuilder()
+      .setStringField("foo")
+      .setIntField(10)
+      .setLongField(100L)
+      .setDoubleField(3.14)
+      .setBooleanField(true)
+      .setEnumField(FakeEnum.GREEN)
+      .build());
+    verifySameJson(PrimitiveTypeMsg.newBuilder().build());
+    verifySameJson(PrimitiveTypeMsg.newBuilder().setStringField("").setDoubleField(1e-10).build());
+    verifySameJson(TestArray.newBuilder().build());
+    verifySameJson(TestArray.newBuilder()
+      .addStrings("one").addStrings("two")
+      .addNesteds(NestedMsg.newBuilder().setLabel("nestedOne")).addNesteds(NestedMsg.newBuilder().setLabel("nestedTwo"))
+      .build());
+    verifySameJson(TestNullableArray.newBuilder().setLabel("world").build());
+    verifySameJson(TestNullableArray.newBuilder()
+      .setLabel("world")
+      .setCountries(Countries.newBuilder().addCountries(Country.newBuilder().setName("France").setContinent("Europe")))
+      .build());
+    verifySameJson(TestNullableMap.newBuilder().setLabel("world").setTranslations(Translations.newBuilder()).build());
+  }
+
+  @Test
+  public void write_same_json_of_maps_as_ProtobufJsonFormat() {
+    TestMap.Builder map = TestMap.newBuilder();
+    map.getMutableStringMap().put("one", "un");
+    map.getMutableStringMap().put("two", "deux");
+    map.getMutableNestedMap().put("three", NestedMsg.newBuilder().setLabel("trois").build());
+    verifySameJson(map.build());
+    verifySameJson(TestMap.newBuilder().build());
+
+    Translations.Builder translations = Translations.newBuilder();
+    translations.getMutableTranslations().put("one", "un");
+    TestMapOfMap.Builder mapOfMap = TestMapOfMap.newBuilder();
+    mapOfMap.getMutableCatalogs().put("numbers", translations.build());
+    verifySameJson(mapOfMap.build());
+
+    TestMapOfArray.Builder mapOfArray = TestMapOfArray.newBuilder();
+    mapOfArray.getMutableMoneys().put("eur", Countries.newBuilder().addCountries(Country.newBuilder().setContinent("Europe").setName("France")).build());
+    verifySameJson(mapOfArray.build());
+  }
+
+  @Test
+  public void escape_strings_like_ProtobufJsonFormat() {
+    verifySameJson(PrimitiveTypeMsg.newBuilder().setStringField("quote \" backslash \\ slash / tab \t newline \n control \u0001 \u001f del \u007f").build());
+    verifySameJson(PrimitiveTypeMsg.newBuilder().setStringField("html <a href='x'>&amp;</a> = ok").build());
+    verifySameJson(PrimitiveTypeMsg.newBuilder().setStringField("accents \u00e9\u00e0\u00fc, euro \u20ac, line separator \u2028, paragraph \u2029").build());
+    verifySameJson(PrimitiveTypeMsg.newBuilder().setStringField("emoji \ud83d\ude00, unpaired \ud83d and \ude00").build());
+  }
+
+  @Test
+  public void write_strings_larger_than_buffer() {
+    verifySameJson(PrimitiveTypeMsg.newBuilder().setStringField(StringUtils.repeat("\u00e9\"a", 10_000)).build());
+  }
+
+  @Test
+  public void stream_repeated_field_between_parts_of_message() {
+    TestArray msg = TestArray.newBuilder().addStrings("one").addStrings("two").build();
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    ProtobufJsonWriter writer = new ProtobufJsonWriter(output);
+    writer.beginObject();
+    writer.writeFields(msg, field -> field.getNumber() == TestArray.STRINGS_FIELD_NUMBER);
+    writer.name("nesteds").beginArray();
+    writer.write(NestedMsg.newBuilder().setLabel("nestedOne").build());
+    writer.write(NestedMsg.newBuilder().setLabel("nestedTwo").build());
+    writer.endArray();
+    writer.endObject().flush();
+
+    assertThat(new String(output.toByteArray(), UTF_8))
+      .isEqualTo("{\"strings\":[\"one\",\"two\"],\"nesteds\":[{\"label\":\"nestedOne\"},{\"label\":\"nestedTwo\"}]}");
+  }
+
+  @Test
+  public void bytes_field_can_not_be_converted() {
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("JSON format does not support type 'BYTE_STRING' of field 'bytesField'");
+
+    new ProtobufJsonWriter(new ByteArrayOutputStream()).write(PrimitiveTypeMsg.newBuilder()
+      .setBytesField(ByteString.copyFrom(new byte[] {2, 4}))
+      .build());
+  }
+
+  @Test
+  public void fail_if_name_is_not_in_object() {
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("Nesting problem");
+
+    new ProtobufJsonWriter(new ByteArrayOutputStream()).beginArray().name("foo");
+  }
+
+  private static void verifySameJson(Message message) {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    new ProtobufJsonWriter(output).write(message).flush();
+
+    assertThat(output.toByteArray()).isEqualTo(toJson(message).getBytes(UTF_8));
+  }
+}
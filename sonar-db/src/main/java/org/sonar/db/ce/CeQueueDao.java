@@ -108,6 +108,13 @@ public class CeQueueDao implements Dao {
     return mapper(dbSession).countByStatusAndComponentUuid(status, componentUuid);
   }
 
+  /**
+   * Uuids of the pending tasks which can be peeked, in the order they would be peeked. Tasks are not claimed.
+   */
+  public List<String> selectEligibleForPeek(DbSession session, int maxResults) {
+    return mapper(session).selectEligibleForPeek(new RowBounds(0, maxResults));
+  }
+
   public Optional<CeQueueDto> peek(DbSession session) {
     List<String> taskUuids = mapper(session).selectEligibleForPeek(ONE_ROW_LIMIT);
     if (taskUuids.isEmpty()) {
@@ -19,6 +19,9 @@
  */
 package org.sonar.db.ce;
 
+import com.google.common.annotations.VisibleForTesting;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -27,6 +30,8 @@ import java.sql.SQLException;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import org.apache.commons.io.IOUtils;
 import org.sonar.api.utils.System2;
 import org.sonar.db.Dao;
@@ -35,6 +40,12 @@ import org.sonar.db.DbSession;
 
 public class CeTaskInputDao implements Dao {
 
+  /**
+   * Size in bytes of the rows of ce_task_input_chunks, kept far below the default
+   * max_allowed_packet of MySQL.
+   */
+  static final int CHUNK_SIZE = 1024 * 1024;
+
   private final System2 system;
 
   public CeTaskInputDao(System2 system) {
@@ -42,22 +53,70 @@ public class CeTaskInputDao implements Dao {
   }
 
   public void insert(DbSession dbSession, String taskUuid, InputStream data) {
+    insert(dbSession, taskUuid, data, CHUNK_SIZE);
+  }
+
+  /**
+   * The data is stored in rows of {@code chunkSize} bytes, each of them being committed
+   * as soon as read from the stream. The row of ce_task_input is committed first, so that the chunks
+   * of an interrupted upload are purged with it by {@link #deleteByUuids(DbSession, Collection)}.
+   */
+  @VisibleForTesting
+  void insert(DbSession dbSession, String taskUuid, InputStream data, int chunkSize) {
     long now = system.now();
     Connection connection = dbSession.getConnection();
-    try (PreparedStatement stmt = connection.prepareStatement(
-      "INSERT INTO ce_task_input (task_uuid, created_at, updated_at, input_data) VALUES (?, ?, ?, ?)")) {
-      stmt.setString(1, taskUuid);
-      stmt.setLong(2, now);
-      stmt.setLong(3, now);
-      stmt.setBinaryStream(4, data);
-      stmt.executeUpdate();
-      connection.commit();
-    } catch (SQLException e) {
+    try {
+      try (PreparedStatement stmt = connection.prepareStatement(
+        "INSERT INTO ce_task_input (task_uuid, created_at, updated_at) VALUES (?, ?, ?)")) {
+        stmt.setString(1, taskUuid);
+        stmt.setLong(2, now);
+        stmt.setLong(3, now);
+        stmt.executeUpdate();
+        connection.commit();
+      }
+      try (PreparedStatement stmt = connection.prepareStatement(
+        "INSERT INTO ce_task_input_chunks (task_uuid, chunk_index, input_data, created_at) VALUES (?, ?, ?, ?)")) {
+        byte[] buffer = new byte[chunkSize];
+        int chunkIndex = 0;
+        int length;
+        // empty chunks are not inserted, as input_data is not nullable and Oracle stores empty BLOBs as null
+        while ((length = IOUtils.read(data, buffer)) > 0) {
+          stmt.setString(1, taskUuid);
+          stmt.setInt(2, chunkIndex);
+          stmt.setBinaryStream(3, new ByteArrayInputStream(buffer, 0, length), length);
+          stmt.setLong(4, now);
+          stmt.executeUpdate();
+          connection.commit();
+          chunkIndex++;
+        }
+      }
+    } catch (SQLException | IOException e) {
       throw new IllegalStateException("Fail to insert data of CE task " + taskUuid, e);
     }
   }
 
   public Optional<DataStream> selectData(DbSession dbSession, String taskUuid) {
+    Optional<DataStream> singleRowData = selectSingleRowData(dbSession, taskUuid);
+    if (singleRowData.isPresent()) {
+      return singleRowData;
+    }
+    ChunksInputStream chunks = new ChunksInputStream(dbSession.getConnection(), taskUuid);
+    try {
+      if (chunks.nextChunk()) {
+        return Optional.of(new DataStream(null, null, chunks));
+      }
+      chunks.close();
+      return Optional.empty();
+    } catch (SQLException e) {
+      chunks.close();
+      throw new IllegalStateException("Fail to select data of CE task " + taskUuid, e);
+    }
+  }
+
+  /**
+   * Data inserted in ce_task_input.input_data before the introduction of ce_task_input_chunks
+   */
+  private static Optional<DataStream> selectSingleRowData(DbSession dbSession, String taskUuid) {
     PreparedStatement stmt = null;
     ResultSet rs = null;
     DataStream result = null;
@@ -86,15 +145,18 @@ public class CeTaskInputDao implements Dao {
 
   public void deleteByUuids(DbSession dbSession, Collection<String> uuids) {
     CeTaskInputMapper mapper = dbSession.getMapper(CeTaskInputMapper.class);
+    DatabaseUtils.executeLargeUpdates(uuids, mapper::deleteChunksByUuids);
     DatabaseUtils.executeLargeUpdates(uuids, mapper::deleteByUuids);
   }
 
   public static class DataStream implements AutoCloseable {
+    @CheckForNull
     private final PreparedStatement stmt;
+    @CheckForNull
     private final ResultSet rs;
     private final InputStream stream;
 
-    private DataStream(PreparedStatement stmt, ResultSet rs, InputStream stream) {
+    private DataStream(@Nullable PreparedStatement stmt, @Nullable ResultSet rs, InputStream stream) {
       this.stmt = stmt;
       this.rs = rs;
       this.stream = stream;
@@ -111,4 +173,79 @@ public class CeTaskInputDao implements Dao {
       DatabaseUtils.closeQuietly(stmt);
     }
   }
+
+  /**
+   * Reads the rows of ce_task_input_chunks one after the other, so that a single chunk
+   * is loaded in memory at a time.
+   */
+  private static class ChunksInputStream extends InputStream {
+    private final Connection connection;
+    private final String taskUuid;
+    private PreparedStatement stmt;
+    private ResultSet rs;
+    private InputStream chunk;
+    private int nextChunkIndex = 0;
+
+    private ChunksInputStream(Connection connection, String taskUuid) {
+      this.connection = connection;
+      this.taskUuid = taskUuid;
+    }
+
+    private boolean nextChunk() throws SQLException {
+      closeChunk();
+      if (stmt == null) {
+        stmt = connection.prepareStatement("SELECT input_data FROM ce_task_input_chunks WHERE task_uuid=? AND chunk_index=?");
+      }
+      stmt.setString(1, taskUuid);
+      stmt.setInt(2, nextChunkIndex);
+      rs = stmt.executeQuery();
+      if (rs.next()) {
+        chunk = rs.getBinaryStream(1);
+        nextChunkIndex++;
+        return true;
+      }
+      closeChunk();
+      return false;
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] b = new byte[1];
+      int read = read(b, 0, 1);
+      return read == -1 ? -1 : (b[0] & 0xFF);
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      while (chunk != null) {
+        int read = chunk.read(b, off, len);
+        if (read != -1) {
+          return read;
+        }
+        try {
+          nextChunk();
+        } catch (SQLException e) {
+          throw new IOException("Fail to read data of CE task " + taskUuid, e);
+        }
+      }
+      return -1;
+    }
+
+    private void closeChunk() {
+      IOUtils.closeQuietly(chunk);
+      DatabaseUtils.closeQuietly(rs);
+      chunk = null;
+      rs = null;
+    }
+
+    @Override
+    public void close() {
+      closeChunk();
+      DatabaseUtils.closeQuietly(stmt);
+      stmt = null;
+    }
+  }
 }
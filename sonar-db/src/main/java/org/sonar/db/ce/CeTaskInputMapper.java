@@ -26,6 +26,8 @@ public interface CeTaskInputMapper {
 
   void deleteByUuids(@Param("uuids") List<String> uuids);
 
+  void deleteChunksByUuids(@Param("uuids") List<String> uuids);
+
   List<String> selectUuidsNotInQueue();
 
 }
@@ -30,6 +30,11 @@ public interface IssueMapper {
 
   void selectNonClosedByComponentUuid(@Param("componentUuid") String componentUuid, ResultHandler resultHandler);
 
+  /**
+   * Issues are ordered by component uuid
+   */
+  void selectNonClosedByProjectUuid(@Param("projectUuid") String projectUuid, ResultHandler resultHandler);
+
   Set<String> selectComponentUuidsOfOpenIssuesForProjectUuid(String projectUuid);
 
   List<IssueDto> selectByKeys(List<String> keys);
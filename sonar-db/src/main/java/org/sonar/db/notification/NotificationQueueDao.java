@@ -21,11 +21,14 @@ package org.sonar.db.notification;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.stream.Collectors;
 import org.apache.ibatis.session.SqlSession;
 import org.sonar.db.Dao;
 import org.sonar.db.DbSession;
 import org.sonar.db.MyBatis;
 
+import static org.sonar.db.DatabaseUtils.executeLargeUpdates;
+
 public class NotificationQueueDao implements Dao {
 
   private final MyBatis mybatis;
@@ -48,12 +51,11 @@ public class NotificationQueueDao implements Dao {
   }
 
   public void delete(List<NotificationQueueDto> dtos) {
-    DbSession session = mybatis.openSession(true);
+    DbSession session = mybatis.openSession(false);
     NotificationQueueMapper mapper = session.getMapper(NotificationQueueMapper.class);
     try {
-      for (NotificationQueueDto dto : dtos) {
-        mapper.delete(dto.getId());
-      }
+      List<Long> ids = dtos.stream().map(NotificationQueueDto::getId).collect(Collectors.toList());
+      executeLargeUpdates(ids, mapper::deleteByIds);
       session.commit();
     } finally {
       MyBatis.closeQuietly(session);
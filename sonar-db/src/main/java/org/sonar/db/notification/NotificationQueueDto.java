@@ -21,9 +21,16 @@ package org.sonar.db.notification;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Set;
+import javax.annotation.CheckForNull;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.builder.ToStringBuilder;
 import org.apache.commons.lang.builder.ToStringStyle;
@@ -35,6 +42,11 @@ import org.sonar.api.utils.SonarException;
  */
 public class NotificationQueueDto {
 
+  /**
+   * First byte of the compact form. Java serialization streams start with 0xACED.
+   */
+  private static final byte COMPACT_FORMAT = 1;
+
   private Long id;
   private byte[] data;
 
@@ -61,12 +73,29 @@ public class NotificationQueueDto {
     return ToStringBuilder.reflectionToString(this, ToStringStyle.SHORT_PREFIX_STYLE);
   }
 
+  /**
+   * Same as {@link #toNotificationQueueDto(Notification, Set)}, {@link Notification} being the only class written
+   * in compact form.
+   */
   public static NotificationQueueDto toNotificationQueueDto(Notification notification) {
+    return toNotificationQueueDto(notification, Collections.<Class<? extends Notification>>singleton(Notification.class));
+  }
+
+  /**
+   * Notifications of the classes {@code compactClasses} are written in a compact binary form and are read back as
+   * {@link Notification}, so these classes must hold their state entirely in the fields of {@link Notification} and
+   * must not override its behavior. Other notifications are serialized with Java serialization.
+   */
+  public static NotificationQueueDto toNotificationQueueDto(Notification notification, Set<Class<? extends Notification>> compactClasses) {
     ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
     try {
-      ObjectOutputStream objectOutputStream = new ObjectOutputStream(byteArrayOutputStream);
-      objectOutputStream.writeObject(notification);
-      objectOutputStream.close();
+      if (compactClasses.contains(notification.getClass())) {
+        writeCompact(notification, new DataOutputStream(byteArrayOutputStream));
+      } else {
+        ObjectOutputStream objectOutputStream = new ObjectOutputStream(byteArrayOutputStream);
+        objectOutputStream.writeObject(notification);
+        objectOutputStream.close();
+      }
       return new NotificationQueueDto().setData(byteArrayOutputStream.toByteArray());
 
     } catch (IOException e) {
@@ -81,6 +110,9 @@ public class NotificationQueueDto {
     if (this.data == null) {
       return null;
     }
+    if (isCompact()) {
+      return readCompact(new DataInputStream(new ByteArrayInputStream(this.data)));
+    }
     ByteArrayInputStream byteArrayInputStream = null;
     try {
       byteArrayInputStream = new ByteArrayInputStream(this.data);
@@ -93,4 +125,62 @@ public class NotificationQueueDto {
     }
   }
 
+  /**
+   * Date when the notification was queued, or {@code null} if it is unknown (notification serialized with
+   * Java serialization).
+   */
+  @CheckForNull
+  public Long getQueuedAt() {
+    if (this.data == null || !isCompact() || this.data.length < 9) {
+      return null;
+    }
+    return ByteBuffer.wrap(this.data, 1, 8).getLong();
+  }
+
+  private boolean isCompact() {
+    return this.data.length > 0 && this.data[0] == COMPACT_FORMAT;
+  }
+
+  private static void writeCompact(Notification notification, DataOutputStream output) throws IOException {
+    output.writeByte(COMPACT_FORMAT);
+    output.writeLong(System.currentTimeMillis());
+    writeString(output, notification.getType());
+    Set<String> fieldNames = notification.getFieldNames();
+    output.writeInt(fieldNames.size());
+    for (String fieldName : fieldNames) {
+      writeString(output, fieldName);
+      String value = notification.getFieldValue(fieldName);
+      output.writeBoolean(value != null);
+      if (value != null) {
+        writeString(output, value);
+      }
+    }
+    output.flush();
+  }
+
+  private static Notification readCompact(DataInputStream input) throws IOException {
+    // format and date
+    input.skipBytes(9);
+    Notification notification = new Notification(readString(input));
+    int fieldCount = input.readInt();
+    for (int i = 0; i < fieldCount; i++) {
+      String fieldName = readString(input);
+      notification.setFieldValue(fieldName, input.readBoolean() ? readString(input) : null);
+    }
+    return notification;
+  }
+
+  private static void writeString(DataOutputStream output, String s) throws IOException {
+    // DataOutputStream#writeUTF is limited to 64KB
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    output.writeInt(bytes.length);
+    output.write(bytes);
+  }
+
+  private static String readString(DataInputStream input) throws IOException {
+    byte[] bytes = new byte[input.readInt()];
+    input.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
 }
@@ -30,7 +30,7 @@ import org.sonar.db.MyBatis;
 
 public class DatabaseVersion {
 
-  public static final int LAST_VERSION = 1_319;
+  public static final int LAST_VERSION = 1_400;
 
   /**
    * The minimum supported version which can be upgraded. Lower
@@ -63,6 +63,7 @@ public class DatabaseVersion {
     "ce_activity",
     "ce_queue",
     "ce_task_input",
+    "ce_task_input_chunks",
     "ce_scanner_context",
     "dashboards",
     "duplications_index",
@@ -182,6 +182,23 @@ public class CeQueueDaoTest {
     assertThat(peek.get().getUuid()).isEqualTo(TASK_UUID_2);
   }
 
+  @Test
+  public void selectEligibleForPeek_does_not_claim_tasks() throws Exception {
+    insert(TASK_UUID_1, COMPONENT_UUID_1, PENDING);
+    system2.setNow(INIT_TIME + 3_000_000);
+    insert(TASK_UUID_2, COMPONENT_UUID_2, PENDING);
+    system2.setNow(INIT_TIME + 4_000_000);
+    insert(TASK_UUID_3, COMPONENT_UUID_2, PENDING);
+
+    assertThat(underTest.selectEligibleForPeek(db.getSession(), 10)).containsExactly(TASK_UUID_1, TASK_UUID_2, TASK_UUID_3);
+    assertThat(underTest.selectEligibleForPeek(db.getSession(), 1)).containsExactly(TASK_UUID_1);
+    verifyCeQueueStatuses(TASK_UUID_1, PENDING, TASK_UUID_2, PENDING);
+
+    // tasks of a project which is being processed are not eligible
+    underTest.peek(db.getSession());
+    assertThat(underTest.selectEligibleForPeek(db.getSession(), 10)).isEmpty();
+  }
+
   @Test
   public void select_by_query() {
     // task status not in query
@@ -28,6 +28,7 @@ import org.junit.rules.ExpectedException;
 import org.sonar.api.utils.System2;
 import org.sonar.db.DbTester;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Collections.singleton;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
@@ -39,6 +40,7 @@ public class CeTaskInputDaoTest {
   private static final String SOME_DATA = "this_is_a_report";
   private static final long NOW = 1_500_000_000_000L;
   private static final String TABLE_NAME = "ce_task_input";
+  private static final String CHUNKS_TABLE_NAME = "ce_task_input_chunks";
 
   @Rule
   public DbTester dbTester = DbTester.create(System2.INSTANCE);
@@ -65,6 +67,53 @@ public class CeTaskInputDaoTest {
     }
   }
 
+  @Test
+  public void insert_splits_data_into_chunks() throws Exception {
+    when(system.now()).thenReturn(NOW);
+
+    underTest.insert(dbTester.getSession(), A_UUID, IOUtils.toInputStream(SOME_DATA), 5);
+
+    assertThat(dbTester.countRowsOfTable(TABLE_NAME)).isEqualTo(1);
+    assertThat(dbTester.countRowsOfTable(CHUNKS_TABLE_NAME)).isEqualTo(4);
+    Optional<CeTaskInputDao.DataStream> result = underTest.selectData(dbTester.getSession(), A_UUID);
+    assertThat(result).isPresent();
+    try {
+      assertThat(IOUtils.toString(result.get().getInputStream())).isEqualTo(SOME_DATA);
+    } finally {
+      result.get().close();
+    }
+  }
+
+  @Test
+  public void insert_does_not_create_empty_chunk_when_size_of_data_is_multiple_of_chunk_size() throws Exception {
+    underTest.insert(dbTester.getSession(), A_UUID, IOUtils.toInputStream(SOME_DATA), 8);
+
+    assertThat(dbTester.countRowsOfTable(CHUNKS_TABLE_NAME)).isEqualTo(2);
+  }
+
+  @Test
+  public void insert_empty_data() throws Exception {
+    underTest.insert(dbTester.getSession(), A_UUID, IOUtils.toInputStream(""), 5);
+
+    assertThat(dbTester.countRowsOfTable(TABLE_NAME)).isEqualTo(1);
+    assertThat(dbTester.countRowsOfTable(CHUNKS_TABLE_NAME)).isEqualTo(0);
+    assertThat(underTest.selectData(dbTester.getSession(), A_UUID)).isNotPresent();
+  }
+
+  @Test
+  public void select_data_stored_in_a_single_row() throws Exception {
+    dbTester.executeInsert(TABLE_NAME, "task_uuid", A_UUID, "created_at", NOW, "updated_at", NOW, "input_data", SOME_DATA.getBytes(UTF_8));
+    dbTester.commit();
+
+    Optional<CeTaskInputDao.DataStream> result = underTest.selectData(dbTester.getSession(), A_UUID);
+    assertThat(result).isPresent();
+    try {
+      assertThat(IOUtils.toString(result.get().getInputStream())).isEqualTo(SOME_DATA);
+    } finally {
+      result.get().close();
+    }
+  }
+
   @Test
   public void fail_to_insert_invalid_row() throws Exception {
     expectedException.expectMessage("Fail to insert data of CE task null");
@@ -107,6 +156,18 @@ public class CeTaskInputDaoTest {
     assertThat(dbTester.countRowsOfTable(TABLE_NAME)).isEqualTo(0);
   }
 
+  @Test
+  public void deleteByUuids_deletes_chunks() {
+    underTest.insert(dbTester.getSession(), A_UUID, IOUtils.toInputStream(SOME_DATA), 5);
+    underTest.insert(dbTester.getSession(), "U2", IOUtils.toInputStream(SOME_DATA), 5);
+
+    underTest.deleteByUuids(dbTester.getSession(), singleton(A_UUID));
+    dbTester.commit();
+
+    assertThat(dbTester.countRowsOfTable(TABLE_NAME)).isEqualTo(1);
+    assertThat(dbTester.countRowsOfTable(CHUNKS_TABLE_NAME)).isEqualTo(4);
+  }
+
   private void insertData(String uuid) {
     dbTester.executeInsert(TABLE_NAME, "task_uuid", uuid, "created_at", NOW, "updated_at", NOW);
     dbTester.commit();
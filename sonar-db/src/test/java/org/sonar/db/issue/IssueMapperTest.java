@@ -19,6 +19,10 @@
  */
 package org.sonar.db.issue;
 
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -211,6 +215,26 @@ public class IssueMapperTest {
     assertThat(result.getUpdatedAt()).isEqualTo(1_500_000_000_000L);
   }
 
+  @Test
+  public void selectNonClosedByProjectUuid_orders_issues_by_component() {
+    underTest.insert(newIssue().setKee("I1").setComponentUuid(file2.uuid()).setStatus("OPEN").setResolution(null));
+    underTest.insert(newIssue().setKee("I2").setComponentUuid(file.uuid()).setStatus("OPEN").setResolution(null));
+    underTest.insert(newIssue().setKee("I3").setComponentUuid(file2.uuid()));
+    underTest.insert(newIssue().setKee("I4").setComponentUuid(file.uuid()).setStatus("CLOSED"));
+    dbTester.getSession().commit();
+
+    final List<IssueDto> issues = new ArrayList<>();
+    underTest.selectNonClosedByProjectUuid(project.uuid(), new ResultHandler() {
+      @Override
+      public void handleResult(ResultContext resultContext) {
+        issues.add((IssueDto) resultContext.getResultObject());
+      }
+    });
+
+    assertThat(issues).extracting("kee").containsOnly("I1", "I2", "I3");
+    assertThat(issues).extracting("componentUuid").isSorted();
+  }
+
   private IssueDto newIssue() {
     return new IssueDto()
       .setKee("ABCDE")
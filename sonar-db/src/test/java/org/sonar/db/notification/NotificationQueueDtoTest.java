@@ -0,0 +1,109 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.notification;
+
+import com.google.common.collect.ImmutableSet;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import org.junit.Test;
+import org.sonar.api.notifications.Notification;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NotificationQueueDtoTest {
+
+  @Test
+  public void write_and_read_compact_form() throws Exception {
+    Notification notification = new Notification("new-issues")
+      .setFieldValue("projectKey", "struts")
+      .setFieldValue("nullable", null)
+      .setDefaultMessage("a message");
+
+    NotificationQueueDto dto = NotificationQueueDto.toNotificationQueueDto(notification);
+
+    assertThat(dto.getData()[0]).isEqualTo((byte) 1);
+    assertThat(dto.getQueuedAt()).isNotNull();
+    Notification read = dto.toNotification();
+    assertThat(read).isEqualTo(notification);
+    assertThat(read.getFieldNames()).containsOnly("projectKey", "nullable", "default_message");
+    assertThat(read.getFieldValue("nullable")).isNull();
+  }
+
+  @Test
+  public void use_java_serialization_for_subclass_which_is_not_known_to_be_stateless() throws Exception {
+    NotificationQueueDto dto = NotificationQueueDto.toNotificationQueueDto(new StatelessNotification().setFieldValue("key", "value"));
+
+    assertThat(dto.getQueuedAt()).isNull();
+    assertThat(dto.toNotification()).isInstanceOf(StatelessNotification.class);
+    assertThat(dto.toNotification().getFieldValue("key")).isEqualTo("value");
+  }
+
+  @Test
+  public void write_given_classes_in_compact_form() throws Exception {
+    NotificationQueueDto dto = NotificationQueueDto.toNotificationQueueDto(new StatelessNotification().setFieldValue("key", "value"),
+      ImmutableSet.of(Notification.class, StatelessNotification.class));
+
+    assertThat(dto.getQueuedAt()).isNotNull();
+    assertThat(dto.toNotification().getClass()).isEqualTo(Notification.class);
+    assertThat(dto.toNotification().getFieldValue("key")).isEqualTo("value");
+  }
+
+  @Test
+  public void use_java_serialization_for_subclass_with_state() throws Exception {
+    StatefulNotification notification = new StatefulNotification();
+    notification.state = "state";
+
+    NotificationQueueDto dto = NotificationQueueDto.toNotificationQueueDto(notification);
+
+    assertThat(dto.getQueuedAt()).isNull();
+    assertThat(dto.toNotification()).isInstanceOf(StatefulNotification.class);
+    assertThat(((StatefulNotification) dto.toNotification()).state).isEqualTo("state");
+  }
+
+  @Test
+  public void read_notification_queued_with_java_serialization() throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+      output.writeObject(new Notification("email").setFieldValue("key", "value"));
+    }
+
+    NotificationQueueDto dto = new NotificationQueueDto().setData(bytes.toByteArray());
+
+    assertThat(dto.getQueuedAt()).isNull();
+    assertThat(dto.toNotification().getFieldValue("key")).isEqualTo("value");
+  }
+
+  private static class StatelessNotification extends Notification {
+    private static final long serialVersionUID = 1L;
+
+    StatelessNotification() {
+      super("stateless");
+    }
+  }
+
+  private static class StatefulNotification extends Notification {
+    private static final long serialVersionUID = 1L;
+    private String state;
+
+    StatefulNotification() {
+      super("stateful");
+    }
+  }
+}
@@ -21,6 +21,8 @@ package org.sonar.api.batch.fs;
 
 import java.io.File;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.SortedSet;
 import javax.annotation.CheckForNull;
 import org.sonar.api.batch.ScannerSide;
@@ -163,5 +165,50 @@ public interface FileSystem {
 
     @CheckForNull
     InputDir inputDir(String relativePath);
+
+    /**
+     * Files of the given language. Implementations are expected to maintain a dedicated index,
+     * default implementation scans all the files.
+     * @since 6.2
+     */
+    default Iterable<InputFile> inputFilesByLanguage(String language) {
+      List<InputFile> result = new ArrayList<>();
+      for (InputFile inputFile : inputFiles()) {
+        if (language.equals(inputFile.language())) {
+          result.add(inputFile);
+        }
+      }
+      return result;
+    }
+
+    /**
+     * Files of the given type. Implementations are expected to maintain a dedicated index,
+     * default implementation scans all the files.
+     * @since 6.2
+     */
+    default Iterable<InputFile> inputFilesByType(InputFile.Type type) {
+      List<InputFile> result = new ArrayList<>();
+      for (InputFile inputFile : inputFiles()) {
+        if (type == inputFile.type()) {
+          result.add(inputFile);
+        }
+      }
+      return result;
+    }
+
+    /**
+     * Files of the given status. Implementations are expected to maintain a dedicated index,
+     * default implementation scans all the files.
+     * @since 6.2
+     */
+    default Iterable<InputFile> inputFilesByStatus(InputFile.Status status) {
+      List<InputFile> result = new ArrayList<>();
+      for (InputFile inputFile : inputFiles()) {
+        if (status == inputFile.status()) {
+          result.add(inputFile);
+        }
+      }
+      return result;
+    }
   }
 }
@@ -33,6 +33,13 @@ public abstract class AbstractFilePredicate implements OptimizedFilePredicate {
 
   protected static final int DEFAULT_PRIORITY = 10;
   protected static final int USE_INDEX = 20;
+  /**
+   * Predicates backed by a secondary index of {@link org.sonar.api.batch.fs.FileSystem.Index}. The most selective
+   * ones are given the highest value, so that they are used to access the index when combined.
+   */
+  protected static final int USE_LANGUAGE_INDEX = 17;
+  protected static final int USE_STATUS_INDEX = 16;
+  protected static final int USE_TYPE_INDEX = 15;
 
   @Override
   public Iterable<InputFile> filter(Iterable<InputFile> target) {
@@ -91,6 +91,30 @@ class AndPredicate extends AbstractFilePredicate {
     return result;
   }
 
+  /**
+   * Predicates are sorted, so the first one is the one used to access the index
+   */
+  @Override
+  public int priority() {
+    return predicates.isEmpty() ? DEFAULT_PRIORITY : predicates.get(0).priority();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    return predicates.equals(((AndPredicate) o).predicates);
+  }
+
+  @Override
+  public int hashCode() {
+    return predicates.hashCode();
+  }
+
   @VisibleForTesting
   Collection<OptimizedFilePredicate> predicates() {
     return predicates;
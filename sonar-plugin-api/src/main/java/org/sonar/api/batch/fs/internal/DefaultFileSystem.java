@@ -21,6 +21,7 @@ package org.sonar.api.batch.fs.internal;
 
 import com.google.common.base.Function;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.Charset;
@@ -28,10 +29,15 @@ import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.SortedMap;
 import java.util.SortedSet;
+import java.util.TreeMap;
 import java.util.TreeSet;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
@@ -48,6 +54,8 @@ import org.sonar.api.utils.PathUtils;
  */
 public class DefaultFileSystem implements FileSystem {
 
+  private static final int MAX_MEMOIZED_SELECTIONS = 32;
+
   private final Cache cache;
   private final SortedSet<String> languages = new TreeSet<>();
   private final Path baseDir;
@@ -55,6 +63,13 @@ public class DefaultFileSystem implements FileSystem {
   private Charset encoding;
   protected final FilePredicates predicates;
   private FilePredicate defaultPredicate;
+  private final Map<FilePredicate, List<InputFile>> memoizedSelections = new LinkedHashMap<FilePredicate, List<InputFile>>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<FilePredicate, List<InputFile>> eldest) {
+      return size() > MAX_MEMOIZED_SELECTIONS;
+    }
+  };
+  private long modifications = 0L;
 
   /**
    * Only for testing
@@ -109,7 +124,7 @@ public class DefaultFileSystem implements FileSystem {
     return this;
   }
 
-  public DefaultFileSystem setDefaultPredicate(@Nullable FilePredicate predicate) {
+  public synchronized DefaultFileSystem setDefaultPredicate(@Nullable FilePredicate predicate) {
     this.defaultPredicate = predicate;
     return this;
   }
@@ -157,16 +172,54 @@ public class DefaultFileSystem implements FileSystem {
   @Override
   public Iterable<InputFile> inputFiles(FilePredicate predicate) {
     doPreloadFiles();
-    FilePredicate combinedPredicate = predicate;
+    return select(withDefaultPredicate(predicate));
+  }
+
+  private FilePredicate withDefaultPredicate(FilePredicate predicate) {
     if (defaultPredicate != null) {
-      combinedPredicate = predicates().and(defaultPredicate, predicate);
+      return predicates().and(defaultPredicate, predicate);
     }
-    return OptimizedFilePredicateAdapter.create(combinedPredicate).get(cache);
+    return predicate;
+  }
+
+  /**
+   * The same predicates are usually evaluated by many sensors, so results are memoized until the next
+   * file is added. Lookups by path are already direct accesses to the cache and are not memoized.
+   */
+  private Iterable<InputFile> select(FilePredicate predicate) {
+    OptimizedFilePredicate optimizedPredicate = OptimizedFilePredicateAdapter.create(predicate);
+    if (optimizedPredicate.priority() >= AbstractFilePredicate.USE_INDEX) {
+      return optimizedPredicate.get(cache);
+    }
+    long modificationsBeforeSelection;
+    synchronized (this) {
+      List<InputFile> selection = memoizedSelections.get(predicate);
+      if (selection != null) {
+        return selection;
+      }
+      modificationsBeforeSelection = modifications;
+    }
+    List<InputFile> selection = Collections.unmodifiableList(Lists.newArrayList(optimizedPredicate.get(cache)));
+    synchronized (this) {
+      if (modificationsBeforeSelection == modifications) {
+        memoizedSelections.put(predicate, selection);
+      }
+    }
+    return selection;
   }
 
   @Override
   public boolean hasFiles(FilePredicate predicate) {
-    return inputFiles(predicate).iterator().hasNext();
+    doPreloadFiles();
+    FilePredicate combinedPredicate = withDefaultPredicate(predicate);
+    synchronized (this) {
+      List<InputFile> selection = memoizedSelections.get(combinedPredicate);
+      if (selection != null) {
+        return !selection.isEmpty();
+      }
+    }
+    // stops at the first matching file, without memoizing the whole selection
+    return OptimizedFilePredicateAdapter.create(combinedPredicate).get(cache).iterator().hasNext();
   }
 
   @Override
@@ -200,6 +253,8 @@ public class DefaultFileSystem implements FileSystem {
     }
     inputFile.setModuleBaseDir(this.baseDir);
     cache.add(inputFile);
+    modifications++;
+    memoizedSelections.clear();
     String language = inputFile.language();
     if (language != null) {
       languages.add(language);
@@ -248,7 +303,15 @@ public class DefaultFileSystem implements FileSystem {
     // nothing to do by default
   }
 
+  /**
+   * Besides the storage provided by implementations, maintains in memory secondary indexes of files
+   * by language, type and status. They are used by the related {@link FilePredicates}.
+   */
   public abstract static class Cache implements Index {
+    private final Map<String, SortedMap<String, InputFile>> filesByLanguage = new HashMap<>();
+    private final Map<InputFile.Type, SortedMap<String, InputFile>> filesByType = new EnumMap<>(InputFile.Type.class);
+    private final Map<InputFile.Status, SortedMap<String, InputFile>> filesByStatus = new EnumMap<>(InputFile.Status.class);
+
     @Override
     public abstract Iterable<InputFile> inputFiles();
 
@@ -265,7 +328,69 @@ public class DefaultFileSystem implements FileSystem {
     protected abstract void doAdd(InputDir inputDir);
 
     final void add(InputFile inputFile) {
+      if (inputFile(inputFile.relativePath()) != null) {
+        unindex(inputFile.relativePath());
+      }
       doAdd(inputFile);
+      index(inputFile);
+    }
+
+    @Override
+    public Iterable<InputFile> inputFilesByLanguage(String language) {
+      return valuesOf(filesByLanguage.get(language));
+    }
+
+    @Override
+    public Iterable<InputFile> inputFilesByType(InputFile.Type type) {
+      return valuesOf(filesByType.get(type));
+    }
+
+    @Override
+    public Iterable<InputFile> inputFilesByStatus(InputFile.Status status) {
+      return valuesOf(filesByStatus.get(status));
+    }
+
+    private void index(InputFile inputFile) {
+      if (inputFile.language() != null) {
+        indexIn(filesByLanguage, inputFile.language(), inputFile);
+      }
+      if (inputFile.type() != null) {
+        indexIn(filesByType, inputFile.type(), inputFile);
+      }
+      if (inputFile.status() != null) {
+        indexIn(filesByStatus, inputFile.status(), inputFile);
+      }
+    }
+
+    /**
+     * Attributes of the previous file may have been changed since it was indexed, so it is removed from all the entries
+     */
+    private void unindex(String relativePath) {
+      for (SortedMap<String, InputFile> files : filesByLanguage.values()) {
+        files.remove(relativePath);
+      }
+      for (SortedMap<String, InputFile> files : filesByType.values()) {
+        files.remove(relativePath);
+      }
+      for (SortedMap<String, InputFile> files : filesByStatus.values()) {
+        files.remove(relativePath);
+      }
+    }
+
+    private static <K> void indexIn(Map<K, SortedMap<String, InputFile>> index, K key, InputFile inputFile) {
+      SortedMap<String, InputFile> files = index.get(key);
+      if (files == null) {
+        files = new TreeMap<>();
+        index.put(key, files);
+      }
+      files.put(inputFile.relativePath(), inputFile);
+    }
+
+    private static Iterable<InputFile> valuesOf(@Nullable SortedMap<String, InputFile> files) {
+      if (files == null) {
+        return Collections.emptyList();
+      }
+      return Collections.unmodifiableCollection(files.values());
     }
 
     public void add(InputDir inputDir) {
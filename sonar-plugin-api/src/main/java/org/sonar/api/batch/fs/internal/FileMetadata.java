@@ -358,13 +358,33 @@ public class FileMetadata {
     final int[] originalLineOffsets;
     final int lastValidOffset;
 
-    private Metadata(int lines, int nonBlankLines, String hash, int[] originalLineOffsets, int lastValidOffset) {
+    public Metadata(int lines, int nonBlankLines, String hash, int[] originalLineOffsets, int lastValidOffset) {
       this.lines = lines;
       this.nonBlankLines = nonBlankLines;
       this.hash = hash;
       this.originalLineOffsets = originalLineOffsets;
       this.lastValidOffset = lastValidOffset;
     }
+
+    public int lines() {
+      return lines;
+    }
+
+    public int nonBlankLines() {
+      return nonBlankLines;
+    }
+
+    public String hash() {
+      return hash;
+    }
+
+    public int[] originalLineOffsets() {
+      return originalLineOffsets;
+    }
+
+    public int lastValidOffset() {
+      return lastValidOffset;
+    }
   }
 
   public interface LineHashConsumer {
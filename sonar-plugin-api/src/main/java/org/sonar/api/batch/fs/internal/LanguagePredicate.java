@@ -19,6 +19,7 @@
  */
 package org.sonar.api.batch.fs.internal;
 
+import org.sonar.api.batch.fs.FileSystem.Index;
 import org.sonar.api.batch.fs.InputFile;
 
 /**
@@ -35,4 +36,30 @@ class LanguagePredicate extends AbstractFilePredicate {
   public boolean apply(InputFile f) {
     return language.equals(f.language());
   }
+
+  @Override
+  public Iterable<InputFile> get(Index index) {
+    return index.inputFilesByLanguage(language);
+  }
+
+  @Override
+  public int priority() {
+    return USE_LANGUAGE_INDEX;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    return language.equals(((LanguagePredicate) o).language);
+  }
+
+  @Override
+  public int hashCode() {
+    return language.hashCode();
+  }
 }
@@ -38,4 +38,20 @@ class NotPredicate extends AbstractFilePredicate {
     return !predicate.apply(f);
   }
 
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    return predicate.equals(((NotPredicate) o).predicate);
+  }
+
+  @Override
+  public int hashCode() {
+    return predicate.hashCode();
+  }
+
 }
@@ -43,4 +43,20 @@ class OptimizedFilePredicateAdapter extends AbstractFilePredicate {
     }
   }
 
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    return unoptimizedPredicate.equals(((OptimizedFilePredicateAdapter) o).unoptimizedPredicate);
+  }
+
+  @Override
+  public int hashCode() {
+    return unoptimizedPredicate.hashCode();
+  }
+
 }
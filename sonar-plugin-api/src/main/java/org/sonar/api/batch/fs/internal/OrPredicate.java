@@ -20,17 +20,25 @@
 package org.sonar.api.batch.fs.internal;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterables;
 import org.sonar.api.batch.fs.FilePredicate;
+import org.sonar.api.batch.fs.FileSystem.Index;
 import org.sonar.api.batch.fs.InputFile;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
 
 /**
  * @since 4.2
  */
 class OrPredicate extends AbstractFilePredicate {
 
+  private static final Comparator<InputFile> BY_RELATIVE_PATH = Comparator.comparing(InputFile::relativePath);
+
   private final Collection<FilePredicate> predicates = new ArrayList<>();
 
   private OrPredicate() {
@@ -65,6 +73,85 @@ class OrPredicate extends AbstractFilePredicate {
     return false;
   }
 
+  /**
+   * When all operands are backed by an index, for example {@link org.sonar.api.batch.fs.FilePredicates#hasLanguages(String...)}, the
+   * union of their index entries is cheaper than a scan of all files. Index entries are sorted by relative path, so they are
+   * lazily merged in that order and files matched by several operands are returned once.
+   */
+  @Override
+  public Iterable<InputFile> get(Index index) {
+    if (!isIndexed()) {
+      return super.get(index);
+    }
+    List<Iterable<InputFile>> operandFiles = new ArrayList<>(predicates.size());
+    for (FilePredicate predicate : predicates) {
+      operandFiles.add(((OptimizedFilePredicate) predicate).get(index));
+    }
+    Iterable<InputFile> merged = Iterables.mergeSorted(operandFiles, BY_RELATIVE_PATH);
+    return () -> new DistinctIterator(merged.iterator());
+  }
+
+  @Override
+  public int priority() {
+    if (!isIndexed()) {
+      return DEFAULT_PRIORITY;
+    }
+    int priority = USE_INDEX;
+    for (FilePredicate predicate : predicates) {
+      priority = Math.min(priority, ((OptimizedFilePredicate) predicate).priority());
+    }
+    return priority;
+  }
+
+  private boolean isIndexed() {
+    for (FilePredicate predicate : predicates) {
+      if (!(predicate instanceof OptimizedFilePredicate) || ((OptimizedFilePredicate) predicate).priority() <= DEFAULT_PRIORITY) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    return predicates.equals(((OrPredicate) o).predicates);
+  }
+
+  @Override
+  public int hashCode() {
+    return predicates.hashCode();
+  }
+
+  /**
+   * Skips consecutive occurrences of the same file
+   */
+  private static class DistinctIterator extends AbstractIterator<InputFile> {
+    private final Iterator<InputFile> sortedFiles;
+    private String lastRelativePath;
+
+    private DistinctIterator(Iterator<InputFile> sortedFiles) {
+      this.sortedFiles = sortedFiles;
+    }
+
+    @Override
+    protected InputFile computeNext() {
+      while (sortedFiles.hasNext()) {
+        InputFile file = sortedFiles.next();
+        if (!file.relativePath().equals(lastRelativePath)) {
+          lastRelativePath = file.relativePath();
+          return file;
+        }
+      }
+      return endOfData();
+    }
+  }
+
   @VisibleForTesting
   Collection<FilePredicate> predicates() {
     return predicates;
@@ -37,4 +37,20 @@ class PathPatternPredicate extends AbstractFilePredicate {
     return pattern.match(f);
   }
 
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    return pattern.toString().equals(((PathPatternPredicate) o).pattern.toString());
+  }
+
+  @Override
+  public int hashCode() {
+    return pattern.toString().hashCode();
+  }
+
 }
@@ -19,6 +19,7 @@
  */
 package org.sonar.api.batch.fs.internal;
 
+import org.sonar.api.batch.fs.FileSystem.Index;
 import org.sonar.api.batch.fs.InputFile;
 
 /**
@@ -37,4 +38,29 @@ class StatusPredicate extends AbstractFilePredicate {
     return status == f.status();
   }
 
+  @Override
+  public Iterable<InputFile> get(Index index) {
+    return index.inputFilesByStatus(status);
+  }
+
+  @Override
+  public int priority() {
+    return USE_STATUS_INDEX;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    return status == ((StatusPredicate) o).status;
+  }
+
+  @Override
+  public int hashCode() {
+    return status.hashCode();
+  }
 }
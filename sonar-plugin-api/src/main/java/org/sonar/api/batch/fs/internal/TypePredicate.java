@@ -19,6 +19,7 @@
  */
 package org.sonar.api.batch.fs.internal;
 
+import org.sonar.api.batch.fs.FileSystem.Index;
 import org.sonar.api.batch.fs.InputFile;
 
 /**
@@ -37,4 +38,29 @@ class TypePredicate extends AbstractFilePredicate {
     return type == f.type();
   }
 
+  @Override
+  public Iterable<InputFile> get(Index index) {
+    return index.inputFilesByType(type);
+  }
+
+  @Override
+  public int priority() {
+    return USE_TYPE_INDEX;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    return type == ((TypePredicate) o).type;
+  }
+
+  @Override
+  public int hashCode() {
+    return type.hashCode();
+  }
 }
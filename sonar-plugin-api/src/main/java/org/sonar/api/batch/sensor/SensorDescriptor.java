@@ -79,4 +79,15 @@ public interface SensorDescriptor {
    */
   SensorDescriptor requireProperties(String... propertyKeys);
 
+  /**
+   * Declare that this {@link Sensor} only reads input files and saves data through the {@link SensorContext}, without
+   * depending on data produced by other sensors. Such sensors may be executed concurrently by the platform.
+   * By default, sensors are executed sequentially. Implementations which do not support concurrent execution
+   * ignore this declaration.
+   * @since 6.2
+   */
+  default SensorDescriptor concurrent() {
+    return this;
+  }
+
 }
@@ -25,7 +25,9 @@ import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 
 import java.io.Serializable;
+import java.util.Collections;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * This class represents a notification that will be delivered to users. This is a general concept and it has no
@@ -117,6 +119,15 @@ public class Notification implements Serializable {
     return fields.get(field);
   }
 
+  /**
+   * Returns the names of the fields set on the notification.
+   *
+   * @since 6.2
+   */
+  public Set<String> getFieldNames() {
+    return Collections.unmodifiableSet(fields.keySet());
+  }
+
   @Override
   public boolean equals(Object obj) {
     if (!(obj instanceof Notification)) {
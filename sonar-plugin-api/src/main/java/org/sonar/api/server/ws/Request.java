@@ -26,6 +26,7 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 import javax.annotation.CheckForNull;
 import org.apache.commons.lang.StringUtils;
 import org.sonar.api.utils.DateUtils;
@@ -296,6 +297,15 @@ public abstract class Request {
    */
   public abstract String getPath();
 
+  /**
+   * Returns value of a header of the HTTP request, for example "If-None-Match". Absent if the header
+   * is not set or if the request is not an HTTP request, for instance a call through {@link LocalConnector}.
+   * @since 6.2
+   */
+  public Optional<String> header(String name) {
+    return Optional.empty();
+  }
+
   /**
    * @since 6.0
    */
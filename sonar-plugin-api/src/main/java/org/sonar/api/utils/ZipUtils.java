@@ -165,6 +165,18 @@ public final class ZipUtils {
     }
   }
 
+  /**
+   * Writes the zip of the content of a directory to a stream, for example to send it without
+   * creating a temporary file. The stream is flushed but not closed.
+   * @since 6.2
+   */
+  public static void zipDir(File dir, OutputStream out) throws IOException {
+    ZipOutputStream zout = new ZipOutputStream(out);
+    doZipDir(dir, zout);
+    zout.finish();
+    zout.flush();
+  }
+
   private static void doZip(String entryName, InputStream in, ZipOutputStream out) throws IOException {
     ZipEntry entry = new ZipEntry(entryName);
     out.putNextEntry(entry);
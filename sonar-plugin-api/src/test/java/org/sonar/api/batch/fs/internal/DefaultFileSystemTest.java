@@ -27,6 +27,7 @@ import org.junit.rules.TemporaryFolder;
 
 import java.io.File;
 import java.nio.charset.Charset;
+import org.sonar.api.batch.fs.InputFile;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -131,4 +132,56 @@ public class DefaultFileSystemTest {
     // it would fail if more than one java file
     assertThat(fs.inputFile(fs.predicates().hasLanguage("java"))).isNotNull();
   }
+
+  @Test
+  public void select_files_by_type_and_status() {
+    fs.add(new DefaultInputFile("foo", "src/Foo.java").setLanguage("java").setType(InputFile.Type.MAIN).setStatus(InputFile.Status.SAME));
+    fs.add(new DefaultInputFile("foo", "src/Bar.java").setLanguage("java").setType(InputFile.Type.MAIN).setStatus(InputFile.Status.CHANGED));
+    fs.add(new DefaultInputFile("foo", "test/FooTest.java").setLanguage("java").setType(InputFile.Type.TEST).setStatus(InputFile.Status.ADDED));
+
+    assertThat(fs.inputFiles(fs.predicates().hasType(InputFile.Type.MAIN))).extracting("relativePath").containsExactly("src/Bar.java", "src/Foo.java");
+    assertThat(fs.inputFiles(fs.predicates().hasStatus(InputFile.Status.ADDED))).extracting("relativePath").containsExactly("test/FooTest.java");
+    assertThat(fs.inputFiles(fs.predicates().and(fs.predicates().hasType(InputFile.Type.MAIN), fs.predicates().hasStatus(InputFile.Status.CHANGED))))
+      .extracting("relativePath").containsExactly("src/Bar.java");
+    assertThat(fs.inputFiles(fs.predicates().hasLanguages("java", "php"))).hasSize(3);
+  }
+
+  @Test
+  public void selection_is_refreshed_when_files_are_added() {
+    fs.add(new DefaultInputFile("foo", "src/Foo.java").setLanguage("java"));
+    assertThat(fs.inputFiles(fs.predicates().hasLanguage("java"))).hasSize(1);
+
+    fs.add(new DefaultInputFile("foo", "src/Bar.java").setLanguage("java"));
+    assertThat(fs.inputFiles(fs.predicates().hasLanguage("java"))).hasSize(2);
+  }
+
+  @Test
+  public void re_added_file_is_reindexed() {
+    fs.add(new DefaultInputFile("foo", "src/Foo.java").setLanguage("java"));
+    fs.add(new DefaultInputFile("foo", "src/Foo.java").setLanguage("php"));
+
+    assertThat(fs.inputFiles(fs.predicates().hasLanguage("java"))).isEmpty();
+    assertThat(fs.inputFiles(fs.predicates().hasLanguage("php"))).hasSize(1);
+    assertThat(fs.inputFiles(fs.predicates().all())).hasSize(1);
+  }
+
+  @Test
+  public void union_of_languages_keeps_index_order() {
+    fs.add(new DefaultInputFile("foo", "src/C.php").setLanguage("php"));
+    fs.add(new DefaultInputFile("foo", "src/A.java").setLanguage("java"));
+    fs.add(new DefaultInputFile("foo", "src/B.php").setLanguage("php"));
+
+    assertThat(fs.inputFiles(fs.predicates().hasLanguages("php", "java"))).extracting("relativePath")
+      .containsExactly("src/A.java", "src/B.php", "src/C.php");
+    assertThat(fs.inputFiles(fs.predicates().or(fs.predicates().hasLanguage("php"), fs.predicates().hasLanguage("php")))).extracting("relativePath")
+      .containsExactly("src/B.php", "src/C.php");
+  }
+
+  @Test
+  public void has_files() {
+    fs.add(new DefaultInputFile("foo", "src/Foo.java").setLanguage("java"));
+
+    assertThat(fs.hasFiles(fs.predicates().hasLanguage("java"))).isTrue();
+    assertThat(fs.hasFiles(fs.predicates().hasLanguage("php"))).isFalse();
+  }
 }
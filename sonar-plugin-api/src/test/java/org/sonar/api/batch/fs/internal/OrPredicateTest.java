@@ -62,4 +62,15 @@ public class OrPredicateTest {
     assertThat(andPredicate).isEqualTo(TruePredicate.TRUE);
   }
 
+
+  @Test
+  public void useIndexWhenAllOperandsAreIndexed() {
+    OrPredicate languages = (OrPredicate) OrPredicate.create(Arrays.<FilePredicate>asList(new LanguagePredicate("java"), new LanguagePredicate("php")));
+    assertThat(languages.priority()).isEqualTo(AbstractFilePredicate.USE_LANGUAGE_INDEX);
+
+    OrPredicate mixed = (OrPredicate) OrPredicate.create(Arrays.<FilePredicate>asList(new LanguagePredicate("java"),
+      new PathPatternPredicate(PathPattern.create("foo1/**"))));
+    assertThat(mixed.priority()).isEqualTo(AbstractFilePredicate.DEFAULT_PRIORITY);
+  }
+
 }
@@ -19,25 +19,61 @@
  */
 package org.sonar.scanner.bootstrap;
 
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import javax.annotation.CheckForNull;
+import okhttp3.Cache;
+import org.apache.commons.io.IOUtils;
+import org.picocontainer.ComponentLifecycle;
+import org.picocontainer.PicoContainer;
 import org.picocontainer.injectors.ProviderAdapter;
 import org.sonar.api.CoreProperties;
 import org.sonar.api.batch.ScannerSide;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
 import org.sonar.batch.bootstrapper.EnvironmentInformation;
 import org.sonarqube.ws.client.HttpConnector;
 import org.sonarqube.ws.client.WsClientFactories;
 
 import static java.lang.Integer.parseInt;
 import static java.lang.String.valueOf;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
 import static org.apache.commons.lang.StringUtils.defaultIfBlank;
 
 @ScannerSide
-public class BatchWsClientProvider extends ProviderAdapter {
+public class BatchWsClientProvider extends ProviderAdapter implements ComponentLifecycle<BatchWsClient> {
+
+  private static final Logger LOG = Loggers.get(BatchWsClientProvider.class);
 
   static final int CONNECT_TIMEOUT_MS = 5_000;
   static final String READ_TIMEOUT_SEC_PROPERTY = "sonar.ws.timeout";
   static final int DEFAULT_READ_TIMEOUT_SEC = 60;
+  static final String CACHE_ENABLED_PROPERTY = "sonar.ws.cache";
+  static final String CACHE_DIR_NAME = "ws_cache";
+  static final String CACHE_LOCK_NAME = "ws_cache.lock";
+  static final long CACHE_MAX_SIZE_BYTES = 50L * 1024 * 1024;
 
+  private final System2 system;
+  private boolean started = false;
   private BatchWsClient wsClient;
+  @CheckForNull
+  private FileChannel cacheLock;
+  @CheckForNull
+  private Cache cache;
+
+  public BatchWsClientProvider() {
+    this(System2.INSTANCE);
+  }
+
+  BatchWsClientProvider(System2 system) {
+    this.system = system;
+  }
 
   public synchronized BatchWsClient provide(final GlobalProperties settings, final EnvironmentInformation env) {
     if (wsClient == null) {
@@ -53,14 +89,89 @@ public class BatchWsClientProvider extends ProviderAdapter {
         .url(url)
         .credentials(login, settings.property(CoreProperties.PASSWORD));
 
+      // responses are revalidated with their ETag on each call, so that unchanged ones are not downloaded again
+      if (!"false".equals(settings.property(CACHE_ENABLED_PROPERTY))) {
+        Path home = SonarUserHome.find(settings, system);
+        if (lockCache(home)) {
+          connectorBuilder.cache(home.resolve(CACHE_DIR_NAME).toFile(), CACHE_MAX_SIZE_BYTES);
+        }
+      }
+
       // OkHttp detect 'http.proxyHost' java property, but credentials should be filled
       final String proxyUser = System.getProperty("http.proxyUser", "");
       if (!System.getProperty("http.proxyHost", "").isEmpty() && !proxyUser.isEmpty()) {
         connectorBuilder.proxyCredentials(proxyUser, System.getProperty("http.proxyPassword"));
       }
 
-      wsClient = new BatchWsClient(WsClientFactories.getDefault().newClient(connectorBuilder.build()), login != null);
+      HttpConnector connector = connectorBuilder.build();
+      cache = connector.okHttpClient().cache();
+      wsClient = new BatchWsClient(WsClientFactories.getDefault().newClient(connector), login != null);
     }
     return wsClient;
   }
+
+  /**
+   * The disk cache of OkHttp does not support concurrent processes, so it is used only by
+   * the analysis that holds the lock. Other analyses run without cache.
+   */
+  private boolean lockCache(Path home) {
+    try {
+      Files.createDirectories(home);
+      FileChannel channel = FileChannel.open(home.resolve(CACHE_LOCK_NAME), CREATE, WRITE);
+      FileLock lock = tryLock(channel);
+      if (lock == null) {
+        channel.close();
+        LOG.debug("Cache of web services is used by another analysis, it is disabled");
+        return false;
+      }
+      cacheLock = channel;
+      return true;
+    } catch (IOException e) {
+      LOG.debug("Fail to lock cache of web services, it is disabled", e);
+      return false;
+    }
+  }
+
+  @CheckForNull
+  private static FileLock tryLock(FileChannel channel) throws IOException {
+    try {
+      return channel.tryLock();
+    } catch (OverlappingFileLockException e) {
+      // locked by another analysis of the same JVM
+      return null;
+    }
+  }
+
+  @Override
+  public void start(PicoContainer container) {
+    started = true;
+  }
+
+  @Override
+  public synchronized void stop(PicoContainer container) {
+    if (cache != null) {
+      IOUtils.closeQuietly(cache);
+      cache = null;
+    }
+    if (cacheLock != null) {
+      // closing the channel releases the lock
+      IOUtils.closeQuietly(cacheLock);
+      cacheLock = null;
+    }
+  }
+
+  @Override
+  public void dispose(PicoContainer container) {
+    // nothing to do
+  }
+
+  @Override
+  public boolean componentHasLifecycle() {
+    return true;
+  }
+
+  @Override
+  public boolean isStarted() {
+    return started;
+  }
 }
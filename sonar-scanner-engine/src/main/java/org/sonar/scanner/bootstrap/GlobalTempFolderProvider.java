@@ -63,7 +63,7 @@ public class GlobalTempFolderProvider extends ProviderAdapter implements Compone
       Path workingPath = Paths.get(workingPathName);
 
       if (!workingPath.isAbsolute()) {
-        Path home = findSonarHome(bootstrapProps);
+        Path home = SonarUserHome.find(bootstrapProps, system);
         workingPath = home.resolve(workingPath).normalize();
       }
 
@@ -92,22 +92,6 @@ public class GlobalTempFolderProvider extends ProviderAdapter implements Compone
     }
   }
 
-  private Path findSonarHome(GlobalProperties props) {
-    String home = props.property("sonar.userHome");
-    if (home != null) {
-      return Paths.get(home).toAbsolutePath();
-    }
-
-    home = system.envVariable("SONAR_USER_HOME");
-
-    if (home != null) {
-      return Paths.get(home).toAbsolutePath();
-    }
-
-    home = system.property("user.home");
-    return Paths.get(home, ".sonar").toAbsolutePath();
-  }
-
   private static void cleanTempFolders(Path path) throws IOException {
     if (Files.exists(path)) {
       try (DirectoryStream<Path> stream = Files.newDirectoryStream(path, new CleanFilter())) {
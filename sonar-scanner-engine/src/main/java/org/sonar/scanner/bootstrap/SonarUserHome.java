@@ -0,0 +1,51 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.bootstrap;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import org.sonar.api.utils.System2;
+
+/**
+ * Location of the directory where the scanner keeps its caches and working files: property
+ * "sonar.userHome", then environment variable SONAR_USER_HOME, then "~/.sonar".
+ */
+class SonarUserHome {
+
+  private SonarUserHome() {
+    // only static methods
+  }
+
+  static Path find(GlobalProperties props, System2 system) {
+    String home = props.property("sonar.userHome");
+    if (home != null) {
+      return Paths.get(home).toAbsolutePath();
+    }
+
+    home = system.envVariable("SONAR_USER_HOME");
+
+    if (home != null) {
+      return Paths.get(home).toAbsolutePath();
+    }
+
+    home = system.property("user.home");
+    return Paths.get(home, ".sonar").toAbsolutePath();
+  }
+}
@@ -20,6 +20,20 @@
 package org.sonar.scanner.issue.tracking;
 
 import com.google.common.base.Function;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.annotation.Nullable;
 import org.sonar.api.batch.ScannerSide;
 import org.sonar.api.batch.InstantiationStrategy;
@@ -29,12 +43,15 @@ import org.sonar.api.utils.log.Profiler;
 import org.sonar.core.component.ComponentKeys;
 import org.sonar.scanner.index.BatchComponent;
 import org.sonar.scanner.index.BatchComponentCache;
-import org.sonar.scanner.index.Cache;
-import org.sonar.scanner.index.Caches;
 import org.sonar.scanner.protocol.input.ScannerInput.ServerIssue;
 import org.sonar.scanner.repository.ServerIssuesLoader;
 import org.sonar.scanner.scan.ImmutableProjectReactor;
 
+/**
+ * Open issues of the project on server side. They are downloaded in background as soon as {@link #load()} is
+ * called, so that network I/O overlaps with the analysis of modules, and are grouped by component while streaming.
+ * Issues are kept serialized, as they are received, until the component is tracked.
+ */
 @InstantiationStrategy(InstantiationStrategy.PER_BATCH)
 @ScannerSide
 public class ServerIssueRepository {
@@ -42,32 +59,77 @@ public class ServerIssueRepository {
   private static final Logger LOG = Loggers.get(ServerIssueRepository.class);
   private static final String LOG_MSG = "Load server issues";
 
-  private final Caches caches;
-  private Cache<ServerIssue> issuesCache;
   private final ServerIssuesLoader previousIssuesLoader;
   private final ImmutableProjectReactor reactor;
   private final BatchComponentCache resourceCache;
+  private final Map<String, ComponentIssues> issuesByComponentKey = new HashMap<>();
+  private Future<?> loading;
 
-  public ServerIssueRepository(Caches caches, ServerIssuesLoader previousIssuesLoader, ImmutableProjectReactor reactor, BatchComponentCache resourceCache) {
-    this.caches = caches;
+  public ServerIssueRepository(ServerIssuesLoader previousIssuesLoader, ImmutableProjectReactor reactor, BatchComponentCache resourceCache) {
     this.previousIssuesLoader = previousIssuesLoader;
     this.reactor = reactor;
     this.resourceCache = resourceCache;
   }
 
-  public void load() {
-    Profiler profiler = Profiler.create(LOG).startInfo(LOG_MSG);
-    this.issuesCache = caches.createCache("previousIssues");
-    caches.registerValueCoder(ServerIssue.class, new ServerIssueValueCoder());
-    previousIssuesLoader.load(reactor.getRoot().getKeyWithBranch(), new SaveIssueConsumer());
-    profiler.stopInfo();
+  /**
+   * Starts loading issues. Subsequent calls have no effect.
+   */
+  public synchronized void load() {
+    if (loading != null) {
+      return;
+    }
+    ExecutorService executorService = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+      .setNameFormat("ServerIssuesLoader")
+      .setDaemon(true)
+      .build());
+    loading = executorService.submit(() -> {
+      Profiler profiler = Profiler.create(LOG).startInfo(LOG_MSG);
+      previousIssuesLoader.load(reactor.getRoot().getKeyWithBranch(), new GroupByComponentConsumer());
+      profiler.stopInfo();
+    });
+    executorService.shutdown();
   }
 
   public Iterable<ServerIssue> byComponent(BatchComponent component) {
-    return issuesCache.values(component.batchId());
+    awaitLoading();
+    ComponentIssues issues = issuesByComponentKey.get(component.key());
+    return issues == null ? Collections.<ServerIssue>emptyList() : issues.read();
   }
 
-  private class SaveIssueConsumer implements Function<ServerIssue, Void> {
+  /**
+   * Issues of components that do not exist anymore. Components are all known once modules have been analysed.
+   */
+  public Iterable<ServerIssue> issuesOnMissingComponents() {
+    awaitLoading();
+    List<ServerIssue> result = new ArrayList<>();
+    for (Map.Entry<String, ComponentIssues> entry : issuesByComponentKey.entrySet()) {
+      if (resourceCache.get(entry.getKey()) == null) {
+        result.addAll(entry.getValue().read());
+      }
+    }
+    return result;
+  }
+
+  private void awaitLoading() {
+    Future<?> future;
+    synchronized (this) {
+      if (loading == null) {
+        throw new IllegalStateException("Server issues are not loaded");
+      }
+      future = loading;
+    }
+    try {
+      future.get();
+    } catch (ExecutionException e) {
+      // Unwrap ExecutionException
+      throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private class GroupByComponentConsumer implements Function<ServerIssue, Void> {
 
     @Override
     public Void apply(@Nullable ServerIssue issue) {
@@ -75,18 +137,42 @@ public class ServerIssueRepository {
         return null;
       }
       String componentKey = ComponentKeys.createEffectiveKey(issue.getModuleKey(), issue.hasPath() ? issue.getPath() : null);
-      BatchComponent r = resourceCache.get(componentKey);
-      if (r == null) {
-        // Deleted resource
-        issuesCache.put(0, issue.getKey(), issue);
-      } else {
-        issuesCache.put(r.batchId(), issue.getKey(), issue);
+      ComponentIssues issues = issuesByComponentKey.get(componentKey);
+      if (issues == null) {
+        issues = new ComponentIssues();
+        issuesByComponentKey.put(componentKey, issues);
       }
+      issues.add(issue);
       return null;
     }
   }
 
-  public Iterable<ServerIssue> issuesOnMissingComponents() {
-    return issuesCache.values(0);
+  /**
+   * Delimited protobuf messages of the issues of a component. Much more compact than the parsed messages.
+   */
+  private static class ComponentIssues {
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+
+    void add(ServerIssue issue) {
+      try {
+        issue.writeDelimitedTo(bytes);
+      } catch (IOException e) {
+        throw new IllegalStateException("Unable to store server issue " + issue.getKey(), e);
+      }
+    }
+
+    List<ServerIssue> read() {
+      List<ServerIssue> issues = new ArrayList<>();
+      try (InputStream input = new ByteArrayInputStream(bytes.toByteArray())) {
+        ServerIssue issue = ServerIssue.parseDelimitedFrom(input);
+        while (issue != null) {
+          issues.add(issue);
+          issue = ServerIssue.parseDelimitedFrom(input);
+        }
+      } catch (IOException e) {
+        throw new IllegalStateException("Unable to read server issues", e);
+      }
+      return issues;
+    }
   }
 }
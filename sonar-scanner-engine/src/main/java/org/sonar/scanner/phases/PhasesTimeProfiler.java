@@ -19,8 +19,10 @@
  */
 package org.sonar.scanner.phases;
 
-
+import java.util.IdentityHashMap;
+import java.util.Map;
 import org.apache.commons.lang.StringUtils;
+import org.sonar.api.batch.Sensor;
 import org.sonar.api.batch.events.SensorExecutionHandler;
 import org.sonar.api.batch.events.SensorsPhaseHandler;
 import org.sonar.api.utils.log.Logger;
@@ -32,7 +34,8 @@ public class PhasesTimeProfiler implements SensorExecutionHandler, SensorsPhaseH
 
   private static final Logger LOG = Loggers.get(PhasesTimeProfiler.class);
 
-  private Profiler profiler = Profiler.create(LOG);
+  // sensors flagged as concurrent may overlap, so each one gets its own profiler
+  private final Map<Sensor, Profiler> profilers = new IdentityHashMap<>();
 
   @Override
   public void onSensorsPhase(SensorsPhaseEvent event) {
@@ -44,9 +47,14 @@ public class PhasesTimeProfiler implements SensorExecutionHandler, SensorsPhaseH
   @Override
   public void onSensorExecution(SensorExecutionEvent event) {
     if (event.isStart()) {
+      Profiler profiler = Profiler.create(LOG);
+      profilers.put(event.getSensor(), profiler);
       profiler.startInfo("Sensor " + BatchUtils.describe(event.getSensor()));
     } else {
-      profiler.stopInfo();
+      Profiler profiler = profilers.remove(event.getSensor());
+      if (profiler != null) {
+        profiler.stopInfo();
+      }
     }
   }
 
@@ -20,41 +20,134 @@
 package org.sonar.scanner.phases;
 
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.annotation.CheckForNull;
 import org.sonar.api.batch.ScannerSide;
 import org.sonar.api.batch.Sensor;
 import org.sonar.api.batch.SensorContext;
+import org.sonar.api.config.Settings;
 import org.sonar.api.resources.Project;
 import org.sonar.scanner.bootstrap.BatchExtensionDictionnary;
 import org.sonar.scanner.events.EventBus;
-import java.util.Collection;
+import org.sonar.scanner.sensor.SensorWrapper;
 
+/**
+ * Executes sensors in the order given by {@link BatchExtensionDictionnary}. Consecutive sensors that declared
+ * themselves as {@link org.sonar.api.batch.sensor.SensorDescriptor#concurrent()} are grouped and executed in parallel,
+ * other sensors act as barriers and are executed alone on the current thread.
+ */
 @ScannerSide
 public class SensorsExecutor {
 
+  static final String THREADS_PROPERTY = "sonar.scanner.sensorThreads";
+
   private EventBus eventBus;
   private Project module;
   private BatchExtensionDictionnary selector;
+  private final int threads;
+  @CheckForNull
+  private ExecutorService executorService;
 
-  public SensorsExecutor(BatchExtensionDictionnary selector, Project project, EventBus eventBus) {
+  public SensorsExecutor(BatchExtensionDictionnary selector, Project project, EventBus eventBus, Settings settings) {
     this.selector = selector;
     this.eventBus = eventBus;
     this.module = project;
+    int configuredThreads = settings.getInt(THREADS_PROPERTY);
+    this.threads = configuredThreads > 0 ? configuredThreads : Runtime.getRuntime().availableProcessors();
   }
 
   public void execute(SensorContext context) {
     Collection<Sensor> sensors = selector.select(Sensor.class, module, true, null);
     eventBus.fireEvent(new SensorsPhaseEvent(Lists.newArrayList(sensors), true));
 
-    for (Sensor sensor : sensors) {
-      executeSensor(context, sensor);
+    if (threads > 1) {
+      executeScheduled(context, sensors);
+    } else {
+      for (Sensor sensor : sensors) {
+        executeSensor(context, sensor);
+      }
     }
 
     eventBus.fireEvent(new SensorsPhaseEvent(Lists.newArrayList(sensors), false));
   }
 
+  private void executeScheduled(SensorContext context, Collection<Sensor> sensors) {
+    try {
+      List<Sensor> concurrentGroup = new ArrayList<>();
+      for (Sensor sensor : sensors) {
+        if (isConcurrent(sensor)) {
+          concurrentGroup.add(sensor);
+        } else {
+          executeGroup(context, concurrentGroup);
+          concurrentGroup.clear();
+          executeSensor(context, sensor);
+        }
+      }
+      executeGroup(context, concurrentGroup);
+    } finally {
+      if (executorService != null) {
+        executorService.shutdownNow();
+        executorService = null;
+      }
+    }
+  }
+
+  private void executeGroup(SensorContext context, List<Sensor> group) {
+    if (group.size() <= 1) {
+      for (Sensor sensor : group) {
+        executeSensor(context, sensor);
+      }
+      return;
+    }
+    if (executorService == null) {
+      // created only when at least two concurrent sensors can be executed together
+      executorService = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("Sensor-%d").build());
+    }
+    List<Future<Void>> tasks = new ArrayList<>(group.size());
+    for (Sensor sensor : group) {
+      tasks.add(executorService.submit(() -> {
+        executeSensor(context, sensor);
+        return null;
+      }));
+    }
+    waitForTasksToComplete(tasks);
+  }
+
+  private static void waitForTasksToComplete(List<Future<Void>> tasks) {
+    for (Future<Void> task : tasks) {
+      try {
+        task.get();
+      } catch (ExecutionException e) {
+        // Unwrap ExecutionException
+        throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException(e);
+      }
+    }
+  }
+
+  private static boolean isConcurrent(Sensor sensor) {
+    return sensor instanceof SensorWrapper && ((SensorWrapper) sensor).isConcurrent();
+  }
+
   private void executeSensor(SensorContext context, Sensor sensor) {
-    eventBus.fireEvent(new SensorExecutionEvent(sensor, true));
+    fireEvent(new SensorExecutionEvent(sensor, true));
     sensor.analyse(module, context);
-    eventBus.fireEvent(new SensorExecutionEvent(sensor, false));
+    fireEvent(new SensorExecutionEvent(sensor, false));
+  }
+
+  /**
+   * Event handlers are not expected to be thread-safe, so events of concurrent sensors are dispatched one at a time
+   */
+  private synchronized void fireEvent(SensorExecutionEvent event) {
+    eventBus.fireEvent(event);
   }
 }
@@ -59,6 +59,10 @@ public abstract class AbstractTimeProfiling {
     return totalTime;
   }
 
+  public long endTime() {
+    return startTime + totalTime;
+  }
+
   public String totalTimeAsString() {
     return TimeUtils.formatDuration(totalTime);
   }
@@ -19,7 +19,12 @@
  */
 package org.sonar.scanner.profiling;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
@@ -82,6 +87,41 @@ public class PhaseProfiling extends AbstractTimeProfiling {
     }
   }
 
+  /**
+   * Chain of items that bounded the duration of the phase when items overlap. It starts from the item that
+   * finished last and walks backward, each time to the item that finished last before the current one started.
+   */
+  public List<ItemProfiling> criticalPath() {
+    List<ItemProfiling> byEndTime = new ArrayList<>(profilingPerItem.values());
+    Collections.sort(byEndTime, Comparator.comparingLong(ItemProfiling::endTime));
+    LinkedList<ItemProfiling> path = new LinkedList<>();
+    int index = byEndTime.size() - 1;
+    while (index >= 0) {
+      ItemProfiling current = byEndTime.get(index);
+      path.addFirst(current);
+      index--;
+      while (index >= 0 && byEndTime.get(index).endTime() > current.startTime()) {
+        index--;
+      }
+    }
+    return path;
+  }
+
+  public void dumpCriticalPath(Properties props) {
+    List<ItemProfiling> path = criticalPath();
+    long pathTime = 0L;
+    for (ItemProfiling itemProfiling : path) {
+      pathTime += itemProfiling.totalTime();
+    }
+    props.setProperty(phase + " critical path", Long.toString(pathTime));
+    ItemProfiling total = new ItemProfiling(system(), phase + " critical path");
+    total.setTotalTime(pathTime);
+    println(" * " + phase + " critical path: ", total);
+    for (ItemProfiling itemProfiling : path) {
+      println("   o " + itemProfiling.itemName() + ": ", itemProfiling);
+    }
+  }
+
   /**
    * Try to use toString if it is not the default {@link Object#toString()}. Else use {@link Class#getSimpleName()}
    * @param o
@@ -109,6 +109,7 @@ public class PhasesSumUpTimeProfiler implements ProjectAnalysisHandler, SensorEx
       println("");
       Properties props = new Properties();
       currentModuleProfiling.dump(props);
+      dumpSensorsCriticalPath(props);
       println("");
       println(" -------- End of profiling of module " + module.getName() + " --------");
       println("");
@@ -121,6 +122,17 @@ public class PhasesSumUpTimeProfiler implements ProjectAnalysisHandler, SensorEx
     }
   }
 
+  /**
+   * Only meaningful at module level, where items keep their real start time
+   */
+  private void dumpSensorsCriticalPath(Properties props) {
+    PhaseProfiling sensorsProfiling = currentModuleProfiling.getProfilingPerPhase(Phase.SENSOR);
+    if (sensorsProfiling != null && sensorsProfiling.hasItems()) {
+      println("");
+      sensorsProfiling.dumpCriticalPath(props);
+    }
+  }
+
   private void dumpTotalExecutionSummary() {
     totalProfiling.stop();
     long totalTime = totalProfiling.totalTime();
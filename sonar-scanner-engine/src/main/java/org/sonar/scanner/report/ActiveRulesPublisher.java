@@ -36,6 +36,11 @@ public class ActiveRulesPublisher implements ReportPublisherStep {
     this.activeRules = activeRules;
   }
 
+  @Override
+  public boolean isConcurrent() {
+    return true;
+  }
+
   @Override
   public void publish(ScannerReportWriter writer) {
     Iterable<ScannerReport.ActiveRule> activeRuleMessages = FluentIterable.from(activeRules.findAll()).transform(new ToMessage());
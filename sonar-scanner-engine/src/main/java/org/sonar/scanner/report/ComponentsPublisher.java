@@ -50,6 +50,11 @@ public class ComponentsPublisher implements ReportPublisherStep {
     this.resourceCache = resourceCache;
   }
 
+  @Override
+  public boolean isConcurrent() {
+    return true;
+  }
+
   @Override
   public void publish(ScannerReportWriter writer) {
     BatchComponent rootProject = resourceCache.get(reactor.getRoot().getKeyWithBranch());
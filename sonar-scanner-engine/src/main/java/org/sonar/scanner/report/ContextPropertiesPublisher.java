@@ -34,6 +34,11 @@ public class ContextPropertiesPublisher implements ReportPublisherStep {
     this.cache = cache;
   }
 
+  @Override
+  public boolean isConcurrent() {
+    return true;
+  }
+
   @Override
   public void publish(ScannerReportWriter writer) {
     Iterable<ScannerReport.ContextProperty> it = from(cache.getAll().entrySet()).transform(new MapEntryToContextPropertyFunction());
@@ -45,6 +45,11 @@ public class MetadataPublisher implements ReportPublisherStep {
     this.qProfiles = qProfiles;
   }
 
+  @Override
+  public boolean isConcurrent() {
+    return true;
+  }
+
   @Override
   public void publish(ScannerReportWriter writer) {
     ProjectDefinition root = reactor.getRoot();
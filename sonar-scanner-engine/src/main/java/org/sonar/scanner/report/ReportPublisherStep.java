@@ -29,4 +29,12 @@ public interface ReportPublisherStep {
 
   void publish(ScannerReportWriter writer);
 
+  /**
+   * Steps that do not share state with other steps, for instance the persistent caches which are not
+   * thread-safe, can be executed concurrently.
+   */
+  default boolean isConcurrent() {
+    return false;
+  }
+
 }
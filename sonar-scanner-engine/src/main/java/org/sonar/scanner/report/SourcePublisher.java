@@ -42,6 +42,11 @@ public class SourcePublisher implements ReportPublisherStep {
     this.resourceCache = resourceCache;
   }
 
+  @Override
+  public boolean isConcurrent() {
+    return true;
+  }
+
   @Override
   public void publish(ScannerReportWriter writer) {
     for (final BatchComponent resource : resourceCache.all()) {
@@ -112,6 +112,11 @@ public class TestExecutionAndCoveragePublisher implements ReportPublisherStep {
     this.testPlanBuilder = testPlanBuilder;
   }
 
+  @Override
+  public boolean isConcurrent() {
+    return true;
+  }
+
   @Override
   public void publish(ScannerReportWriter writer) {
     for (final BatchComponent component : componentCache.all()) {
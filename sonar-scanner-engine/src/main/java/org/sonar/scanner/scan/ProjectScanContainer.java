@@ -227,6 +227,12 @@ public class ProjectScanContainer extends ComponentContainer {
   protected void doAfterStart() {
     DefaultAnalysisMode analysisMode = getComponentByType(DefaultAnalysisMode.class);
     analysisMode.printMode();
+    ServerIssueRepository serverIssueRepository = getComponentByType(ServerIssueRepository.class);
+    if (analysisMode.isIssues() && serverIssueRepository != null && isTherePreviousAnalysis()) {
+      // download server issues while modules are analysed. As for LocalIssueTracking, there are no
+      // issues to download if project has never been analysed.
+      serverIssueRepository.load();
+    }
     LOG.debug("Start recursive analysis of project modules");
     DefaultProjectTree tree = getComponentByType(DefaultProjectTree.class);
     scanRecursively(tree.getRootProject());
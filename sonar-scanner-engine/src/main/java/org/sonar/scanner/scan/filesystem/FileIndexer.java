@@ -65,20 +65,24 @@ public class FileIndexer {
   private final boolean isAggregator;
   private final ExclusionFilters exclusionFilters;
   private final InputFileBuilderFactory inputFileBuilderFactory;
+  private final FileMetadataSnapshot fileMetadataSnapshot;
 
   private ProgressReport progressReport;
   private ExecutorService executorService;
   private List<Future<Void>> tasks;
 
-  public FileIndexer(ExclusionFilters exclusionFilters, InputFileBuilderFactory inputFileBuilderFactory, ProjectDefinition def, InputFileFilter[] filters) {
+  public FileIndexer(ExclusionFilters exclusionFilters, InputFileBuilderFactory inputFileBuilderFactory, FileMetadataSnapshot fileMetadataSnapshot,
+    ProjectDefinition def, InputFileFilter[] filters) {
     this.filters = filters;
     this.exclusionFilters = exclusionFilters;
     this.inputFileBuilderFactory = inputFileBuilderFactory;
+    this.fileMetadataSnapshot = fileMetadataSnapshot;
     this.isAggregator = !def.getSubProjects().isEmpty();
   }
 
-  public FileIndexer(ExclusionFilters exclusionFilters, InputFileBuilderFactory inputFileBuilderFactory, ProjectDefinition def) {
-    this(exclusionFilters, inputFileBuilderFactory, def, new InputFileFilter[0]);
+  public FileIndexer(ExclusionFilters exclusionFilters, InputFileBuilderFactory inputFileBuilderFactory, FileMetadataSnapshot fileMetadataSnapshot,
+    ProjectDefinition def) {
+    this(exclusionFilters, inputFileBuilderFactory, fileMetadataSnapshot, def, new InputFileFilter[0]);
   }
 
   void index(DefaultModuleFileSystem fileSystem) {
@@ -91,6 +95,7 @@ public class FileIndexer {
     exclusionFilters.prepare();
 
     Progress progress = new Progress();
+    fileMetadataSnapshot.load(fileSystem.encoding());
 
     InputFileBuilder inputFileBuilder = inputFileBuilderFactory.create(fileSystem);
     int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
@@ -100,6 +105,7 @@ public class FileIndexer {
     indexFiles(fileSystem, progress, inputFileBuilder, fileSystem.tests(), InputFile.Type.TEST);
 
     waitForTasksToComplete();
+    fileMetadataSnapshot.save();
 
     progressReport.stop(progress.count() + " files indexed");
 
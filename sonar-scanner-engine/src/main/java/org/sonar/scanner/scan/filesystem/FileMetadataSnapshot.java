@@ -0,0 +1,257 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scan.filesystem;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.CheckForNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.ScannerSide;
+import org.sonar.api.batch.bootstrap.ProjectDefinition;
+import org.sonar.api.batch.bootstrap.ProjectReactor;
+import org.sonar.api.batch.fs.internal.FileMetadata;
+import org.sonar.api.batch.fs.internal.FileMetadata.Metadata;
+import org.sonar.api.config.Settings;
+import org.sonar.api.utils.System2;
+import org.sonar.scanner.util.BatchUtils;
+
+/**
+ * Metadata of the files indexed by the previous analysis of the module, persisted in the working directory
+ * of the root project. When the size and the last modification date of a file did not change, its metadata is
+ * reused instead of reading the file again.
+ */
+@ScannerSide
+public class FileMetadataSnapshot {
+
+  public static final String ENABLED_PROPERTY = "sonar.scanner.incrementalIndexing";
+  /**
+   * Directory of the root working directory that is preserved by {@link org.sonar.scanner.scan.WorkDirectoryCleaner}
+   */
+  public static final String DIRECTORY_NAME = "fs-snapshots";
+
+  private static final Logger LOG = LoggerFactory.getLogger(FileMetadataSnapshot.class);
+  private static final int FORMAT_VERSION = 1;
+  /**
+   * Files modified shortly before the previous indexation may have been modified again without any change of
+   * their last modification date, given the precision of some file systems. They are not reused.
+   */
+  private static final long MODIFICATION_TIME_PRECISION_MS = 2_000L;
+
+  private final FileMetadata fileMetadata;
+  private final System2 system;
+  private final Path snapshotFile;
+  private final boolean enabled;
+
+  private Map<String, Entry> previousEntries = Collections.emptyMap();
+  private long previousTimestamp;
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+  private final AtomicInteger reused = new AtomicInteger();
+  private Charset encoding;
+  private long timestamp;
+
+  public FileMetadataSnapshot(ProjectReactor reactor, ProjectDefinition def, Settings settings, FileMetadata fileMetadata, System2 system) {
+    this.fileMetadata = fileMetadata;
+    this.system = system;
+    this.snapshotFile = reactor.getRoot().getWorkDir().toPath()
+      .resolve(DIRECTORY_NAME)
+      .resolve(BatchUtils.cleanKeyForFilename(def.getKeyWithBranch()) + ".bin");
+    this.enabled = !settings.hasKey(ENABLED_PROPERTY) || settings.getBoolean(ENABLED_PROPERTY);
+  }
+
+  /**
+   * Loads the snapshot of the previous analysis. A snapshot written with another encoding is ignored, since
+   * line counts and hashes depend on it.
+   */
+  void load(Charset encoding) {
+    this.encoding = encoding;
+    this.timestamp = system.now();
+    if (!enabled || !Files.isRegularFile(snapshotFile)) {
+      return;
+    }
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile)))) {
+      if (in.readInt() != FORMAT_VERSION || !encoding.name().equals(in.readUTF())) {
+        return;
+      }
+      long snapshotTimestamp = in.readLong();
+      int size = in.readInt();
+      Map<String, Entry> loaded = new HashMap<>(size * 2);
+      for (int i = 0; i < size; i++) {
+        String relativePath = in.readUTF();
+        loaded.put(relativePath, Entry.read(in));
+      }
+      previousEntries = loaded;
+      previousTimestamp = snapshotTimestamp;
+    } catch (IOException | RuntimeException e) {
+      LOG.debug("Ignoring invalid file system snapshot: " + snapshotFile, e);
+    }
+  }
+
+  /**
+   * Can be called concurrently by indexing threads.
+   */
+  Metadata readMetadata(File file, String relativePath) {
+    if (!enabled) {
+      return fileMetadata.readMetadata(file, encoding);
+    }
+    long size;
+    long lastModified;
+    try {
+      BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+      size = attributes.size();
+      lastModified = attributes.lastModifiedTime().toMillis();
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to read attributes of " + file, e);
+    }
+    Entry entry = reusableEntry(relativePath, size, lastModified);
+    if (entry != null) {
+      reused.incrementAndGet();
+    } else {
+      entry = new Entry(size, lastModified, fileMetadata.readMetadata(file, encoding));
+    }
+    entries.put(relativePath, entry);
+    return entry.metadata;
+  }
+
+  @CheckForNull
+  private Entry reusableEntry(String relativePath, long size, long lastModified) {
+    Entry previous = previousEntries.get(relativePath);
+    if (previous != null && previous.size == size && previous.lastModified == lastModified
+      && lastModified + MODIFICATION_TIME_PRECISION_MS < previousTimestamp) {
+      return previous;
+    }
+    return null;
+  }
+
+  int reusedCount() {
+    return reused.get();
+  }
+
+  /**
+   * Replaces the previous snapshot by the metadata of the files indexed during this analysis
+   */
+  void save() {
+    if (!enabled) {
+      return;
+    }
+    if (reused.get() > 0) {
+      LOG.info("Metadata of {}/{} files reused from previous analysis", reused.get(), entries.size());
+    }
+    try {
+      Files.createDirectories(snapshotFile.getParent());
+      Path tmp = Files.createTempFile(snapshotFile.getParent(), "snapshot", ".tmp");
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+        out.writeInt(FORMAT_VERSION);
+        out.writeUTF(encoding.name());
+        out.writeLong(timestamp);
+        out.writeInt(entries.size());
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+          out.writeUTF(entry.getKey());
+          entry.getValue().write(out);
+        }
+      }
+      Files.move(tmp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      // the snapshot is only an optimization of the next analysis
+      LOG.warn("Unable to save file system snapshot: " + snapshotFile, e);
+    }
+    previousEntries = Collections.emptyMap();
+  }
+
+  private static class Entry {
+    private final long size;
+    private final long lastModified;
+    private final Metadata metadata;
+
+    Entry(long size, long lastModified, Metadata metadata) {
+      this.size = size;
+      this.lastModified = lastModified;
+      this.metadata = metadata;
+    }
+
+    void write(DataOutputStream out) throws IOException {
+      out.writeLong(size);
+      out.writeLong(lastModified);
+      out.writeUTF(metadata.hash());
+      out.writeInt(metadata.lines());
+      out.writeInt(metadata.nonBlankLines());
+      out.writeInt(metadata.lastValidOffset());
+      int[] offsets = metadata.originalLineOffsets();
+      out.writeInt(offsets.length);
+      // offsets are increasing, deltas are usually stored on a single byte
+      int previous = 0;
+      for (int offset : offsets) {
+        writeVarInt(out, offset - previous);
+        previous = offset;
+      }
+    }
+
+    static Entry read(DataInputStream in) throws IOException {
+      long size = in.readLong();
+      long lastModified = in.readLong();
+      String hash = in.readUTF();
+      int lines = in.readInt();
+      int nonBlankLines = in.readInt();
+      int lastValidOffset = in.readInt();
+      int[] offsets = new int[in.readInt()];
+      int previous = 0;
+      for (int i = 0; i < offsets.length; i++) {
+        previous += readVarInt(in);
+        offsets[i] = previous;
+      }
+      return new Entry(size, lastModified, new Metadata(lines, nonBlankLines, hash, offsets, lastValidOffset));
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+      int remaining = value;
+      while ((remaining & ~0x7F) != 0) {
+        out.writeByte((remaining & 0x7F) | 0x80);
+        remaining >>>= 7;
+      }
+      out.writeByte(remaining);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+      int value = 0;
+      int shift = 0;
+      int b;
+      do {
+        b = in.readUnsignedByte();
+        value |= (b & 0x7F) << shift;
+        shift += 7;
+      } while ((b & 0x80) != 0);
+      return value;
+    }
+  }
+}
@@ -21,7 +21,6 @@ package org.sonar.scanner.scan.filesystem;
 
 import org.sonar.api.batch.ScannerSide;
 import org.sonar.api.batch.bootstrap.ProjectDefinition;
-import org.sonar.api.batch.fs.internal.FileMetadata;
 import org.sonar.api.config.Settings;
 import org.sonar.api.scan.filesystem.PathResolver;
 
@@ -33,11 +32,11 @@ public class InputFileBuilderFactory {
   private final LanguageDetectionFactory langDetectionFactory;
   private final StatusDetectionFactory statusDetectionFactory;
   private final Settings settings;
-  private final FileMetadata fileMetadata;
+  private final FileMetadataSnapshot fileMetadataSnapshot;
 
   public InputFileBuilderFactory(ProjectDefinition def, PathResolver pathResolver, LanguageDetectionFactory langDetectionFactory,
-    StatusDetectionFactory statusDetectionFactory, Settings settings, FileMetadata fileMetadata) {
-    this.fileMetadata = fileMetadata;
+    StatusDetectionFactory statusDetectionFactory, Settings settings, FileMetadataSnapshot fileMetadataSnapshot) {
+    this.fileMetadataSnapshot = fileMetadataSnapshot;
     this.moduleKey = def.getKeyWithBranch();
     this.pathResolver = pathResolver;
     this.langDetectionFactory = langDetectionFactory;
@@ -46,6 +45,6 @@ public class InputFileBuilderFactory {
   }
 
   InputFileBuilder create(DefaultModuleFileSystem fs) {
-    return new InputFileBuilder(moduleKey, pathResolver, langDetectionFactory.create(), statusDetectionFactory.create(), fs, settings, fileMetadata);
+    return new InputFileBuilder(moduleKey, pathResolver, langDetectionFactory.create(), statusDetectionFactory.create(), fs, settings, fileMetadataSnapshot);
   }
 }
@@ -19,19 +19,29 @@
  */
 package org.sonar.scanner.bootstrap;
 
+import java.io.File;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
 import java.util.HashMap;
 import java.util.Map;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.sonar.batch.bootstrapper.EnvironmentInformation;
 import org.sonar.scanner.bootstrap.BatchWsClient;
 import org.sonar.scanner.bootstrap.BatchWsClientProvider;
 import org.sonar.scanner.bootstrap.GlobalProperties;
 import org.sonarqube.ws.client.HttpConnector;
 
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class BatchWsClientProviderTest {
 
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
   BatchWsClientProvider underTest = new BatchWsClientProvider();
   EnvironmentInformation env = new EnvironmentInformation("Maven Plugin", "2.3");
 
@@ -69,6 +79,56 @@ public class BatchWsClientProviderTest {
     assertThat(httpConnector.userAgent()).isEqualTo("Maven Plugin/2.3");
   }
 
+  @Test
+  public void cache_responses_in_user_home() throws Exception {
+    File home = temp.newFolder();
+    Map<String, String> props = new HashMap<>();
+    props.put("sonar.userHome", home.getAbsolutePath());
+
+    BatchWsClient client = underTest.provide(new GlobalProperties(props), env);
+
+    HttpConnector httpConnector = (HttpConnector) client.wsConnector();
+    assertThat(httpConnector.okHttpClient().cache()).isNotNull();
+    assertThat(httpConnector.okHttpClient().cache().directory()).isEqualTo(new File(home, "ws_cache"));
+  }
+
+  @Test
+  public void disable_cache_when_locked_by_another_analysis() throws Exception {
+    File home = temp.newFolder();
+    Map<String, String> props = new HashMap<>();
+    props.put("sonar.userHome", home.getAbsolutePath());
+
+    try (FileChannel channel = FileChannel.open(new File(home, "ws_cache.lock").toPath(), CREATE, WRITE);
+      FileLock lock = channel.lock()) {
+      BatchWsClient client = underTest.provide(new GlobalProperties(props), env);
+
+      assertThat(((HttpConnector) client.wsConnector()).okHttpClient().cache()).isNull();
+    }
+  }
+
+  @Test
+  public void release_lock_of_cache_on_stop() throws Exception {
+    File home = temp.newFolder();
+    Map<String, String> props = new HashMap<>();
+    props.put("sonar.userHome", home.getAbsolutePath());
+    underTest.provide(new GlobalProperties(props), env);
+
+    underTest.stop(null);
+
+    BatchWsClient client = new BatchWsClientProvider().provide(new GlobalProperties(props), env);
+    assertThat(((HttpConnector) client.wsConnector()).okHttpClient().cache()).isNotNull();
+  }
+
+  @Test
+  public void disable_cache() {
+    Map<String, String> props = new HashMap<>();
+    props.put("sonar.ws.cache", "false");
+
+    BatchWsClient client = underTest.provide(new GlobalProperties(props), env);
+
+    assertThat(((HttpConnector) client.wsConnector()).okHttpClient().cache()).isNull();
+  }
+
   @Test
   public void build_singleton() {
     GlobalProperties settings = new GlobalProperties(new HashMap<String, String>());
@@ -0,0 +1,140 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.issue.tracking;
+
+import com.google.common.base.Function;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.batch.bootstrap.ProjectDefinition;
+import org.sonar.scanner.index.BatchComponent;
+import org.sonar.scanner.index.BatchComponentCache;
+import org.sonar.scanner.protocol.input.ScannerInput.ServerIssue;
+import org.sonar.scanner.repository.ServerIssuesLoader;
+import org.sonar.scanner.scan.ImmutableProjectReactor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.extractProperty;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ServerIssueRepositoryTest {
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  private BatchComponentCache resourceCache = mock(BatchComponentCache.class);
+  private ImmutableProjectReactor reactor = mock(ImmutableProjectReactor.class);
+  private FakeLoader loader = new FakeLoader();
+  private ServerIssueRepository underTest;
+
+  @Before
+  public void setUp() {
+    when(reactor.getRoot()).thenReturn(ProjectDefinition.create().setKey("foo"));
+    underTest = new ServerIssueRepository(loader, reactor, resourceCache);
+  }
+
+  @Test
+  public void group_issues_by_component() {
+    loader.issues = new ServerIssue[] {
+      issue("i1", "foo", "src/A.java"),
+      issue("i2", "foo", "src/B.java"),
+      issue("i3", "foo", "src/A.java"),
+      issue("i4", "foo", null)
+    };
+    underTest.load();
+
+    assertThat(extractProperty("key").from(underTest.byComponent(component("foo:src/A.java")))).containsExactly("i1", "i3");
+    assertThat(extractProperty("key").from(underTest.byComponent(component("foo:src/B.java")))).containsExactly("i2");
+    assertThat(extractProperty("key").from(underTest.byComponent(component("foo")))).containsExactly("i4");
+    assertThat(underTest.byComponent(component("foo:src/C.java"))).isEmpty();
+    assertThat(loader.calls).isEqualTo(1);
+  }
+
+  @Test
+  public void issues_on_missing_components() {
+    loader.issues = new ServerIssue[] {
+      issue("i1", "foo", "src/A.java"),
+      issue("i2", "foo", "src/Deleted.java")
+    };
+    when(resourceCache.get("foo:src/A.java")).thenReturn(component("foo:src/A.java"));
+    underTest.load();
+
+    assertThat(extractProperty("key").from(underTest.issuesOnMissingComponents())).containsExactly("i2");
+  }
+
+  @Test
+  public void load_only_once() {
+    loader.issues = new ServerIssue[0];
+    underTest.load();
+    underTest.load();
+
+    assertThat(underTest.issuesOnMissingComponents()).isEmpty();
+    assertThat(loader.calls).isEqualTo(1);
+  }
+
+  @Test
+  public void propagate_loading_failure() {
+    loader.failure = new IllegalStateException("server unreachable");
+    underTest.load();
+
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage("server unreachable");
+    underTest.issuesOnMissingComponents();
+  }
+
+  @Test
+  public void fail_if_not_loaded() {
+    thrown.expect(IllegalStateException.class);
+    underTest.byComponent(component("foo"));
+  }
+
+  private static BatchComponent component(String key) {
+    BatchComponent component = mock(BatchComponent.class);
+    when(component.key()).thenReturn(key);
+    return component;
+  }
+
+  private static ServerIssue issue(String key, String moduleKey, String path) {
+    ServerIssue.Builder builder = ServerIssue.newBuilder().setKey(key).setModuleKey(moduleKey);
+    if (path != null) {
+      builder.setPath(path);
+    }
+    return builder.build();
+  }
+
+  private static class FakeLoader implements ServerIssuesLoader {
+    private ServerIssue[] issues;
+    private RuntimeException failure;
+    private int calls = 0;
+
+    @Override
+    public void load(String componentKey, Function<ServerIssue, Void> consumer) {
+      calls++;
+      if (failure != null) {
+        throw failure;
+      }
+      for (ServerIssue issue : issues) {
+        consumer.apply(issue);
+      }
+    }
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.phases;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.sonar.api.batch.Sensor;
+import org.sonar.api.batch.SensorContext;
+import org.sonar.api.batch.sensor.SensorDescriptor;
+import org.sonar.api.config.MapSettings;
+import org.sonar.api.config.Settings;
+import org.sonar.api.resources.Project;
+import org.sonar.scanner.bootstrap.BatchExtensionDictionnary;
+import org.sonar.scanner.events.EventBus;
+import org.sonar.scanner.sensor.SensorOptimizer;
+import org.sonar.scanner.sensor.SensorWrapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SensorsExecutorTest {
+
+  Project project = new Project("project");
+  BatchExtensionDictionnary selector = mock(BatchExtensionDictionnary.class);
+  SensorContext context = mock(SensorContext.class);
+  Settings settings = new MapSettings();
+
+  @Test
+  public void execute_sensors_in_order_when_single_thread() {
+    settings.setProperty(SensorsExecutor.THREADS_PROPERTY, 1);
+    Sensor sensor1 = mock(Sensor.class);
+    Sensor sensor2 = mock(Sensor.class);
+    when(selector.select(Sensor.class, project, true, null)).thenReturn(Arrays.asList(sensor1, sensor2));
+
+    new SensorsExecutor(selector, project, mock(EventBus.class), settings).execute(context);
+
+    InOrder inOrder = inOrder(sensor1, sensor2);
+    inOrder.verify(sensor1).analyse(project, context);
+    inOrder.verify(sensor2).analyse(project, context);
+  }
+
+  @Test
+  public void execute_concurrent_sensors_in_parallel() {
+    settings.setProperty(SensorsExecutor.THREADS_PROPERTY, 2);
+    CountDownLatch latch = new CountDownLatch(2);
+    // each sensor waits for the other one to be started, so this would time out if executed sequentially
+    SensorWrapper sensor1 = wrap(new RendezVousSensor(latch, true));
+    SensorWrapper sensor2 = wrap(new RendezVousSensor(latch, true));
+    when(selector.select(Sensor.class, project, true, null)).thenReturn(Arrays.<Sensor>asList(sensor1, sensor2));
+
+    new SensorsExecutor(selector, project, mock(EventBus.class), settings).execute(context);
+
+    assertThat(((RendezVousSensor) sensor1.wrappedSensor()).met).isTrue();
+    assertThat(((RendezVousSensor) sensor2.wrappedSensor()).met).isTrue();
+  }
+
+  @Test
+  public void sequential_sensor_is_a_barrier() {
+    settings.setProperty(SensorsExecutor.THREADS_PROPERTY, 2);
+    CountDownLatch latch = new CountDownLatch(2);
+    SensorWrapper concurrent = wrap(new RendezVousSensor(latch, true));
+    SensorWrapper sequential = wrap(new RendezVousSensor(latch, false));
+    when(selector.select(Sensor.class, project, true, null)).thenReturn(Arrays.<Sensor>asList(concurrent, sequential));
+
+    new SensorsExecutor(selector, project, mock(EventBus.class), settings).execute(context);
+
+    assertThat(((RendezVousSensor) concurrent.wrappedSensor()).met).isFalse();
+    assertThat(((RendezVousSensor) sequential.wrappedSensor()).met).isFalse();
+  }
+
+  @Test
+  public void execute_single_concurrent_sensor_on_current_thread() {
+    settings.setProperty(SensorsExecutor.THREADS_PROPERTY, 2);
+    ThreadRecorderSensor sensor = new ThreadRecorderSensor();
+    when(selector.select(Sensor.class, project, true, null)).thenReturn(Arrays.<Sensor>asList(wrap(sensor)));
+
+    new SensorsExecutor(selector, project, mock(EventBus.class), settings).execute(context);
+
+    assertThat(sensor.thread).isSameAs(Thread.currentThread());
+  }
+
+  private SensorWrapper wrap(org.sonar.api.batch.sensor.Sensor sensor) {
+    SensorOptimizer optimizer = mock(SensorOptimizer.class);
+    return new SensorWrapper(sensor, mock(org.sonar.api.batch.sensor.SensorContext.class), optimizer);
+  }
+
+  private static class ThreadRecorderSensor implements org.sonar.api.batch.sensor.Sensor {
+    private Thread thread;
+
+    @Override
+    public void describe(SensorDescriptor descriptor) {
+      descriptor.name("ThreadRecorder").concurrent();
+    }
+
+    @Override
+    public void execute(org.sonar.api.batch.sensor.SensorContext context) {
+      thread = Thread.currentThread();
+    }
+  }
+
+  private static class RendezVousSensor implements org.sonar.api.batch.sensor.Sensor {
+    private final CountDownLatch latch;
+    private final boolean concurrent;
+    private boolean met = false;
+
+    RendezVousSensor(CountDownLatch latch, boolean concurrent) {
+      this.latch = latch;
+      this.concurrent = concurrent;
+    }
+
+    @Override
+    public void describe(SensorDescriptor descriptor) {
+      descriptor.name("RendezVous");
+      if (concurrent) {
+        descriptor.concurrent();
+      }
+    }
+
+    @Override
+    public void execute(org.sonar.api.batch.sensor.SensorContext context) {
+      latch.countDown();
+      try {
+        met = latch.await(500, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+  }
+}
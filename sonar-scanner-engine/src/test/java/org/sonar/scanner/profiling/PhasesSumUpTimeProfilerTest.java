@@ -108,6 +108,22 @@ public class PhasesSumUpTimeProfilerTest {
     assertThat(profiler.totalProfiling.getProfilingPerPhase(Phase.POSTJOB).getProfilingPerItem(new FakePostJob()).totalTime()).isEqualTo(90L);
   }
 
+  @Test
+  public void testCriticalPathOfOverlappingItems() {
+    PhaseProfiling profiling = PhaseProfiling.create(clock, Phase.SENSOR);
+    profiling.newItemProfiling("A");
+    profiling.newItemProfiling("B");
+    clock.sleep(10);
+    profiling.getProfilingPerItem("B").stop();
+    clock.sleep(20);
+    profiling.getProfilingPerItem("A").stop();
+    profiling.newItemProfiling("C");
+    clock.sleep(5);
+    profiling.getProfilingPerItem("C").stop();
+
+    assertThat(profiling.criticalPath()).extracting("itemName").containsExactly("A", "C");
+  }
+
   @Test
   public void testDisplayTimings() {
     AbstractTimeProfiling profiling = new AbstractTimeProfiling(System2.INSTANCE) {
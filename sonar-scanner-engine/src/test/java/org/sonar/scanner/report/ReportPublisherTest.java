@@ -19,6 +19,8 @@
  */
 package org.sonar.scanner.report;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -28,6 +30,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.sonar.api.batch.bootstrap.ProjectDefinition;
 import org.sonar.api.config.PropertyDefinitions;
@@ -35,17 +38,23 @@ import org.sonar.api.config.Settings;
 import org.sonar.api.config.MapSettings;
 import org.sonar.api.platform.Server;
 import org.sonar.api.utils.MessageException;
-import org.sonar.api.utils.TempFolder;
+import org.sonar.api.utils.ZipUtils;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
 import org.sonar.core.config.CorePropertyDefinitions;
 import org.sonar.scanner.analysis.DefaultAnalysisMode;
 import org.sonar.scanner.bootstrap.BatchWsClient;
+import org.sonar.scanner.protocol.output.ScannerReportWriter;
 import org.sonar.scanner.scan.ImmutableProjectReactor;
+import org.sonarqube.ws.WsCe;
+import org.sonarqube.ws.client.PostRequest;
+import org.sonarqube.ws.client.WsResponse;
 
 import static org.apache.commons.io.FileUtils.readFileToString;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class ReportPublisherTest {
@@ -76,7 +85,7 @@ public class ReportPublisherTest {
 
   @Test
   public void log_and_dump_information_about_report_uploading() throws IOException {
-    ReportPublisher underTest = new ReportPublisher(settings, wsClient, server, contextPublisher, reactor, mode, mock(TempFolder.class), new ReportPublisherStep[0]);
+    ReportPublisher underTest = new ReportPublisher(settings, wsClient, server, contextPublisher, reactor, mode, new ReportPublisherStep[0]);
 
     underTest.logSuccess("TASK-123");
 
@@ -97,7 +106,7 @@ public class ReportPublisherTest {
   @Test
   public void log_public_url_if_defined() throws IOException {
     when(server.getPublicRootUrl()).thenReturn("https://publicserver/sonarqube");
-    ReportPublisher underTest = new ReportPublisher(settings, wsClient, server, contextPublisher, reactor, mode, mock(TempFolder.class), new ReportPublisherStep[0]);
+    ReportPublisher underTest = new ReportPublisher(settings, wsClient, server, contextPublisher, reactor, mode, new ReportPublisherStep[0]);
 
     underTest.logSuccess("TASK-123");
 
@@ -117,7 +126,7 @@ public class ReportPublisherTest {
   @Test
   public void fail_if_public_url_malformed() throws IOException {
     when(server.getPublicRootUrl()).thenReturn("invalid");
-    ReportPublisher underTest = new ReportPublisher(settings, wsClient, server, contextPublisher, reactor, mode, mock(TempFolder.class), new ReportPublisherStep[0]);
+    ReportPublisher underTest = new ReportPublisher(settings, wsClient, server, contextPublisher, reactor, mode, new ReportPublisherStep[0]);
 
     exception.expect(MessageException.class);
     exception.expectMessage("Failed to parse public URL set in SonarQube server: invalid");
@@ -126,7 +135,7 @@ public class ReportPublisherTest {
 
   @Test
   public void log_but_not_dump_information_when_report_is_not_uploaded() {
-    ReportPublisher underTest = new ReportPublisher(settings, wsClient, server, contextPublisher, reactor, mode, mock(TempFolder.class), new ReportPublisherStep[0]);
+    ReportPublisher underTest = new ReportPublisher(settings, wsClient, server, contextPublisher, reactor, mode, new ReportPublisherStep[0]);
 
     underTest.logSuccess(/* report not uploaded, no server task */null);
 
@@ -143,7 +152,7 @@ public class ReportPublisherTest {
     settings.setProperty("sonar.batch.keepReport", true);
     Path reportDir = temp.getRoot().toPath().resolve("batch-report");
     Files.createDirectory(reportDir);
-    ReportPublisher underTest = new ReportPublisher(settings, wsClient, server, contextPublisher, reactor, mode, mock(TempFolder.class), new ReportPublisherStep[0]);
+    ReportPublisher underTest = new ReportPublisher(settings, wsClient, server, contextPublisher, reactor, mode, new ReportPublisherStep[0]);
 
     underTest.start();
     underTest.stop();
@@ -154,11 +163,68 @@ public class ReportPublisherTest {
   public void should_delete_report_by_default() throws IOException {
     Path reportDir = temp.getRoot().toPath().resolve("batch-report");
     Files.createDirectory(reportDir);
-    ReportPublisher job = new ReportPublisher(settings, wsClient, server, contextPublisher, reactor, mode, mock(TempFolder.class), new ReportPublisherStep[0]);
+    ReportPublisher job = new ReportPublisher(settings, wsClient, server, contextPublisher, reactor, mode, new ReportPublisherStep[0]);
 
     job.start();
     job.stop();
     assertThat(reportDir).doesNotExist();
   }
 
+  @Test
+  public void execute_concurrent_and_sequential_publishers() {
+    when(mode.isMediumTest()).thenReturn(true);
+    ReportPublisherStep sequential = mock(ReportPublisherStep.class);
+    ReportPublisherStep concurrent = mock(ReportPublisherStep.class);
+    when(concurrent.isConcurrent()).thenReturn(true);
+    ReportPublisher underTest = new ReportPublisher(settings, wsClient, server, contextPublisher, reactor, mode, new ReportPublisherStep[] {sequential, concurrent});
+
+    underTest.start();
+    underTest.execute();
+
+    verify(sequential).publish(any(ScannerReportWriter.class));
+    verify(concurrent).publish(any(ScannerReportWriter.class));
+  }
+
+  @Test
+  public void fail_if_concurrent_publisher_fails() {
+    when(mode.isMediumTest()).thenReturn(true);
+    ReportPublisherStep failing = new ReportPublisherStep() {
+      @Override
+      public void publish(ScannerReportWriter writer) {
+        throw new IllegalStateException("failure");
+      }
+
+      @Override
+      public boolean isConcurrent() {
+        return true;
+      }
+    };
+    ReportPublisher underTest = new ReportPublisher(settings, wsClient, server, contextPublisher, reactor, mode, new ReportPublisherStep[] {failing});
+    underTest.start();
+
+    exception.expect(IllegalStateException.class);
+    exception.expectMessage("failure");
+    underTest.execute();
+  }
+
+  @Test
+  public void upload_compressed_report_dir() throws IOException {
+    File reportDir = temp.newFolder();
+    Files.write(reportDir.toPath().resolve("metadata.pb"), new byte[] {1, 2, 3});
+    WsResponse response = mock(WsResponse.class);
+    when(response.contentStream()).thenReturn(new ByteArrayInputStream(WsCe.SubmitResponse.newBuilder().setTaskId("TASK-1").build().toByteArray()));
+    when(wsClient.call(any(PostRequest.class)).failIfNotSuccessful()).thenReturn(response);
+    ReportPublisher underTest = new ReportPublisher(settings, wsClient, server, contextPublisher, reactor, mode, new ReportPublisherStep[0]);
+
+    assertThat(underTest.upload(reportDir)).isEqualTo("TASK-1");
+
+    ArgumentCaptor<PostRequest> request = ArgumentCaptor.forClass(PostRequest.class);
+    verify(wsClient).call(request.capture());
+    ByteArrayOutputStream zip = new ByteArrayOutputStream();
+    request.getValue().getParts().get("report").getContentWriter().writeTo(zip);
+    File unzipDir = temp.newFolder();
+    ZipUtils.unzip(new ByteArrayInputStream(zip.toByteArray()), unzipDir);
+    assertThat(new File(unzipDir, "metadata.pb")).hasBinaryContent(new byte[] {1, 2, 3});
+  }
+
 }
@@ -27,6 +27,7 @@ import org.sonar.api.batch.bootstrap.ProjectDefinition;
 import org.sonar.api.batch.bootstrap.ProjectReactor;
 import org.sonar.home.cache.DirectoryLock;
 import org.sonar.scanner.scan.WorkDirectoryCleaner;
+import org.sonar.scanner.scan.filesystem.FileMetadataSnapshot;
 import java.io.File;
 import java.io.IOException;
 
@@ -50,6 +51,9 @@ public class WorkDirectoryCleanerTest {
     File lock = new File(temp.getRoot(), DirectoryLock.LOCK_FILE_NAME);
     lock.createNewFile();
 
+    File snapshots = new File(temp.getRoot(), FileMetadataSnapshot.DIRECTORY_NAME);
+    snapshots.mkdir();
+
     // mock project
     ProjectReactor projectReactor = mock(ProjectReactor.class);
     ProjectDefinition projectDefinition = mock(ProjectDefinition.class);
@@ -73,7 +77,7 @@ public class WorkDirectoryCleanerTest {
 
     assertThat(temp.getRoot()).exists();
     assertThat(lock).exists();
-    assertThat(temp.getRoot().list()).containsOnly(DirectoryLock.LOCK_FILE_NAME);
+    assertThat(temp.getRoot().list()).containsOnly(DirectoryLock.LOCK_FILE_NAME, FileMetadataSnapshot.DIRECTORY_NAME);
   }
 
 }
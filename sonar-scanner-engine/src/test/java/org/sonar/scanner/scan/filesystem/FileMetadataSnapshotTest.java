@@ -0,0 +1,145 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scan.filesystem;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.bootstrap.ProjectDefinition;
+import org.sonar.api.batch.bootstrap.ProjectReactor;
+import org.sonar.api.batch.fs.internal.FileMetadata;
+import org.sonar.api.batch.fs.internal.FileMetadata.Metadata;
+import org.sonar.api.config.MapSettings;
+import org.sonar.api.config.Settings;
+import org.sonar.api.utils.System2;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class FileMetadataSnapshotTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private ProjectReactor reactor;
+  private Settings settings = new MapSettings();
+  private System2 system = mock(System2.class);
+  private File file;
+
+  @Before
+  public void setUp() throws Exception {
+    reactor = new ProjectReactor(ProjectDefinition.create().setKey("foo").setWorkDir(temp.newFolder()));
+    file = temp.newFile();
+    FileUtils.write(file, "foo\nbar\n");
+    // previous analysis started long after last modification of the file
+    when(system.now()).thenReturn(file.lastModified() + 60_000L);
+  }
+
+  @Test
+  public void reuse_metadata_of_unchanged_file() {
+    analyse(new FileMetadata());
+
+    FileMetadata fileMetadata = spy(new FileMetadata());
+    FileMetadataSnapshot snapshot = analyse(fileMetadata);
+
+    verify(fileMetadata, never()).readMetadata(any(File.class), any(Charset.class));
+    assertThat(snapshot.reusedCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void restore_all_metadata() {
+    Metadata expected = new FileMetadata().readMetadata(file, StandardCharsets.UTF_8);
+    analyse(new FileMetadata());
+
+    FileMetadataSnapshot snapshot = newSnapshot(new FileMetadata());
+    snapshot.load(StandardCharsets.UTF_8);
+    Metadata metadata = snapshot.readMetadata(file, "src/Foo.java");
+
+    assertThat(metadata.lines()).isEqualTo(expected.lines());
+    assertThat(metadata.nonBlankLines()).isEqualTo(expected.nonBlankLines());
+    assertThat(metadata.hash()).isEqualTo(expected.hash());
+    assertThat(metadata.originalLineOffsets()).isEqualTo(expected.originalLineOffsets());
+    assertThat(metadata.lastValidOffset()).isEqualTo(expected.lastValidOffset());
+  }
+
+  @Test
+  public void read_file_when_size_changed() throws Exception {
+    analyse(new FileMetadata());
+    long lastModified = file.lastModified();
+    FileUtils.write(file, "foo\nbar\nbaz\n");
+    file.setLastModified(lastModified);
+
+    FileMetadataSnapshot snapshot = newSnapshot(new FileMetadata());
+    snapshot.load(StandardCharsets.UTF_8);
+
+    assertThat(snapshot.readMetadata(file, "src/Foo.java").lines()).isEqualTo(4);
+    assertThat(snapshot.reusedCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void read_file_modified_shortly_before_previous_analysis() {
+    when(system.now()).thenReturn(file.lastModified());
+    analyse(new FileMetadata());
+
+    assertThat(analyse(new FileMetadata()).reusedCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void ignore_snapshot_of_other_encoding() {
+    analyse(new FileMetadata());
+
+    FileMetadataSnapshot snapshot = newSnapshot(new FileMetadata());
+    snapshot.load(StandardCharsets.ISO_8859_1);
+    snapshot.readMetadata(file, "src/Foo.java");
+
+    assertThat(snapshot.reusedCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void disabled_by_property() {
+    settings.setProperty(FileMetadataSnapshot.ENABLED_PROPERTY, false);
+    analyse(new FileMetadata());
+
+    assertThat(analyse(new FileMetadata()).reusedCount()).isEqualTo(0);
+    assertThat(new File(reactor.getRoot().getWorkDir(), FileMetadataSnapshot.DIRECTORY_NAME)).doesNotExist();
+  }
+
+  private FileMetadataSnapshot analyse(FileMetadata fileMetadata) {
+    FileMetadataSnapshot snapshot = newSnapshot(fileMetadata);
+    snapshot.load(StandardCharsets.UTF_8);
+    snapshot.readMetadata(file, "src/Foo.java");
+    snapshot.save();
+    return snapshot;
+  }
+
+  private FileMetadataSnapshot newSnapshot(FileMetadata fileMetadata) {
+    return new FileMetadataSnapshot(reactor, reactor.getRoot(), settings, fileMetadata, system);
+  }
+}
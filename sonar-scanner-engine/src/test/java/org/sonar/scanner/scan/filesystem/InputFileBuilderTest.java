@@ -25,12 +25,15 @@ import org.apache.commons.io.FileUtils;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.bootstrap.ProjectDefinition;
+import org.sonar.api.batch.bootstrap.ProjectReactor;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.batch.fs.internal.FileMetadata;
 import org.sonar.api.config.MapSettings;
 import org.sonar.api.scan.filesystem.PathResolver;
 import org.sonar.api.utils.PathUtils;
+import org.sonar.api.utils.System2;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
@@ -64,7 +67,7 @@ public class InputFileBuilderTest {
       .thenReturn(InputFile.Status.ADDED);
 
     InputFileBuilder builder = new InputFileBuilder("struts", new PathResolver(),
-      langDetection, statusDetection, fs, new MapSettings(), new FileMetadata());
+      langDetection, statusDetection, fs, new MapSettings(), snapshot());
     DefaultInputFile inputFile = builder.create(srcFile);
     builder.completeAndComputeMetadata(inputFile, InputFile.Type.MAIN);
 
@@ -87,7 +90,7 @@ public class InputFileBuilderTest {
     when(fs.baseDir()).thenReturn(basedir);
 
     InputFileBuilder builder = new InputFileBuilder("struts", new PathResolver(),
-      langDetection, statusDetection, fs, new MapSettings(), new FileMetadata());
+      langDetection, statusDetection, fs, new MapSettings(), snapshot());
     DefaultInputFile inputFile = builder.create(srcFile);
 
     assertThat(inputFile).isNull();
@@ -107,11 +110,18 @@ public class InputFileBuilderTest {
     when(langDetection.language(any(InputFile.class))).thenReturn(null);
 
     InputFileBuilder builder = new InputFileBuilder("struts", new PathResolver(),
-      langDetection, statusDetection, fs, new MapSettings(), new FileMetadata());
+      langDetection, statusDetection, fs, new MapSettings(), snapshot());
     DefaultInputFile inputFile = builder.create(srcFile);
     inputFile = builder.completeAndComputeMetadata(inputFile, InputFile.Type.MAIN);
 
     assertThat(inputFile).isNull();
   }
 
+  private FileMetadataSnapshot snapshot() throws Exception {
+    ProjectReactor reactor = new ProjectReactor(ProjectDefinition.create().setKey("struts").setWorkDir(temp.newFolder()));
+    FileMetadataSnapshot snapshot = new FileMetadataSnapshot(reactor, reactor.getRoot(), new MapSettings(), new FileMetadata(), System2.INSTANCE);
+    snapshot.load(StandardCharsets.UTF_8);
+    return snapshot;
+  }
+
 }
@@ -19,6 +19,7 @@
  */
 package org.sonarqube.ws.client;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.net.Proxy;
@@ -36,17 +37,20 @@ import javax.net.ssl.SSLSocketFactory;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.TrustManagerFactory;
 import javax.net.ssl.X509TrustManager;
+import okhttp3.Cache;
 import okhttp3.Call;
 import okhttp3.ConnectionSpec;
 import okhttp3.Credentials;
 import okhttp3.Headers;
 import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
 import okhttp3.MediaType;
 import okhttp3.MultipartBody;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
+import okio.BufferedSink;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Strings.isNullOrEmpty;
@@ -106,6 +110,10 @@ public class HttpConnector implements WsConnector {
 
     okHttpClientBuilder.connectTimeout(builder.connectTimeoutMs, TimeUnit.MILLISECONDS);
     okHttpClientBuilder.readTimeout(builder.readTimeoutMs, TimeUnit.MILLISECONDS);
+    if (builder.cacheDirectory != null) {
+      okHttpClientBuilder.cache(new Cache(builder.cacheDirectory, builder.cacheMaxSizeBytes));
+      okHttpClientBuilder.addNetworkInterceptor(HttpConnector::validateCachedStaticResources);
+    }
 
     ConnectionSpec tls = new ConnectionSpec.Builder(ConnectionSpec.MODERN_TLS)
       .allEnabledTlsVersions()
@@ -119,6 +127,18 @@ public class HttpConnector implements WsConnector {
     return okHttpClientBuilder.build();
   }
 
+  /**
+   * Static resources, for example the index of plugins, are served without Cache-Control. The cache
+   * would consider them as fresh for a while, so they are validated on each call like web services.
+   */
+  private static Response validateCachedStaticResources(Interceptor.Chain chain) throws IOException {
+    Response response = chain.proceed(chain.request());
+    if (response.header("Cache-Control") == null) {
+      return response.newBuilder().header("Cache-Control", "no-cache").build();
+    }
+    return response;
+  }
+
   private static X509TrustManager systemDefaultTrustManager() {
     try {
       TrustManagerFactory trustManagerFactory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
@@ -259,7 +279,7 @@ public class HttpConnector implements WsConnector {
         PostRequest.Part part = param.getValue();
         bodyBuilder.addPart(
           Headers.of("Content-Disposition", format("form-data; name=\"%s\"", param.getKey())),
-          RequestBody.create(MediaType.parse(part.getMediaType()), part.getFile()));
+          createPartBody(part));
       }
       okRequestBuilder.post(bodyBuilder.build());
     }
@@ -267,6 +287,38 @@ public class HttpConnector implements WsConnector {
     return doCall(okRequestBuilder.build());
   }
 
+  private static RequestBody createPartBody(PostRequest.Part part) {
+    MediaType mediaType = MediaType.parse(part.getMediaType());
+    PostRequest.ContentWriter contentWriter = part.getContentWriter();
+    if (contentWriter == null) {
+      return RequestBody.create(mediaType, part.getFile());
+    }
+    return new StreamedRequestBody(mediaType, contentWriter);
+  }
+
+  /**
+   * Body of unknown length, sent with chunked transfer encoding
+   */
+  private static class StreamedRequestBody extends RequestBody {
+    private final MediaType mediaType;
+    private final PostRequest.ContentWriter contentWriter;
+
+    StreamedRequestBody(MediaType mediaType, PostRequest.ContentWriter contentWriter) {
+      this.mediaType = mediaType;
+      this.contentWriter = contentWriter;
+    }
+
+    @Override
+    public MediaType contentType() {
+      return mediaType;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+      contentWriter.writeTo(sink.outputStream());
+    }
+  }
+
   private HttpUrl.Builder prepareUrlBuilder(WsRequest wsRequest) {
     String path = wsRequest.getPath();
     HttpUrl.Builder urlBuilder = baseUrl
@@ -323,6 +375,8 @@ public class HttpConnector implements WsConnector {
     private String proxyPassword;
     private int connectTimeoutMs = DEFAULT_CONNECT_TIMEOUT_MILLISECONDS;
     private int readTimeoutMs = DEFAULT_READ_TIMEOUT_MILLISECONDS;
+    private File cacheDirectory;
+    private long cacheMaxSizeBytes;
 
     /**
      * Private since 5.5.
@@ -383,6 +437,18 @@ public class HttpConnector implements WsConnector {
       return this;
     }
 
+    /**
+     * Optional on-disk cache of responses. Responses are stored only if allowed by server, and
+     * are then validated with conditional requests (ETag or Last-Modified). Unchanged responses are
+     * read from cache, so only headers are transferred. Disabled by default.
+     * @since 6.2
+     */
+    public Builder cache(@Nullable File directory, long maxSizeBytes) {
+      this.cacheDirectory = directory;
+      this.cacheMaxSizeBytes = maxSizeBytes;
+      return this;
+    }
+
     public Builder proxy(@Nullable Proxy proxy) {
       this.proxy = proxy;
       return this;
@@ -20,8 +20,11 @@
 package org.sonarqube.ws.client;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import javax.annotation.CheckForNull;
 
 /**
  * @since 5.3
@@ -51,19 +54,52 @@ public class PostRequest extends BaseRequest<PostRequest> {
   public static class Part {
     private final String mediaType;
     private final File file;
+    private final ContentWriter contentWriter;
 
     public Part(String mediaType, File file) {
       this.mediaType = mediaType;
       this.file = file;
+      this.contentWriter = null;
+    }
+
+    /**
+     * Part whose content is produced while the request is being sent, so that it does not
+     * have to be staged in a file. The writer may be called again if the request is retried.
+     * @since 6.2
+     */
+    public Part(String mediaType, ContentWriter contentWriter) {
+      this.mediaType = mediaType;
+      this.file = null;
+      this.contentWriter = contentWriter;
     }
 
     public String getMediaType() {
       return mediaType;
     }
 
+    @CheckForNull
     public File getFile() {
       return file;
     }
+
+    /**
+     * @since 6.2
+     */
+    @CheckForNull
+    public ContentWriter getContentWriter() {
+      return contentWriter;
+    }
+  }
+
+  /**
+   * @since 6.2
+   */
+  @FunctionalInterface
+  public interface ContentWriter {
+    /**
+     * Writes the content to the request body. The stream must not be closed.
+     */
+    void writeTo(OutputStream output) throws IOException;
   }
 
 }
@@ -20,6 +20,7 @@
 package org.sonarqube.ws.client;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import javax.net.ssl.SSLSocketFactory;
 import okhttp3.ConnectionSpec;
@@ -88,6 +89,35 @@ public class HttpConnectorTest {
     assertThat(recordedRequest.getHeader("Accept-Encoding")).isEqualTo("gzip");
   }
 
+  @Test
+  public void validate_cached_response_with_conditional_request() throws Exception {
+    server.enqueue(new MockResponse().setBody("hello, world!").setHeader("ETag", "\"abc\"").setHeader("Cache-Control", "private, no-cache"));
+    server.enqueue(new MockResponse().setResponseCode(304).setHeader("ETag", "\"abc\""));
+    underTest = HttpConnector.newBuilder().url(serverUrl).cache(temp.newFolder(), 1_000_000L).build();
+
+    assertThat(underTest.call(new GetRequest("batch/global")).content()).isEqualTo("hello, world!");
+    WsResponse response = underTest.call(new GetRequest("batch/global"));
+
+    assertThat(response.code()).isEqualTo(200);
+    assertThat(response.content()).isEqualTo("hello, world!");
+    assertThat(server.takeRequest().getHeader("If-None-Match")).isNull();
+    assertThat(server.takeRequest().getHeader("If-None-Match")).isEqualTo("\"abc\"");
+  }
+
+  @Test
+  public void validate_cached_static_resource_on_each_call() throws Exception {
+    server.enqueue(new MockResponse().setBody("plugins").setHeader("ETag", "W/\"7-1475000000000\"").setHeader("Last-Modified", "Mon, 26 Sep 2016 10:00:00 GMT"));
+    server.enqueue(new MockResponse().setResponseCode(304));
+    underTest = HttpConnector.newBuilder().url(serverUrl).cache(temp.newFolder(), 1_000_000L).build();
+
+    assertThat(underTest.call(new GetRequest("deploy/plugins/index.txt")).content()).isEqualTo("plugins");
+    assertThat(underTest.call(new GetRequest("deploy/plugins/index.txt")).content()).isEqualTo("plugins");
+
+    assertThat(server.getRequestCount()).isEqualTo(2);
+    server.takeRequest();
+    assertThat(server.takeRequest().getHeader("If-None-Match")).isEqualTo("W/\"7-1475000000000\"");
+  }
+
   @Test
   public void use_basic_authentication() throws Exception {
     answerHelloWorld();
@@ -241,6 +271,26 @@ public class HttpConnectorTest {
       .contains("the report content");
   }
 
+  @Test
+  public void upload_streamed_content() throws Exception {
+    answerHelloWorld();
+    PostRequest request = new PostRequest("api/report/upload")
+      .setPart("report", new PostRequest.Part(MediaTypes.TXT, output -> output.write("the streamed content".getBytes(StandardCharsets.UTF_8))))
+      .setMediaType(MediaTypes.PROTOBUF);
+
+    underTest = HttpConnector.newBuilder().url(serverUrl).build();
+    WsResponse response = underTest.call(request);
+
+    assertThat(response.hasContent()).isTrue();
+    RecordedRequest recordedRequest = server.takeRequest();
+    assertThat(recordedRequest.getChunkSizes()).isNotEmpty();
+    String body = IOUtils.toString(recordedRequest.getBody().inputStream());
+    assertThat(body)
+      .contains("Content-Disposition: form-data; name=\"report\"")
+      .contains("Content-Type: text/plain")
+      .contains("the streamed content");
+  }
+
   @Test
   public void http_error() throws Exception {
     server.enqueue(new MockResponse().setResponseCode(404));
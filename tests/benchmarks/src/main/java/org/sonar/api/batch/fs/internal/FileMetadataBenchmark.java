@@ -0,0 +1,90 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.api.batch.fs.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import static org.sonarsource.sonarqube.benchmarks.SyntheticData.DEFAULT_SEED;
+import static org.sonarsource.sonarqube.benchmarks.SyntheticData.sourceLines;
+
+/**
+ * Reading of source files by the scanner: metadata (lines, hash, offsets) when indexing
+ * files and line hashes when tracking issues.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FileMetadataBenchmark {
+
+  @Param({"100", "10000"})
+  int lines;
+
+  private final FileMetadata fileMetadata = new FileMetadata();
+  private Path baseDir;
+  private File file;
+  private DefaultInputFile inputFile;
+
+  @Setup
+  public void setUp() throws IOException {
+    baseDir = Files.createTempDirectory("file-metadata-benchmark");
+    file = baseDir.resolve("Foo.java").toFile();
+    FileUtils.writeLines(file, StandardCharsets.UTF_8.name(), sourceLines(DEFAULT_SEED, lines));
+    inputFile = new DefaultInputFile("module", "Foo.java")
+      .setModuleBaseDir(baseDir)
+      .setCharset(StandardCharsets.UTF_8);
+  }
+
+  @TearDown
+  public void tearDown() {
+    FileUtils.deleteQuietly(baseDir.toFile());
+  }
+
+  @Benchmark
+  public FileMetadata.Metadata readMetadata() {
+    return fileMetadata.readMetadata(file, StandardCharsets.UTF_8);
+  }
+
+  @Benchmark
+  public void computeLineHashesForIssueTracking(Blackhole blackhole) {
+    FileMetadata.computeLineHashesForIssueTracking(inputFile, (lineIdx, hash) -> blackhole.consume(hash));
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.api.batch.fs.internal;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonar.api.batch.fs.FilePredicate;
+import org.sonar.api.batch.fs.FilePredicates;
+import org.sonar.api.batch.fs.InputFile;
+
+/**
+ * Selection of files by the predicates of 40 sensors: full scan of all files, selection through the
+ * secondary indexes of {@link DefaultFileSystem}, and selection when results are already memoized.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FileSelectionBenchmark {
+
+  private static final int SENSORS = 40;
+  private static final String[] LANGUAGES = {"java", "js", "xml", "php", "py", "cs", "web", "css"};
+
+  @Param({"10000", "80000"})
+  int files;
+
+  private DefaultFileSystem fs;
+  private DefaultInputFile lastFile;
+  private List<FilePredicate> sensorPredicates;
+
+  @Setup
+  public void setUp() {
+    fs = new DefaultFileSystem(new File("."));
+    for (int i = 0; i < files; i++) {
+      lastFile = new DefaultInputFile("module", "src/dir" + (i % 500) + "/File" + i + ".src")
+        .setLanguage(LANGUAGES[i % LANGUAGES.length])
+        .setType(i % 5 == 0 ? InputFile.Type.TEST : InputFile.Type.MAIN)
+        .setStatus(i % 50 == 0 ? InputFile.Status.CHANGED : InputFile.Status.SAME);
+      fs.add(lastFile);
+    }
+    sensorPredicates = sensorPredicates(fs.predicates());
+  }
+
+  @State(Scope.Thread)
+  public static class Unmemoized {
+    /**
+     * Adding a file discards the memoized selections, so that each invocation goes through indexes
+     */
+    @Setup(Level.Invocation)
+    public void discardMemoizedSelections(FileSelectionBenchmark benchmark) {
+      benchmark.fs.add(benchmark.lastFile);
+    }
+  }
+
+  @Benchmark
+  public void scanAllFiles(Blackhole blackhole) {
+    for (FilePredicate predicate : sensorPredicates) {
+      consume(new ScanPredicate(predicate).filter(fs.inputFiles()), blackhole);
+    }
+  }
+
+  @Benchmark
+  public void selectThroughIndexes(Unmemoized unmemoized, Blackhole blackhole) {
+    for (FilePredicate predicate : sensorPredicates) {
+      consume(fs.inputFiles(predicate), blackhole);
+    }
+  }
+
+  @Benchmark
+  public void selectMemoized(Blackhole blackhole) {
+    for (FilePredicate predicate : sensorPredicates) {
+      consume(fs.inputFiles(predicate), blackhole);
+    }
+  }
+
+  private static List<FilePredicate> sensorPredicates(FilePredicates p) {
+    List<FilePredicate> result = new ArrayList<>();
+    for (int i = 0; i < SENSORS; i++) {
+      String language = LANGUAGES[i % LANGUAGES.length];
+      switch (i % 4) {
+        case 0:
+          result.add(p.hasLanguage(language));
+          break;
+        case 1:
+          result.add(p.and(p.hasLanguage(language), p.hasType(InputFile.Type.MAIN)));
+          break;
+        case 2:
+          result.add(p.and(p.hasType(InputFile.Type.TEST), p.hasStatus(InputFile.Status.CHANGED)));
+          break;
+        default:
+          result.add(p.and(p.hasLanguages(language, "xml"), p.matchesPathPattern("**/dir1*/**")));
+          break;
+      }
+    }
+    return result;
+  }
+
+  private static void consume(Iterable<InputFile> files, Blackhole blackhole) {
+    for (InputFile file : files) {
+      blackhole.consume(file);
+    }
+  }
+
+  /**
+   * Evaluates the predicate on every file, ignoring indexes
+   */
+  private static class ScanPredicate extends AbstractFilePredicate {
+    private final FilePredicate predicate;
+
+    ScanPredicate(FilePredicate predicate) {
+      this.predicate = predicate;
+    }
+
+    @Override
+    public boolean apply(InputFile inputFile) {
+      return predicate.apply(inputFile);
+    }
+  }
+}
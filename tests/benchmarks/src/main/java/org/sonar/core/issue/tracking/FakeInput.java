@@ -0,0 +1,130 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.issue.tracking;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import javax.annotation.CheckForNull;
+import org.sonar.api.rule.RuleKey;
+
+/**
+ * Source file and its issues, with line and block hashes computed eagerly so that
+ * they are not part of the measured time.
+ */
+class FakeInput implements Input<FakeInput.Issue> {
+
+  private static final int RULES = 20;
+
+  private final List<String> lines;
+  private final LineHashSequence lineHashes;
+  private final BlockHashSequence blockHashes;
+  private final List<Issue> issues = new ArrayList<>();
+
+  FakeInput(List<String> lines) {
+    this.lines = lines;
+    this.lineHashes = LineHashSequence.createForLines(lines);
+    this.blockHashes = BlockHashSequence.create(lineHashes);
+  }
+
+  /**
+   * Raises {@code count} issues on random lines
+   */
+  FakeInput withRandomIssues(long seed, int count) {
+    Random random = new Random(seed);
+    for (int i = 0; i < count; i++) {
+      int line = 1 + random.nextInt(lines.size());
+      addIssue(line, random.nextInt(RULES), "Issue " + random.nextInt(count));
+    }
+    return this;
+  }
+
+  /**
+   * Copies the issues of {@code base} to the lines that have the same content in this
+   * input, as if the issues were raised again on the new revision of the file. Issues
+   * on lines that do not exist anymore are dropped.
+   */
+  FakeInput withIssuesOf(FakeInput base) {
+    for (Issue issue : base.issues) {
+      int index = lines.indexOf(base.lines.get(issue.line - 1));
+      if (index >= 0) {
+        addIssue(index + 1, issue.rule, issue.message);
+      }
+    }
+    return this;
+  }
+
+  private void addIssue(int line, int rule, String message) {
+    issues.add(new Issue(line, rule, message, lineHashes.getHashForLine(line)));
+  }
+
+  @Override
+  public LineHashSequence getLineHashSequence() {
+    return lineHashes;
+  }
+
+  @Override
+  public BlockHashSequence getBlockHashSequence() {
+    return blockHashes;
+  }
+
+  @Override
+  public Collection<Issue> getIssues() {
+    return issues;
+  }
+
+  static class Issue implements Trackable {
+    private final int line;
+    private final int rule;
+    private final RuleKey ruleKey;
+    private final String message;
+    private final String lineHash;
+
+    Issue(int line, int rule, String message, String lineHash) {
+      this.line = line;
+      this.rule = rule;
+      this.ruleKey = RuleKey.of("repo", "rule" + rule);
+      this.message = message;
+      this.lineHash = lineHash;
+    }
+
+    @Override
+    public Integer getLine() {
+      return line;
+    }
+
+    @Override
+    public String getMessage() {
+      return message;
+    }
+
+    @CheckForNull
+    @Override
+    public String getLineHash() {
+      return lineHash;
+    }
+
+    @Override
+    public RuleKey getRuleKey() {
+      return ruleKey;
+    }
+  }
+}
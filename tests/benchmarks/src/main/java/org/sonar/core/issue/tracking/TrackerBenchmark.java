@@ -0,0 +1,75 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.issue.tracking;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static org.sonarsource.sonarqube.benchmarks.SyntheticData.DEFAULT_SEED;
+import static org.sonarsource.sonarqube.benchmarks.SyntheticData.modify;
+import static org.sonarsource.sonarqube.benchmarks.SyntheticData.sourceLines;
+
+/**
+ * Matching of raw issues with base issues of a file, as done by the compute engine
+ * and by the scanner in issues mode.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class TrackerBenchmark {
+
+  @Param({"1000", "10000"})
+  int lines;
+
+  @Param({"100", "1000"})
+  int issues;
+
+  private final Tracker<FakeInput.Issue, FakeInput.Issue> tracker = new Tracker<>();
+  private FakeInput baseInput;
+  private FakeInput rawInput;
+
+  @Setup
+  public void setUp() {
+    List<String> baseLines = sourceLines(DEFAULT_SEED, lines);
+    baseInput = new FakeInput(baseLines).withRandomIssues(DEFAULT_SEED, issues);
+    rawInput = new FakeInput(modify(baseLines, DEFAULT_SEED, 0.1))
+      .withIssuesOf(baseInput)
+      .withRandomIssues(DEFAULT_SEED + 1, issues / 10);
+  }
+
+  @Benchmark
+  public Tracking<FakeInput.Issue, FakeInput.Issue> track() {
+    return tracker.track(rawInput, baseInput);
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.api.utils.text.JsonWriter;
+import org.sonarqube.ws.Common;
+import org.sonarqube.ws.Issues;
+
+import static org.sonarsource.sonarqube.benchmarks.SyntheticData.DEFAULT_SEED;
+import static org.sonarsource.sonarqube.benchmarks.SyntheticData.text;
+
+/**
+ * Conversion of web service responses from protobuf to JSON, here a page of api/issues/search.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProtobufJsonFormatBenchmark {
+
+  @Param({"100", "500"})
+  int issues;
+
+  private Issues.SearchWsResponse response;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(DEFAULT_SEED);
+    Issues.SearchWsResponse.Builder builder = Issues.SearchWsResponse.newBuilder()
+      .setTotal(issues)
+      .setP(1)
+      .setPs(issues);
+    for (int i = 0; i < issues; i++) {
+      int line = 1 + random.nextInt(1000);
+      builder.addIssuesBuilder()
+        .setKey("AV" + text(DEFAULT_SEED + i, 18))
+        .setRule("squid:S" + random.nextInt(3000))
+        .setSeverity(Common.Severity.valueOf(random.nextInt(5)))
+        .setComponent("org.sonar:project:src/main/java/Foo" + random.nextInt(50) + ".java")
+        .setProject("org.sonar:project")
+        .setLine(line)
+        .setTextRange(Common.TextRange.newBuilder().setStartLine(line).setEndLine(line).setStartOffset(0).setEndOffset(10))
+        .setStatus("OPEN")
+        .setMessage(text(DEFAULT_SEED - i, 60))
+        .setEffort(random.nextInt(60) + "min")
+        .addTags("convention")
+        .addTags("pitfall")
+        .setCreationDate("2016-09-12T10:15:30+0200")
+        .setUpdateDate("2016-09-13T11:15:30+0200")
+        .setType(Common.RuleType.valueOf(1 + random.nextInt(3)));
+    }
+    for (int i = 0; i < 50; i++) {
+      builder.addComponentsBuilder()
+        .setKey("org.sonar:project:src/main/java/Foo" + i + ".java")
+        .setUuid("UUID" + i)
+        .setEnabled(true)
+        .setQualifier("FIL")
+        .setName("Foo" + i + ".java")
+        .setLongName("src/main/java/Foo" + i + ".java")
+        .setPath("src/main/java/Foo" + i + ".java");
+    }
+    response = builder.build();
+  }
+
+  @Benchmark
+  public String toJson() {
+    return ProtobufJsonFormat.toJson(response);
+  }
+
+  /**
+   * Former implementation of WsUtils#writeProtobuf
+   */
+  @Benchmark
+  public byte[] writeThroughJsonWriter() throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try (OutputStreamWriter writer = new OutputStreamWriter(output, StandardCharsets.UTF_8)) {
+      ProtobufJsonFormat.write(response, JsonWriter.of(writer));
+    }
+    return output.toByteArray();
+  }
+
+  @Benchmark
+  public byte[] writeWithProtobufJsonWriter() {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    new ProtobufJsonWriter(output).write(response).flush();
+    return output.toByteArray();
+  }
+}
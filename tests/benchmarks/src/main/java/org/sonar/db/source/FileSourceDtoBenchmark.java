@@ -0,0 +1,102 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.source;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.db.protobuf.DbFileSources;
+
+import static org.sonarsource.sonarqube.benchmarks.SyntheticData.DEFAULT_SEED;
+import static org.sonarsource.sonarqube.benchmarks.SyntheticData.sourceLines;
+
+/**
+ * Serialization and compression of the column FILE_SOURCES.BINARY_DATA, written by
+ * the compute engine and read by web services.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FileSourceDtoBenchmark {
+
+  @Param({"100", "10000"})
+  int lines;
+
+  private final FileSourceDto dto = new FileSourceDto();
+  private DbFileSources.Data data;
+  private byte[] binaryData;
+
+  @Setup
+  public void setUp() {
+    data = createData(lines);
+    binaryData = FileSourceDto.encodeSourceData(data);
+  }
+
+  @Benchmark
+  public byte[] encodeSourceData() {
+    return FileSourceDto.encodeSourceData(data);
+  }
+
+  @Benchmark
+  public DbFileSources.Data decodeSourceData() {
+    return dto.decodeSourceData(binaryData);
+  }
+
+  /**
+   * Lines with source, SCM, coverage and highlighting, as for a fully analyzed file
+   */
+  static DbFileSources.Data createData(int lines) {
+    Random random = new Random(DEFAULT_SEED);
+    List<String> sources = sourceLines(DEFAULT_SEED, lines);
+    DbFileSources.Data.Builder data = DbFileSources.Data.newBuilder();
+    for (int i = 0; i < lines; i++) {
+      String source = sources.get(i);
+      DbFileSources.Line.Builder line = data.addLinesBuilder()
+        .setLine(i + 1)
+        .setSource(source)
+        .setScmRevision("rev" + random.nextInt(50))
+        .setScmAuthor("author" + random.nextInt(10))
+        .setScmDate(1_400_000_000_000L + random.nextInt(1_000_000_000))
+        .setHighlighting("0," + source.length() + ",k");
+      if (random.nextBoolean()) {
+        line.setUtLineHits(random.nextInt(10))
+          .setOverallLineHits(random.nextInt(10));
+      }
+      if (random.nextInt(10) == 0) {
+        line.addDuplication(random.nextInt(5));
+      }
+    }
+    return data.build();
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.duplications.detector.suffixtree;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.index.CloneGroup;
+import org.sonar.duplications.index.FakeBlocks;
+import org.sonar.duplications.index.PackedMemoryCloneIndex;
+
+import static org.sonarsource.sonarqube.benchmarks.SyntheticData.DEFAULT_SEED;
+
+/**
+ * Detection of the duplications of a single file against an already populated
+ * index, as done by the scanner for each file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SuffixTreeCloneDetectionAlgorithmBenchmark {
+
+  @Param({"100", "1000"})
+  int files;
+
+  @Param({"200", "2000"})
+  int blocksPerFile;
+
+  @Param({"0.1", "0.5"})
+  double duplicatedRatio;
+
+  private PackedMemoryCloneIndex index;
+  private List<Block> fileBlocks;
+
+  @Setup
+  public void setUp() {
+    List<List<Block>> blocksByFile = FakeBlocks.create(DEFAULT_SEED, files, blocksPerFile, duplicatedRatio);
+    index = new PackedMemoryCloneIndex();
+    blocksByFile.forEach(blocks -> blocks.forEach(index::insert));
+    fileBlocks = blocksByFile.get(0);
+    // sort the index before measurement
+    index.getByResourceId("file0");
+  }
+
+  @Benchmark
+  public List<CloneGroup> detect() {
+    return SuffixTreeCloneDetectionAlgorithm.detect(index, fileBlocks);
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.duplications.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
+
+import static org.sonarsource.sonarqube.benchmarks.SyntheticData.blockHashes;
+
+public class FakeBlocks {
+
+  private FakeBlocks() {
+    // only static stuff
+  }
+
+  /**
+   * Blocks of {@code files} files named "file0", "file1", ... Each block spans 10 lines.
+   */
+  public static List<List<Block>> create(long seed, int files, int blocksPerFile, double duplicatedRatio) {
+    long[][] hashes = blockHashes(seed, files, blocksPerFile, duplicatedRatio);
+    List<List<Block>> result = new ArrayList<>(files);
+    Block.Builder builder = Block.builder();
+    for (int file = 0; file < files; file++) {
+      List<Block> blocks = new ArrayList<>(blocksPerFile);
+      for (int index = 0; index < blocksPerFile; index++) {
+        blocks.add(builder
+          .setResourceId("file" + file)
+          .setBlockHash(new ByteArray(hashes[file][index]))
+          .setIndexInFile(index)
+          .setLines(index + 1, index + 10)
+          .setUnit(index * 5, index * 5 + 50)
+          .build());
+      }
+      result.add(blocks);
+    }
+    return result;
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.duplications.index;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonar.duplications.block.Block;
+
+import static org.sonarsource.sonarqube.benchmarks.SyntheticData.DEFAULT_SEED;
+
+/**
+ * Index of CPD blocks used by the scanner. Measures the insertion of all the blocks of
+ * the project followed by the lookup of the blocks of each file, which includes
+ * the sort of the index on first lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class PackedMemoryCloneIndexBenchmark {
+
+  @Param({"100", "1000"})
+  int files;
+
+  @Param({"200"})
+  int blocksPerFile;
+
+  private List<List<Block>> blocksByFile;
+
+  @Setup
+  public void setUp() {
+    blocksByFile = FakeBlocks.create(DEFAULT_SEED, files, blocksPerFile, 0.2);
+  }
+
+  @Benchmark
+  public PackedMemoryCloneIndex insert() {
+    PackedMemoryCloneIndex index = new PackedMemoryCloneIndex();
+    for (List<Block> blocks : blocksByFile) {
+      for (Block block : blocks) {
+        index.insert(block);
+      }
+    }
+    return index;
+  }
+
+  @Benchmark
+  public void insertAndQuery(Blackhole blackhole) {
+    PackedMemoryCloneIndex index = insert();
+    for (List<Block> blocks : blocksByFile) {
+      for (Block block : blocks) {
+        blackhole.consume(index.getBySequenceHash(block.getBlockHash()));
+      }
+    }
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.source;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import static org.sonarsource.sonarqube.benchmarks.SyntheticData.DEFAULT_SEED;
+import static org.sonarsource.sonarqube.benchmarks.SyntheticData.sourceLines;
+
+/**
+ * Conversion of source lines to HTML by the web service api/sources/lines, for a
+ * page of lines.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HtmlSourceDecoratorBenchmark {
+
+  private static final String[] HIGHLIGHTING_TYPES = {"k", "c", "s", "cd", "a", "cppd"};
+
+  @Param({"500"})
+  int lines;
+
+  private final HtmlSourceDecorator decorator = new HtmlSourceDecorator();
+  private String[] sources;
+  private String[] highlightings;
+  private String[] symbols;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(DEFAULT_SEED);
+    List<String> sourceLines = sourceLines(DEFAULT_SEED, lines);
+    sources = sourceLines.toArray(new String[lines]);
+    highlightings = new String[lines];
+    symbols = new String[lines];
+    for (int i = 0; i < lines; i++) {
+      StringBuilder highlighting = new StringBuilder();
+      StringBuilder symbol = new StringBuilder();
+      String source = sources[i];
+      int start = 0;
+      while (start < source.length()) {
+        int end = source.indexOf(' ', start);
+        end = end < 0 ? source.length() : end;
+        if (end > start) {
+          append(highlighting, start, end, HIGHLIGHTING_TYPES[random.nextInt(HIGHLIGHTING_TYPES.length)]);
+          if (random.nextInt(3) == 0) {
+            append(symbol, start, end, String.valueOf(random.nextInt(20)));
+          }
+        }
+        start = end + 1;
+      }
+      highlightings[i] = highlighting.toString();
+      symbols[i] = symbol.toString();
+    }
+  }
+
+  private static void append(StringBuilder sb, int start, int end, String value) {
+    if (sb.length() > 0) {
+      sb.append(';');
+    }
+    sb.append(start).append(',').append(end).append(',').append(value);
+  }
+
+  @Benchmark
+  public void getDecoratedSourceAsHtml(Blackhole blackhole) {
+    for (int i = 0; i < lines; i++) {
+      blackhole.consume(decorator.getDecoratedSourceAsHtml(sources[i], highlightings[i], symbols[i]));
+    }
+  }
+}
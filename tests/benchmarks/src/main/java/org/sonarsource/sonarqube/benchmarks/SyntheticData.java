@@ -0,0 +1,152 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarqube.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generators of reproducible data sets. Each call creates its own {@link Random} from the
+ * given seed, so that the same parameters always produce the same data, whatever the
+ * order of calls.
+ */
+public class SyntheticData {
+
+  public static final long DEFAULT_SEED = 42L;
+
+  private static final String[] KEYWORDS = {"int", "long", "String", "boolean", "List<String>", "Map<String, Integer>"};
+  private static final String[] STATEMENTS = {
+    "%s v%d = compute(%d, \"value %d\");",
+    "if (v%2$d > %3$d) { return \"%4$d\"; }",
+    "for (int i = 0; i < %3$d; i++) { sum += i * %4$d; }",
+    "// comment number %2$d about %4$d",
+    "",
+    "}",
+  };
+
+  private SyntheticData() {
+    // only static stuff
+  }
+
+  /**
+   * Java-like source code. Around a third of the lines are duplicated somewhere in the
+   * file, as in real code (closing braces, blank lines, repeated statements).
+   */
+  public static List<String> sourceLines(long seed, int count) {
+    Random random = new Random(seed);
+    List<String> lines = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      String statement = STATEMENTS[random.nextInt(STATEMENTS.length)];
+      String keyword = KEYWORDS[random.nextInt(KEYWORDS.length)];
+      int id = random.nextInt(count);
+      String line = String.format(statement, keyword, id, random.nextInt(100), random.nextInt(1000));
+      lines.add(indent(random.nextInt(4)) + line);
+    }
+    return lines;
+  }
+
+  /**
+   * A new revision of the given source: some blocks of lines are moved, some lines are
+   * inserted and some are deleted. The ratio of changed lines is roughly {@code changeRatio}.
+   */
+  public static List<String> modify(List<String> lines, long seed, double changeRatio) {
+    Random random = new Random(seed);
+    List<String> result = new ArrayList<>(lines);
+    int changes = (int) (lines.size() * changeRatio);
+    for (int i = 0; i < changes && result.size() > 10; i++) {
+      int index = random.nextInt(result.size() - 10);
+      switch (random.nextInt(3)) {
+        case 0:
+          result.add(index, "    int inserted" + i + " = " + random.nextInt() + ";");
+          break;
+        case 1:
+          result.remove(index);
+          break;
+        default:
+          // move a block of up to 10 lines
+          List<String> block = new ArrayList<>(result.subList(index, index + 1 + random.nextInt(10)));
+          result.subList(index, index + block.size()).clear();
+          result.addAll(random.nextInt(result.size()), block);
+          break;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Random values in {@code [0, bound)}, for example line numbers or hashes.
+   */
+  public static int[] ints(long seed, int count, int bound) {
+    Random random = new Random(seed);
+    int[] result = new int[count];
+    for (int i = 0; i < count; i++) {
+      result[i] = random.nextInt(bound);
+    }
+    return result;
+  }
+
+  /**
+   * Block hashes of {@code files} files, as computed by CPD. A ratio {@code duplicatedRatio}
+   * of the blocks belongs to runs of 5 to 20 blocks copied from a pool shared by all files,
+   * so that files have duplications between each others.
+   */
+  public static long[][] blockHashes(long seed, int files, int blocksPerFile, double duplicatedRatio) {
+    Random random = new Random(seed);
+    long[] sharedPool = new long[Math.max(blocksPerFile, 100)];
+    for (int i = 0; i < sharedPool.length; i++) {
+      sharedPool[i] = random.nextLong();
+    }
+    long[][] result = new long[files][];
+    for (int file = 0; file < files; file++) {
+      long[] hashes = new long[blocksPerFile];
+      int block = 0;
+      while (block < blocksPerFile) {
+        int run = Math.min(5 + random.nextInt(16), blocksPerFile - block);
+        boolean duplicated = random.nextDouble() < duplicatedRatio;
+        int from = random.nextInt(sharedPool.length - run + 1);
+        for (int i = 0; i < run; i++) {
+          hashes[block] = duplicated ? sharedPool[from + i] : random.nextLong();
+          block++;
+        }
+      }
+      result[file] = hashes;
+    }
+    return result;
+  }
+
+  public static String text(long seed, int length) {
+    Random random = new Random(seed);
+    StringBuilder sb = new StringBuilder(length);
+    for (int i = 0; i < length; i++) {
+      int c = random.nextInt(30);
+      sb.append(c < 4 ? ' ' : (char) ('a' + c - 4));
+    }
+    return sb.toString();
+  }
+
+  private static String indent(int level) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < level; i++) {
+      sb.append("  ");
+    }
+    return sb.toString();
+  }
+}